@@ -0,0 +1,585 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package michid.jsonjerk;
+
+import michid.jsonjerk.JsonValue.JsonArray;
+import michid.jsonjerk.JsonValue.JsonAtom;
+import michid.jsonjerk.JsonValue.JsonNumber;
+import michid.jsonjerk.JsonValue.JsonObject;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+
+/**
+ * Compact binary encoding for {@link JsonValue}s. Decoding a binary document
+ * does not involve any tokenizing of text and containers can be skipped without
+ * looking at their content.
+ * <p/>
+ * A document consists of a header followed by a single value. The header contains
+ * the bytes {@code 'J'} and {@code 1} (the version), the number of keys in the
+ * shared dictionary the document was encoded with, and the table of all other keys
+ * used in the document:
+ * <pre>
+ * DOCUMENT ::= 'J' 0x01 VARINT(dictionary size) VARINT(key count) (VARINT(length) UTF-8)* VALUE
+ * </pre>
+ * Every item starts with a tag byte. Its upper three bits denote the type of the
+ * item and its lower five bits a payload. Payloads up to 30 are stored in the tag
+ * byte itself, larger ones in a varint following a tag byte with payload 31.
+ * Varints are unsigned LEB128 numbers.
+ * <ul>
+ * <li>{@code LITERAL}: payload 0 for {@code null}, 1 for {@code false}, 2 for
+ * {@code true} and 3 for a {@code double} stored as 8 bytes IEEE 754 (big endian)
+ * following the tag. Payloads 4 and 5 denote a positive and a negative decimal
+ * number without exponent. The tag is followed by two varints: the number of
+ * fraction digits and the digits as unsigned integer.</li>
+ * <li>{@code POSITIVE}, {@code NEGATIVE}: an integral number {@code n} stored as
+ * payload {@code n} or {@code -1 - n} respectively.</li>
+ * <li>{@code NUMBER}: a number stored as text. The payload is its length.</li>
+ * <li>{@code STRING}: the payload is the length of the UTF-8 encoded string
+ * following the tag.</li>
+ * <li>{@code KEY}: a key of an object. The payload is its index: first the keys
+ * of the shared dictionary, then the keys of the key table of the document.</li>
+ * <li>{@code ARRAY}: the payload is the number of bytes of the values following
+ * the tag.</li>
+ * <li>{@code OBJECT}: the payload is the number of bytes of the key value pairs
+ * following the tag.</li>
+ * </ul>
+ * Numbers are encoded as {@code POSITIVE} or {@code NEGATIVE} if their text is the
+ * canonical representation of a {@code long}, as decimal if they have a fraction but
+ * no exponent and at most 18 digits, and as {@code double} if their text is the one
+ * {@link Double#toString(double)} produces. All other numbers are stored as text.
+ * This ensures a decoded value serializes to the same JSON text as the encoded
+ * value. Strings are encoded as generalized UTF-8: unpaired surrogates are encoded
+ * as three bytes like any other char such that they survive a round trip.
+ * <p/>
+ * A shared dictionary saves storing frequently used keys in each document. The
+ * same dictionary must be used for encoding and decoding a document.
+ * <p/>
+ * Instances of this class are immutable and thread safe.
+ *
+ * @see BinaryJsonTokenizer
+ */
+public final class BinaryJson {
+    static final byte MAGIC = 'J';
+    static final byte VERSION = 1;
+
+    static final int LITERAL = 0;
+    static final int POSITIVE = 1;
+    static final int NEGATIVE = 2;
+    static final int NUMBER = 3;
+    static final int STRING = 4;
+    static final int KEY = 5;
+    static final int ARRAY = 6;
+    static final int OBJECT = 7;
+
+    static final int NULL = 0;
+    static final int FALSE = 1;
+    static final int TRUE = 2;
+    static final int DOUBLE = 3;
+    static final int POSITIVE_DECIMAL = 4;
+    static final int NEGATIVE_DECIMAL = 5;
+
+    /** Maximal number of digits of a decimal */
+    static final int MAX_DECIMAL_DIGITS = 18;
+
+    /** Largest payload stored in the tag byte */
+    static final int MAX_INLINE = 30;
+
+    /** Payload of a tag byte which is followed by a varint holding the actual payload */
+    static final int VARINT = 31;
+
+    private final String[] dictionary;
+    private final Map<String, Integer> dictionaryIndex;
+
+    /**
+     * Create a new instance without shared dictionary
+     */
+    public BinaryJson() {
+        this(Collections.<String>emptyList());
+    }
+
+    /**
+     * Create a new instance for the shared {@code dictionary}
+     * @param dictionary
+     * @throws IllegalArgumentException  if {@code dictionary} contains duplicates
+     */
+    public BinaryJson(List<String> dictionary) {
+        this.dictionary = dictionary.toArray(new String[dictionary.size()]);
+        dictionaryIndex = new HashMap<String, Integer>();
+        for (int k = 0; k < this.dictionary.length; k++) {
+            if (dictionaryIndex.put(this.dictionary[k], k) != null) {
+                throw new IllegalArgumentException("Duplicate key in dictionary: " + this.dictionary[k]);
+            }
+        }
+    }
+
+    /**
+     * Encode {@code value}
+     * @param value
+     * @return  the binary document
+     */
+    public byte[] encode(JsonValue value) {
+        Encoder encoder = new Encoder();
+        encoder.value(value);
+        return encoder.toByteArray();
+    }
+
+    /**
+     * Encode {@code value} to {@code out}
+     * @param value
+     * @param out
+     * @throws IOException  if writing to {@code out} fails
+     */
+    public void encode(JsonValue value, OutputStream out) throws IOException {
+        Encoder encoder = new Encoder();
+        encoder.value(value);
+        encoder.writeTo(out);
+    }
+
+    /**
+     * Decode the binary document in {@code data}
+     * @param data
+     * @return  a {@code JsonObject}, a {@code JsonArray} or a {@code JsonAtom}
+     * @throws ParseException  if {@code data} is not a valid binary document
+     */
+    public JsonValue decode(byte[] data) {
+        return decode(data, 0, data.length);
+    }
+
+    /**
+     * Decode the binary document in the {@code length} bytes of {@code data}
+     * starting at {@code offset}
+     * @param data
+     * @param offset
+     * @param length
+     * @return  a {@code JsonObject}, a {@code JsonArray} or a {@code JsonAtom}
+     * @throws ParseException  if the bytes are not a valid binary document
+     */
+    public JsonValue decode(byte[] data, int offset, int length) {
+        BinaryJsonTokenizer tokenizer = tokenizer(data, offset, length);
+        JsonValue value = tokenizer.readValue();
+        tokenizer.read(Token.Type.EOF);
+        return value;
+    }
+
+    /**
+     * Parse the binary document in {@code data} calling back to {@code handler}
+     * @param data
+     * @param handler
+     * @throws ParseException  if {@code data} is not a valid binary document
+     */
+    public void parse(byte[] data, JsonHandler handler) {
+        new JsonParser(handler).parseValue(null, tokenizer(data));
+    }
+
+    /**
+     * @param data
+     * @return  a tokenizer for the binary document in {@code data}
+     * @throws ParseException  if {@code data} does not start with a valid header
+     */
+    public BinaryJsonTokenizer tokenizer(byte[] data) {
+        return tokenizer(data, 0, data.length);
+    }
+
+    /**
+     * @param data
+     * @param offset
+     * @param length
+     * @return  a tokenizer for the binary document in the {@code length} bytes of
+     * {@code data} starting at {@code offset}
+     * @throws ParseException  if the bytes do not start with a valid header
+     */
+    public BinaryJsonTokenizer tokenizer(byte[] data, int offset, int length) {
+        return new BinaryJsonTokenizer(data, offset, length, dictionary);
+    }
+
+    //------------------------------------------< private >---
+
+    /**
+     * Encoder for a single document. The values are encoded into a buffer first
+     * since the key table is only known once all values have been encoded.
+     * The payload of a container is only known after its content has been
+     * encoded. It is patched into the tag byte. Payloads which do not fit into
+     * the tag byte are inserted after it in a single pass over the buffer once
+     * all values have been encoded.
+     */
+    private final class Encoder {
+        private final Map<String, Integer> keyIndex = new HashMap<String, Integer>();
+        private final List<String> keys = new ArrayList<String>();
+        private final Buffer values = new Buffer(256);
+
+        void value(JsonValue value) {
+            switch (value.type()) {
+                case OBJECT:
+                    object(value.asObject());
+                    break;
+                case ARRAY:
+                    array(value.asArray());
+                    break;
+                case STRING:
+                    values.string(STRING, value.asAtom().value());
+                    break;
+                case NUMBER:
+                    number(value.asAtom().asNumber());
+                    break;
+                case BOOLEAN:
+                    values.tag(LITERAL, Boolean.parseBoolean(value.asAtom().value()) ? TRUE : FALSE);
+                    break;
+                default:
+                    values.tag(LITERAL, NULL);
+            }
+        }
+
+        byte[] toByteArray() {
+            values.insertLengths();
+            Buffer header = header();
+            byte[] data = new byte[header.size + values.size];
+            System.arraycopy(header.bytes, 0, data, 0, header.size);
+            System.arraycopy(values.bytes, 0, data, header.size, values.size);
+            return data;
+        }
+
+        void writeTo(OutputStream out) throws IOException {
+            values.insertLengths();
+            Buffer header = header();
+            out.write(header.bytes, 0, header.size);
+            out.write(values.bytes, 0, values.size);
+        }
+
+        private Buffer header() {
+            Buffer header = new Buffer(16);
+            header.write(MAGIC);
+            header.write(VERSION);
+            header.varint(dictionary.length);
+            header.varint(keys.size());
+            for (String key : keys) {
+                header.utf8(key);
+            }
+            return header;
+        }
+
+        private void object(JsonObject object) {
+            int start = values.begin();
+            for (Entry<String, JsonValue> entry : object.value().entrySet()) {
+                key(entry.getKey());
+                value(entry.getValue());
+            }
+            values.end(OBJECT, start);
+        }
+
+        private void array(JsonArray array) {
+            int start = values.begin();
+            for (JsonValue value : array.value()) {
+                value(value);
+            }
+            values.end(ARRAY, start);
+        }
+
+        private void key(String key) {
+            Integer index = dictionaryIndex.get(key);
+            if (index == null) {
+                index = keyIndex.get(key);
+                if (index == null) {
+                    index = dictionary.length + keys.size();
+                    keyIndex.put(key, index);
+                    keys.add(key);
+                }
+            }
+            values.tag(KEY, index);
+        }
+
+        private void number(JsonNumber number) {
+            try {
+                if (number.isCanonicalLong()) {
+                    long value = number.asLong();
+                    if (value >= 0) {
+                        values.tag(POSITIVE, value);
+                    }
+                    else {
+                        values.tag(NEGATIVE, -1 - value);
+                    }
+                    return;
+                }
+                else if (decimal(number.value())) {
+                    return;
+                }
+                else if (number.isCanonicalDouble()) {
+                    values.tag(LITERAL, DOUBLE);
+                    values.fixed64(Double.doubleToLongBits(number.asDouble()));
+                    return;
+                }
+            }
+            catch (NumberFormatException e) {
+                // not a valid number, keep its text
+            }
+            values.string(NUMBER, number.value());
+        }
+
+        /**
+         * Encode {@code text} as decimal if it consists of an integral part without
+         * leading zeros, a fraction and at most {@link #MAX_DECIMAL_DIGITS} digits.
+         * @return  {@code false} if {@code text} cannot be encoded as decimal
+         */
+        private boolean decimal(String text) {
+            int k = 0;
+            boolean negative = text.charAt(0) == '-';
+            if (negative) {
+                k++;
+            }
+            int digitsStart = k;
+
+            long digits = 0;
+            int point = -1;
+            for (; k < text.length(); k++) {
+                char c = text.charAt(k);
+                if (c >= '0' && c <= '9') {
+                    digits = 10 * digits + c - '0';
+                }
+                else if (c == '.' && point < 0) {
+                    point = k;
+                }
+                else {
+                    return false;
+                }
+            }
+
+            int scale = text.length() - point - 1;
+            int integralDigits = point - digitsStart;
+            if (point < 0 || scale == 0 || integralDigits == 0 || integralDigits + scale > MAX_DECIMAL_DIGITS
+                    || integralDigits > 1 && text.charAt(digitsStart) == '0') {
+                return false;
+            }
+
+            values.tag(LITERAL, negative ? NEGATIVE_DECIMAL : POSITIVE_DECIMAL);
+            values.varint(scale);
+            values.varint(digits);
+            return true;
+        }
+    }
+
+    /**
+     * Growable byte buffer with methods for writing the items of the encoding
+     */
+    private static final class Buffer {
+        byte[] bytes;
+        int size;
+
+        /** Number of bytes of the varint payloads to insert before each open container */
+        private int[] open = new int[16];
+        private int depth;
+
+        /** Position and payload of containers whose payload does not fit into the tag byte */
+        private long[] lengths = new long[16];
+        private int lengthCount;
+
+        /** Number of bytes of the varint payloads to insert */
+        private int inserted;
+
+        Buffer(int capacity) {
+            bytes = new byte[capacity];
+        }
+
+        void write(int b) {
+            ensure(1);
+            bytes[size++] = (byte) b;
+        }
+
+        void tag(int type, long payload) {
+            if (payload <= MAX_INLINE) {
+                write(type << 5 | (int) payload);
+            }
+            else {
+                write(type << 5 | VARINT);
+                varint(payload);
+            }
+        }
+
+        void varint(long value) {
+            ensure(10);
+            size = varint(value, size);
+        }
+
+        void fixed64(long value) {
+            ensure(8);
+            for (int shift = 56; shift >= 0; shift -= 8) {
+                bytes[size++] = (byte) (value >>> shift);
+            }
+        }
+
+        void string(int type, String text) {
+            int length = utf8Length(text);
+            tag(type, length);
+            encode(text, length);
+        }
+
+        void utf8(String text) {
+            int length = utf8Length(text);
+            varint(length);
+            encode(text, length);
+        }
+
+        /**
+         * Reserve the tag byte of a container
+         * @return  the position of the tag byte
+         */
+        int begin() {
+            ensure(1);
+            if (depth == open.length) {
+                open = Arrays.copyOf(open, 2 * depth);
+            }
+            open[depth++] = inserted;
+            return size++;
+        }
+
+        /**
+         * Patch the tag byte of a container whose content has been written. A payload
+         * which does not fit into the tag byte is recorded for {@link #insertLengths()}.
+         * @param type
+         * @param start  the position returned from {@link #begin()}
+         */
+        void end(int type, int start) {
+            int length = size - start - 1 + inserted - open[--depth];
+            if (length <= MAX_INLINE) {
+                bytes[start] = (byte) (type << 5 | length);
+            }
+            else {
+                bytes[start] = (byte) (type << 5 | VARINT);
+                if (lengthCount == lengths.length) {
+                    lengths = Arrays.copyOf(lengths, 2 * lengthCount);
+                }
+                lengths[lengthCount++] = (long) (start + 1) << 32 | length;
+                inserted += varintLength(length);
+            }
+        }
+
+        /**
+         * Insert the payloads recorded by {@link #end(int, int)} after the tag bytes
+         * of their containers. Moves each byte at most once by working from the end
+         * of the buffer to its start.
+         */
+        void insertLengths() {
+            if (lengthCount == 0) {
+                return;
+            }
+
+            ensure(inserted);
+            Arrays.sort(lengths, 0, lengthCount);
+            int from = size;
+            int to = size + inserted;
+            for (int k = lengthCount - 1; k >= 0; k--) {
+                int pos = (int) (lengths[k] >>> 32);
+                int length = (int) lengths[k];
+                to -= from - pos;
+                System.arraycopy(bytes, pos, bytes, to, from - pos);
+                to -= varintLength(length);
+                varint(length, to);
+                from = pos;
+            }
+            size += inserted;
+            lengthCount = 0;
+            inserted = 0;
+        }
+
+        private int varint(long value, int pos) {
+            while ((value & ~0x7fL) != 0) {
+                bytes[pos++] = (byte) (value & 0x7f | 0x80);
+                value >>>= 7;
+            }
+            bytes[pos++] = (byte) value;
+            return pos;
+        }
+
+        private static int varintLength(long value) {
+            int length = 1;
+            while ((value & ~0x7fL) != 0) {
+                value >>>= 7;
+                length++;
+            }
+            return length;
+        }
+
+        private static int utf8Length(String text) {
+            int length = text.length();
+            for (int k = 0; k < text.length(); k++) {
+                char c = text.charAt(k);
+                if (c >= 0x80) {
+                    if (c < 0x800) {
+                        length++;
+                    }
+                    else if (Character.isHighSurrogate(c) && k + 1 < text.length()
+                            && Character.isLowSurrogate(text.charAt(k + 1))) {
+                        length += 2;
+                        k++;
+                    }
+                    else {
+                        length += 2;
+                    }
+                }
+            }
+            return length;
+        }
+
+        private void encode(String text, int length) {
+            ensure(length);
+            byte[] bytes = this.bytes;
+            int pos = size;
+            for (int k = 0; k < text.length(); k++) {
+                char c = text.charAt(k);
+                if (c < 0x80) {
+                    bytes[pos++] = (byte) c;
+                }
+                else if (c < 0x800) {
+                    bytes[pos++] = (byte) (0xc0 | c >> 6);
+                    bytes[pos++] = (byte) (0x80 | c & 0x3f);
+                }
+                else if (Character.isHighSurrogate(c) && k + 1 < text.length()
+                        && Character.isLowSurrogate(text.charAt(k + 1))) {
+                    int cp = Character.toCodePoint(c, text.charAt(++k));
+                    bytes[pos++] = (byte) (0xf0 | cp >> 18);
+                    bytes[pos++] = (byte) (0x80 | cp >> 12 & 0x3f);
+                    bytes[pos++] = (byte) (0x80 | cp >> 6 & 0x3f);
+                    bytes[pos++] = (byte) (0x80 | cp & 0x3f);
+                }
+                else {
+                    // includes unpaired surrogates, which are encoded like any other char
+                    bytes[pos++] = (byte) (0xe0 | c >> 12);
+                    bytes[pos++] = (byte) (0x80 | c >> 6 & 0x3f);
+                    bytes[pos++] = (byte) (0x80 | c & 0x3f);
+                }
+            }
+            size = pos;
+        }
+
+        private void ensure(int count) {
+            if (size + count > bytes.length) {
+                byte[] newBytes = new byte[Math.max(2 * bytes.length, size + count)];
+                System.arraycopy(bytes, 0, newBytes, 0, size);
+                bytes = newBytes;
+            }
+        }
+    }
+}
@@ -0,0 +1,706 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package michid.jsonjerk;
+
+import michid.jsonjerk.JsonValue.JsonAtom;
+import michid.jsonjerk.JsonValue.JsonNumber;
+import michid.jsonjerk.Token.Type;
+
+import java.nio.charset.Charset;
+import java.util.List;
+
+import static michid.jsonjerk.BinaryJson.ARRAY;
+import static michid.jsonjerk.BinaryJson.DOUBLE;
+import static michid.jsonjerk.BinaryJson.FALSE;
+import static michid.jsonjerk.BinaryJson.KEY;
+import static michid.jsonjerk.BinaryJson.LITERAL;
+import static michid.jsonjerk.BinaryJson.MAGIC;
+import static michid.jsonjerk.BinaryJson.MAX_DECIMAL_DIGITS;
+import static michid.jsonjerk.BinaryJson.NEGATIVE;
+import static michid.jsonjerk.BinaryJson.NEGATIVE_DECIMAL;
+import static michid.jsonjerk.BinaryJson.NULL;
+import static michid.jsonjerk.BinaryJson.NUMBER;
+import static michid.jsonjerk.BinaryJson.OBJECT;
+import static michid.jsonjerk.BinaryJson.POSITIVE;
+import static michid.jsonjerk.BinaryJson.POSITIVE_DECIMAL;
+import static michid.jsonjerk.BinaryJson.STRING;
+import static michid.jsonjerk.BinaryJson.TRUE;
+import static michid.jsonjerk.BinaryJson.VARINT;
+import static michid.jsonjerk.BinaryJson.VERSION;
+
+/**
+ * Tokenizer for documents in the {@link BinaryJson binary encoding}. It produces
+ * the same sequence of tokens as a tokenizer for the JSON text of the document,
+ * such that a {@link JsonParser} and all parsers built on top of it work on binary
+ * documents unchanged. {@link Type#COLON} and {@link Type#COMMA} tokens are not
+ * present in the binary encoding and are synthesized.
+ * <p/>
+ * The positions of the tokens are byte offsets into the input. Containers are
+ * skipped in constant time. {@link #setPos(int) Setting the position} is supported
+ * for positions of values and keys. The tokenizer then reads the value or key at
+ * that position without regard to the enclosing container.
+ */
+public class BinaryJsonTokenizer extends JsonTokenizer {
+    private static final Charset LATIN1 = Charset.forName("ISO-8859-1");
+
+    /** States of a container */
+    private static final int FIRST = 0;
+    private static final int AFTER_KEY = 1;
+    private static final int AFTER_COLON = 2;
+    private static final int AFTER_VALUE = 3;
+    private static final int AFTER_COMMA = 4;
+
+    private final byte[] data;
+    private final int end;
+
+    /** The keys of the shared dictionary followed by the keys of the document */
+    private final String[] keys;
+
+    private int pos;
+
+    /** Stack of the containers enclosing the current position */
+    private int depth;
+    private int[] ends;
+    private boolean[] objects;
+    private int[] states;
+
+    /**
+     * Create a tokenizer for the binary document in {@code data} which has been
+     * encoded without shared dictionary
+     * @param data
+     * @throws ParseException  if {@code data} does not start with a valid header
+     */
+    public BinaryJsonTokenizer(byte[] data) {
+        this(data, 0, data.length, new String[0]);
+    }
+
+    /**
+     * Create a tokenizer for the binary document in the {@code length} bytes of
+     * {@code data} starting at {@code offset} which has been encoded with the
+     * shared {@code dictionary}.
+     * @param data
+     * @param offset
+     * @param length
+     * @param dictionary
+     * @throws ParseException  if the bytes do not start with a valid header
+     */
+    public BinaryJsonTokenizer(byte[] data, int offset, int length, List<String> dictionary) {
+        this(data, offset, length, dictionary.toArray(new String[dictionary.size()]));
+    }
+
+    /**
+     * @see JsonTokenizer#JsonTokenizer(JsonTokenizer)
+     */
+    protected BinaryJsonTokenizer(BinaryJsonTokenizer tokenizer) {
+        super(tokenizer);
+        data = tokenizer.data;
+        end = tokenizer.end;
+        keys = tokenizer.keys;
+        pos = tokenizer.pos;
+        depth = tokenizer.depth;
+        ends = tokenizer.ends.clone();
+        objects = tokenizer.objects.clone();
+        states = tokenizer.states.clone();
+    }
+
+    BinaryJsonTokenizer(byte[] data, int offset, int length, String[] dictionary) {
+        if (offset < 0 || length < 0 || offset + length > data.length) {
+            throw new IndexOutOfBoundsException("offset: " + offset + ", length: " + length);
+        }
+
+        this.data = data;
+        end = offset + length;
+        pos = offset;
+        ends = new int[8];
+        objects = new boolean[8];
+        states = new int[8];
+
+        if (length < 2 || data[offset] != MAGIC || data[offset + 1] != VERSION) {
+            throw new ParseException(offset, "Not a binary JSON document");
+        }
+        pos += 2;
+
+        int dictionarySize = (int) varint();
+        if (dictionarySize != dictionary.length) {
+            throw new ParseException(offset, "Document requires a dictionary of " + dictionarySize +
+                    " keys, found " + dictionary.length);
+        }
+        int keyCount = length(varint());
+        keys = new String[dictionarySize + keyCount];
+        System.arraycopy(dictionary, 0, keys, 0, dictionarySize);
+        for (int k = dictionarySize; k < keys.length; k++) {
+            keys[k] = utf8(length(varint()));
+        }
+    }
+
+    @Override
+    protected Token nextToken() {
+        int start = pos;
+        return token(scan(), start);
+    }
+
+    @Override
+    protected void nextToken(TokenCursor cursor) {
+        int start = pos;
+        Type type = scan();
+        cursor.set(type, start, pos);
+    }
+
+    @Override
+    protected Token createToken(TokenCursor cursor) {
+        return token(cursor.type(), (int) cursor.start());
+    }
+
+    @Override
+    protected String text(TokenCursor cursor) {
+        switch (cursor.type()) {
+            case STRING: return stringAt((int) cursor.start());
+            case NUMBER: return numberAt((int) cursor.start()).value();
+            default: return text(cursor.type());
+        }
+    }
+
+    @Override
+    protected boolean textEquals(TokenCursor cursor, String text) {
+        if (cursor.type() == Type.STRING) {
+            int tag = data[(int) cursor.start()] & 0xff;
+            if (tag >>> 5 == KEY && (tag & VARINT) != VARINT) {
+                // key with inline index
+                return keys[tag & VARINT].equals(text);
+            }
+        }
+        return text(cursor).equals(text);
+    }
+
+    @Override
+    protected long longValue(TokenCursor cursor) {
+        return numberValue(cursor).asLong();
+    }
+
+    @Override
+    protected double doubleValue(TokenCursor cursor) {
+        return numberValue(cursor).asDouble();
+    }
+
+    @Override
+    protected JsonNumber numberValue(TokenCursor cursor) {
+        Token token = cursor.token();
+        if (token == null) {
+            return numberAt((int) cursor.start());
+        }
+        else if (token instanceof NumberToken) {
+            return ((NumberToken) token).number;
+        }
+        else {
+            return super.numberValue(cursor);
+        }
+    }
+
+    /**
+     * Skip the container whose opening bracket has just been advanced over by
+     * moving to its end as given by its length.
+     */
+    @Override
+    protected void skipContainer(Type type) {
+        int top = depth - 1;
+        if (top < 0 || objects[top] != (type == Type.BEGIN_OBJECT)) {
+            throw new IllegalStateException("Not at the start of a container: " + type);
+        }
+        pos = ends[top];
+        depth--;
+        valueDone();
+    }
+
+    @Override
+    public int pos() {
+        return peek().pos();
+    }
+
+    @Override
+    public void setPos(int pos) {
+        clearCurrentToken();
+        this.pos = pos;
+        depth = 0;
+    }
+
+    @Override
+    public BinaryJsonTokenizer copy() {
+        return new BinaryJsonTokenizer(this);
+    }
+
+    //------------------------------------------< package private >---
+
+    /**
+     * Decode the value at the current position directly into a {@code JsonValue}
+     * without going through tokens.
+     * @return  a {@code JsonObject}, a {@code JsonArray} or a {@code JsonAtom}
+     * @throws ParseException  if the input is not a valid binary document
+     */
+    JsonValue readValue() {
+        if (pos >= end) {
+            throw new ParseException(pos, "Unexpected end of input");
+        }
+
+        int start = pos;
+        int tag = data[pos++] & 0xff;
+        switch (tag >>> 5) {
+            case OBJECT: {
+                int length = length(payload(tag));
+                int end = pos + length;
+                CompactJsonObject object = new CompactJsonObject();
+                while (pos < end) {
+                    int keyStart = pos;
+                    int keyTag = data[pos++] & 0xff;
+                    if (keyTag >>> 5 != KEY) {
+                        throw new ParseException(keyStart, "Expected key");
+                    }
+                    String key = key(keyTag);
+                    object.put(key, readValue());
+                }
+                checkEnd(end);
+                object.trim();
+                return object;
+            }
+            case ARRAY: {
+                int length = length(payload(tag));
+                int end = pos + length;
+                PackedJsonArray array = new PackedJsonArray();
+                while (pos < end) {
+                    array.add(readValue());
+                }
+                checkEnd(end);
+                array.trim();
+                return array;
+            }
+            case KEY:
+                throw new ParseException(start, "Unexpected key");
+            case STRING:
+                return JsonAtom.string(utf8(length(payload(tag))));
+            case LITERAL:
+                switch (tag & VARINT) {
+                    case NULL: return JsonAtom.NULL;
+                    case FALSE: return JsonAtom.FALSE;
+                    case TRUE: return JsonAtom.TRUE;
+                    default: return number(tag, start);
+                }
+            default:
+                return number(tag, start);
+        }
+    }
+
+    //------------------------------------------< private >---
+
+    /**
+     * Advance past the next token without decoding it. The token starts at the
+     * current position unless it is synthesized, in which case the position is
+     * left unchanged.
+     * @return  the type of the token
+     */
+    private Type scan() {
+        if (depth > 0) {
+            int top = depth - 1;
+            switch (states[top]) {
+                case AFTER_VALUE:
+                    if (pos < ends[top]) {
+                        states[top] = AFTER_COMMA;
+                        return Type.COMMA;
+                    }
+                    return endContainer(top);
+                case FIRST:
+                    if (pos >= ends[top]) {
+                        return endContainer(top);
+                    }
+                    break;
+                case AFTER_KEY:
+                    states[top] = AFTER_COLON;
+                    return Type.COLON;
+            }
+        }
+
+        if (pos >= end) {
+            return Type.EOF;
+        }
+
+        int start = pos;
+        int tag = data[pos++] & 0xff;
+        int type = tag >>> 5;
+        if (depth > 0) {
+            boolean keyExpected = objects[depth - 1] && states[depth - 1] != AFTER_COLON;
+            if (keyExpected != (type == KEY)) {
+                throw new ParseException(start, keyExpected ? "Expected key" : "Unexpected key");
+            }
+        }
+
+        switch (type) {
+            case KEY:
+                key(tag);
+                if (depth > 0) {
+                    states[depth - 1] = AFTER_KEY;
+                }
+                return Type.STRING;
+            case OBJECT: {
+                int length = length(payload(tag));
+                push(true, pos + length);
+                return Type.BEGIN_OBJECT;
+            }
+            case ARRAY: {
+                int length = length(payload(tag));
+                push(false, pos + length);
+                return Type.BEGIN_ARRAY;
+            }
+            case STRING: {
+                int length = length(payload(tag));
+                pos += length;
+                valueDone();
+                return Type.STRING;
+            }
+            case LITERAL:
+                valueDone();
+                switch (tag & VARINT) {
+                    case NULL: return Type.NULL;
+                    case FALSE: return Type.FALSE;
+                    case TRUE: return Type.TRUE;
+                    default:
+                        skipNumber(tag, start);
+                        return Type.NUMBER;
+                }
+            default:
+                valueDone();
+                skipNumber(tag, start);
+                return Type.NUMBER;
+        }
+    }
+
+    /**
+     * Create the token of the given {@code type} at {@code start}
+     */
+    private Token token(Type type, int start) {
+        switch (type) {
+            case STRING: return new Token(Type.STRING, stringAt(start), start);
+            case NUMBER: return new NumberToken(numberAt(start), start);
+            default: return new Token(type, text(type), start);
+        }
+    }
+
+    private static String text(Type type) {
+        switch (type) {
+            case BEGIN_OBJECT: return "{";
+            case END_OBJECT: return "}";
+            case BEGIN_ARRAY: return "[";
+            case END_ARRAY: return "]";
+            case COLON: return ":";
+            case COMMA: return ",";
+            case TRUE: return "true";
+            case FALSE: return "false";
+            case NULL: return "null";
+            default: return "";
+        }
+    }
+
+    /**
+     * @return  the text of the key or string at {@code start}
+     */
+    private String stringAt(int start) {
+        int pos = this.pos;
+        this.pos = start + 1;
+        int tag = data[start] & 0xff;
+        String text = tag >>> 5 == KEY
+            ? key(tag)
+            : utf8(length(payload(tag)));
+        this.pos = pos;
+        return text;
+    }
+
+    /**
+     * @return  the number at {@code start}
+     */
+    private JsonNumber numberAt(int start) {
+        int pos = this.pos;
+        this.pos = start + 1;
+        JsonNumber number = number(data[start] & 0xff, start);
+        this.pos = pos;
+        return number;
+    }
+
+    /**
+     * Advance past the number following {@code tag}
+     */
+    private void skipNumber(int tag, int start) {
+        switch (tag >>> 5) {
+            case POSITIVE:
+            case NEGATIVE:
+                if (payload(tag) < 0) {
+                    throw new ParseException(start, "Number exceeds range of long");
+                }
+                break;
+            case NUMBER: {
+                int length = length(payload(tag));
+                pos += length;
+                break;
+            }
+            default:
+                if (tag == (LITERAL << 5 | DOUBLE)) {
+                    length(8);
+                    pos += 8;
+                }
+                else if (tag == (LITERAL << 5 | POSITIVE_DECIMAL) || tag == (LITERAL << 5 | NEGATIVE_DECIMAL)) {
+                    varint();
+                    varint();
+                }
+                else {
+                    throw new ParseException(start, "Invalid tag: " + tag);
+                }
+        }
+    }
+
+    private void push(boolean object, int end) {
+        if (depth > 0 && end > ends[depth - 1]) {
+            throw new ParseException(pos, "Container exceeds enclosing container");
+        }
+        if (depth == ends.length) {
+            int[] newEnds = new int[2 * depth];
+            boolean[] newObjects = new boolean[2 * depth];
+            int[] newStates = new int[2 * depth];
+            System.arraycopy(ends, 0, newEnds, 0, depth);
+            System.arraycopy(objects, 0, newObjects, 0, depth);
+            System.arraycopy(states, 0, newStates, 0, depth);
+            ends = newEnds;
+            objects = newObjects;
+            states = newStates;
+        }
+        ends[depth] = end;
+        objects[depth] = object;
+        states[depth] = FIRST;
+        depth++;
+    }
+
+    private Type endContainer(int top) {
+        checkEnd(ends[top]);
+        depth--;
+        valueDone();
+        return objects[top] ? Type.END_OBJECT : Type.END_ARRAY;
+    }
+
+    private void valueDone() {
+        if (depth > 0) {
+            states[depth - 1] = AFTER_VALUE;
+        }
+    }
+
+    private void checkEnd(int end) {
+        if (pos != end) {
+            throw new ParseException(pos, "Content exceeds length of container ending at " + end);
+        }
+    }
+
+    private String key(int tag) {
+        long index = payload(tag);
+        if (index >= keys.length) {
+            throw new ParseException(pos, "Invalid key index: " + index);
+        }
+        return keys[(int) index];
+    }
+
+    private JsonNumber number(int tag, int start) {
+        switch (tag >>> 5) {
+            case POSITIVE: {
+                long value = payload(tag);
+                if (value < 0) {
+                    throw new ParseException(start, "Number exceeds range of long");
+                }
+                return JsonAtom.number(value);
+            }
+            case NEGATIVE: {
+                long value = payload(tag);
+                if (value < 0) {
+                    throw new ParseException(start, "Number exceeds range of long");
+                }
+                return JsonAtom.number(-1 - value);
+            }
+            case NUMBER: {
+                String text = utf8(length(payload(tag)));
+                return JsonNumber.valueOf(text, 0, text.length());
+            }
+            default:
+                if (tag == (LITERAL << 5 | POSITIVE_DECIMAL) || tag == (LITERAL << 5 | NEGATIVE_DECIMAL)) {
+                    String text = decimal(tag == (LITERAL << 5 | NEGATIVE_DECIMAL), start);
+                    return JsonNumber.valueOf(text, 0, text.length());
+                }
+                if (tag != (LITERAL << 5 | DOUBLE)) {
+                    throw new ParseException(start, "Invalid tag: " + tag);
+                }
+                double value = Double.longBitsToDouble(fixed64());
+                if (Double.isNaN(value) || Double.isInfinite(value)) {
+                    throw new ParseException(start, "Invalid number: " + value);
+                }
+                return JsonAtom.number(value);
+        }
+    }
+
+    /**
+     * @return  the text of the decimal following the tag at {@code start}
+     */
+    private String decimal(boolean negative, int start) {
+        long scale = varint();
+        long digits = varint();
+        if (scale < 1 || scale > MAX_DECIMAL_DIGITS || digits < 0 || digits >= 1000000000000000000L) {
+            throw new ParseException(start, "Invalid decimal");
+        }
+
+        // digits with at least one leading zero before the decimal point
+        char[] text = new char[MAX_DECIMAL_DIGITS + 3];
+        int k = text.length;
+        for (int n = 0; n < scale || digits != 0 || n == scale; n++) {
+            if (n == scale) {
+                text[--k] = '.';
+            }
+            text[--k] = (char) ('0' + digits % 10);
+            digits /= 10;
+        }
+        if (negative) {
+            text[--k] = '-';
+        }
+        return new String(text, k, text.length - k);
+    }
+
+    private long payload(int tag) {
+        int payload = tag & VARINT;
+        return payload == VARINT ? varint() : payload;
+    }
+
+    /**
+     * @return  {@code length} as {@code int}
+     * @throws ParseException  if {@code length} exceeds the remaining input
+     */
+    private int length(long length) {
+        if (length < 0 || length > end - pos) {
+            throw new ParseException(pos, "Length exceeds input: " + length);
+        }
+        return (int) length;
+    }
+
+    private long varint() {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            if (pos >= end) {
+                throw new ParseException(pos, "Unexpected end of input");
+            }
+            byte b = data[pos++];
+            value |= (long) (b & 0x7f) << shift;
+            if (b >= 0) {
+                return value;
+            }
+        }
+        throw new ParseException(pos, "Malformed varint");
+    }
+
+    private long fixed64() {
+        if (end - pos < 8) {
+            throw new ParseException(pos, "Unexpected end of input");
+        }
+        long value = 0;
+        for (int k = 0; k < 8; k++) {
+            value = value << 8 | data[pos++] & 0xff;
+        }
+        return value;
+    }
+
+    /**
+     * Decode {@code length} bytes of generalized UTF-8. Unlike the UTF-8 decoder of
+     * the JDK, this decodes unpaired surrogates instead of replacing them.
+     * @throws ParseException  if the bytes are not well formed
+     */
+    private String utf8(int length) {
+        int end = pos + length;
+        int ascii = pos;
+        while (ascii < end && data[ascii] >= 0) {
+            ascii++;
+        }
+        if (ascii == end) {
+            String text = new String(data, pos, length, LATIN1);
+            pos = end;
+            return text;
+        }
+
+        char[] chars = new char[length];
+        int count = 0;
+        while (pos < end) {
+            int start = pos;
+            int b = data[pos++];
+            if (b >= 0) {
+                chars[count++] = (char) b;
+            }
+            else if ((b & 0xe0) == 0xc0) {
+                int c = (b & 0x1f) << 6 | continuation(start, end);
+                if (c < 0x80) {
+                    throw new ParseException(start, "Malformed UTF-8");
+                }
+                chars[count++] = (char) c;
+            }
+            else if ((b & 0xf0) == 0xe0) {
+                int c = (b & 0x0f) << 12 | continuation(start, end) << 6;
+                c |= continuation(start, end);
+                if (c < 0x800) {
+                    throw new ParseException(start, "Malformed UTF-8");
+                }
+                chars[count++] = (char) c;
+            }
+            else if ((b & 0xf8) == 0xf0) {
+                int cp = (b & 0x07) << 18 | continuation(start, end) << 12;
+                cp |= continuation(start, end) << 6;
+                cp |= continuation(start, end);
+                if (cp < 0x10000 || cp > Character.MAX_CODE_POINT) {
+                    throw new ParseException(start, "Malformed UTF-8");
+                }
+                cp -= 0x10000;
+                chars[count++] = (char) (Character.MIN_HIGH_SURROGATE + (cp >>> 10));
+                chars[count++] = (char) (Character.MIN_LOW_SURROGATE + (cp & 0x3ff));
+            }
+            else {
+                throw new ParseException(start, "Malformed UTF-8");
+            }
+        }
+        return new String(chars, 0, count);
+    }
+
+    private int continuation(int start, int end) {
+        if (pos >= end || (data[pos] & 0xc0) != 0x80) {
+            throw new ParseException(start, "Malformed UTF-8");
+        }
+        return data[pos++] & 0x3f;
+    }
+
+    /**
+     * Number token providing its {@code JsonNumber} without going through its text
+     */
+    private static final class NumberToken extends Token {
+        final JsonNumber number;
+
+        NumberToken(JsonNumber number, int pos) {
+            super(Type.NUMBER, null, pos);
+            this.number = number;
+        }
+
+        @Override
+        public String text() {
+            return number.value();
+        }
+    }
+}
@@ -0,0 +1,170 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package michid.jsonjerk;
+
+/**
+ * Character class tables and the number automaton shared by the tokenizers.
+ * Scanning a token never looks at more than the characters of the token
+ * itself and the first character following it.
+ */
+final class Chars {
+    private Chars() { }
+
+    /** Character is white space */
+    private static final byte WHITE_SPACE = 1;
+
+    /** Character may start a token. Terminates {@link Token.Type#UNKNOWN} tokens. */
+    private static final byte TOKEN_START = 2;
+
+    /** Character is one of <code>{ } [ ] : ,</code> */
+    private static final byte STRUCTURAL = 4;
+
+    /** Character is part of a number, literal or unknown token */
+    private static final byte VALUE = 8;
+
+    private static final byte[] FLAGS = new byte[128];
+
+    // Character classes of the number automaton
+    private static final int OTHER = 0;
+    private static final int DIGIT = 1;
+    private static final int SIGN = 2;
+    private static final int DOT = 3;
+    private static final int EXP = 4;
+
+    private static final byte[] CLASSES = new byte[128];
+
+    static {
+        for (int c = 0; c < 128; c++) {
+            if (Character.isWhitespace(c)) {
+                FLAGS[c] |= WHITE_SPACE;
+            }
+            if ("{}[]:,tfn+-0123456789\" ".indexOf(c) >= 0) {
+                FLAGS[c] |= TOKEN_START;
+            }
+            if ("{}[]:,".indexOf(c) >= 0) {
+                FLAGS[c] |= STRUCTURAL;
+            }
+            else if (c != '"' && (FLAGS[c] & WHITE_SPACE) == 0) {
+                FLAGS[c] |= VALUE;
+            }
+        }
+
+        for (int c = '0'; c <= '9'; c++) {
+            CLASSES[c] = DIGIT;
+        }
+        CLASSES['+'] = SIGN;
+        CLASSES['-'] = SIGN;
+        CLASSES['.'] = DOT;
+        CLASSES['e'] = EXP;
+        CLASSES['E'] = EXP;
+    }
+
+    /**
+     * Initial state of the number automaton
+     */
+    static final int NUMBER_START = 0;
+
+    /**
+     * State of the number automaton after a character which cannot continue
+     * the number has been seen.
+     */
+    static final int NUMBER_REJECT = -1;
+
+    /*
+     * Transitions of the number automaton recognising
+     * (+|-)? DIGIT+ (. DIGIT+)? ((e|E) (+|-)? DIGIT+)?
+     * Rows are states, columns character classes. Accepting states are
+     * 2 (integral part), 4 (fraction) and 7 (exponent).
+     */
+    private static final byte[][] NUMBER_TRANSITIONS = {
+        //  OTHER DIGIT SIGN DOT EXP
+        {   -1,   2,    1,   -1, -1 },    // 0: start
+        {   -1,   2,    -1,  -1, -1 },    // 1: sign
+        {   -1,   2,    -1,  3,  5  },    // 2: integral part
+        {   -1,   4,    -1,  -1, -1 },    // 3: decimal point
+        {   -1,   4,    -1,  -1, 5  },    // 4: fraction
+        {   -1,   7,    6,   -1, -1 },    // 5: exponent marker
+        {   -1,   7,    -1,  -1, -1 },    // 6: exponent sign
+        {   -1,   7,    -1,  -1, -1 },    // 7: exponent
+    };
+
+    private static final boolean[] NUMBER_ACCEPTING = {
+        false, false, true, false, true, false, false, true
+    };
+
+    /**
+     * @param c  a character or a negative value
+     * @return  {@code true} iff {@code c} is a white space character
+     * @see Character#isWhitespace(int)
+     */
+    static boolean isWhiteSpace(int c) {
+        return c >= 0 && (c < 128
+            ? (FLAGS[c] & WHITE_SPACE) != 0
+            : Character.isWhitespace(c));
+    }
+
+    /**
+     * @param c  a character or a negative value
+     * @return  {@code true} iff a token may start with {@code c}
+     */
+    static boolean isTokenStart(int c) {
+        return c >= 0 && c < 128 && (FLAGS[c] & TOKEN_START) != 0;
+    }
+
+    /**
+     * @param c  a character or a negative value
+     * @return  {@code true} iff {@code c} is one of <code>{ } [ ] : ,</code>
+     */
+    static boolean isStructural(int c) {
+        return c >= 0 && c < 128 && (FLAGS[c] & STRUCTURAL) != 0;
+    }
+
+    /**
+     * @param c  a character or a negative value
+     * @return  {@code true} iff {@code c} may be part of a number, a literal or an
+     * unknown token: neither white space, a structural character nor a quote.
+     */
+    static boolean isValue(int c) {
+        return c >= 128
+            ? !Character.isWhitespace(c)
+            : c >= 0 && (FLAGS[c] & VALUE) != 0;
+    }
+
+    /**
+     * Transition function of the number automaton
+     * @param state  current state, initially {@link #NUMBER_START}
+     * @param c  next character or a negative value for end of input
+     * @return  the next state or {@link #NUMBER_REJECT}
+     */
+    static int nextNumberState(int state, int c) {
+        return c >= 0 && c < 128
+            ? NUMBER_TRANSITIONS[state][CLASSES[c]]
+            : NUMBER_REJECT;
+    }
+
+    /**
+     * @param state
+     * @return  {@code true} iff the characters seen so far form a number
+     */
+    static boolean isNumberAccepting(int state) {
+        return NUMBER_ACCEPTING[state];
+    }
+
+}
@@ -0,0 +1,409 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package michid.jsonjerk;
+
+import michid.jsonjerk.JsonValue.JsonObject;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.ConcurrentModificationException;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Compact {@code JsonObject} storing its values in an array. The keys are kept
+ * in a {@link Shape} which is shared by all objects having the same sequence of
+ * keys. Shapes are immutable and form a tree: adding a key to an object moves
+ * it to the child shape for that key, which is created on first use.
+ * <p/>
+ * The shape tree is bounded: a shape keeps at most {@link #MAX_TRANSITIONS}
+ * transitions and drops all of them when another one is needed. Once more than
+ * {@link #MAX_SHAPES} shapes have been created, the whole tree is dropped and
+ * rebuilt from scratch. Objects keep their shapes in both cases, only sharing
+ * with objects created later is lost. Documents with high cardinality keys thus
+ * do not retain shapes beyond the objects using them.
+ * <p/>
+ * An object falls back to a {@code LinkedHashMap} when it is mutated in a way
+ * a shape cannot represent: when a key is removed or when it grows beyond
+ * {@link #MAX_SHAPE_SIZE} keys. The object then behaves exactly like a
+ * {@code JsonObject} backed by a {@code LinkedHashMap}.
+ * <p/>
+ * {@link #value()} returns a live view of this object. Its iteration order is
+ * the insertion order of the keys. {@code put} and {@code remove} on the view
+ * write through to the object.
+ */
+final class CompactJsonObject extends JsonObject {
+
+    /** Maximal number of keys of an object represented by a shape */
+    static final int MAX_SHAPE_SIZE = 64;
+
+    /** Number of shapes after which the shape tree is dropped */
+    static final int MAX_SHAPES = 1 << 16;
+
+    /** Maximal number of distinct keys following a shape */
+    static final int MAX_TRANSITIONS = 64;
+
+    private static final JsonValue[] NO_VALUES = new JsonValue[0];
+
+    private Shape shape = Shape.ROOT;
+    private JsonValue[] values = NO_VALUES;
+
+    /** Fall back representation, {@code null} while this object has a shape */
+    private Map<String, JsonValue> map;
+
+    private Map<String, JsonValue> view;
+
+    CompactJsonObject() {
+        super(null);
+    }
+
+    @Override
+    public void put(String key, JsonValue value) {
+        put0(key, value);
+    }
+
+    @Override
+    public JsonValue get(String key) {
+        if (map != null) {
+            return map.get(key);
+        }
+        int k = shape.indexOf(key);
+        return k < 0 ? null : values[k];
+    }
+
+    @Override
+    public JsonValue remove(String key) {
+        if (map == null && shape.indexOf(key) < 0) {
+            return null;
+        }
+        return toMap().remove(key);
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    @Override
+    public Map<String, JsonValue> value() {
+        if (view == null) {
+            view = new View();
+        }
+        return view;
+    }
+
+    @Override
+    public String toString() {
+        return value().toString();
+    }
+
+    //------------------------------------------< package private >---
+
+    /**
+     * @return  the shape of this object or {@code null} if it fell back to a map
+     */
+    Shape shape() {
+        return map == null ? shape : null;
+    }
+
+    /**
+     * Release excess capacity of the values array
+     */
+    void trim() {
+        int size = shape.size();
+        if (map == null && values.length > size) {
+            JsonValue[] newValues = new JsonValue[size];
+            System.arraycopy(values, 0, newValues, 0, size);
+            values = newValues;
+        }
+    }
+
+    //------------------------------------------< private >---
+
+    private int size() {
+        return map == null ? shape.size() : map.size();
+    }
+
+    private JsonValue put0(String key, JsonValue value) {
+        if (map != null) {
+            return map.put(key, value);
+        }
+
+        int k = shape.indexOf(key);
+        if (k >= 0) {
+            JsonValue previous = values[k];
+            values[k] = value;
+            return previous;
+        }
+
+        if (shape.size() >= MAX_SHAPE_SIZE) {
+            return toMap().put(key, value);
+        }
+
+        int size = shape.size();
+        if (size == values.length) {
+            JsonValue[] newValues = new JsonValue[Math.max(4, 2 * size)];
+            System.arraycopy(values, 0, newValues, 0, size);
+            values = newValues;
+        }
+        values[size] = value;
+        shape = shape.with(key);
+        return null;
+    }
+
+    private Map<String, JsonValue> toMap() {
+        if (map == null) {
+            Map<String, JsonValue> map = new LinkedHashMap<String, JsonValue>();
+            for (int k = 0; k < shape.size(); k++) {
+                map.put(shape.key(k), values[k]);
+            }
+            this.map = map;
+            shape = Shape.ROOT;
+            values = NO_VALUES;
+        }
+        return map;
+    }
+
+    /**
+     * Immutable sequence of keys mapping each key to its slot in the values array
+     */
+    static final class Shape {
+        static final Shape ROOT = new Shape(new String[0]);
+
+        private static final AtomicInteger SHAPE_COUNT = new AtomicInteger();
+
+        /** Shapes with more keys than this use a hash map for looking up keys */
+        private static final int LINEAR_SEARCH_LIMIT = 8;
+
+        private final String[] keys;
+        private final Map<String, Integer> index;
+
+        /** The most recently taken transition */
+        private volatile Shape next;
+
+        /** Transitions to child shapes, guarded by {@code this} */
+        private Map<String, Shape> transitions;
+
+        private Shape(String[] keys) {
+            this.keys = keys;
+            if (keys.length > LINEAR_SEARCH_LIMIT) {
+                index = new HashMap<String, Integer>(2 * keys.length);
+                for (int k = 0; k < keys.length; k++) {
+                    index.put(keys[k], k);
+                }
+            }
+            else {
+                index = null;
+            }
+        }
+
+        int size() {
+            return keys.length;
+        }
+
+        String key(int k) {
+            return keys[k];
+        }
+
+        int indexOf(String key) {
+            if (index != null) {
+                Integer k = index.get(key);
+                return k == null ? -1 : k;
+            }
+            for (int k = 0; k < keys.length; k++) {
+                if (keys[k].equals(key)) {
+                    return k;
+                }
+            }
+            return -1;
+        }
+
+        /**
+         * @param key  a key not contained in this shape
+         * @return  the shape with the keys of this shape followed by {@code key}
+         */
+        Shape with(String key) {
+            Shape next = this.next;
+            if (next != null && next.keys[keys.length].equals(key)) {
+                return next;
+            }
+
+            synchronized (this) {
+                if (transitions == null) {
+                    transitions = new HashMap<String, Shape>();
+                }
+                next = transitions.get(key);
+                if (next == null) {
+                    if (transitions.size() >= MAX_TRANSITIONS) {
+                        transitions.clear();
+                    }
+                    if (SHAPE_COUNT.incrementAndGet() > MAX_SHAPES) {
+                        SHAPE_COUNT.set(0);
+                        ROOT.clear();
+                    }
+                    String[] keys = new String[this.keys.length + 1];
+                    System.arraycopy(this.keys, 0, keys, 0, this.keys.length);
+                    keys[this.keys.length] = key;
+                    next = new Shape(keys);
+                    transitions.put(key, next);
+                }
+                this.next = next;
+                return next;
+            }
+        }
+
+        private synchronized void clear() {
+            next = null;
+            if (transitions != null) {
+                transitions.clear();
+            }
+        }
+    }
+
+    /**
+     * Live map view of a {@code CompactJsonObject}
+     */
+    private final class View extends AbstractMap<String, JsonValue> {
+        @Override
+        public int size() {
+            return CompactJsonObject.this.size();
+        }
+
+        @Override
+        public boolean containsKey(Object key) {
+            return map == null
+                ? key instanceof String && shape.indexOf((String) key) >= 0
+                : map.containsKey(key);
+        }
+
+        @Override
+        public JsonValue get(Object key) {
+            if (map == null) {
+                return key instanceof String ? CompactJsonObject.this.get((String) key) : null;
+            }
+            return map.get(key);
+        }
+
+        @Override
+        public JsonValue put(String key, JsonValue value) {
+            return put0(key, value);
+        }
+
+        @Override
+        public JsonValue remove(Object key) {
+            if (map == null) {
+                return key instanceof String ? CompactJsonObject.this.remove((String) key) : null;
+            }
+            return map.remove(key);
+        }
+
+        @Override
+        public void clear() {
+            toMap().clear();
+        }
+
+        @Override
+        public Set<Entry<String, JsonValue>> entrySet() {
+            return new AbstractSet<Entry<String, JsonValue>>() {
+                @Override
+                public Iterator<Entry<String, JsonValue>> iterator() {
+                    return map == null ? new EntryIterator() : map.entrySet().iterator();
+                }
+
+                @Override
+                public int size() {
+                    return CompactJsonObject.this.size();
+                }
+            };
+        }
+    }
+
+    /**
+     * Iterator over the entries of an object which has a shape. Setting the value
+     * of an entry writes through. Removing an entry makes the object fall back to
+     * its map, iteration then continues on the entries of that map.
+     */
+    private final class EntryIterator implements Iterator<Map.Entry<String, JsonValue>> {
+        private final Shape shape = CompactJsonObject.this.shape;
+        private int k;
+        private boolean canRemove;
+
+        /** Iterator over the fall back map after an entry has been removed */
+        private Iterator<Map.Entry<String, JsonValue>> entries;
+
+        @Override
+        public boolean hasNext() {
+            return entries == null
+                ? k < shape.size()
+                : entries.hasNext();
+        }
+
+        @Override
+        public Map.Entry<String, JsonValue> next() {
+            if (entries != null) {
+                return entries.next();
+            }
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            checkShape();
+            final String key = shape.key(k);
+            canRemove = true;
+            return new AbstractMap.SimpleEntry<String, JsonValue>(key, values[k++]) {
+                @Override
+                public JsonValue setValue(JsonValue value) {
+                    super.setValue(value);
+                    return put0(key, value);
+                }
+            };
+        }
+
+        @Override
+        public void remove() {
+            if (entries != null) {
+                entries.remove();
+                return;
+            }
+            if (!canRemove) {
+                throw new IllegalStateException();
+            }
+            checkShape();
+
+            // position an iterator of the fall back map on the current entry
+            entries = toMap().entrySet().iterator();
+            for (int i = 0; i < k; i++) {
+                entries.next();
+            }
+            entries.remove();
+        }
+
+        private void checkShape() {
+            if (CompactJsonObject.this.map != null || CompactJsonObject.this.shape != shape) {
+                throw new ConcurrentModificationException();
+            }
+        }
+    }
+
+}
@@ -0,0 +1,88 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package michid.jsonjerk;
+
+/**
+ * Handler for semantic actions of a {@link CursorJsonParser}. This is the
+ * cursor mode counterpart of {@link JsonHandler}: instead of {@code Token}s
+ * it receives {@link TokenCursor}s, which are only valid for the duration
+ * of the respective call back. In particular the {@code key} passed to
+ * {@link #object(CursorJsonParser, TokenCursor, JsonTokenizer) object} and
+ * {@link #array(CursorJsonParser, TokenCursor, JsonTokenizer) array} becomes
+ * invalid once parsing of the nested structure continues.
+ * <p/>
+ * Override this class to add semantic actions as needed.
+ */
+public class CursorHandler {
+
+    /**
+     * Default instance which can be used to skip any part of a
+     * JSON document.
+     */
+    public static final CursorHandler INSTANCE = new CursorHandler();
+
+    /**
+     * A primitive JSON value (ATOM) has been parsed.
+     * @param key  the key or {@code null} for array elements
+     * @param value
+     */
+    public void atom(TokenCursor key, TokenCursor value) { }
+
+    /**
+     * A COMMA has been parsed
+     * @param token
+     */
+    public void comma(TokenCursor token) { }
+
+    /**
+     * Parser PAIR. This implementation simply delegates back
+     * to {@link CursorJsonParser#parsePair(JsonTokenizer)}
+     *
+     * @param parser
+     * @param tokenizer
+     */
+    public void pair(CursorJsonParser parser, JsonTokenizer tokenizer) {
+        parser.parsePair(tokenizer);
+    }
+
+    /**
+     * Parser OBJECT. This implementation simply delegates back
+     * to {@link CursorJsonParser#parseObject(JsonTokenizer)}
+     *
+     * @param parser
+     * @param key  the key or {@code null} for array elements
+     * @param tokenizer
+     */
+    public void object(CursorJsonParser parser, TokenCursor key, JsonTokenizer tokenizer) {
+        parser.parseObject(tokenizer);
+    }
+
+    /**
+     * Parser ARRAY. This implementation simply delegates back
+     * to {@link CursorJsonParser#parseArray(JsonTokenizer)}
+     *
+     * @param parser
+     * @param key  the key or {@code null} for array elements
+     * @param tokenizer
+     */
+    public void array(CursorJsonParser parser, TokenCursor key, JsonTokenizer tokenizer) {
+        parser.parseArray(tokenizer);
+    }
+}
@@ -0,0 +1,195 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package michid.jsonjerk;
+
+import michid.jsonjerk.Token.Type;
+
+/**
+ * A parser for the JSON format which uses the tokenizer in
+ * {@link JsonTokenizer#cursor() cursor mode}. It accepts the same grammar
+ * as {@link JsonParser} but passes {@link TokenCursor}s instead of
+ * {@link Token}s to its {@link CursorHandler}. With tokenizers which support
+ * cursor mode natively (like {@link DefaultJsonTokenizer} and
+ * {@link Utf8JsonTokenizer}) parsing does not allocate any objects per token.
+ *
+ * @see JsonParser
+ */
+public final class CursorJsonParser {
+    /**
+     * Parser for skipping values. Parsers for {@link CursorHandler#INSTANCE} do not parse objects
+     * and arrays but skip them using {@link JsonTokenizer#skipValue()}.
+     */
+    public static final CursorJsonParser SKIP_PARSER = new CursorJsonParser(CursorHandler.INSTANCE);
+
+    private final CursorHandler handler;
+
+    /** {@code true} if the handler has no actions such that values can be skipped */
+    private final boolean skip;
+
+    public CursorJsonParser(CursorHandler handler) {
+        this.handler = handler;
+        skip = handler == CursorHandler.INSTANCE;
+    }
+
+    /**
+     * Parses
+     * <pre>
+     * OBJECT ::= { (PAIR (, PAIR)*)? }
+     * </pre>
+     * Calls {@link CursorHandler#comma(TokenCursor)}
+     * @param tokenizer
+     * @throws ParseException
+     */
+    public void parseObject(JsonTokenizer tokenizer) {
+        if (skip) {
+            skip(Type.BEGIN_OBJECT, tokenizer);
+            return;
+        }
+
+        tokenizer.advance(Type.BEGIN_OBJECT);
+
+        if (tryParsePair(tokenizer)) {
+            while (tokenizer.cursor().type() == Type.COMMA) {
+                handler.comma(tokenizer.advance());
+                if (!tryParsePair(tokenizer)) {
+                    throw new ParseException(tokenizer.cursor().start(), "Expected pair, found: " + tokenizer.cursor());
+                }
+            }
+        }
+        tokenizer.advance(Type.END_OBJECT);
+    }
+
+    /**
+     * Parses
+     * <pre>
+     * PAIR ::= STRING: VALUE
+     * </pre>
+     * @param tokenizer
+     * @throws ParseException
+     */
+    public void parsePair(JsonTokenizer tokenizer) {
+        TokenCursor cursor = tokenizer.cursor();
+        if (cursor.type() != Type.STRING) {
+            throw new ParseException(cursor.start(), "Expected string, found: " + cursor);
+        }
+
+        TokenCursor key = tokenizer.keyCursor();
+        key.set(tokenizer.advance());
+        tokenizer.advance(Type.COLON);
+        parseValue(key, tokenizer);
+    }
+
+    /**
+     * Parses
+     * <pre>
+     * VALUE ::= OBJECT | ARRAY | STRING | NUMBER | true | false | null
+     * </pre>
+     * Calls one of {@link CursorHandler#object(CursorJsonParser, TokenCursor, JsonTokenizer)},
+     * {@link CursorHandler#array(CursorJsonParser, TokenCursor, JsonTokenizer)} and
+     * {@link CursorHandler#atom(TokenCursor, TokenCursor)}
+     * @param key
+     * @param tokenizer
+     * @throws ParseException
+     */
+    public void parseValue(TokenCursor key, JsonTokenizer tokenizer) {
+        if (skip) {
+            tokenizer.skipValue();
+            return;
+        }
+
+        TokenCursor cursor = tokenizer.cursor();
+        switch (cursor.type()) {
+            case BEGIN_OBJECT:
+                handler.object(this, key, tokenizer);
+                break;
+            case BEGIN_ARRAY:
+                handler.array(this, key, tokenizer);
+                break;
+            case STRING:
+            case NUMBER:
+            case TRUE:
+            case FALSE:
+            case NULL:
+                handler.atom(key, tokenizer.advance());
+                break;
+            default:
+                throw new ParseException(cursor.start(), "Expected value, found: " + cursor);
+        }
+    }
+
+    /**
+     * Parses
+     * <pre>
+     * ARRAY ::= [ (VALUE (, VALUE)*)? ]
+     * </pre>
+     * Calls {@link CursorHandler#comma(TokenCursor)}
+     * @param tokenizer
+     * @throws ParseException
+     */
+    public void parseArray(JsonTokenizer tokenizer) {
+        if (skip) {
+            skip(Type.BEGIN_ARRAY, tokenizer);
+            return;
+        }
+
+        tokenizer.advance(Type.BEGIN_ARRAY);
+
+        if (tryParseValue(tokenizer)) {
+            while (tokenizer.cursor().type() == Type.COMMA) {
+                handler.comma(tokenizer.advance());
+                if (!tryParseValue(tokenizer)) {
+                    throw new ParseException(tokenizer.cursor().start(), "Expected value, found: " + tokenizer.cursor());
+                }
+            }
+        }
+        tokenizer.advance(Type.END_ARRAY);
+    }
+
+    //------------------------------------------< private >---
+
+    private static void skip(Type type, JsonTokenizer tokenizer) {
+        TokenCursor cursor = tokenizer.cursor();
+        if (cursor.type() != type) {
+            throw new ParseException(cursor.start(), "Expected token type " + type + ", found: " + cursor);
+        }
+        tokenizer.skipValue();
+    }
+
+    private boolean tryParsePair(JsonTokenizer tokenizer) {
+        if (tokenizer.cursor().type() == Type.STRING) {
+            handler.pair(this, tokenizer);
+            return true;
+        }
+        else {
+            return false;
+        }
+    }
+
+    private boolean tryParseValue(JsonTokenizer tokenizer) {
+        if (tokenizer.cursor().type() == Type.END_ARRAY) {
+            return false;
+        }
+        else {
+            parseValue(null, tokenizer);
+            return true;
+        }
+    }
+
+}
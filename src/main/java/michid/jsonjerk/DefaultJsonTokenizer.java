@@ -19,11 +19,9 @@
 
 package michid.jsonjerk;
 
+import michid.jsonjerk.JsonValue.JsonNumber;
 import michid.jsonjerk.Token.Type;
 
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
-
 /**
  * This JSON tokenizer operates on a string as its input. For maximal performance
  * it <em>does not</em> unescape JSON string values.
@@ -33,10 +31,14 @@ import java.util.regex.Pattern;
  * @see UnescapingJsonTokenizer
  */
 public class DefaultJsonTokenizer extends JsonTokenizer {
-    private final String json;
+    private String json;
 
     private int pos;
 
+    /** Start of the string scanned last and whether it contains escape sequences */
+    private int scannedString = -1;
+    private boolean scannedEscaped;
+
     /**
      * Create a tokenizer for the given input string
      * @param json
@@ -54,6 +56,18 @@ public class DefaultJsonTokenizer extends JsonTokenizer {
         pos = tokenizer.pos;
     }
 
+    /**
+     * Reset this tokenizer to the start of a new input string. This allows
+     * reusing a tokenizer instance across inputs.
+     * @param json
+     */
+    public void reset(String json) {
+        clearCurrentToken();
+        this.json = json;
+        pos = 0;
+        scannedString = -1;
+    }
+
     @Override
     protected Token nextToken() {
         skipWhiteSpace();
@@ -76,6 +90,76 @@ public class DefaultJsonTokenizer extends JsonTokenizer {
         }
     }
 
+    @Override
+    protected void nextToken(TokenCursor cursor) {
+        skipWhiteSpace();
+        int start = pos;
+        if (pos >= json.length()) {
+            cursor.set(Type.EOF, start, start);
+            return;
+        }
+
+        Type type;
+        switch (json.charAt(pos)) {
+            case '{': type = Type.BEGIN_OBJECT; pos++; break;
+            case '}': type = Type.END_OBJECT; pos++; break;
+            case '[': type = Type.BEGIN_ARRAY; pos++; break;
+            case ']': type = Type.END_ARRAY; pos++; break;
+            case ':': type = Type.COLON; pos++; break;
+            case ',': type = Type.COMMA; pos++; break;
+            case 't': type = Type.TRUE; pos = scanLiteral("true"); break;
+            case 'f': type = Type.FALSE; pos = scanLiteral("false"); break;
+            case 'n': type = Type.NULL; pos = scanLiteral("null"); break;
+            case '"': type = Type.STRING; pos = scanString(pos) + 1; break;
+            default:
+                if (isNumber()) {
+                    type = Type.NUMBER;
+                    pos = scanNumber(pos);
+                }
+                else {
+                    type = Type.UNKNOWN;
+                    pos = scanUnknown();
+                }
+        }
+        cursor.set(type, start, pos);
+    }
+
+    @Override
+    protected Token createToken(TokenCursor cursor) {
+        return createToken(cursor.type(), rawText(cursor), (int) cursor.start());
+    }
+
+    @Override
+    protected String text(TokenCursor cursor) {
+        return rawText(cursor);
+    }
+
+    @Override
+    protected boolean textEquals(TokenCursor cursor, String text) {
+        int start = (int) cursor.start();
+        int end = (int) cursor.end();
+        if (cursor.type() == Type.STRING) {
+            start++;
+            end--;
+        }
+        return end - start == text.length() && json.regionMatches(start, text, 0, text.length());
+    }
+
+    @Override
+    protected long longValue(TokenCursor cursor) {
+        return Numbers.parseLong(json, (int) cursor.start(), (int) cursor.end());
+    }
+
+    @Override
+    protected double doubleValue(TokenCursor cursor) {
+        return Numbers.parseDouble(json, (int) cursor.start(), (int) cursor.end());
+    }
+
+    @Override
+    protected JsonNumber numberValue(TokenCursor cursor) {
+        return JsonNumber.valueOf(json, (int) cursor.start(), (int) cursor.end());
+    }
+
     @Override
     public int pos() {
         return peek().pos();
@@ -83,13 +167,13 @@ public class DefaultJsonTokenizer extends JsonTokenizer {
 
     @Override
     public void setPos(int pos) {
-        currentToken = null;
+        clearCurrentToken();
         this.pos = pos;
     }
 
     @Override
     public String toString() {
-        return (currentToken == null ? "" : currentToken) + " " + json.substring(pos);
+        return (currentToken == null ? "" : currentToken) + " " + excerpt(json, pos, 1000);
     }
 
     @Override
@@ -104,7 +188,7 @@ public class DefaultJsonTokenizer extends JsonTokenizer {
      * whitespace character.
      */
     protected void skipWhiteSpace() {
-        while (pos < json.length() && Character.isWhitespace(json.charAt(pos))) {
+        while (pos < json.length() && Chars.isWhiteSpace(json.charAt(pos))) {
             pos++;
         }
     }
@@ -128,14 +212,10 @@ public class DefaultJsonTokenizer extends JsonTokenizer {
      * @throws ParseException  if {@code text} cannot be read at the current position
      */
     protected Token readLiteral(Type type, String text) {
-        if (json.substring(pos).startsWith(text)) {
-            Token token = createToken(type, text, pos);
-            pos += text.length();
-            return token;
-        }
-        else {
-            throw new ParseException(pos, "Expected '" + text + ",' found: " + excerpt(json, pos, 40));
-        }
+        int end = scanLiteral(text);
+        Token token = createToken(type, text, pos);
+        pos = end;
+        return token;
     }
 
     /**
@@ -144,28 +224,11 @@ public class DefaultJsonTokenizer extends JsonTokenizer {
      * @throws ParseException  if no string can be read at the current position
      */
     protected Token readString() {
-        int i;
-        boolean found = false;
-        boolean even = true;
-
-        // starting at pos + 1, find index i of the first quote character in json which
-        // is preceded by an even number of backslash characters
-        for (i = pos + 1; i < json.length() && !(found = json.charAt(i) == '"' && even); i++) {
-            even = json.charAt(i) != '\\' || !even;
-        }
-
-        if (found) {
-            Token token = createToken(Type.STRING, json.substring(pos + 1, i), pos);
-            pos = i + 1;
-            return token;
-        }
-        else {
-            throw new ParseException(pos, "Expected string, found. " + excerpt(json, pos, 40));
-        }
+        int i = scanString(pos);
+        Token token = createToken(Type.STRING, stringText(pos + 1, i), pos);
+        pos = i + 1;
+        return token;
     }
-    
-    private static final Pattern NUMBER_PATTERN = Pattern.compile(
-            "(\\+|-)?(\\d+)((\\.)(\\d+))?(((e|E)(\\+|-)?)(\\d+))?");
 
     /**
      * Read a JSON number and create a {@link Token.Type#NUMBER} token.
@@ -173,15 +236,10 @@ public class DefaultJsonTokenizer extends JsonTokenizer {
      * @throws ParseException  if no number can be read at the current position
      */
     protected Token readNumber() {
-        Matcher matcher = NUMBER_PATTERN.matcher(json.substring(pos));
-        if (matcher.lookingAt()) {
-            Token token = createToken(Type.NUMBER, matcher.group(), pos);
-            pos += matcher.end();
-            return token;
-        }
-        else {
-            throw new ParseException(pos, "Expected number, found. " + excerpt(json, pos, 40));
-        }
+        int end = scanNumber(pos);
+        Token token = createToken(Type.NUMBER, json.substring(pos, end), pos);
+        pos = end;
+        return token;
     }
 
     /**
@@ -190,21 +248,206 @@ public class DefaultJsonTokenizer extends JsonTokenizer {
      * @return a new token
      */
     protected Token readUnknown() {
-        int start = pos++;
-        while (pos < json.length() && "{}[]:,tfn+-0123456789\" ".indexOf(json.charAt(pos)) == -1)  {
-            pos++;
-        }
+        int start = pos;
+        pos = scanUnknown();
         return new Token(Type.UNKNOWN, json.substring(start, pos), start);
     }
 
+    /**
+     * Skips by scanning the input for strings and structural characters
+     */
+    @Override
+    protected void skipContainer(Type type) {
+        Skipper skipper = new Skipper(type);
+        int length = json.length();
+        int i = pos;
+        while (i < length) {
+            char c = json.charAt(i);
+            if (Chars.isWhiteSpace(c)) {
+                i++;
+                while (i < length && Chars.isWhiteSpace(json.charAt(i))) {
+                    i++;
+                }
+            }
+            else if (c == '"') {
+                skipper.value(true, i);
+                i = scanString(i) + 1;
+            }
+            else if (Chars.isStructural(c)) {
+                if (skipper.structural(c, i++)) {
+                    pos = i;
+                    return;
+                }
+            }
+            else {
+                // number, literal or garbage up to the next white space or structural character
+                skipper.value(false, i++);
+                while (i < length && Chars.isValue(json.charAt(i))) {
+                    i++;
+                }
+            }
+        }
+        throw new ParseException(length, "Unexpected end of input");
+    }
+
+    /**
+     * @param pos
+     * @return  {@code true} iff the string starting at {@code pos} contains escape
+     * sequences. This is recorded while scanning a string and only rescans the
+     * string if it is not the one scanned last.
+     * @throws ParseException  if no string can be read at {@code pos}
+     */
+    protected boolean isEscaped(long pos) {
+        if (pos != scannedString) {
+            scanString((int) pos);
+        }
+        return scannedEscaped;
+    }
+
+    /**
+     * Compare the text of the token at {@code cursor} with {@code text} as if
+     * escape sequences in the token were unescaped. The comparison works on the
+     * input directly without unescaping into a new string.
+     * @param cursor
+     * @param text
+     * @return  {@code true} iff the unescaped text of the token equals {@code text}
+     * @throws ParseException  if the token contains an invalid escape sequence
+     */
+    protected boolean unescapedTextEquals(TokenCursor cursor, String text) {
+        int start = (int) cursor.start();
+        int end = (int) cursor.end();
+        if (cursor.type() != Type.STRING) {
+            return end - start == text.length() && json.regionMatches(start, text, 0, text.length());
+        }
+
+        try {
+            return Escapes.unescapedEquals(json, start + 1, end - 1, text);
+        }
+        catch (IndexOutOfBoundsException e) {
+            throw new ParseException(start, "Invalid character escaping in string", e);
+        }
+        catch (NumberFormatException e) {
+            throw new ParseException(start, "Invalid character escaping in string", e);
+        }
+    }
+
+    /**
+     * Text of the string whose characters are between {@code start} and the
+     * closing quote at {@code end}. The text is interned through the
+     * {@link #symbolTable() symbol table} if the string is a key.
+     * @param start
+     * @param end
+     * @return  the raw text of the string
+     */
+    protected String stringText(int start, int end) {
+        SymbolTable symbolTable = symbolTable();
+        return symbolTable != null && isKey(end + 1)
+            ? symbolTable.intern(json, start, end)
+            : json.substring(start, end);
+    }
+
     //------------------------------------------< private >---
 
+    private String rawText(TokenCursor cursor) {
+        int start = (int) cursor.start();
+        int end = (int) cursor.end();
+        return cursor.type() == Type.STRING
+            ? stringText(start + 1, end - 1)
+            : json.substring(start, end);
+    }
+
+    /**
+     * @return  {@code true} iff the first character at or after {@code pos}
+     * which is not white space is a colon
+     */
+    private boolean isKey(int pos) {
+        while (pos < json.length() && Chars.isWhiteSpace(json.charAt(pos))) {
+            pos++;
+        }
+        return pos < json.length() && json.charAt(pos) == ':';
+    }
+
+    /**
+     * @return  the end position of the literal {@code text} at the current position
+     * @throws ParseException  if {@code text} cannot be read at the current position
+     */
+    private int scanLiteral(String text) {
+        if (json.startsWith(text, pos)) {
+            return pos + text.length();
+        }
+        else {
+            throw new ParseException(pos, "Expected '" + text + ",' found: " + excerpt(json, pos, 40));
+        }
+    }
+
+    /**
+     * Scan the string at {@code start} recording whether it contains escape sequences.
+     * @return  the position of the quote terminating the string at {@code start}
+     * @throws ParseException  if no string can be read at {@code start}
+     */
+    private int scanString(int start) {
+        boolean escaped = false;
+        int length = json.length();
+        int i = start + 1;
+        while (i < length) {
+            char c = json.charAt(i);
+            if (c == '"') {
+                scannedString = start;
+                scannedEscaped = escaped;
+                return i;
+            }
+            else if (c == '\\') {
+                escaped = true;
+                i += 2;
+            }
+            else {
+                i++;
+            }
+        }
+        throw new ParseException(start, "Expected string, found. " + excerpt(json, start, 40));
+    }
+
+    /**
+     * @return  the end position of the longest number starting at {@code start}
+     * @throws ParseException  if no number can be read at {@code start}
+     */
+    private int scanNumber(int start) {
+        int end = -1;
+        int state = Chars.NUMBER_START;
+        for (int i = start; i < json.length(); i++) {
+            state = Chars.nextNumberState(state, json.charAt(i));
+            if (state == Chars.NUMBER_REJECT) {
+                break;
+            }
+            if (Chars.isNumberAccepting(state)) {
+                end = i + 1;
+            }
+        }
+
+        if (end < 0) {
+            throw new ParseException(start, "Expected number, found. " + excerpt(json, start, 40));
+        }
+        return end;
+    }
+
+    /**
+     * @return  the position where the next token after the current position starts
+     */
+    private int scanUnknown() {
+        int i = pos + 1;
+        while (i < json.length() && !Chars.isTokenStart(json.charAt(i)))  {
+            i++;
+        }
+        return i;
+    }
+
     private boolean isNumber() {
         // true if first character is a digit or a sign and second character is a digit
-        char first = json.charAt(pos);
-        return !(!Character.isDigit(first) &&
-                ('+' != first && '-' != first || pos + 1 >= json.length() ||
-                 !Character.isDigit(json.charAt(pos + 1))));
+        int state = Chars.nextNumberState(Chars.NUMBER_START, json.charAt(pos));
+        if (state != Chars.NUMBER_REJECT && !Chars.isNumberAccepting(state) && pos + 1 < json.length()) {
+            state = Chars.nextNumberState(state, json.charAt(pos + 1));
+        }
+        return state != Chars.NUMBER_REJECT && Chars.isNumberAccepting(state);
     }
 
     private static String excerpt(String string, int pos, int len) {
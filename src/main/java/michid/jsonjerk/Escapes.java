@@ -0,0 +1,242 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package michid.jsonjerk;
+
+import java.io.IOException;
+
+/**
+ * Escaping and unescaping of JSON strings.
+ * <p/>
+ * Escaping is lookup table based. Quotes, \, \b, \f, \n, \r and \t
+ * are escaped by their short escape sequences. Other control characters
+ * (U+0000 through U+001F, U+007F through U+009F) and U+2000 through U+20FF are
+ * escaped as {@code \}{@code uXXXX}.
+ * <p/>
+ * ASCII characters are classified by a single table lookup. Runs of characters
+ * which need no escaping are copied in bulk and strings without any such
+ * characters are not copied at all.
+ */
+final class Escapes {
+    private Escapes() { }
+
+    private static final char[] HEX = "0123456789ABCDEF".toCharArray();
+
+    /** Escape sequences of ASCII characters, {@code null} if no escaping is needed */
+    private static final String[] ESCAPES = new String[128];
+
+    static {
+        for (char c = 0; c < 0x20; c++) {
+            ESCAPES[c] = unicodeEscape(c);
+        }
+        ESCAPES[0x7f] = unicodeEscape((char) 0x7f);
+        ESCAPES['"'] = "\\\"";
+        ESCAPES['\\'] = "\\\\";
+        ESCAPES['\b'] = "\\b";
+        ESCAPES['\f'] = "\\f";
+        ESCAPES['\n'] = "\\n";
+        ESCAPES['\r'] = "\\r";
+        ESCAPES['\t'] = "\\t";
+    }
+
+    /**
+     * @param text
+     * @return  {@code text} escaped. {@code text} itself if it does not contain
+     * any characters which need escaping.
+     */
+    static String escape(String text) {
+        int length = text.length();
+        int i = nextEscape(text, 0, length);
+        if (i == length) {
+            return text;
+        }
+
+        StringBuilder sb = new StringBuilder(length + 16);
+        int start = 0;
+        do {
+            sb.append(text, start, i).append(escape(text.charAt(i)));
+            start = i + 1;
+            i = nextEscape(text, start, length);
+        } while (i < length);
+        return sb.append(text, start, length).toString();
+    }
+
+    /**
+     * Append {@code text} escaped to {@code out}
+     * @param text
+     * @param out
+     * @throws IOException  if {@code out} throws
+     */
+    static void escape(CharSequence text, Appendable out) throws IOException {
+        int length = text.length();
+        int start = 0;
+        for (int i = nextEscape(text, 0, length); i < length; i = nextEscape(text, start, length)) {
+            out.append(text, start, i).append(escape(text.charAt(i)));
+            start = i + 1;
+        }
+        out.append(text, start, length);
+    }
+
+    /**
+     * @param text
+     * @param start
+     * @param end
+     * @return  index of the first character between {@code start} and {@code end}
+     * which needs escaping, {@code end} if none.
+     */
+    static int nextEscape(CharSequence text, int start, int end) {
+        for (int i = start; i < end; i++) {
+            char c = text.charAt(i);
+            if (c < 128 ? ESCAPES[c] != null : isEscaped(c)) {
+                return i;
+            }
+        }
+        return end;
+    }
+
+    /**
+     * @param c  a character which needs escaping
+     * @return  the escape sequence for {@code c}
+     */
+    static String escape(char c) {
+        return c < 128 ? ESCAPES[c] : unicodeEscape(c);
+    }
+
+    /**
+     * Unescape the escape sequences in {@code text}. Runs of characters between
+     * escape sequences are copied in bulk.
+     * @param text
+     * @return  {@code text} unescaped. {@code text} itself if it does not contain
+     * any escape sequences.
+     * @throws IndexOutOfBoundsException  on unterminated escape sequences
+     * @throws NumberFormatException  on invalid escape sequences
+     */
+    static String unescape(String text) {
+        int i = text.indexOf('\\');
+        if (i < 0) {
+            return text;
+        }
+
+        int length = text.length();
+        StringBuilder sb = new StringBuilder(length);
+        int start = 0;
+        do {
+            sb.append(text, start, i).append(unescape(text, i, length));
+            start = i + escapeLength(text.charAt(i + 1));
+            i = text.indexOf('\\', start);
+        } while (i >= 0);
+        return sb.append(text, start, length).toString();
+    }
+
+    /**
+     * Compare the characters between {@code start} and {@code end} with
+     * {@code text} as if they were unescaped first. The comparison does not
+     * allocate.
+     * @param escaped
+     * @param start
+     * @param end
+     * @param text
+     * @return  {@code true} iff the unescaped characters equal {@code text}
+     * @throws IndexOutOfBoundsException  on unterminated escape sequences
+     * @throws NumberFormatException  on invalid escape sequences
+     */
+    static boolean unescapedEquals(CharSequence escaped, int start, int end, String text) {
+        int length = text.length();
+        int k = 0;
+        int i = start;
+        while (i < end) {
+            if (k == length) {
+                return false;
+            }
+            char c = escaped.charAt(i);
+            if (c == '\\') {
+                c = unescape(escaped, i, end);
+                i += escapeLength(escaped.charAt(i + 1));
+            }
+            else {
+                i++;
+            }
+            if (c != text.charAt(k++)) {
+                return false;
+            }
+        }
+        return k == length;
+    }
+
+    //------------------------------------------< private >---
+
+    /**
+     * @return  the character of the escape sequence at {@code i}
+     */
+    private static char unescape(CharSequence text, int i, int end) {
+        if (i + 1 >= end) {
+            throw new StringIndexOutOfBoundsException(i + 1);
+        }
+        char c = text.charAt(i + 1);
+        switch (c) {
+            case 'b': return '\b';
+            case 't': return '\t';
+            case 'n': return '\n';
+            case 'f': return '\f';
+            case 'r': return '\r';
+            case 'u': return parseHex(text, i + 2, i + 6, end);
+            case 'x': return parseHex(text, i + 2, i + 4, end);
+            default: return c;
+        }
+    }
+
+    /**
+     * @param c  the character following the backslash of an escape sequence
+     * @return  the length of the escape sequence
+     */
+    private static int escapeLength(char c) {
+        switch (c) {
+            case 'u': return 6;
+            case 'x': return 4;
+            default: return 2;
+        }
+    }
+
+    private static char parseHex(CharSequence text, int start, int end, int limit) {
+        if (end > limit) {
+            throw new StringIndexOutOfBoundsException(limit);
+        }
+        int value = 0;
+        for (int k = start; k < end; k++) {
+            int digit = Character.digit(text.charAt(k), 16);
+            if (digit < 0) {
+                throw new NumberFormatException("For input string: \"" + text.subSequence(start, end) + '"');
+            }
+            value = value << 4 | digit;
+        }
+        return (char) value;
+    }
+
+    private static boolean isEscaped(char c) {
+        //Reference: http://www.unicode.org/versions/Unicode5.1.0/
+        return c <= '\u009F' || c >= '\u2000' && c <= '\u20FF';
+    }
+
+    private static String unicodeEscape(char c) {
+        return new String(new char[] {
+            '\\', 'u', HEX[c >> 12 & 0xf], HEX[c >> 8 & 0xf], HEX[c >> 4 & 0xf], HEX[c & 0xf]
+        });
+    }
+
+}
@@ -23,9 +23,6 @@ import michid.jsonjerk.JsonValue.JsonArray;
 import michid.jsonjerk.JsonValue.JsonAtom;
 import michid.jsonjerk.JsonValue.JsonObject;
 
-import java.util.ArrayList;
-import java.util.LinkedHashMap;
-
 /**
  * Utility class for parsing JSON objects and arrays into
  * {@link michid.jsonjerk.JsonValue.JsonObject}s and {@link michid.jsonjerk.JsonValue.JsonArray}s, respectively.
@@ -59,16 +56,38 @@ public class FullJsonParser {
         return arrayHandler.getArray();
     }
 
+    /**
+     * Parse a JSON value from {@code tokenizer}
+     * @param tokenizer
+     * @return a {@code JsonObject}, a {@code JsonArray} or a {@code JsonAtom}
+     * @throws ParseException
+     */
+    public static JsonValue parseValue(JsonTokenizer tokenizer) {
+        Token token = tokenizer.peek();
+        switch (token.type()) {
+            case BEGIN_OBJECT: return parseObject(tokenizer);
+            case BEGIN_ARRAY: return parseArray(tokenizer);
+            case STRING:
+            case NUMBER:
+            case TRUE:
+            case FALSE:
+            case NULL:
+                return JsonAtom.atom(tokenizer.read());
+            default:
+                throw new ParseException(token.position(), "Expected value, found: " + token);
+        }
+    }
+
     /**
      * This implementation of a {@code JsonHandler} builds up a {@code JsonObject}
      * by recursively descending into its constituents.  
      */
     public static class ObjectHandler extends JsonHandler {
-        private final JsonObject object = new JsonObject(new LinkedHashMap<String, JsonValue>());
+        private final CompactJsonObject object = new CompactJsonObject();
 
         @Override
         public void atom(Token key, Token value) {
-            object.put(key.text(), new JsonAtom(value));
+            object.put(key.text(), JsonAtom.atom(value));
         }
 
         @Override
@@ -82,6 +101,7 @@ public class FullJsonParser {
         }
 
         public JsonObject getObject() {
+            object.trim();
             return object;
         }
 
@@ -92,11 +112,11 @@ public class FullJsonParser {
      * by recursively descending into its constituents.
      */
     public static class ArrayHandler extends JsonHandler {
-        private final JsonArray array = new JsonArray(new ArrayList<JsonValue>());
+        private final PackedJsonArray array = new PackedJsonArray();
 
         @Override
         public void atom(Token key, Token value) {
-            array.add(new JsonAtom(value));
+            array.add(JsonAtom.atom(value));
         }
 
         @Override
@@ -110,6 +130,7 @@ public class FullJsonParser {
         }
 
         public JsonArray getArray() {
+            array.trim();
             return array;
         }
     }
@@ -0,0 +1,330 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package michid.jsonjerk;
+
+import michid.jsonjerk.Token.Type;
+
+/**
+ * This JSON tokenizer walks a {@link StructuralIndex} of its input instead of
+ * scanning the input character by character: white space between tokens is never
+ * looked at and the end of a string is found by looking up the position of its
+ * closing quote. Only numbers and literals are still scanned.
+ * <p/>
+ * The index is built when the tokenizer is created unless an existing index
+ * is passed. Since the index is immutable, copies of this tokenizer share it.
+ * Like {@link DefaultJsonTokenizer} this tokenizer <em>does not</em> unescape
+ * JSON string values.
+ *
+ * @see StructuralIndex
+ */
+public class IndexedJsonTokenizer extends DefaultJsonTokenizer {
+    private String json;
+    private StructuralIndex index;
+
+    /** Index of the entry of the next token */
+    private int k;
+
+    /**
+     * Start of a value directly following a number or a literal without
+     * intervening white space or structural character or {@code -1} if none.
+     */
+    private int pending = -1;
+
+    // Bounds of the token found by scan()
+    private int start;
+    private int end;
+
+    /**
+     * Create a tokenizer for the given input string
+     * @param json
+     */
+    public IndexedJsonTokenizer(String json) {
+        this(json, new StructuralIndex(json));
+    }
+
+    /**
+     * Create a tokenizer for the given input string reusing an existing index
+     * @param json
+     * @param index  index of {@code json}
+     * @throws IllegalArgumentException  if {@code index} is not of the same length as {@code json}
+     */
+    public IndexedJsonTokenizer(String json, StructuralIndex index) {
+        super(json);
+        if (index.length() != json.length()) {
+            throw new IllegalArgumentException("Index does not match input");
+        }
+        this.json = json;
+        this.index = index;
+    }
+
+    /**
+     * @see JsonTokenizer#JsonTokenizer(JsonTokenizer)
+     */
+    protected IndexedJsonTokenizer(IndexedJsonTokenizer tokenizer) {
+        super(tokenizer);
+        json = tokenizer.json;
+        index = tokenizer.index;
+        k = tokenizer.k;
+        pending = tokenizer.pending;
+    }
+
+    /**
+     * Reset this tokenizer to the start of a new input string and build
+     * the index for it.
+     * @param json
+     */
+    @Override
+    public void reset(String json) {
+        reset(json, new StructuralIndex(json));
+    }
+
+    /**
+     * Reset this tokenizer to the start of a new input string reusing an
+     * existing index.
+     * @param json
+     * @param index  index of {@code json}
+     * @throws IllegalArgumentException  if {@code index} is not of the same length as {@code json}
+     */
+    public void reset(String json, StructuralIndex index) {
+        if (index.length() != json.length()) {
+            throw new IllegalArgumentException("Index does not match input");
+        }
+        super.reset(json);
+        this.json = json;
+        this.index = index;
+        k = 0;
+        pending = -1;
+    }
+
+    /**
+     * @return  the structural index of the input
+     */
+    public StructuralIndex index() {
+        return index;
+    }
+
+    @Override
+    protected Token nextToken() {
+        Type type = scan();
+        String text;
+        switch (type) {
+            case BEGIN_OBJECT: text = "{"; break;
+            case END_OBJECT: text = "}"; break;
+            case BEGIN_ARRAY: text = "["; break;
+            case END_ARRAY: text = "]"; break;
+            case COLON: text = ":"; break;
+            case COMMA: text = ","; break;
+            case TRUE: text = "true"; break;
+            case FALSE: text = "false"; break;
+            case NULL: text = "null"; break;
+            case EOF: text = ""; break;
+            case STRING: text = stringText(start + 1, end - 1); break;
+            default: text = json.substring(start, end);
+        }
+        return createToken(type, text, start);
+    }
+
+    @Override
+    protected void nextToken(TokenCursor cursor) {
+        Type type = scan();
+        cursor.set(type, start, end);
+    }
+
+    @Override
+    public void setPos(int pos) {
+        super.setPos(pos);
+        k = index.find(pos);
+        int next = k < index.size() ? index.get(k) : json.length();
+        pending = -1;
+        for (int i = pos; i < next; i++) {
+            if (!Chars.isWhiteSpace(json.charAt(i))) {
+                pending = i;
+                break;
+            }
+        }
+    }
+
+    /**
+     * Skips by walking the index: only structural characters and the first
+     * character of every value are looked at.
+     */
+    @Override
+    protected void skipContainer(Type type) {
+        Skipper skipper = new Skipper(type);
+        if (pending >= 0) {
+            skipper.value(false, pending);
+            pending = -1;
+        }
+
+        while (k < index.size()) {
+            int p = index.get(k++);
+            char c = json.charAt(p);
+            switch (c) {
+                case '"':
+                    skipper.value(true, p);
+                    if (k++ >= index.size()) {
+                        throw new ParseException(p, "Expected string, found. " + excerpt(p));
+                    }
+                    break;
+                case '{': case '}': case '[': case ']': case ':': case ',':
+                    if (skipper.structural(c, p)) {
+                        return;
+                    }
+                    break;
+                default:
+                    skipper.value(false, p);
+            }
+        }
+        throw new ParseException(json.length(), "Unexpected end of input");
+    }
+
+    @Override
+    public String toString() {
+        int pos = pending >= 0
+            ? pending
+            : k < index.size() ? index.get(k) : json.length();
+        return (currentToken == null ? "" : currentToken) + " " +
+                json.substring(pos, Math.min(json.length(), pos + 1000)) + "...";
+    }
+
+    @Override
+    public IndexedJsonTokenizer copy() {
+        return new IndexedJsonTokenizer(this);
+    }
+
+    //------------------------------------------< private >---
+
+    /**
+     * Find the next token and set {@link #start} and {@link #end} to its bounds
+     * @return  the type of the token
+     * @throws ParseException  if the token is malformed
+     */
+    private Type scan() {
+        if (pending >= 0) {
+            start = pending;
+            pending = -1;
+            return scanValue();
+        }
+
+        if (k >= index.size()) {
+            start = json.length();
+            end = start;
+            return Type.EOF;
+        }
+
+        start = index.get(k++);
+        end = start + 1;
+        switch (json.charAt(start)) {
+            case '{': return Type.BEGIN_OBJECT;
+            case '}': return Type.END_OBJECT;
+            case '[': return Type.BEGIN_ARRAY;
+            case ']': return Type.END_ARRAY;
+            case ':': return Type.COLON;
+            case ',': return Type.COMMA;
+            case '"':
+                if (k >= index.size()) {
+                    throw new ParseException(start, "Expected string, found. " + excerpt(start));
+                }
+                end = index.get(k++) + 1;
+                return Type.STRING;
+            default:
+                return scanValue();
+        }
+    }
+
+    /**
+     * Scan the number, literal or unknown token at {@link #start}
+     */
+    private Type scanValue() {
+        Type type;
+        switch (json.charAt(start)) {
+            case 't': type = Type.TRUE; end = scanLiteral("true"); break;
+            case 'f': type = Type.FALSE; end = scanLiteral("false"); break;
+            case 'n': type = Type.NULL; end = scanLiteral("null"); break;
+            default:
+                end = scanNumber();
+                if (end > start) {
+                    type = Type.NUMBER;
+                }
+                else {
+                    type = Type.UNKNOWN;
+                    end = scanUnknown();
+                }
+        }
+
+        // The index only has an entry for the first character of a run of characters
+        // which are neither white space, structural characters nor quotes.
+        if (end < json.length() && isValueChar(json.charAt(end))) {
+            pending = end;
+        }
+        return type;
+    }
+
+    private int scanLiteral(String text) {
+        if (json.startsWith(text, start)) {
+            return start + text.length();
+        }
+        else {
+            throw new ParseException(start, "Expected '" + text + ",' found: " + excerpt(start));
+        }
+    }
+
+    /**
+     * @return  the end position of the longest number at {@link #start} or
+     * {@link #start} if there is no number. Requires a digit after a leading sign.
+     */
+    private int scanNumber() {
+        int end = start;
+        int state = Chars.NUMBER_START;
+        for (int i = start; i < json.length(); i++) {
+            state = Chars.nextNumberState(state, json.charAt(i));
+            if (state == Chars.NUMBER_REJECT) {
+                break;
+            }
+            if (Chars.isNumberAccepting(state)) {
+                end = i + 1;
+            }
+        }
+        return end;
+    }
+
+    private int scanUnknown() {
+        int i = start + 1;
+        while (i < json.length() && !Chars.isTokenStart(json.charAt(i))) {
+            i++;
+        }
+        return i;
+    }
+
+    private static boolean isValueChar(char c) {
+        switch (c) {
+            case '{': case '}': case '[': case ']': case ':': case ',': case '"':
+            case ' ': case '\t': case '\n': case '\r':
+                return false;
+            default:
+                return true;
+        }
+    }
+
+    private String excerpt(int pos) {
+        return json.substring(pos, Math.min(json.length(), pos + 40)) + "...";
+    }
+
+}
@@ -0,0 +1,118 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package michid.jsonjerk;
+
+import michid.jsonjerk.Token.Type;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Iterator over a sequence of concatenated JSON documents like
+ * <pre>
+ * {"a":1}{"b":2} [3]
+ * </pre>
+ * The documents may be separated by white space but need no further delimiter.
+ * A single tokenizer is used for the whole input such that its buffers are
+ * retained across documents. Use one of the {@code reset} methods of the
+ * tokenizer (e.g. {@link DefaultJsonTokenizer#reset(String)}) to reuse the
+ * tokenizer and this iterator for another input.
+ * <p/>
+ * Documents may be consumed as {@link JsonValue}s by {@link #next()}, through
+ * a {@link JsonHandler} by {@link #next(JsonHandler)} or skipped by {@link #skip()}.
+ * Each of these methods leaves the tokenizer at the first token following the
+ * document.
+ */
+public final class JsonDocuments implements Iterator<JsonValue> {
+    private final JsonTokenizer tokenizer;
+
+    /**
+     * Create a new iterator over the documents of {@code tokenizer}
+     * @param tokenizer
+     */
+    public JsonDocuments(JsonTokenizer tokenizer) {
+        this.tokenizer = tokenizer;
+    }
+
+    /**
+     * @return  the tokenizer of this iterator
+     */
+    public JsonTokenizer tokenizer() {
+        return tokenizer;
+    }
+
+    /**
+     * @return  {@code true} unless the tokenizer is at the end of its input
+     */
+    @Override
+    public boolean hasNext() {
+        return tokenizer.peek().type() != Type.EOF;
+    }
+
+    /**
+     * Parse the next document
+     * @return  a {@code JsonObject}, a {@code JsonArray} or a {@code JsonAtom}
+     * @throws NoSuchElementException  if there are no more documents
+     * @throws ParseException
+     */
+    @Override
+    public JsonValue next() {
+        checkHasNext();
+        return FullJsonParser.parseValue(tokenizer);
+    }
+
+    /**
+     * Parse the next document calling back on {@code handler}
+     * @param handler
+     * @throws NoSuchElementException  if there are no more documents
+     * @throws ParseException
+     */
+    public void next(JsonHandler handler) {
+        checkHasNext();
+        new JsonParser(handler).parseValue(null, tokenizer);
+    }
+
+    /**
+     * Skip the next document
+     * @throws NoSuchElementException  if there are no more documents
+     * @throws ParseException
+     */
+    public void skip() {
+        checkHasNext();
+        tokenizer.skipValue();
+    }
+
+    /**
+     * @throws UnsupportedOperationException  always
+     */
+    @Override
+    public void remove() {
+        throw new UnsupportedOperationException("remove");
+    }
+
+    //------------------------------------------< private >---
+
+    private void checkHasNext() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+    }
+
+}
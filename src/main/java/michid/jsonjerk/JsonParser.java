@@ -45,12 +45,20 @@ import michid.jsonjerk.Token.Type;
  * @see <a href="http://www.json.org/">json.org</a>
  */
 public final class JsonParser {
+    /**
+     * Parser for skipping values. Parsers for {@link JsonHandler#INSTANCE} do not parse objects
+     * and arrays but skip them using {@link JsonTokenizer#skipValue()}.
+     */
     public static final JsonParser SKIP_PARSER = new JsonParser(JsonHandler.INSTANCE);
 
     private final JsonHandler jsonHandler;
 
+    /** {@code true} if the handler has no actions such that values can be skipped */
+    private final boolean skip;
+
     public JsonParser(JsonHandler jsonHandler) {
         this.jsonHandler = jsonHandler;
+        skip = jsonHandler == JsonHandler.INSTANCE;
     }
 
     /**
@@ -63,13 +71,18 @@ public final class JsonParser {
      * @throws ParseException
      */
     public void parseObject(JsonTokenizer tokenizer) {
+        if (skip) {
+            skip(Type.BEGIN_OBJECT, tokenizer);
+            return;
+        }
+
         tokenizer.read(Type.BEGIN_OBJECT);
 
         if (tryParsePair(tokenizer)) {
             while (tokenizer.peek(Type.COMMA)) {
                 jsonHandler.comma(tokenizer.read());
                 if (!tryParsePair(tokenizer)) {
-                    throw new ParseException(tokenizer.pos(),  "Expected pair, found: " + tokenizer.peek());
+                    throw new ParseException(tokenizer.position(),  "Expected pair, found: " + tokenizer.peek());
                 }
             }
         }
@@ -86,7 +99,7 @@ public final class JsonParser {
      */
     public void parsePair(JsonTokenizer tokenizer) {
         if (!tokenizer.peek(Type.STRING)) {
-            throw new ParseException(tokenizer.pos(), "Expected string, found: " + tokenizer.peek());
+            throw new ParseException(tokenizer.position(), "Expected string, found: " + tokenizer.peek());
         }
 
         Token key = tokenizer.read();
@@ -106,6 +119,11 @@ public final class JsonParser {
      * @throws ParseException
      */
     public void parseValue(Token key, JsonTokenizer tokenizer) {
+        if (skip) {
+            tokenizer.skipValue();
+            return;
+        }
+
         switch (tokenizer.peek().type()) {
             case BEGIN_OBJECT:
                 jsonHandler.object(this, key, tokenizer);
@@ -121,7 +139,7 @@ public final class JsonParser {
                 jsonHandler.atom(key, tokenizer.read());
                 break;
             default:
-                throw new ParseException(tokenizer.pos(), "Expected value, found: " + tokenizer.peek());
+                throw new ParseException(tokenizer.position(), "Expected value, found: " + tokenizer.peek());
         }
     }
 
@@ -135,13 +153,18 @@ public final class JsonParser {
      * @throws ParseException
      */
     public void parseArray(JsonTokenizer tokenizer) {
+        if (skip) {
+            skip(Type.BEGIN_ARRAY, tokenizer);
+            return;
+        }
+
         tokenizer.read(Type.BEGIN_ARRAY);
 
         if (tryParseValue(tokenizer)) {
             while (tokenizer.peek(Type.COMMA)) {
                 jsonHandler.comma(tokenizer.read());
                 if (!tryParseValue(tokenizer)) {
-                    throw new ParseException(tokenizer.pos(), "Expected value, found: " + tokenizer.peek()); 
+                    throw new ParseException(tokenizer.position(), "Expected value, found: " + tokenizer.peek()); 
                 }
             }
         }
@@ -149,6 +172,14 @@ public final class JsonParser {
     }
 
     //------------------------------------------< private >---
+
+    private static void skip(Type type, JsonTokenizer tokenizer) {
+        TokenCursor cursor = tokenizer.cursor();
+        if (cursor.type() != type) {
+            throw new ParseException(cursor.start(), "Expected token type " + type + ", found: " + cursor);
+        }
+        tokenizer.skipValue();
+    }
     
     private boolean tryParsePair(JsonTokenizer tokenizer) {
         if (tokenizer.peek(Type.STRING)) {
@@ -0,0 +1,447 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package michid.jsonjerk;
+
+import michid.jsonjerk.JsonValue.JsonAtom;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A compiled path expression for selecting values from a JSON document in a single
+ * pass over a {@link JsonTokenizer}. The following subset of JSONPath is supported:
+ * <ul>
+ * <li>{@code $} the root</li>
+ * <li>{@code .name} and {@code ['name']} the member {@code name} of an object</li>
+ * <li>{@code [n]} the element at index {@code n} of an array</li>
+ * <li>{@code .*} and {@code [*]} all members of an object or elements of an array</li>
+ * <li>{@code ..} recursive descent, e.g. {@code $..name}, {@code $..*} or {@code $..[0]}</li>
+ * </ul>
+ * Alternatively JSON Pointers (RFC 6901) like {@code /store/book/0} are accepted.
+ * <p/>
+ * Paths are evaluated by a {@link JsonHandler} which tracks the set of partially
+ * matched steps of every path. Only branches which may contain a match are parsed.
+ * All other branches are skipped through {@link JsonTokenizer#skipValue()}. Parsing
+ * stops as soon as no further matches are possible. That is, once every path without
+ * wildcards and recursive descent has matched, or once a {@link Sink} requests to stop.
+ * In that case the tokenizer is left positioned inside the document.
+ * <p/>
+ * Keys are compared with the text of the respective {@link Token}s. Use an
+ * {@link UnescapingJsonTokenizer} for matching keys which contain escape sequences.
+ */
+public final class JsonPath {
+    private static final int MAX_STEPS = 63;
+
+    private final String expression;
+    private final Step[] steps;
+    private final boolean definite;
+
+    private JsonPath(String expression, Step[] steps) {
+        this.expression = expression;
+        this.steps = steps;
+        boolean definite = true;
+        for (Step step : steps) {
+            definite &= !step.wildcard && !step.descendant;
+        }
+        this.definite = definite;
+    }
+
+    /**
+     * Receiver of the values matched by a set of paths
+     */
+    public abstract static class Sink {
+
+        /**
+         * Called for each value matching {@code path}. Objects and arrays are passed
+         * as lazily parsed values as returned from {@link LevelOrderJsonParser}.
+         * @param path
+         * @param value
+         * @return  {@code false} to stop parsing, {@code true} otherwise
+         */
+        public abstract boolean match(JsonPath path, JsonValue value);
+
+        /**
+         * Called for each primitive value matching {@code path}. This implementation
+         * delegates to {@link #match(JsonPath, JsonValue)}. Override to receive the
+         * matched token without creating a {@code JsonAtom}.
+         * @param path
+         * @param token
+         * @return  {@code false} to stop parsing, {@code true} otherwise
+         */
+        public boolean match(JsonPath path, Token token) {
+            return match(path, JsonAtom.atom(token));
+        }
+    }
+
+    /**
+     * Compile a path expression
+     * @param expression  a JSONPath starting with {@code $} or a JSON Pointer
+     * @return  the compiled path
+     * @throws IllegalArgumentException  if {@code expression} is not valid
+     */
+    public static JsonPath compile(String expression) {
+        List<Step> steps = expression.startsWith("$")
+            ? parseJsonPath(expression)
+            : parseJsonPointer(expression);
+
+        if (steps.size() > MAX_STEPS) {
+            throw new IllegalArgumentException("Path too long: " + expression);
+        }
+        return new JsonPath(expression, steps.toArray(new Step[steps.size()]));
+    }
+
+    /**
+     * @return  {@code true} iff this path contains neither wildcards nor recursive
+     * descent and thus matches at most a single value.
+     */
+    public boolean isDefinite() {
+        return definite;
+    }
+
+    /**
+     * Select all values matching this path from the document at the current
+     * position of {@code tokenizer}.
+     * @param tokenizer
+     * @return  the matching values in document order
+     * @throws ParseException
+     */
+    public List<JsonValue> select(JsonTokenizer tokenizer) {
+        final List<JsonValue> values = new ArrayList<JsonValue>();
+        select(tokenizer, new Sink() {
+            @Override
+            public boolean match(JsonPath path, JsonValue value) {
+                values.add(value);
+                return true;
+            }
+        }, this);
+        return values;
+    }
+
+    /**
+     * Select the first value matching this path from the document at the current
+     * position of {@code tokenizer}.
+     * @param tokenizer
+     * @return  the first matching value or {@code null} if none
+     * @throws ParseException
+     */
+    public JsonValue selectFirst(JsonTokenizer tokenizer) {
+        final JsonValue[] value = new JsonValue[1];
+        select(tokenizer, new Sink() {
+            @Override
+            public boolean match(JsonPath path, JsonValue match) {
+                value[0] = match;
+                return false;
+            }
+        }, this);
+        return value[0];
+    }
+
+    /**
+     * Select the values matching any of {@code paths} from the document at the
+     * current position of {@code tokenizer} in a single pass.
+     * @param tokenizer
+     * @param sink  receiver for the matching values
+     * @param paths
+     * @throws ParseException
+     */
+    public static void select(JsonTokenizer tokenizer, Sink sink, JsonPath... paths) {
+        long[] states = new long[paths.length];
+        for (int k = 0; k < paths.length; k++) {
+            states[k] = 1;
+        }
+        new Selection(paths, sink).match(states, tokenizer);
+    }
+
+    @Override
+    public String toString() {
+        return expression;
+    }
+
+    //------------------------------------------< package private >---
+
+    /**
+     * A single step of a path. It matches object members by {@code name} and array
+     * elements by {@code index} where either may be absent.
+     */
+    static final class Step {
+        final String name;
+        final int index;
+        final boolean wildcard;
+        final boolean descendant;
+
+        Step(String name, int index, boolean wildcard, boolean descendant) {
+            this.name = name;
+            this.index = index;
+            this.wildcard = wildcard;
+            this.descendant = descendant;
+        }
+
+        boolean matches(String key, int index) {
+            return wildcard || (key == null
+                ? this.index >= 0 && this.index == index
+                : key.equals(name));
+        }
+    }
+
+    Step[] steps() {
+        return steps;
+    }
+
+    //------------------------------------------< private >---
+
+    /**
+     * The state of a path is a bit set of the number of its steps matched so far. The
+     * path matches when the bit at {@code steps.length} is set.
+     * @return  the state after entering the member with {@code key} or at {@code index}
+     */
+    private long transition(long state, String key, int index) {
+        long next = 0;
+        for (int s = 0; s < steps.length; s++) {
+            if ((state & 1L << s) != 0) {
+                Step step = steps[s];
+                if (step.matches(key, index)) {
+                    next |= 1L << (s + 1);
+                }
+                if (step.descendant) {
+                    next |= 1L << s;
+                }
+            }
+        }
+        return next;
+    }
+
+    private boolean isMatch(long state) {
+        return (state & 1L << steps.length) != 0;
+    }
+
+    /**
+     * Shared state of a selection over a set of paths. The state at a value
+     * consists of the states of all paths.
+     */
+    private static class Selection extends ValueMatcher<long[]> {
+        private final JsonPath[] paths;
+        private final Sink sink;
+        private final boolean[] satisfied;
+        private int pending;
+
+        Selection(JsonPath[] paths, Sink sink) {
+            this.paths = paths;
+            this.sink = sink;
+            satisfied = new boolean[paths.length];
+            for (JsonPath path : paths) {
+                if (path.definite) {
+                    pending++;
+                }
+            }
+            if (pending < paths.length) {
+                // indefinite paths never get satisfied
+                pending = Integer.MAX_VALUE;
+            }
+        }
+
+        @Override
+        long[] transition(long[] states, Token key, int index) {
+            String name = key == null ? null : key.text();
+            long[] next = null;
+            for (int k = 0; k < paths.length; k++) {
+                if (states[k] != 0 && !satisfied[k]) {
+                    long state = paths[k].transition(states[k], name, index);
+                    if (state != 0) {
+                        if (next == null) {
+                            next = new long[paths.length];
+                        }
+                        next[k] = state;
+                    }
+                }
+            }
+            return next;
+        }
+
+        @Override
+        boolean isMatch(long[] states) {
+            for (int k = 0; k < paths.length; k++) {
+                if (!satisfied[k] && paths[k].isMatch(states[k])) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        @Override
+        boolean isPrefix(long[] states) {
+            for (int k = 0; k < paths.length; k++) {
+                if (!satisfied[k] && (states[k] & ~(1L << paths[k].steps.length)) != 0) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        @Override
+        void atom(long[] states, Token value) {
+            for (int k = 0; k < paths.length; k++) {
+                if (paths[k].isMatch(states[k]) && !satisfied[k]) {
+                    satisfy(k);
+                    if (!sink.match(paths[k], value)) {
+                        stop();
+                    }
+                }
+            }
+            stopIfSatisfied();
+        }
+
+        @Override
+        void value(long[] states, JsonValue value) {
+            for (int k = 0; k < paths.length; k++) {
+                if (!satisfied[k] && paths[k].isMatch(states[k])) {
+                    satisfy(k);
+                    if (!sink.match(paths[k], value)) {
+                        stop();
+                    }
+                }
+            }
+            stopIfSatisfied();
+        }
+
+        private void satisfy(int k) {
+            if (paths[k].definite) {
+                satisfied[k] = true;
+                pending--;
+            }
+        }
+
+        private void stopIfSatisfied() {
+            if (pending == 0) {
+                stop();
+            }
+        }
+    }
+
+    private static List<Step> parseJsonPath(String expression) {
+        List<Step> steps = new ArrayList<Step>();
+        int length = expression.length();
+        int i = 1;
+        while (i < length) {
+            boolean descendant = false;
+            char c = expression.charAt(i);
+            if (c == '.') {
+                i++;
+                if (i < length && expression.charAt(i) == '.') {
+                    descendant = true;
+                    i++;
+                }
+                if (i >= length) {
+                    throw invalidPath(expression);
+                }
+                c = expression.charAt(i);
+                if (c == '*') {
+                    steps.add(new Step(null, -1, true, descendant));
+                    i++;
+                    continue;
+                }
+                else if (c != '[') {
+                    int end = i;
+                    while (end < length && expression.charAt(end) != '.' && expression.charAt(end) != '[') {
+                        end++;
+                    }
+                    if (end == i) {
+                        throw invalidPath(expression);
+                    }
+                    steps.add(new Step(expression.substring(i, end), -1, false, descendant));
+                    i = end;
+                    continue;
+                }
+                else if (!descendant) {
+                    throw invalidPath(expression);
+                }
+            }
+
+            // bracket
+            if (expression.charAt(i) != '[') {
+                throw invalidPath(expression);
+            }
+            int end = expression.indexOf(']', i);
+            if (end < 0) {
+                throw invalidPath(expression);
+            }
+            String selector = expression.substring(i + 1, end).trim();
+            if (selector.equals("*")) {
+                steps.add(new Step(null, -1, true, descendant));
+            }
+            else if (selector.length() >= 2 && (selector.charAt(0) == '\'' || selector.charAt(0) == '"')
+                    && selector.charAt(selector.length() - 1) == selector.charAt(0)) {
+                steps.add(new Step(selector.substring(1, selector.length() - 1), -1, false, descendant));
+            }
+            else {
+                steps.add(new Step(null, parseIndex(expression, selector), false, descendant));
+            }
+            i = end + 1;
+        }
+        return steps;
+    }
+
+    private static List<Step> parseJsonPointer(String expression) {
+        List<Step> steps = new ArrayList<Step>();
+        if (expression.isEmpty()) {
+            return steps;
+        }
+        if (expression.charAt(0) != '/') {
+            throw invalidPath(expression);
+        }
+
+        int i = 1;
+        while (true) {
+            int end = expression.indexOf('/', i);
+            String token = (end < 0 ? expression.substring(i) : expression.substring(i, end))
+                    .replace("~1", "/").replace("~0", "~");
+            int index = -1;
+            if (!token.isEmpty() && token.length() < 10 && isDigits(token)
+                    && (token.length() == 1 || token.charAt(0) != '0')) {
+                index = Integer.parseInt(token);
+            }
+            steps.add(new Step(token, index, false, false));
+            if (end < 0) {
+                return steps;
+            }
+            i = end + 1;
+        }
+    }
+
+    private static int parseIndex(String expression, String selector) {
+        if (selector.isEmpty() || selector.length() >= 10 || !isDigits(selector)) {
+            throw invalidPath(expression);
+        }
+        return Integer.parseInt(selector);
+    }
+
+    private static boolean isDigits(String text) {
+        for (int k = 0; k < text.length(); k++) {
+            if (text.charAt(k) < '0' || text.charAt(k) > '9') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static IllegalArgumentException invalidPath(String expression) {
+        return new IllegalArgumentException("Invalid path: " + expression);
+    }
+
+}
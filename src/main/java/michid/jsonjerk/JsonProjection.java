@@ -0,0 +1,331 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package michid.jsonjerk;
+
+import michid.jsonjerk.JsonPath.Sink;
+import michid.jsonjerk.JsonPath.Step;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * A projection selects the values of many {@link JsonPath}s from a JSON document in
+ * a single pass. Each path has its own {@link Sink}. The paths are merged into a
+ * single trie of expected keys and indices, in which wildcards are resolved when
+ * the projection is created. While parsing, entering a member costs a single look
+ * up in the trie regardless of the number of paths. Members without a trie node are
+ * skipped through {@link JsonTokenizer#skipValue()}.
+ * <p/>
+ * Paths may contain names, indices and wildcards but no recursive descent. Use
+ * {@link JsonPath#select(JsonTokenizer, Sink, JsonPath...)} for the latter.
+ * <p/>
+ * A path stops receiving values once its sink returns {@code false} or, for
+ * {@link JsonPath#isDefinite() definite} paths, after its first match. Parsing
+ * stops once no path can receive further values.
+ * <p/>
+ * Projections are immutable once created and may be used concurrently.
+ */
+public final class JsonProjection {
+    private final JsonPath[] paths;
+    private final Sink[] sinks;
+    private final Node root;
+
+    private JsonProjection(JsonPath[] paths, Sink[] sinks) {
+        this.paths = paths;
+        this.sinks = sinks;
+
+        Trie trie = new Trie();
+        for (int k = 0; k < paths.length; k++) {
+            trie.add(paths[k], k);
+        }
+        root = trie.root();
+    }
+
+    /**
+     * Create a projection for the given paths. {@code paths} and {@code sinks} must
+     * have the same length. The values matching {@code paths[k]} are passed to
+     * {@code sinks[k]}.
+     * @param paths
+     * @param sinks
+     * @return  a new projection
+     * @throws IllegalArgumentException  if any of {@code paths} contains recursive descent
+     */
+    public static JsonProjection create(JsonPath[] paths, Sink[] sinks) {
+        if (paths.length != sinks.length) {
+            throw new IllegalArgumentException("Number of paths and sinks differ");
+        }
+        return new JsonProjection(paths.clone(), sinks.clone());
+    }
+
+    /**
+     * Create a projection mapping each path to its sink
+     * @param sinks
+     * @return  a new projection
+     * @throws IllegalArgumentException  if any path contains recursive descent
+     */
+    public static JsonProjection create(Map<JsonPath, ? extends Sink> sinks) {
+        JsonPath[] paths = sinks.keySet().toArray(new JsonPath[sinks.size()]);
+        Sink[] values = new Sink[paths.length];
+        for (int k = 0; k < paths.length; k++) {
+            values[k] = sinks.get(paths[k]);
+        }
+        return new JsonProjection(paths, values);
+    }
+
+    /**
+     * Project the document at the current position of {@code tokenizer}
+     * @param tokenizer
+     * @throws ParseException
+     */
+    public void project(JsonTokenizer tokenizer) {
+        new Projection().match(root, tokenizer);
+    }
+
+    //------------------------------------------< private >---
+
+    /**
+     * Node of the merged trie. {@code targets} are the indices of the paths
+     * ending at this node.
+     */
+    private static final class Node {
+        private static final Node[] NO_NODES = new Node[0];
+
+        private final int[] targets;
+        private Map<String, Node> names;
+        private Node[] indices = NO_NODES;
+        private Node wildcard;
+
+        Node(int[] targets) {
+            this.targets = targets;
+        }
+
+        Node child(Token key, int index) {
+            Node child = null;
+            if (key != null) {
+                if (names != null) {
+                    child = names.get(key.text());
+                }
+            }
+            else if (index < indices.length) {
+                child = indices[index];
+            }
+            return child == null ? wildcard : child;
+        }
+
+        boolean isLeaf() {
+            return names == null && indices.length == 0 && wildcard == null;
+        }
+    }
+
+    /**
+     * Builds the merged trie from the paths. The paths are first merged into a
+     * non deterministic trie, where a member may match a named child and a wildcard
+     * child at the same time. That trie is then converted into a deterministic one
+     * by merging the wildcard children into all their named siblings.
+     */
+    private static final class Trie {
+        private final TrieNode root = new TrieNode();
+
+        void add(JsonPath path, int target) {
+            TrieNode node = root;
+            for (Step step : path.steps()) {
+                if (step.descendant) {
+                    throw new IllegalArgumentException("Recursive descent not supported: " + path);
+                }
+                if (step.wildcard) {
+                    node = node.wildcard == null
+                        ? (node.wildcard = new TrieNode())
+                        : node.wildcard;
+                }
+                else if (step.name != null && step.index >= 0) {
+                    // a step of a JSON Pointer matches a name or an index
+                    TrieNode child = new TrieNode();
+                    node.names(step.name).add(child);
+                    node.indices(step.index).add(child);
+                    node = child;
+                }
+                else {
+                    List<TrieNode> children = step.name != null
+                        ? node.names(step.name)
+                        : node.indices(step.index);
+                    if (children.isEmpty()) {
+                        children.add(new TrieNode());
+                    }
+                    node = children.get(0);
+                }
+            }
+            node.targets.add(target);
+        }
+
+        Node root() {
+            return merge(Arrays.asList(root));
+        }
+
+        private static Node merge(List<TrieNode> nodes) {
+            Set<Integer> targets = new LinkedHashSet<Integer>();
+            Set<String> names = new LinkedHashSet<String>();
+            int indices = 0;
+            List<TrieNode> wildcards = new ArrayList<TrieNode>();
+            for (TrieNode node : nodes) {
+                targets.addAll(node.targets);
+                names.addAll(node.names.keySet());
+                for (int index : node.indices.keySet()) {
+                    indices = Math.max(indices, index + 1);
+                }
+                if (node.wildcard != null) {
+                    wildcards.add(node.wildcard);
+                }
+            }
+
+            int[] ids = new int[targets.size()];
+            int k = 0;
+            for (int target : targets) {
+                ids[k++] = target;
+            }
+            Node merged = new Node(ids);
+
+            if (!names.isEmpty()) {
+                merged.names = new HashMap<String, Node>();
+                for (String name : names) {
+                    List<TrieNode> children = new ArrayList<TrieNode>(wildcards);
+                    for (TrieNode node : nodes) {
+                        addAll(children, node.names.get(name));
+                    }
+                    merged.names.put(name, merge(children));
+                }
+            }
+            if (indices > 0) {
+                merged.indices = new Node[indices];
+                for (int index = 0; index < indices; index++) {
+                    List<TrieNode> children = new ArrayList<TrieNode>(wildcards);
+                    for (TrieNode node : nodes) {
+                        addAll(children, node.indices.get(index));
+                    }
+                    // null where only the wildcard matches: Node.child falls back to it
+                    if (children.size() > wildcards.size()) {
+                        merged.indices[index] = merge(children);
+                    }
+                }
+            }
+            if (!wildcards.isEmpty()) {
+                merged.wildcard = merge(wildcards);
+            }
+            return merged;
+        }
+
+        private static void addAll(List<TrieNode> nodes, List<TrieNode> children) {
+            if (children != null) {
+                for (TrieNode child : children) {
+                    if (!nodes.contains(child)) {
+                        nodes.add(child);
+                    }
+                }
+            }
+        }
+    }
+
+    private static final class TrieNode {
+        final List<Integer> targets = new ArrayList<Integer>();
+        final Map<String, List<TrieNode>> names = new HashMap<String, List<TrieNode>>();
+        final Map<Integer, List<TrieNode>> indices = new HashMap<Integer, List<TrieNode>>();
+        TrieNode wildcard;
+
+        List<TrieNode> names(String name) {
+            List<TrieNode> children = names.get(name);
+            if (children == null) {
+                children = new ArrayList<TrieNode>(1);
+                names.put(name, children);
+            }
+            return children;
+        }
+
+        List<TrieNode> indices(int index) {
+            List<TrieNode> children = indices.get(index);
+            if (children == null) {
+                children = new ArrayList<TrieNode>(1);
+                indices.put(index, children);
+            }
+            return children;
+        }
+    }
+
+    /**
+     * State of a single run of a projection. The state at a value is the
+     * node of the trie.
+     */
+    private final class Projection extends ValueMatcher<Node> {
+        private final boolean[] done = new boolean[paths.length];
+        private int pending = paths.length;
+
+        @Override
+        Node transition(Node node, Token key, int index) {
+            return node.child(key, index);
+        }
+
+        @Override
+        boolean isMatch(Node node) {
+            return node.targets.length > 0;
+        }
+
+        @Override
+        boolean isPrefix(Node node) {
+            return !node.isLeaf();
+        }
+
+        @Override
+        void atom(Node node, Token value) {
+            for (int target : node.targets) {
+                if (!done[target]) {
+                    deliver(target, sinks[target].match(paths[target], value));
+                }
+            }
+            stopIfDone();
+        }
+
+        @Override
+        void value(Node node, JsonValue value) {
+            for (int target : node.targets) {
+                if (!done[target]) {
+                    deliver(target, sinks[target].match(paths[target], value));
+                }
+            }
+            stopIfDone();
+        }
+
+        private void deliver(int target, boolean more) {
+            if (!more || paths[target].isDefinite()) {
+                done[target] = true;
+                pending--;
+            }
+        }
+
+        private void stopIfDone() {
+            if (pending == 0) {
+                stop();
+            }
+        }
+    }
+
+}
@@ -45,10 +45,16 @@ public class JsonReaders {
         @Override
         public void atom(Token key, Token value) {
             if (value.type() == Type.NUMBER) {
-                try {
-                    set(Integer.parseInt(value.text()));
+                CharSequence chars = value.chars();
+                if (Numbers.isIntegral(chars, 0, chars.length())) {
+                    try {
+                        long number = Numbers.parseLong(chars, 0, chars.length());
+                        if (number == (int) number) {
+                            set((int) number);
+                        }
+                    }
+                    catch (NumberFormatException e) { /* out of the range of long */ }
                 }
-                catch (NumberFormatException e) { /* ignore */ }
             }
         }
     }
@@ -57,10 +63,13 @@ public class JsonReaders {
         @Override
         public void atom(Token key, Token value) {
             if (value.type() == Type.NUMBER) {
-                try {
-                    set(Long.parseLong(value.text()));
+                CharSequence chars = value.chars();
+                if (Numbers.isIntegral(chars, 0, chars.length())) {
+                    try {
+                        set(Numbers.parseLong(chars, 0, chars.length()));
+                    }
+                    catch (NumberFormatException e) { /* out of the range of long */ }
                 }
-                catch (NumberFormatException e) { /* ignore */ }
             }
         }
     }
@@ -70,7 +79,8 @@ public class JsonReaders {
         public void atom(Token key, Token value) {
             if (value.type() == Type.NUMBER) {
                 try {
-                    set(Double.parseDouble(value.text()));
+                    CharSequence chars = value.chars();
+                    set(Numbers.parseDouble(chars, 0, chars.length()));
                 }
                 catch (NumberFormatException e) { /* ignore */ }
             }
@@ -168,7 +178,7 @@ public class JsonReaders {
             }
             JsonHandler reader = readers.get(key.text());
             if (reader == null) {
-                JsonParser.SKIP_PARSER.parseObject(tokenizer);
+                tokenizer.skipValue();
             }
             else {
                 new JsonParser(reader).parseObject(tokenizer);
@@ -179,7 +189,7 @@ public class JsonReaders {
         public void array(JsonParser parser, Token key, JsonTokenizer tokenizer) {
             JsonHandler reader = readers.get(key.text());
             if (reader == null) {
-                JsonParser.SKIP_PARSER.parseArray(tokenizer);
+                tokenizer.skipValue();
             }
             else {
                 new JsonParser(reader).parseArray(tokenizer);
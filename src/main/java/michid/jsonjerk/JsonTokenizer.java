@@ -19,6 +19,7 @@
 
 package michid.jsonjerk;
 
+import michid.jsonjerk.JsonValue.JsonNumber;
 import michid.jsonjerk.Token.Type;
 
 /**
@@ -26,6 +27,14 @@ import michid.jsonjerk.Token.Type;
  * A JSON tokenizer breaks a stream of character into {@link Token}s. It has
  * a current {@link #pos() position} and methods for inspecting, reading and
  * skipping the token at the current position.
+ * <p/>
+ * In addition tokenizers support a <em>cursor mode</em> where the current token
+ * is exposed through a reusable {@link TokenCursor} instead of a new {@code Token}
+ * instance per token. See {@link #cursor()} and {@link #advance()}. Tokenizers
+ * which do not override {@link #nextToken(TokenCursor)} fall back to creating
+ * {@code Token}s internally.
+ *
+ * @see CursorJsonParser
  */
 public abstract class JsonTokenizer {
 
@@ -35,12 +44,27 @@ public abstract class JsonTokenizer {
      */
     protected Token currentToken;
 
+    /**
+     * The cursor for cursor mode or {@code null} if cursor mode has not been used yet.
+     */
+    protected TokenCursor cursor;
+
+    private TokenCursor keyCursor;
+
+    /** Symbol table for interning keys, {@code null} if keys are not interned */
+    private SymbolTable symbolTable;
+
     /**
      * Copy constructor. To be used in conjunction with {@link #copy()}
      * @param tokenizer
      */
     protected JsonTokenizer(JsonTokenizer tokenizer) {
         currentToken = tokenizer.currentToken;
+        symbolTable = tokenizer.symbolTable;
+        if (tokenizer.cursor != null && !tokenizer.cursor.isConsumed()) {
+            cursor = new TokenCursor(this);
+            cursor.set(tokenizer.cursor);
+        }
     }
 
     protected JsonTokenizer() { }
@@ -51,7 +75,10 @@ public abstract class JsonTokenizer {
      */
     public Token peek() {
         if (currentToken == null) {
-            currentToken = nextToken();
+            currentToken = pendingCursorToken();
+            if (currentToken == null) {
+                currentToken = nextToken();
+            }
         }
 
         return currentToken;
@@ -71,7 +98,8 @@ public abstract class JsonTokenizer {
      */
     public Token read() {
         if (currentToken == null) {
-            return nextToken();
+            Token token = pendingCursorToken();
+            return token == null ? nextToken() : token;
         }
         else {
             Token token = currentToken;
@@ -93,7 +121,7 @@ public abstract class JsonTokenizer {
             return read();
         }
         else {
-            throw new ParseException(token.pos(), "Expected token type " + type + ", found: " + token); 
+            throw new ParseException(token.position(), "Expected token type " + type + ", found: " + token); 
         }
     }
 
@@ -112,6 +140,85 @@ public abstract class JsonTokenizer {
         }
     }
 
+    /**
+     * Returns the cursor positioned at the current token without advancing the
+     * position. The returned instance is reused: its state is only valid until
+     * the next call to {@code cursor()} after the cursor has been {@link #advance() advanced}.
+     * @return  cursor at the current token
+     */
+    public TokenCursor cursor() {
+        if (cursor == null) {
+            cursor = new TokenCursor(this);
+        }
+
+        if (cursor.isConsumed()) {
+            if (currentToken == null) {
+                nextToken(cursor);
+            }
+            else {
+                cursor.set(currentToken);
+                currentToken = null;
+            }
+        }
+
+        return cursor;
+    }
+
+    /**
+     * Advances the position past the token at the {@link #cursor() cursor}. The
+     * state of the cursor stays accessible until the next call to {@link #cursor()}.
+     * @return  the cursor
+     */
+    public TokenCursor advance() {
+        TokenCursor cursor = cursor();
+        cursor.consume();
+        return cursor;
+    }
+
+    /**
+     * Advances the position past the token at the {@link #cursor() cursor} if the
+     * token is of the given {@code type}.
+     * @param type
+     * @return  the cursor
+     * @throws ParseException  if the token is not of the given {@code type}.
+     */
+    public TokenCursor advance(Type type) {
+        TokenCursor cursor = cursor();
+        if (cursor.type() == type) {
+            cursor.consume();
+            return cursor;
+        }
+        else {
+            throw new ParseException(cursor.start(), "Expected token type " + type + ", found: " + cursor);
+        }
+    }
+
+    /**
+     * Skip the JSON value at the current position. Objects and arrays are skipped
+     * by {@link #skipContainer(Type)}, which does not fully parse them: their nesting
+     * and the placement of keys, values and separators is verified but strings,
+     * numbers and literals are not.
+     * @throws ParseException  if there is no value at the current position or the
+     * value is malformed.
+     */
+    public void skipValue() {
+        TokenCursor cursor = advance();
+        switch (cursor.type()) {
+            case BEGIN_OBJECT:
+            case BEGIN_ARRAY:
+                skipContainer(cursor.type());
+                break;
+            case STRING:
+            case NUMBER:
+            case TRUE:
+            case FALSE:
+            case NULL:
+                break;
+            default:
+                throw new ParseException(cursor.start(), "Expected value, found: " + cursor);
+        }
+    }
+
     /**
      * @return the current position
      */
@@ -123,6 +230,45 @@ public abstract class JsonTokenizer {
      */
     public abstract void setPos(int pos);
 
+    /**
+     * Tokenizers for inputs larger than 2 GB override this method together with
+     * {@link #setPosition(long)}. This implementation returns {@link #pos()}.
+     * @return the current position as 64 bit offset
+     */
+    public long position() {
+        return pos();
+    }
+
+    /**
+     * Set the current position. This implementation delegates to {@link #setPos(int)}.
+     * @param position
+     * @throws IllegalArgumentException  if {@code position} is not supported by this tokenizer
+     */
+    public void setPosition(long position) {
+        if (position > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Position exceeds int range: " + position);
+        }
+        setPos((int) position);
+    }
+
+    /**
+     * Set the symbol table for interning the keys of objects. Tokenizers which
+     * support interning consult the table whenever they create the text of a
+     * string token followed by a colon. Copies of this tokenizer share the table.
+     * @param symbolTable  the symbol table or {@code null} for not interning keys
+     */
+    public void setSymbolTable(SymbolTable symbolTable) {
+        this.symbolTable = symbolTable;
+    }
+
+    /**
+     * @return  the symbol table for interning keys or {@code null} if keys are not interned
+     * @see #setSymbolTable(SymbolTable)
+     */
+    public SymbolTable symbolTable() {
+        return symbolTable;
+    }
+
     /**
      * Create a copy of this tokenizer with the same state. Implementations usually
      * create a new instance by calling the (overriden) {@link #JsonTokenizer(JsonTokenizer) copy constructor}.
@@ -135,4 +281,148 @@ public abstract class JsonTokenizer {
      * @return  next token
      */
     protected abstract Token nextToken();
+
+    /**
+     * Read the next token from the input into {@code cursor} and advance the current
+     * {@link #pos() positon}. This implementation delegates to {@link #nextToken()}.
+     * Implementations which override this method must also override the other methods
+     * taking a {@code TokenCursor} argument.
+     * @param cursor
+     */
+    protected void nextToken(TokenCursor cursor) {
+        cursor.set(nextToken());
+    }
+
+    /**
+     * Create a {@code Token} for the token at {@code cursor}.
+     * @param cursor
+     * @return  a new token
+     */
+    protected Token createToken(TokenCursor cursor) {
+        return cursor.token();
+    }
+
+    /**
+     * @param cursor
+     * @return  the text of the token at {@code cursor}
+     * @see Token#text()
+     */
+    protected String text(TokenCursor cursor) {
+        return cursor.token().text();
+    }
+
+    /**
+     * @param cursor
+     * @param text
+     * @return  {@code true} iff the text of the token at {@code cursor} equals {@code text}
+     */
+    protected boolean textEquals(TokenCursor cursor, String text) {
+        return text(cursor).equals(text);
+    }
+
+    /**
+     * @param cursor
+     * @return  the token at {@code cursor} as {@code long}
+     * @throws NumberFormatException  if the token is not an integral number in the range of {@code long}
+     */
+    protected long longValue(TokenCursor cursor) {
+        String text = text(cursor);
+        return Numbers.parseLong(text, 0, text.length());
+    }
+
+    /**
+     * @param cursor
+     * @return  the token at {@code cursor} as {@code double}
+     * @throws NumberFormatException  if the token is not a number
+     */
+    protected double doubleValue(TokenCursor cursor) {
+        String text = text(cursor);
+        return Numbers.parseDouble(text, 0, text.length());
+    }
+
+    /**
+     * @param cursor
+     * @return  the token at {@code cursor} as {@code JsonNumber}
+     * @see TokenCursor#numberValue()
+     */
+    protected JsonNumber numberValue(TokenCursor cursor) {
+        String text = text(cursor);
+        return JsonNumber.valueOf(text, 0, text.length());
+    }
+
+    /**
+     * Skip the remainder of an object or an array whose opening bracket has just been
+     * {@link #advance() advanced} over. This implementation reads the tokens up to the
+     * matching closing bracket. Implementations should override this method to scan
+     * their raw input instead.
+     * @param type  {@link Type#BEGIN_OBJECT} or {@link Type#BEGIN_ARRAY}
+     * @throws ParseException  if the object or array is malformed
+     */
+    protected void skipContainer(Type type) {
+        Skipper skipper = new Skipper(type);
+        while (true) {
+            TokenCursor cursor = advance();
+            switch (cursor.type()) {
+                case STRING:
+                    skipper.value(true, cursor.start());
+                    break;
+                case NUMBER:
+                case TRUE:
+                case FALSE:
+                case NULL:
+                    skipper.value(false, cursor.start());
+                    break;
+                case BEGIN_OBJECT:
+                case END_OBJECT:
+                case BEGIN_ARRAY:
+                case END_ARRAY:
+                case COLON:
+                case COMMA:
+                    if (skipper.structural(cursor.type(), cursor.start())) {
+                        return;
+                    }
+                    break;
+                default:
+                    throw new ParseException(cursor.start(), "Expected value, found: " + cursor);
+            }
+        }
+    }
+
+    /**
+     * Clear the read ahead state. Implementations call this method from {@link #setPos(int)}
+     * and {@link #setPosition(long)}.
+     */
+    protected void clearCurrentToken() {
+        currentToken = null;
+        if (cursor != null) {
+            cursor.clear();
+        }
+    }
+
+    /**
+     * @return  cursor for holding the key of a pair in cursor mode
+     */
+    TokenCursor keyCursor() {
+        if (keyCursor == null) {
+            keyCursor = new TokenCursor(this);
+        }
+        return keyCursor;
+    }
+
+    //------------------------------------------< private >---
+
+    /**
+     * Convert a token which has been read ahead in cursor mode to a {@code Token}
+     * @return  the token or {@code null} if there is none
+     */
+    private Token pendingCursorToken() {
+        if (cursor == null || cursor.isConsumed()) {
+            return null;
+        }
+        else {
+            Token token = cursor.toToken();
+            cursor.clear();
+            return token;
+        }
+    }
 }
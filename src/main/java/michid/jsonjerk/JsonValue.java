@@ -19,6 +19,7 @@
 
 package michid.jsonjerk;
 
+import java.io.IOException;
 import java.math.BigDecimal;
 import java.util.ArrayList;
 import java.util.Collections;
@@ -71,145 +72,116 @@ public abstract class JsonValue {
      * @return a JSON representation of {@code jsonValue}
      */
     public static String toJson(JsonValue jsonValue) {
-        final StringBuilder sb = new StringBuilder();
-        jsonValue.accept(new Visitor() {
-            @Override
-            public void visit(JsonAtom atom) {
-                sb.append(toJson(atom));
-            }
+        StringBuilder json = new StringBuilder();
+        try {
+            toJson(jsonValue, new JsonWriter(json));
+        }
+        catch (IOException e) {
+            // StringBuilder does not throw
+            throw new IllegalStateException(e);
+        }
+        return json.toString();
+    }
+
+    /**
+     * Write the JSON representation of {@code jsonValue} to {@code writer}
+     * @param jsonValue
+     * @param writer
+     * @throws IOException  if {@code writer} fails writing to its output
+     * @throws IllegalStateException  if {@code writer} does not accept a value at this point
+     */
+    public static void toJson(JsonValue jsonValue, final JsonWriter writer) throws IOException {
+        try {
+            jsonValue.accept(new Visitor() {
+                @Override
+                public void visit(JsonAtom atom) {
+                    try {
+                        switch (atom.type()) {
+                            case STRING:
+                                writer.value(atom.value());
+                                break;
+                            case BOOLEAN:
+                                writer.value(Boolean.parseBoolean(atom.value()));
+                                break;
+                            case NULL:
+                                writer.nullValue();
+                                break;
+                            default:
+                                writer.number(atom.value());
+                        }
+                    }
+                    catch (IOException e) {
+                        throw new WriteException(e);
+                    }
+                }
 
-            @Override
-            public void visit(JsonArray array) {
-                sb.append('[');
-                String comma = "";
-                for (JsonValue value : array.value()) {
-                    sb.append(comma);
-                    comma = ",";
-                    value.accept(this);
+                @Override
+                public void visit(JsonArray array) {
+                    try {
+                        writer.beginArray();
+                        for (JsonValue value : array.value()) {
+                            value.accept(this);
+                        }
+                        writer.endArray();
+                    }
+                    catch (IOException e) {
+                        throw new WriteException(e);
+                    }
                 }
-                sb.append(']');
-            }
 
-            @Override
-            public void visit(JsonObject object) {
-                sb.append('{');
-                String comma = "";
-                for (Entry<String, JsonValue> entry : object.value().entrySet()) {
-                    sb.append(comma);
-                    comma = ",";
-                    sb.append(quote(entry.getKey())).append(':');
-                    entry.getValue().accept(this);
+                @Override
+                public void visit(JsonObject object) {
+                    try {
+                        writer.beginObject();
+                        for (Entry<String, JsonValue> entry : object.value().entrySet()) {
+                            writer.name(entry.getKey());
+                            entry.getValue().accept(this);
+                        }
+                        writer.endObject();
+                    }
+                    catch (IOException e) {
+                        throw new WriteException(e);
+                    }
                 }
-                sb.append('}');
-            }
-        });
-        return sb.toString();
+            });
+        }
+        catch (WriteException e) {
+            throw e.getCause();
+        }
     }
 
     /**
      * Escape quotes, \, /, \r, \n, \b, \f, \t and other control characters
      * (U+0000 through U+001F) in {@code text}.
      * @param text
-     * @return {@code text} with control characters escaped
+     * @return {@code text} with control characters escaped. {@code text} itself if
+     * it does not contain any characters which need escaping.
      */
     public static String escape(String text) {
-        StringBuilder sb = new StringBuilder();
-        for (int i = 0; i < text.length(); i++) {
-            char ch = text.charAt(i);
-            switch (ch) {
-                case '"':
-                    sb.append("\\\"");
-                    break;
-                case '\\':
-                    sb.append("\\\\");
-                    break;
-                case '\b':
-                    sb.append("\\b");
-                    break;
-                case '\f':
-                    sb.append("\\f");
-                    break;
-                case '\n':
-                    sb.append("\\n");
-                    break;
-                case '\r':
-                    sb.append("\\r");
-                    break;
-                case '\t':
-                    sb.append("\\t");
-                    break;
-                default:
-                    //Reference: http://www.unicode.org/versions/Unicode5.1.0/
-                    if (ch >= '\u0000' && ch <= '\u001F' ||
-                            ch >= '\u007F' && ch <= '\u009F' ||
-                            ch >= '\u2000' && ch <= '\u20FF') {
-
-                        String ss = Integer.toHexString(ch);
-                        sb.append("\\u");
-                        for (int k = 0; k < 4 - ss.length(); k++) {
-                            sb.append('0');
-                        }
-                        sb.append(ss.toUpperCase());
-                    }
-                    else {
-                        sb.append(ch);
-                    }
-            }
-        }
+        return Escapes.escape(text);
+    }
 
-        return sb.toString();
+    /**
+     * Escape {@code text} like {@link #escape(String)} and append the result to {@code out}.
+     * Runs of characters which need no escaping are appended in bulk.
+     * @param text
+     * @param out
+     * @throws IOException  if {@code out} fails appending
+     */
+    public static void escape(CharSequence text, Appendable out) throws IOException {
+        Escapes.escape(text, out);
     }
 
     /**
      * Unescape escaped control characters in {@code text}
      * @param text
-     * @return {@code text} with control characters escaped
+     * @return {@code text} with control characters unescaped. {@code text} itself if
+     * it does not contain any escape sequences.
      * @throws StringIndexOutOfBoundsException  on unterminated escape sequences
      * @throws NumberFormatException  on invalid escape sequences
      */
     public static String unescape(String text) {
-        if (text.isEmpty()) {
-            return text;
-        }
-
-        StringBuilder sb = new StringBuilder();
-        for (int k = 0; k < text.length(); k++) {
-            char c = text.charAt(k);
-            if (c == '\\') {
-                c = text.charAt(++k);
-                switch (c) {
-                    case 'b':
-                        sb.append('\b');
-                        break;
-                    case 't':
-                        sb.append('\t');
-                        break;
-                    case 'n':
-                        sb.append('\n');
-                        break;
-                    case 'f':
-                        sb.append('\f');
-                        break;
-                    case 'r':
-                        sb.append('\r');
-                        break;
-                    case 'u':
-                        String u = text.substring(++k, k += 4);
-                        sb.append((char) Integer.parseInt(u, 16));
-                        break;
-                    case 'x':
-                        String x = text.substring(++k, k += 2);
-                        sb.append((char) Integer.parseInt(x, 16));
-                        break;
-                    default:
-                        sb.append(c);
-                }
-            }
-            else {
-                sb.append(c);
-            }
-        }
-        return sb.toString();
+        return Escapes.unescape(text);
     }
 
     /**
@@ -302,6 +274,16 @@ public abstract class JsonValue {
         return toJson(this);
     }
 
+    /**
+     * Write the JSON representation of this value to {@code writer}
+     * @param writer
+     * @throws IOException  if {@code writer} fails writing to its output
+     * @see #toJson(JsonValue, JsonWriter)
+     */
+    public void toJson(JsonWriter writer) throws IOException {
+        toJson(this, writer);
+    }
+
     /**
      * This class represents primitive JSON values (atoms). These are values of type
      * {@link Type#STRING} {@link Type#NUMBER} {@link Type#BOOLEAN} and {@link Type#NULL}.
@@ -313,6 +295,7 @@ public abstract class JsonValue {
 
         private final String value;
         private final Type type;
+        private JsonNumber number;
 
         public JsonAtom(String value, Type type) {
             this.value = value;
@@ -323,19 +306,32 @@ public abstract class JsonValue {
             return new JsonAtom(value, Type.STRING);
         }
 
-        public static JsonAtom number(double value) {
+        public static JsonNumber number(double value) {
             if (Double.isNaN(value) || Double.isInfinite(value)) {
                 throw new IllegalArgumentException(Double.toString(value));
             }
-            return new JsonAtom(Double.toString(value), Type.NUMBER);
+            return new JsonNumber(value);
+        }
+
+        public static JsonNumber number(long value) {
+            return new JsonNumber(value);
         }
 
-        public static JsonAtom number(long value) {
-            return new JsonAtom(Long.toString(value), Type.NUMBER);
+        public static JsonNumber number(BigDecimal value) {
+            return new JsonNumber(value);
         }
 
-        public static JsonAtom number(BigDecimal value) {
-            return new JsonAtom(value.toString(), Type.NUMBER);
+        /**
+         * Create a new {@code JsonAtom} from {@code token}. Tokens of type
+         * {@link Token.Type#NUMBER} are mapped to {@link JsonNumber} instances.
+         * @param token
+         * @throws IllegalArgumentException  if {@code token} does not represent
+         * an primitive type (atom).
+         */
+        public static JsonAtom atom(Token token) {
+            return token.type() == Token.Type.NUMBER
+                ? new JsonNumber(token.text())
+                : new JsonAtom(token);
         }
 
         /**
@@ -368,9 +364,26 @@ public abstract class JsonValue {
             visitor.visit(this);
         }
 
+        /**
+         * The number is created on first access and cached such that its decoded
+         * value is cached as well.
+         * @return {@code this} as {@code JsonNumber}
+         * @throws UnsupportedOperationException if the type of this atom is not
+         * {@link Type#NUMBER}
+         */
+        public JsonNumber asNumber() {
+            if (type != Type.NUMBER) {
+                throw new UnsupportedOperationException();
+            }
+            if (number == null) {
+                number = new JsonNumber(value);
+            }
+            return number;
+        }
+
         @Override
         public String toString() {
-            return value + ": " + type;
+            return value() + ": " + type;
         }
 
         @Override
@@ -408,6 +421,217 @@ public abstract class JsonValue {
         }
     }
 
+    /**
+     * This class represents JSON numbers. The number is decoded lazily on first access
+     * and the decoded value is cached. Integral numbers in the range of {@code long} are
+     * kept as {@code long}, all other numbers as {@code double}. The text is retained
+     * unless the number was created from a primitive value, in which case it is only
+     * created on demand.
+     */
+    public static final class JsonNumber extends JsonAtom {
+        private static final int UNDECODED = 0;
+        private static final int INTEGRAL = 1;
+        private static final int FRACTIONAL = 2;
+
+        private volatile int kind;
+        private String text;
+        private long longValue;
+        private double doubleValue;
+        private BigDecimal decimalValue;
+
+        private JsonNumber(String text) {
+            super(null, Type.NUMBER);
+            this.text = text;
+        }
+
+        private JsonNumber(long value) {
+            super(null, Type.NUMBER);
+            longValue = value;
+            doubleValue = value;
+            kind = INTEGRAL;
+        }
+
+        private JsonNumber(double value) {
+            super(null, Type.NUMBER);
+            doubleValue = value;
+            kind = FRACTIONAL;
+        }
+
+        private JsonNumber(String text, double value) {
+            super(null, Type.NUMBER);
+            this.text = text;
+            doubleValue = value;
+            kind = FRACTIONAL;
+        }
+
+        private JsonNumber(BigDecimal value) {
+            this(value.toString());
+            decimalValue = value;
+        }
+
+        /**
+         * @return  {@code true} iff this number is an integral number in the range
+         * of {@code long}.
+         * @throws NumberFormatException  if the text of this number is not a number
+         */
+        public boolean isIntegral() {
+            return kind() == INTEGRAL;
+        }
+
+        /**
+         * @return  this number as {@code long}
+         * @throws NumberFormatException  if this number is not an integral number in
+         * the range of {@code long}
+         * @see #isIntegral()
+         */
+        public long asLong() {
+            if (kind() != INTEGRAL) {
+                throw new NumberFormatException("Not an integral number: " + value());
+            }
+            return longValue;
+        }
+
+        /**
+         * @return  this number as {@code double}
+         * @throws NumberFormatException  if the text of this number is not a number
+         */
+        public double asDouble() {
+            kind();
+            return doubleValue;
+        }
+
+        /**
+         * @return  this number as {@code BigDecimal}
+         * @throws NumberFormatException  if the text of this number is not a number
+         */
+        public BigDecimal asBigDecimal() {
+            BigDecimal decimal = decimalValue;
+            if (decimal == null) {
+                decimal = kind() == INTEGRAL
+                    ? BigDecimal.valueOf(longValue)
+                    : new BigDecimal(value());
+                decimalValue = decimal;
+            }
+            return decimal;
+        }
+
+        @Override
+        public JsonNumber asNumber() {
+            return this;
+        }
+
+        @Override
+        public String value() {
+            String t = text;
+            if (t == null) {
+                t = kind == INTEGRAL
+                    ? Long.toString(longValue)
+                    : Double.toString(doubleValue);
+                text = t;
+            }
+            return t;
+        }
+
+        //------------------------------------------< package private >---
+
+        /**
+         * @return  {@code true} iff this number is {@link #isIntegral() integral} and
+         * its text is the canonical representation of its {@code long} value. That is,
+         * it has no leading zeros and is not negative zero.
+         * @throws NumberFormatException  if the text of this number is not a number
+         */
+        boolean isCanonicalLong() {
+            if (kind() != INTEGRAL) {
+                return false;
+            }
+            String t = text;
+            if (t == null) {
+                return true;
+            }
+            int k = t.charAt(0) == '-' ? 1 : 0;
+            return t.charAt(k) != '0' || t.length() == 1;
+        }
+
+        /**
+         * @return  {@code true} iff this number is not {@link #isIntegral() integral}
+         * and its text is the one {@link Double#toString(double)} produces for its
+         * {@code double} value.
+         * @throws NumberFormatException  if the text of this number is not a number
+         */
+        boolean isCanonicalDouble() {
+            if (kind() != FRACTIONAL) {
+                return false;
+            }
+            String t = text;
+            return t == null || t.equals(Double.toString(doubleValue));
+        }
+
+        /**
+         * @return  the number of fraction digits if this number is not {@link #isIntegral()
+         * integral} and its text is a plain decimal with at most 15 significant digits,
+         * {@code -1} otherwise.
+         * @throws NumberFormatException  if the text of this number is not a number
+         * @see Numbers#decimalScale(CharSequence, int, int)
+         */
+        int decimalScale() {
+            String t = text;
+            return kind() != FRACTIONAL || t == null
+                ? -1
+                : Numbers.decimalScale(t, 0, t.length());
+        }
+
+        /**
+         * Create a new fractional {@code JsonNumber} from its text and its value
+         * @param text
+         * @param value  the value of {@code text}
+         */
+        static JsonNumber valueOf(String text, double value) {
+            return new JsonNumber(text, value);
+        }
+
+        /**
+         * Create a new {@code JsonNumber} from the characters between {@code start}
+         * and {@code end}. Integral numbers whose text is the canonical representation
+         * of a {@code long} are decoded right away without creating a string.
+         * @param chars
+         * @param start
+         * @param end
+         */
+        static JsonNumber valueOf(CharSequence chars, int start, int end) {
+            return Numbers.isCanonicalLong(chars, start, end)
+                ? new JsonNumber(Numbers.parseLong(chars, start, end))
+                : new JsonNumber(chars.subSequence(start, end).toString());
+        }
+
+        //------------------------------------------< private >---
+
+        private int kind() {
+            int k = kind;
+            if (k == UNDECODED) {
+                String t = text;
+                if (Numbers.isIntegral(t, 0, t.length())) {
+                    try {
+                        longValue = Numbers.parseLong(t, 0, t.length());
+                        doubleValue = longValue;
+                        k = INTEGRAL;
+                    }
+                    catch (NumberFormatException e) {
+                        // out of the range of long
+                        k = FRACTIONAL;
+                    }
+                }
+                else {
+                    k = FRACTIONAL;
+                }
+                if (k == FRACTIONAL) {
+                    doubleValue = Numbers.parseDouble(t, 0, t.length());
+                }
+                kind = k;
+            }
+            return k;
+        }
+    }
+
     /**
      * This class represents JSON arrays.
      */
@@ -450,6 +674,41 @@ public abstract class JsonValue {
             return values.get(index);
         }
 
+        /**
+         * @param index
+         * @return the number at {@code index} as {@code long}.
+         * @throws IndexOutOfBoundsException  if {@code index} is out of range
+         * @throws UnsupportedOperationException  if the value at {@code index} is not a number
+         * @throws NumberFormatException  if the number at {@code index} is not an integral
+         * number in the range of {@code long}
+         * @see JsonNumber#asLong()
+         */
+        public long getLong(int index) {
+            return get(index).asAtom().asNumber().asLong();
+        }
+
+        /**
+         * @param index
+         * @return the number at {@code index} as {@code double}.
+         * @throws IndexOutOfBoundsException  if {@code index} is out of range
+         * @throws UnsupportedOperationException  if the value at {@code index} is not a number
+         * @see JsonNumber#asDouble()
+         */
+        public double getDouble(int index) {
+            return get(index).asAtom().asNumber().asDouble();
+        }
+
+        /**
+         * @return  the number of values in this array
+         */
+        public int size() {
+            return values.size();
+        }
+
+        public boolean isEmpty() {
+            return values.isEmpty();
+        }
+
         @Override
         public JsonArray asArray() {
             return this;
@@ -584,14 +843,18 @@ public abstract class JsonValue {
 
     //------------------------------------------< private >---
 
-    private static String toJson(JsonAtom atom) {
-        return atom.type() == Type.STRING
-                ? quote(escape(atom.value()))
-                : atom.value();
-    }
+    /**
+     * Carries an {@code IOException} out of a {@link Visitor}
+     */
+    private static class WriteException extends RuntimeException {
+        WriteException(IOException cause) {
+            super(cause);
+        }
 
-    private static String quote(String text) {
-        return '\"' + text + '\"';
+        @Override
+        public IOException getCause() {
+            return (IOException) super.getCause();
+        }
     }
 
 }
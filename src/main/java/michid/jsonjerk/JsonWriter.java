@@ -0,0 +1,682 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package michid.jsonjerk;
+
+import java.io.Closeable;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+
+/**
+ * Streaming writer for JSON documents. Documents are written through calls to
+ * {@link #beginObject()}, {@link #name(String)}, {@link #endObject()},
+ * {@link #beginArray()}, {@link #endArray()} and the various {@code value}
+ * methods:
+ * <pre>
+ * writer.beginObject()
+ *     .name("a").value(1)
+ *     .name("b").beginArray().value(true).nullValue().endArray()
+ *     .endObject();
+ * </pre>
+ * Commas and colons are inserted as needed. Calls which would result in
+ * malformed JSON fail with an {@code IllegalStateException}. Several top level
+ * values may be written to the same writer. These are separated by new lines.
+ * <p/>
+ * Output is collected in a buffer of a fixed size, the flush threshold, which
+ * is passed on to the underlying output once it is full. Peak memory is thus
+ * bounded by the flush threshold regardless of the size of the document.
+ * Output to a {@code StringBuilder} is appended directly without buffering.
+ * Output to {@code OutputStream}s and {@code WritableByteChannel}s is encoded
+ * in UTF-8 directly from the characters written.
+ * <p/>
+ * Instances of this class are not thread safe.
+ *
+ * @see JsonValue#toJson(JsonValue, JsonWriter)
+ */
+public class JsonWriter implements Flushable, Closeable {
+    public static final int DEFAULT_FLUSH_THRESHOLD = 8192;
+
+    private static final int MIN_FLUSH_THRESHOLD = 16;
+
+    // Scopes on the stack
+    private static final int EMPTY_DOCUMENT = 0;
+    private static final int NONEMPTY_DOCUMENT = 1;
+    private static final int EMPTY_OBJECT = 2;
+    private static final int NONEMPTY_OBJECT = 3;
+    private static final int DANGLING_NAME = 4;
+    private static final int EMPTY_ARRAY = 5;
+    private static final int NONEMPTY_ARRAY = 6;
+
+    private final Output output;
+
+    private int[] stack = new int[32];
+    private int depth;
+
+    /**
+     * Create a new writer for {@code writer} flushing whenever {@code flushThreshold}
+     * characters have been written.
+     * @param writer
+     * @param flushThreshold
+     * @throws IllegalArgumentException  if {@code flushThreshold} is less than 16
+     */
+    public JsonWriter(Writer writer, int flushThreshold) {
+        this(new CharOutput(writer, checkThreshold(flushThreshold)));
+    }
+
+    /**
+     * Create a new writer for {@code writer} flushing whenever
+     * {@link #DEFAULT_FLUSH_THRESHOLD} characters have been written.
+     * @param writer
+     */
+    public JsonWriter(Writer writer) {
+        this(writer, DEFAULT_FLUSH_THRESHOLD);
+    }
+
+    /**
+     * Create a new writer appending to {@code builder}. Output is appended directly
+     * without buffering such that flushing is not necessary.
+     * @param builder
+     */
+    public JsonWriter(StringBuilder builder) {
+        this(new BuilderOutput(builder));
+    }
+
+    /**
+     * Create a new writer for {@code out} writing UTF-8 encoded output and flushing
+     * whenever {@code flushThreshold} bytes have been written.
+     * @param out
+     * @param flushThreshold
+     * @throws IllegalArgumentException  if {@code flushThreshold} is less than 16
+     */
+    public JsonWriter(OutputStream out, int flushThreshold) {
+        this(new StreamOutput(out, checkThreshold(flushThreshold)));
+    }
+
+    /**
+     * Create a new writer for {@code out} writing UTF-8 encoded output and flushing
+     * whenever {@link #DEFAULT_FLUSH_THRESHOLD} bytes have been written.
+     * @param out
+     */
+    public JsonWriter(OutputStream out) {
+        this(out, DEFAULT_FLUSH_THRESHOLD);
+    }
+
+    /**
+     * Create a new writer for {@code channel} writing UTF-8 encoded output. The
+     * output is collected in {@code buffer}, which is written to {@code channel}
+     * whenever it is full. The capacity of the buffer is thus the flush threshold.
+     * Characters are encoded directly into the backing array of heap buffers. For
+     * direct buffers they are encoded in chunks of at most 512 bytes, which are
+     * then put into the buffer. The buffer is cleared before it is first used and
+     * may be reused once this writer is flushed.
+     * @param channel
+     * @param buffer
+     * @throws IllegalArgumentException  if the capacity of {@code buffer} is less than 16
+     */
+    public JsonWriter(WritableByteChannel channel, ByteBuffer buffer) {
+        this(new ChannelOutput(channel, buffer));
+    }
+
+    private JsonWriter(Output output) {
+        this.output = output;
+        stack[depth++] = EMPTY_DOCUMENT;
+    }
+
+    /**
+     * Begin a JSON object
+     * @return  this writer
+     * @throws IOException
+     * @throws IllegalStateException  if a value is not allowed at this point
+     */
+    public JsonWriter beginObject() throws IOException {
+        beforeValue();
+        push(EMPTY_OBJECT);
+        output.write('{');
+        return this;
+    }
+
+    /**
+     * End the current JSON object
+     * @return  this writer
+     * @throws IOException
+     * @throws IllegalStateException  if there is no current object
+     */
+    public JsonWriter endObject() throws IOException {
+        return end(EMPTY_OBJECT, NONEMPTY_OBJECT, '}');
+    }
+
+    /**
+     * Begin a JSON array
+     * @return  this writer
+     * @throws IOException
+     * @throws IllegalStateException  if a value is not allowed at this point
+     */
+    public JsonWriter beginArray() throws IOException {
+        beforeValue();
+        push(EMPTY_ARRAY);
+        output.write('[');
+        return this;
+    }
+
+    /**
+     * End the current JSON array
+     * @return  this writer
+     * @throws IOException
+     * @throws IllegalStateException  if there is no current array
+     */
+    public JsonWriter endArray() throws IOException {
+        return end(EMPTY_ARRAY, NONEMPTY_ARRAY, ']');
+    }
+
+    /**
+     * Write the name of the next pair of the current object. {@code name}
+     * is escaped as necessary.
+     * @param name
+     * @return  this writer
+     * @throws IOException
+     * @throws IllegalStateException  if a name is not allowed at this point
+     */
+    public JsonWriter name(String name) throws IOException {
+        int scope = stack[depth - 1];
+        if (scope == NONEMPTY_OBJECT) {
+            output.write(',');
+        }
+        else if (scope != EMPTY_OBJECT) {
+            throw new IllegalStateException("Name outside of object: " + name);
+        }
+        stack[depth - 1] = DANGLING_NAME;
+        string(name);
+        output.write(':');
+        return this;
+    }
+
+    /**
+     * Write a string value. {@code value} is escaped as necessary.
+     * @param value  the value or {@code null} for writing a JSON {@code null}
+     * @return  this writer
+     * @throws IOException
+     * @throws IllegalStateException  if a value is not allowed at this point
+     */
+    public JsonWriter value(String value) throws IOException {
+        if (value == null) {
+            return nullValue();
+        }
+        beforeValue();
+        string(value);
+        return this;
+    }
+
+    /**
+     * Write a number value
+     * @param value
+     * @return  this writer
+     * @throws IOException
+     * @throws IllegalStateException  if a value is not allowed at this point
+     */
+    public JsonWriter value(long value) throws IOException {
+        beforeValue();
+        output.write(Long.toString(value));
+        return this;
+    }
+
+    /**
+     * Write a number value
+     * @param value
+     * @return  this writer
+     * @throws IOException
+     * @throws IllegalArgumentException  if {@code value} is not a finite number
+     * @throws IllegalStateException  if a value is not allowed at this point
+     */
+    public JsonWriter value(double value) throws IOException {
+        if (Double.isNaN(value) || Double.isInfinite(value)) {
+            throw new IllegalArgumentException(Double.toString(value));
+        }
+        beforeValue();
+        output.write(Double.toString(value));
+        return this;
+    }
+
+    /**
+     * Write a boolean value
+     * @param value
+     * @return  this writer
+     * @throws IOException
+     * @throws IllegalStateException  if a value is not allowed at this point
+     */
+    public JsonWriter value(boolean value) throws IOException {
+        beforeValue();
+        output.write(value ? "true" : "false");
+        return this;
+    }
+
+    /**
+     * Write a {@code null} value
+     * @return  this writer
+     * @throws IOException
+     * @throws IllegalStateException  if a value is not allowed at this point
+     */
+    public JsonWriter nullValue() throws IOException {
+        beforeValue();
+        output.write("null");
+        return this;
+    }
+
+    /**
+     * Write a number value from its textual representation. {@code number}
+     * is written as is: it is not validated.
+     * @param number
+     * @return  this writer
+     * @throws IOException
+     * @throws IllegalStateException  if a value is not allowed at this point
+     */
+    public JsonWriter number(String number) throws IOException {
+        beforeValue();
+        output.write(number);
+        return this;
+    }
+
+    /**
+     * Write {@code value}
+     * @param value
+     * @return  this writer
+     * @throws IOException
+     * @throws IllegalStateException  if a value is not allowed at this point
+     * @see JsonValue#toJson(JsonValue, JsonWriter)
+     */
+    public JsonWriter value(JsonValue value) throws IOException {
+        JsonValue.toJson(value, this);
+        return this;
+    }
+
+    /**
+     * Pass all buffered output on to the underlying output and flush it
+     * @throws IOException
+     */
+    @Override
+    public void flush() throws IOException {
+        output.flush();
+    }
+
+    /**
+     * Flush and close the underlying output
+     * @throws IOException
+     * @throws IllegalStateException  if the last value written is incomplete. The
+     * underlying output is closed nevertheless.
+     */
+    @Override
+    public void close() throws IOException {
+        output.close();
+        if (depth > 1) {
+            throw new IllegalStateException("Incomplete document");
+        }
+    }
+
+    //------------------------------------------< private >---
+
+    private static int checkThreshold(int flushThreshold) {
+        if (flushThreshold < MIN_FLUSH_THRESHOLD) {
+            throw new IllegalArgumentException("Flush threshold must be at least " +
+                    MIN_FLUSH_THRESHOLD + ": " + flushThreshold);
+        }
+        return flushThreshold;
+    }
+
+    private void push(int scope) {
+        if (depth == stack.length) {
+            int[] newStack = new int[2 * depth];
+            System.arraycopy(stack, 0, newStack, 0, depth);
+            stack = newStack;
+        }
+        stack[depth++] = scope;
+    }
+
+    private JsonWriter end(int empty, int nonempty, char c) throws IOException {
+        int scope = stack[depth - 1];
+        if (scope != empty && scope != nonempty) {
+            throw new IllegalStateException("Unexpected '" + c + '\'');
+        }
+        depth--;
+        output.write(c);
+        return this;
+    }
+
+    /**
+     * Update the current scope for a value about to be written and
+     * write the separator preceding it.
+     */
+    private void beforeValue() throws IOException {
+        switch (stack[depth - 1]) {
+            case EMPTY_DOCUMENT:
+                stack[depth - 1] = NONEMPTY_DOCUMENT;
+                break;
+            case NONEMPTY_DOCUMENT:
+                output.write('\n');
+                break;
+            case DANGLING_NAME:
+                stack[depth - 1] = NONEMPTY_OBJECT;
+                break;
+            case EMPTY_ARRAY:
+                stack[depth - 1] = NONEMPTY_ARRAY;
+                break;
+            case NONEMPTY_ARRAY:
+                output.write(',');
+                break;
+            default:
+                throw new IllegalStateException("Expected name");
+        }
+    }
+
+    /**
+     * Write {@code text} quoted and escaped. Runs of characters which need no
+     * escaping are written directly from {@code text}.
+     */
+    private void string(String text) throws IOException {
+        output.write('"');
+        int length = text.length();
+        int start = 0;
+        for (int i = Escapes.nextEscape(text, 0, length); i < length; i = Escapes.nextEscape(text, start, length)) {
+            output.write(text, start, i);
+            output.write(Escapes.escape(text.charAt(i)));
+            start = i + 1;
+        }
+        output.write(text, start, length);
+        output.write('"');
+    }
+
+    /**
+     * Buffered output of characters
+     */
+    private abstract static class Output {
+        abstract void write(char c) throws IOException;
+        abstract void write(String text, int start, int end) throws IOException;
+        abstract void flush() throws IOException;
+        abstract void close() throws IOException;
+
+        void write(String text) throws IOException {
+            write(text, 0, text.length());
+        }
+    }
+
+    private static final class CharOutput extends Output {
+        private final Writer writer;
+        private final char[] buffer;
+        private int count;
+
+        CharOutput(Writer writer, int size) {
+            this.writer = writer;
+            buffer = new char[size];
+        }
+
+        @Override
+        void write(char c) throws IOException {
+            if (count == buffer.length) {
+                drain();
+            }
+            buffer[count++] = c;
+        }
+
+        @Override
+        void write(String text, int start, int end) throws IOException {
+            int length = end - start;
+            if (length > buffer.length - count) {
+                drain();
+                if (length > buffer.length) {
+                    writer.write(text, start, length);
+                    return;
+                }
+            }
+            text.getChars(start, end, buffer, count);
+            count += length;
+        }
+
+        @Override
+        void flush() throws IOException {
+            drain();
+            writer.flush();
+        }
+
+        @Override
+        void close() throws IOException {
+            try {
+                drain();
+            }
+            finally {
+                writer.close();
+            }
+        }
+
+        private void drain() throws IOException {
+            writer.write(buffer, 0, count);
+            count = 0;
+        }
+    }
+
+    private static final class BuilderOutput extends Output {
+        private final StringBuilder builder;
+
+        BuilderOutput(StringBuilder builder) {
+            this.builder = builder;
+        }
+
+        @Override
+        void write(char c) {
+            builder.append(c);
+        }
+
+        @Override
+        void write(String text, int start, int end) {
+            builder.append(text, start, end);
+        }
+
+        @Override
+        void flush() { }
+
+        @Override
+        void close() { }
+    }
+
+    /**
+     * Output encoding characters to UTF-8. Characters are encoded into the window
+     * between {@code count} and {@code limit} of the byte array {@code bytes},
+     * which is provided by subclasses.
+     */
+    private abstract static class Utf8Output extends Output {
+        protected byte[] bytes;
+        protected int count;
+        protected int limit;
+
+        /**
+         * Pass the bytes in the window on to the underlying output and reset
+         * {@code count} to the start of an empty window.
+         */
+        abstract void drain() throws IOException;
+
+        @Override
+        void write(char c) throws IOException {
+            if (c < 0x80) {
+                if (count == limit) {
+                    drain();
+                }
+                bytes[count++] = (byte) c;
+            }
+            else {
+                write(String.valueOf(c));
+            }
+        }
+
+        @Override
+        void write(String text, int start, int end) throws IOException {
+            byte[] bytes = this.bytes;
+            int count = this.count;
+            int last = limit - 4;
+            for (int k = start; k < end; k++) {
+                // each character takes at most 4 bytes
+                if (count > last) {
+                    this.count = count;
+                    drain();
+                    count = this.count;
+                }
+
+                char c = text.charAt(k);
+                if (c < 0x80) {
+                    bytes[count++] = (byte) c;
+                }
+                else if (c < 0x800) {
+                    bytes[count++] = (byte) (0xc0 | c >> 6);
+                    bytes[count++] = (byte) (0x80 | c & 0x3f);
+                }
+                else if (Character.isHighSurrogate(c) && k + 1 < end &&
+                        Character.isLowSurrogate(text.charAt(k + 1))) {
+                    int cp = Character.toCodePoint(c, text.charAt(++k));
+                    bytes[count++] = (byte) (0xf0 | cp >> 18);
+                    bytes[count++] = (byte) (0x80 | cp >> 12 & 0x3f);
+                    bytes[count++] = (byte) (0x80 | cp >> 6 & 0x3f);
+                    bytes[count++] = (byte) (0x80 | cp & 0x3f);
+                }
+                else if (Character.isSurrogate(c)) {
+                    // unpaired surrogate: replace like String.getBytes does
+                    bytes[count++] = '?';
+                }
+                else {
+                    bytes[count++] = (byte) (0xe0 | c >> 12);
+                    bytes[count++] = (byte) (0x80 | c >> 6 & 0x3f);
+                    bytes[count++] = (byte) (0x80 | c & 0x3f);
+                }
+            }
+            this.count = count;
+        }
+    }
+
+    private static final class StreamOutput extends Utf8Output {
+        private final OutputStream out;
+
+        StreamOutput(OutputStream out, int size) {
+            this.out = out;
+            bytes = new byte[size];
+            limit = size;
+        }
+
+        @Override
+        void drain() throws IOException {
+            out.write(bytes, 0, count);
+            count = 0;
+        }
+
+        @Override
+        void flush() throws IOException {
+            drain();
+            out.flush();
+        }
+
+        @Override
+        void close() throws IOException {
+            try {
+                drain();
+            }
+            finally {
+                out.close();
+            }
+        }
+    }
+
+    /**
+     * Output encoding into the buffer passed by the caller. The window is the
+     * backing array of the buffer if it has one. Otherwise characters are encoded
+     * in chunks of at most {@link #CHUNK_SIZE} bytes, which are put into the buffer.
+     */
+    private static final class ChannelOutput extends Utf8Output {
+        private static final int CHUNK_SIZE = 512;
+
+        private final WritableByteChannel channel;
+        private final ByteBuffer buffer;
+
+        /** Offset of the buffer in {@code bytes} or {@code -1} if the buffer has no array */
+        private final int offset;
+
+        ChannelOutput(WritableByteChannel channel, ByteBuffer buffer) {
+            checkThreshold(buffer.capacity());
+            this.channel = channel;
+            this.buffer = buffer;
+            buffer.clear();
+            if (buffer.hasArray()) {
+                bytes = buffer.array();
+                offset = buffer.arrayOffset();
+                count = offset;
+                limit = offset + buffer.capacity();
+            }
+            else {
+                bytes = new byte[Math.min(CHUNK_SIZE, buffer.capacity())];
+                offset = -1;
+                limit = bytes.length;
+            }
+        }
+
+        @Override
+        void drain() throws IOException {
+            if (offset >= 0) {
+                buffer.position(count - offset);
+                writeBuffer();
+                count = offset;
+            }
+            else {
+                int k = 0;
+                while (k < count) {
+                    int n = Math.min(buffer.remaining(), count - k);
+                    buffer.put(bytes, k, n);
+                    k += n;
+                    if (!buffer.hasRemaining()) {
+                        writeBuffer();
+                    }
+                }
+                count = 0;
+            }
+        }
+
+        @Override
+        void flush() throws IOException {
+            drain();
+            if (offset < 0) {
+                writeBuffer();
+            }
+        }
+
+        @Override
+        void close() throws IOException {
+            try {
+                flush();
+            }
+            finally {
+                channel.close();
+            }
+        }
+
+        private void writeBuffer() throws IOException {
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            buffer.clear();
+        }
+    }
+
+}
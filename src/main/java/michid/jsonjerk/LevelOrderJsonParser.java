@@ -23,9 +23,14 @@ import michid.jsonjerk.JsonValue.JsonArray;
 import michid.jsonjerk.JsonValue.JsonAtom;
 import michid.jsonjerk.JsonValue.JsonObject;
 
+import java.lang.ref.SoftReference;
+import java.util.AbstractList;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 
 /**
  * Utility class for parsing JSON objects and arrays into {@link JsonObject}s
@@ -33,9 +38,23 @@ import java.util.Map;
  * this implementation resolves nested structures lazily. That, is it does a
  * level order traverse of the JSON tree.
  * <p/>
- * The parser looks for 'hints' in the JSON text to speed up parsing: when it
- * encounters an integer value with the key ":size" in an object, that value
- * is used for the size of the entire object (including sub-objects).
+ * Nested arrays are skipped while recording the start positions of their elements.
+ * {@link JsonArray#size()} is answered from these positions and
+ * {@link JsonArray#get(int)} only parses the requested element.
+ * <p/>
+ * Nested objects are skipped by a raw scan of the input through
+ * {@link JsonTokenizer#skipValue()}, which does not create any tokens. Use
+ * {@link IndexedJsonTokenizer} to have the scan run on a cached {@link StructuralIndex}.
+ * <p/>
+ * Additionally the parser looks for 'hints' in the JSON text to speed up parsing:
+ * when the first pair of an object has the key ":size" and an integer value, that
+ * value is used for the size of the entire object (including sub-objects) and
+ * the object is not scanned at all.
+ * <p/>
+ * A nested object is parsed at most once: the first access materializes it and
+ * subsequent accesses return the materialized value. Materialization is thread
+ * safe. A {@link Retention} policy determines how long materialized objects are
+ * retained before they are dropped and parsed again on the next access.
  *
  * @see FullJsonParser
  */
@@ -49,7 +68,19 @@ public final class LevelOrderJsonParser {
      * @throws ParseException
      */
     public static JsonObject parseObject(JsonTokenizer tokenizer) {
-        ObjectHandler objectHandler = new ObjectHandler();
+        return parseObject(tokenizer, Retention.STRONG);
+    }
+
+    /**
+     * Parse a JSON object from {@code tokenizer} retaining nested objects
+     * according to {@code retention}.
+     * @param tokenizer
+     * @param retention
+     * @return a {@code JsonObject}
+     * @throws ParseException
+     */
+    public static JsonObject parseObject(JsonTokenizer tokenizer, Retention retention) {
+        ObjectHandler objectHandler = new ObjectHandler(retention);
         new JsonParser(objectHandler).parseObject(tokenizer);
         return objectHandler.getObject();
     }
@@ -61,11 +92,97 @@ public final class LevelOrderJsonParser {
      * @throws ParseException
      */
     public static JsonArray parseArray(JsonTokenizer tokenizer) {
-        ArrayHandler arrayHandler = new ArrayHandler();
+        return parseArray(tokenizer, Retention.STRONG);
+    }
+
+    /**
+     * Parse a JSON array from {@code tokenizer} retaining nested objects
+     * according to {@code retention}.
+     * @param tokenizer
+     * @param retention
+     * @return a {@code JsonArray}
+     * @throws ParseException
+     */
+    public static JsonArray parseArray(JsonTokenizer tokenizer, Retention retention) {
+        ArrayHandler arrayHandler = new ArrayHandler(retention);
         new JsonParser(arrayHandler).parseArray(tokenizer);
         return arrayHandler.getArray();
     }
 
+    /**
+     * A retention policy determines for how long the materialized values of nested
+     * objects are retained.
+     * <ul>
+     * <li>{@link #STRONG} retains them for as long as the enclosing object is reachable.</li>
+     * <li>{@link #SOFT} retains them through {@link SoftReference}s such that the garbage
+     * collector may clear them in response to memory demand.</li>
+     * <li>{@link #bounded(int)} retains a bounded number of recently accessed objects.</li>
+     * </ul>
+     * An object whose materialized value has been dropped is parsed again on its
+     * next access. This requires the input of its tokenizer to be still available.
+     */
+    public abstract static class Retention {
+
+        /**
+         * Retain materialized objects for as long as the enclosing object is reachable
+         */
+        public static final Retention STRONG = new Retention() {
+            @Override
+            Object retain(Map<String, JsonValue> values) {
+                return values;
+            }
+
+            @SuppressWarnings("unchecked")
+            @Override
+            Map<String, JsonValue> resolve(Object handle) {
+                return (Map<String, JsonValue>) handle;
+            }
+        };
+
+        /**
+         * Retain materialized objects through soft references
+         */
+        public static final Retention SOFT = new Retention() {
+            @Override
+            Object retain(Map<String, JsonValue> values) {
+                return new SoftReference<Map<String, JsonValue>>(values);
+            }
+
+            @SuppressWarnings("unchecked")
+            @Override
+            Map<String, JsonValue> resolve(Object handle) {
+                return handle == null
+                    ? null
+                    : ((SoftReference<Map<String, JsonValue>>) handle).get();
+            }
+        };
+
+        /**
+         * Retain the {@code maxSize} most recently accessed materialized objects.
+         * Note that all objects parsed with the returned instance share a single
+         * cache, access to which is synchronized.
+         * @param maxSize
+         * @return  a new retention policy
+         */
+        public static Retention bounded(int maxSize) {
+            return new BoundedRetention(maxSize);
+        }
+
+        Retention() { }
+
+        /**
+         * @param values  the values of a materialized object
+         * @return  a handle for retrieving {@code values} through {@link #resolve(Object)}
+         */
+        abstract Object retain(Map<String, JsonValue> values);
+
+        /**
+         * @param handle  a handle returned from {@link #retain(Map)} or {@code null}
+         * @return  the values for {@code handle} or {@code null} if they have been dropped
+         */
+        abstract Map<String, JsonValue> resolve(Object handle);
+    }
+
     /**
      * This implementation of a {@code JsonHandler} builds up a {@code JsonObject}
      * from its constituents. Nested objects are not fully parsed though, but a
@@ -73,25 +190,35 @@ public final class LevelOrderJsonParser {
      * is actually accessed.
      */
     public static class ObjectHandler extends JsonHandler {
-        private final JsonObject object = new JsonObject(new LinkedHashMap<String, JsonValue>());
+        private final CompactJsonObject object = new CompactJsonObject();
+        private final Retention retention;
+
+        public ObjectHandler(Retention retention) {
+            this.retention = retention;
+        }
+
+        public ObjectHandler() {
+            this(Retention.STRONG);
+        }
 
         @Override
         public void atom(Token key, Token value) {
-            object.put(key.text(), new JsonAtom(value));
+            object.put(key.text(), JsonAtom.atom(value));
         }
 
         @Override
         public void object(JsonParser parser, Token key, JsonTokenizer tokenizer) {
-            object.put(key.text(), new DeferredObjectValue(tokenizer.copy()));
-            tokenizer.setPos(getNextPairPos(tokenizer.copy()));
+            object.put(key.text(), new DeferredObjectValue(tokenizer.copy(), retention));
+            skipObject(tokenizer);
         }
 
         @Override
         public void array(JsonParser parser, Token key, JsonTokenizer tokenizer) {
-            object.put(key.text(), parseArray(tokenizer));
+            object.put(key.text(), new DeferredArrayValue(tokenizer, retention));
         }
 
         public JsonObject getObject() {
+            object.trim();
             return object;
         }
 
@@ -105,21 +232,30 @@ public final class LevelOrderJsonParser {
      */
     public static class ArrayHandler extends JsonHandler {
         private final JsonArray array = new JsonArray(new ArrayList<JsonValue>());
+        private final Retention retention;
+
+        public ArrayHandler(Retention retention) {
+            this.retention = retention;
+        }
+
+        public ArrayHandler() {
+            this(Retention.STRONG);
+        }
 
         @Override
         public void atom(Token key, Token value) {
-            array.add(new JsonAtom(value));
+            array.add(JsonAtom.atom(value));
         }
 
         @Override
         public void object(JsonParser parser, Token key, JsonTokenizer tokenizer) {
-            array.add(new DeferredObjectValue(tokenizer.copy()));
-            tokenizer.setPos(getNextPairPos(tokenizer.copy()));
+            array.add(new DeferredObjectValue(tokenizer.copy(), retention));
+            skipObject(tokenizer);
         }
 
         @Override
         public void array(JsonParser parser, Token key, JsonTokenizer tokenizer) {
-            array.add(parseArray(tokenizer));
+            array.add(new DeferredArrayValue(tokenizer, retention));
         }
 
         public JsonArray getArray() {
@@ -127,29 +263,69 @@ public final class LevelOrderJsonParser {
         }
     }
 
-    //------------------------------------------< private >---
+    //------------------------------------------< package private >---
 
-    private static class BreakException extends RuntimeException{
-        private static final BreakException BREAK = new BreakException();
+    /**
+     * Advance {@code tokenizer} past the array at its current position
+     * @return  the start positions of the elements of the array
+     * @throws ParseException
+     */
+    static long[] getElementPositions(JsonTokenizer tokenizer) {
+        long[] positions = new long[8];
+        int size = 0;
+        tokenizer.read(Token.Type.BEGIN_ARRAY);
+        if (!tokenizer.skip(Token.Type.END_ARRAY)) {
+            do {
+                if (size == positions.length) {
+                    positions = Arrays.copyOf(positions, 2 * size);
+                }
+                positions[size++] = tokenizer.position();
+                tokenizer.skipValue();
+            } while (tokenizer.skip(Token.Type.COMMA));
+            tokenizer.read(Token.Type.END_ARRAY);
+        }
+        return Arrays.copyOf(positions, size);
     }
 
-    private static int getNextPairPos(JsonTokenizer tokenizer) {
-        SkipObjectHandler skipObjectHandler = new SkipObjectHandler(tokenizer.pos());
-        try {
-            new JsonParser(skipObjectHandler).parseObject(tokenizer);
+    //------------------------------------------< private >---
+
+    /**
+     * Advance {@code tokenizer} past the object at its current position
+     */
+    private static void skipObject(JsonTokenizer tokenizer) {
+        long start = tokenizer.position();
+        long size = getSizeHint(tokenizer.copy());
+        if (size >= 0) {
+            tokenizer.setPosition(start + size);
         }
-        catch (BreakException e) {
-            return skipObjectHandler.newPos;
+        else {
+            tokenizer.skipValue();
         }
-        return tokenizer.pos();
+    }
+
+    /**
+     * @return  the value of the ":size" hint if it is the first pair of the object
+     * at the current position of {@code tokenizer} or {@code -1} otherwise.
+     */
+    private static long getSizeHint(JsonTokenizer tokenizer) {
+        if (tokenizer.skip(Token.Type.BEGIN_OBJECT) && tokenizer.peek(Token.Type.STRING)
+                && ":size".equals(tokenizer.read().text()) && tokenizer.skip(Token.Type.COLON)
+                && tokenizer.peek(Token.Type.NUMBER)) {
+            return Long.parseLong(tokenizer.read().text());
+        }
+        return -1;
     }
 
     private static class DeferredObjectValue extends JsonObject {
         private final JsonTokenizer tokenizer;
+        private final Retention retention;
+
+        private volatile Object handle;
 
-        public DeferredObjectValue(JsonTokenizer tokenizer) {
+        public DeferredObjectValue(JsonTokenizer tokenizer, Retention retention) {
             super(null);
             this.tokenizer = tokenizer;
+            this.retention = retention;
         }
 
         @Override
@@ -162,9 +338,29 @@ public final class LevelOrderJsonParser {
             return value().get(key);
         }
 
+        @Override
+        public JsonValue remove(String key) {
+            throw new IllegalStateException("Cannot remove value");
+        }
+
+        @Override
+        public boolean isEmpty() {
+            return value().isEmpty();
+        }
+
         @Override
         public Map<String, JsonValue> value() {
-            return parseObject(tokenizer.copy()).value();
+            Map<String, JsonValue> values = retention.resolve(handle);
+            if (values == null) {
+                synchronized (this) {
+                    values = retention.resolve(handle);
+                    if (values == null) {
+                        values = parseObject(tokenizer.copy(), retention).value();
+                        handle = retention.retain(values);
+                    }
+                }
+            }
+            return values;
         }
 
         @Override
@@ -174,19 +370,129 @@ public final class LevelOrderJsonParser {
 
     }
 
-    private static class SkipObjectHandler extends JsonHandler {
-        private final int startPos;
-        private int newPos;
+    private static class DeferredArrayValue extends JsonArray {
+        private final JsonTokenizer tokenizer;
+        private final Retention retention;
+        private final long[] positions;
+        private final AtomicReferenceArray<JsonValue> elements;
 
-        public SkipObjectHandler(int startPos) {
-            this.startPos = startPos;
+        /**
+         * Create a deferred array for the array at the current position of
+         * {@code tokenizer} and advance {@code tokenizer} past that array.
+         */
+        public DeferredArrayValue(JsonTokenizer tokenizer, Retention retention) {
+            super(null);
+            this.tokenizer = tokenizer.copy();
+            this.retention = retention;
+            positions = getElementPositions(tokenizer);
+            elements = new AtomicReferenceArray<JsonValue>(positions.length);
         }
 
         @Override
-        public void atom(Token key, Token value) {
-            if (key != null && ":size".equals(key.text()) && Token.Type.NUMBER == value.type()) {
-                newPos = startPos + Integer.parseInt(value.text());
-                throw BreakException.BREAK;
+        public void add(JsonValue value) {
+            throw new IllegalStateException("Cannot add value");
+        }
+
+        @Override
+        public boolean remove(JsonValue value) {
+            throw new IllegalStateException("Cannot remove value");
+        }
+
+        @Override
+        public JsonValue get(int index) {
+            JsonValue element = elements.get(index);
+            if (element == null) {
+                elements.compareAndSet(index, null, parseElement(positions[index]));
+                element = elements.get(index);
+            }
+            return element;
+        }
+
+        @Override
+        public int size() {
+            return positions.length;
+        }
+
+        @Override
+        public boolean isEmpty() {
+            return positions.length == 0;
+        }
+
+        @Override
+        public List<JsonValue> value() {
+            return new AbstractList<JsonValue>() {
+                @Override
+                public JsonValue get(int index) {
+                    return DeferredArrayValue.this.get(index);
+                }
+
+                @Override
+                public int size() {
+                    return positions.length;
+                }
+            };
+        }
+
+        @Override
+        public String toString() {
+            return "<deferred>";
+        }
+
+        private JsonValue parseElement(long position) {
+            JsonTokenizer tokenizer = this.tokenizer.copy();
+            tokenizer.setPosition(position);
+            switch (tokenizer.peek().type()) {
+                case BEGIN_OBJECT: return new DeferredObjectValue(tokenizer, retention);
+                case BEGIN_ARRAY: return new DeferredArrayValue(tokenizer, retention);
+                default: return JsonAtom.atom(tokenizer.read());
+            }
+        }
+    }
+
+    private static class BoundedRetention extends Retention {
+        private final Map<Handle, Handle> recent;
+
+        BoundedRetention(final int maxSize) {
+            recent = new LinkedHashMap<Handle, Handle>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<Handle, Handle> eldest) {
+                    if (size() > maxSize) {
+                        eldest.getKey().values = null;
+                        return true;
+                    }
+                    else {
+                        return false;
+                    }
+                }
+            };
+        }
+
+        @Override
+        Object retain(Map<String, JsonValue> values) {
+            Handle handle = new Handle(values);
+            synchronized (recent) {
+                recent.put(handle, handle);
+            }
+            return handle;
+        }
+
+        @Override
+        Map<String, JsonValue> resolve(Object handle) {
+            if (handle == null) {
+                return null;
+            }
+            synchronized (recent) {
+                // touch for access order. Evicted handles have their values cleared
+                recent.get(handle);
+                return ((Handle) handle).values;
+            }
+        }
+
+        private static class Handle {
+            private volatile Map<String, JsonValue> values;
+
+            Handle(Map<String, JsonValue> values) {
+                this.values = values;
             }
         }
     }
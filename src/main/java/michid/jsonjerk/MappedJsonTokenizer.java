@@ -0,0 +1,108 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package michid.jsonjerk;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+
+/**
+ * This JSON tokenizer operates on a memory mapped UTF-8 encoded file. The file
+ * is mapped in segments of 1 GB such that files larger than 2 GB are supported.
+ * Positions are byte offsets into the file. Use {@link #position()} and
+ * {@link #setPosition(long)} for positions beyond 2 GB.
+ * <p/>
+ * Since the file is not read onto the heap, deferred parsing as done by
+ * {@link LevelOrderJsonParser} works on huge documents with little memory.
+ *
+ * @see Utf8JsonTokenizer
+ */
+public class MappedJsonTokenizer extends Utf8JsonTokenizer {
+    public static final int SEGMENT_SHIFT = 30;
+
+    /**
+     * Create a tokenizer for the file of the given {@code channel}. The
+     * channel may be closed once the tokenizer has been created.
+     * @param channel
+     * @throws IOException
+     */
+    public MappedJsonTokenizer(FileChannel channel) throws IOException {
+        this(channel, SEGMENT_SHIFT);
+    }
+
+    /**
+     * Create a tokenizer for the given file
+     * @param file
+     * @throws IOException
+     */
+    public MappedJsonTokenizer(File file) throws IOException {
+        this(file, SEGMENT_SHIFT);
+    }
+
+    /**
+     * @see JsonTokenizer#JsonTokenizer(JsonTokenizer)
+     */
+    protected MappedJsonTokenizer(MappedJsonTokenizer tokenizer) {
+        super(tokenizer);
+    }
+
+    MappedJsonTokenizer(FileChannel channel, int segmentShift) throws IOException {
+        super(map(channel, segmentShift), segmentShift);
+    }
+
+    MappedJsonTokenizer(File file, int segmentShift) throws IOException {
+        this(map(file, segmentShift), segmentShift);
+    }
+
+    private MappedJsonTokenizer(ByteBuffer[] segments, int segmentShift) {
+        super(segments, segmentShift);
+    }
+
+    @Override
+    public MappedJsonTokenizer copy() {
+        return new MappedJsonTokenizer(this);
+    }
+
+    //------------------------------------------< private >---
+
+    private static ByteBuffer[] map(File file, int segmentShift) throws IOException {
+        RandomAccessFile raf = new RandomAccessFile(file, "r");
+        try {
+            return map(raf.getChannel(), segmentShift);
+        }
+        finally {
+            raf.close();
+        }
+    }
+
+    private static ByteBuffer[] map(FileChannel channel, int segmentShift) throws IOException {
+        long size = channel.size();
+        long segmentSize = 1L << segmentShift;
+        ByteBuffer[] segments = new ByteBuffer[(int) ((size + segmentSize - 1) >>> segmentShift)];
+        for (int k = 0; k < segments.length; k++) {
+            long offset = k * segmentSize;
+            segments[k] = channel.map(MapMode.READ_ONLY, offset, Math.min(segmentSize, size - offset));
+        }
+        return segments;
+    }
+}
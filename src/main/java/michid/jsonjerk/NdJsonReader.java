@@ -0,0 +1,394 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package michid.jsonjerk;
+
+import michid.jsonjerk.Token.Type;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Queue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Reader for newline delimited JSON (NDJSON, JSON Lines) from a UTF-8 encoded
+ * {@code InputStream}. Each line holds one JSON value. Blank lines are ignored.
+ * <p/>
+ * The input is read in batches of about {@code batchSize} bytes, which are cut at
+ * the last newline. Since a newline byte never occurs inside a multi byte UTF-8
+ * sequence, batches are not decoded but split into records on raw newline bytes.
+ * The records of a batch are parsed with {@link Utf8JsonTokenizer}s on the threads
+ * of an {@code Executor}. At most {@code maxBatches} batches are in flight at any
+ * time: reading from the input blocks until a batch has been delivered. This bounds
+ * the memory used by the reader to about {@code maxBatches * batchSize} bytes plus
+ * the parsed values of these batches.
+ * <p/>
+ * Records are either delivered in order on the thread calling {@code read} or
+ * out of order on the threads of the executor, as soon as their batch is parsed.
+ * Parse errors and exceptions thrown by handlers stop reading and are rethrown from
+ * {@code read}.
+ */
+public final class NdJsonReader {
+    public static final int DEFAULT_BATCH_SIZE = 1 << 20;
+
+    private final InputStream in;
+    private final Executor executor;
+    private final int batchSize;
+    private final int maxBatches;
+
+    /**
+     * Create a new reader
+     * @param in  input stream, which is not closed by this reader
+     * @param executor  executor for parsing the records
+     * @param batchSize  approximate number of bytes per batch
+     * @param maxBatches  maximal number of batches in flight
+     */
+    public NdJsonReader(InputStream in, Executor executor, int batchSize, int maxBatches) {
+        if (batchSize <= 0 || maxBatches <= 0) {
+            throw new IllegalArgumentException("batchSize and maxBatches must be positive");
+        }
+        this.in = in;
+        this.executor = executor;
+        this.batchSize = batchSize;
+        this.maxBatches = maxBatches;
+    }
+
+    /**
+     * Create a new reader with batches of {@link #DEFAULT_BATCH_SIZE} bytes and two
+     * batches in flight per available processor.
+     * @param in  input stream, which is not closed by this reader
+     * @param executor  executor for parsing the records
+     */
+    public NdJsonReader(InputStream in, Executor executor) {
+        this(in, executor, DEFAULT_BATCH_SIZE, 2 * Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Handler for the records read by a {@code NdJsonReader}
+     */
+    public abstract static class RecordHandler {
+
+        /**
+         * Called for each record
+         * @param line  the line number of the record starting from 0
+         * @param value  the parsed record
+         */
+        public abstract void record(long line, JsonValue value);
+    }
+
+    /**
+     * Read all records from the input and pass them to {@code handler}.
+     * @param handler
+     * @param ordered  if {@code true}, records are passed in input order on the current
+     * thread. Otherwise they are passed out of order and concurrently from the threads of
+     * the executor.
+     * @throws IOException
+     * @throws ParseException
+     */
+    public void read(final RecordHandler handler, boolean ordered) throws IOException {
+        if (ordered) {
+            readOrdered(handler);
+        }
+        else {
+            readUnordered(new BatchParser() {
+                @Override
+                void record(long line, JsonTokenizer tokenizer) {
+                    handler.record(line, FullJsonParser.parseValue(tokenizer));
+                }
+            });
+        }
+    }
+
+    /**
+     * Read all records from the input and pass them to {@code handler} through a
+     * {@link JsonParser}. Each record is reported to the handler like an array element:
+     * the key passed to {@code atom}, {@code object} and {@code array} is {@code null}.
+     * The records are passed out of order and concurrently from the threads of the
+     * executor. {@code handler} must thus be thread safe.
+     * @param handler
+     * @throws IOException
+     * @throws ParseException
+     */
+    public void read(JsonHandler handler) throws IOException {
+        final JsonParser parser = new JsonParser(handler);
+        readUnordered(new BatchParser() {
+            @Override
+            void record(long line, JsonTokenizer tokenizer) {
+                parser.parseValue(null, tokenizer);
+            }
+        });
+    }
+
+    //------------------------------------------< private >---
+
+    private void readOrdered(RecordHandler handler) throws IOException {
+        Queue<FutureTask<Object[]>> inFlight = new ArrayDeque<FutureTask<Object[]>>();
+        BatchReader reader = new BatchReader();
+        for (Batch batch = reader.next(); batch != null; batch = reader.next()) {
+            final Batch current = batch;
+            FutureTask<Object[]> task = new FutureTask<Object[]>(new Callable<Object[]>() {
+                @Override
+                public Object[] call() {
+                    final Object[] values = new Object[2 * current.lines];
+                    new BatchParser() {
+                        int k;
+
+                        @Override
+                        void record(long line, JsonTokenizer tokenizer) {
+                            values[k++] = line;
+                            values[k++] = FullJsonParser.parseValue(tokenizer);
+                        }
+                    }.parse(current);
+                    return values;
+                }
+            });
+            executor.execute(task);
+            inFlight.add(task);
+            if (inFlight.size() >= maxBatches) {
+                deliver(inFlight.remove(), handler);
+            }
+        }
+        while (!inFlight.isEmpty()) {
+            deliver(inFlight.remove(), handler);
+        }
+    }
+
+    private void readUnordered(final BatchParser parser) throws IOException {
+        final Semaphore permits = new Semaphore(maxBatches);
+        final AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+        BatchReader reader = new BatchReader();
+        for (Batch batch = reader.next(); batch != null && failure.get() == null; batch = reader.next()) {
+            acquire(permits, 1);
+            final Batch current = batch;
+            Runnable task = new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        if (failure.get() == null) {
+                            parser.parse(current);
+                        }
+                    }
+                    catch (Throwable e) {
+                        failure.compareAndSet(null, e);
+                    }
+                    finally {
+                        permits.release();
+                    }
+                }
+            };
+            try {
+                executor.execute(task);
+            }
+            catch (RuntimeException e) {
+                // the task will not release its permit: release it and wait for
+                // the batches already submitted before failing
+                permits.release();
+                acquire(permits, maxBatches);
+                permits.release(maxBatches);
+                throw e;
+            }
+        }
+
+        // wait for all batches to complete
+        acquire(permits, maxBatches);
+        permits.release(maxBatches);
+        rethrow(failure.get());
+    }
+
+    private static void deliver(FutureTask<Object[]> task, RecordHandler handler) throws IOException {
+        Object[] values;
+        try {
+            values = task.get();
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException();
+        }
+        catch (ExecutionException e) {
+            rethrow(e.getCause());
+            return;
+        }
+        for (int k = 0; k < values.length && values[k] != null; k += 2) {
+            handler.record((Long) values[k], (JsonValue) values[k + 1]);
+        }
+    }
+
+    private static void acquire(Semaphore permits, int count) throws InterruptedIOException {
+        try {
+            permits.acquire(count);
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException();
+        }
+    }
+
+    private static void rethrow(Throwable e) {
+        if (e instanceof RuntimeException) {
+            throw (RuntimeException) e;
+        }
+        else if (e instanceof Error) {
+            throw (Error) e;
+        }
+        else if (e != null) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * A batch of complete lines
+     */
+    private static final class Batch {
+        final byte[] bytes;
+        final int length;
+        final long offset;
+        final long firstLine;
+        final int lines;
+
+        Batch(byte[] bytes, int length, long offset, long firstLine, int lines) {
+            this.bytes = bytes;
+            this.length = length;
+            this.offset = offset;
+            this.firstLine = firstLine;
+            this.lines = lines;
+        }
+    }
+
+    /**
+     * Splits a batch into records and parses each of them
+     */
+    private abstract static class BatchParser {
+        abstract void record(long line, JsonTokenizer tokenizer);
+
+        void parse(Batch batch) {
+            byte[] bytes = batch.bytes;
+            long line = batch.firstLine;
+            int start = 0;
+            while (start < batch.length) {
+                int end = start;
+                while (end < batch.length && bytes[end] != '\n') {
+                    end++;
+                }
+                if (!isBlank(bytes, start, end)) {
+                    JsonTokenizer tokenizer = new Utf8JsonTokenizer(ByteBuffer.wrap(bytes, start, end - start));
+                    try {
+                        record(line, tokenizer);
+                        Token token = tokenizer.peek();
+                        if (token.type() != Type.EOF) {
+                            throw new ParseException(token.position(), "Expected end of record, found: " + token);
+                        }
+                    }
+                    catch (ParseException e) {
+                        throw new ParseException(batch.offset + start, "Invalid record at line " + line, e);
+                    }
+                }
+                line++;
+                start = end + 1;
+            }
+        }
+
+        private static boolean isBlank(byte[] bytes, int start, int end) {
+            for (int k = start; k < end; k++) {
+                if (!Chars.isWhiteSpace(bytes[k])) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    /**
+     * Reads the input in batches of complete lines
+     */
+    private final class BatchReader {
+        private byte[] buffer = new byte[batchSize];
+        private int count;
+        private long offset;
+        private long line;
+        private boolean eof;
+
+        /**
+         * @return  the next batch or {@code null} if the input is exhausted
+         */
+        Batch next() throws IOException {
+            int end = -1;
+            while (end < 0 && !eof) {
+                if (count == buffer.length) {
+                    // a line longer than the batch size: grow
+                    buffer = Arrays.copyOf(buffer, 2 * buffer.length);
+                }
+                int n = in.read(buffer, count, buffer.length - count);
+                if (n < 0) {
+                    eof = true;
+                }
+                else {
+                    count += n;
+                    if (count == buffer.length) {
+                        end = lastNewLine(buffer, count);
+                    }
+                }
+            }
+            if (end < 0) {
+                // end of input: the remainder is the last batch
+                if (count == 0) {
+                    return null;
+                }
+                end = count;
+            }
+
+            int lines = 0;
+            for (int k = 0; k < end; k++) {
+                if (buffer[k] == '\n') {
+                    lines++;
+                }
+            }
+            if (end == count && end > 0 && buffer[end - 1] != '\n') {
+                lines++;
+            }
+
+            Batch batch = new Batch(buffer, end, offset, line, lines);
+            byte[] next = new byte[Math.max(batchSize, count - end)];
+            System.arraycopy(buffer, end, next, 0, count - end);
+            buffer = next;
+            count -= end;
+            offset += end;
+            line += lines;
+            return batch;
+        }
+
+        private int lastNewLine(byte[] bytes, int count) {
+            for (int k = count - 1; k >= 0; k--) {
+                if (bytes[k] == '\n') {
+                    return k + 1;
+                }
+            }
+            return -1;
+        }
+    }
+
+}
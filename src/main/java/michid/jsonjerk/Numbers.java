@@ -0,0 +1,291 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package michid.jsonjerk;
+
+/**
+ * Utility class for converting JSON numbers to {@code long} and {@code double}
+ * values directly from a character sequence without creating intermediate strings.
+ */
+final class Numbers {
+    private Numbers() { }
+
+    private static final double[] POWERS_OF_TEN = {
+        1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+        1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+    };
+
+    /**
+     * Parse the characters between {@code start} and {@code end} as {@code long}
+     * @param chars
+     * @param start
+     * @param end
+     * @return  the value
+     * @throws NumberFormatException  if the characters do not represent an
+     * integral number in the range of {@code long}
+     */
+    static long parseLong(CharSequence chars, int start, int end) {
+        int i = start;
+        boolean negative = false;
+        if (i < end && (chars.charAt(i) == '-' || chars.charAt(i) == '+')) {
+            negative = chars.charAt(i++) == '-';
+        }
+        if (i == end) {
+            throw numberFormatException(chars, start, end);
+        }
+
+        // accumulate negatively in order to cover Long.MIN_VALUE
+        long result = 0;
+        for (; i < end; i++) {
+            int digit = chars.charAt(i) - '0';
+            if (digit < 0 || digit > 9 || result < Long.MIN_VALUE / 10) {
+                throw numberFormatException(chars, start, end);
+            }
+            result *= 10;
+            if (result < Long.MIN_VALUE + digit) {
+                throw numberFormatException(chars, start, end);
+            }
+            result -= digit;
+        }
+
+        if (negative) {
+            return result;
+        }
+        else if (result == Long.MIN_VALUE) {
+            throw numberFormatException(chars, start, end);
+        }
+        else {
+            return -result;
+        }
+    }
+
+    /**
+     * Parse the characters between {@code start} and {@code end} as {@code double}.
+     * Numbers with up to 15 significant digits and a decimal exponent of at most 22
+     * are converted exactly without creating a string. All other numbers are delegated
+     * to {@link Double#parseDouble(String)}.
+     * @param chars
+     * @param start
+     * @param end
+     * @return  the value
+     * @throws NumberFormatException  if the characters do not represent a number
+     */
+    static double parseDouble(CharSequence chars, int start, int end) {
+        int i = start;
+        boolean negative = false;
+        if (i < end && (chars.charAt(i) == '-' || chars.charAt(i) == '+')) {
+            negative = chars.charAt(i++) == '-';
+        }
+
+        long mantissa = 0;
+        int digits = 0;
+        int scale = 0;
+        boolean fraction = false;
+        boolean valid = false;
+        for (; i < end; i++) {
+            char c = chars.charAt(i);
+            if (c >= '0' && c <= '9') {
+                valid = true;
+                if (digits > 0 || c != '0') {
+                    digits++;
+                }
+                mantissa = 10 * mantissa + c - '0';
+                if (fraction) {
+                    scale--;
+                }
+            }
+            else if (c == '.' && !fraction) {
+                fraction = true;
+            }
+            else {
+                break;
+            }
+        }
+
+        int exponent = 0;
+        if (i < end && (chars.charAt(i) == 'e' || chars.charAt(i) == 'E')) {
+            i++;
+            boolean negativeExponent = false;
+            if (i < end && (chars.charAt(i) == '-' || chars.charAt(i) == '+')) {
+                negativeExponent = chars.charAt(i++) == '-';
+            }
+            valid &= i < end;
+            for (; i < end && exponent < 1000; i++) {
+                int digit = chars.charAt(i) - '0';
+                if (digit < 0 || digit > 9) {
+                    break;
+                }
+                exponent = 10 * exponent + digit;
+            }
+            if (negativeExponent) {
+                exponent = -exponent;
+            }
+        }
+
+        exponent += scale;
+        if (valid && i == end && digits <= 15 && exponent >= -22 && exponent <= 22) {
+            double value = exponent < 0
+                ? mantissa / POWERS_OF_TEN[-exponent]
+                : mantissa * POWERS_OF_TEN[exponent];
+            return negative ? -value : value;
+        }
+        else {
+            return Double.parseDouble(chars.subSequence(start, end).toString());
+        }
+    }
+
+    /**
+     * @param chars
+     * @param start
+     * @param end
+     * @return  {@code true} iff the characters between {@code start} and {@code end}
+     * consist of an optional sign followed by at least one digit. That is, they
+     * represent an integral number without fraction and exponent.
+     */
+    static boolean isIntegral(CharSequence chars, int start, int end) {
+        int i = start;
+        if (i < end && (chars.charAt(i) == '-' || chars.charAt(i) == '+')) {
+            i++;
+        }
+        if (i == end) {
+            return false;
+        }
+        for (; i < end; i++) {
+            char c = chars.charAt(i);
+            if (c < '0' || c > '9') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @param chars
+     * @param start
+     * @param end
+     * @return  {@code true} iff the characters between {@code start} and {@code end}
+     * are the {@link Long#toString(long) canonical representation} of a {@code long}
+     * with at most 18 digits. Such numbers can be parsed without overflow checks and
+     * converted back to their text without loss.
+     */
+    static boolean isCanonicalLong(CharSequence chars, int start, int end) {
+        int i = start;
+        if (i < end && chars.charAt(i) == '-') {
+            i++;
+        }
+        int digits = end - i;
+        if (digits == 0 || digits > 18) {
+            return false;
+        }
+        if (chars.charAt(i) == '0') {
+            // no leading zeros and no negative zero
+            return end - start == 1;
+        }
+        return isIntegral(chars, start, end);
+    }
+
+    /**
+     * @param chars
+     * @param start
+     * @param end
+     * @return  the number of fraction digits if the characters between {@code start}
+     * and {@code end} are a plain decimal number with a fraction, without exponent and
+     * with at most 15 significant digits. {@code -1} otherwise. The text of such numbers
+     * is restored from their {@code double} value by {@link #toDecimalString(double, int)}.
+     */
+    static int decimalScale(CharSequence chars, int start, int end) {
+        int i = start;
+        if (i < end && chars.charAt(i) == '-') {
+            i++;
+        }
+        int integerStart = i;
+        while (i < end && isDigit(chars.charAt(i))) {
+            i++;
+        }
+        int integerDigits = i - integerStart;
+        if (integerDigits == 0 || integerDigits > 1 && chars.charAt(integerStart) == '0') {
+            return -1;
+        }
+        if (i == end || chars.charAt(i) != '.') {
+            return -1;
+        }
+
+        int fractionStart = ++i;
+        while (i < end && isDigit(chars.charAt(i))) {
+            i++;
+        }
+        int scale = i - fractionStart;
+        if (i != end || scale == 0 || scale >= POWERS_OF_TEN.length) {
+            return -1;
+        }
+
+        int leadingZeros = 0;
+        for (int k = integerStart; k < end; k++) {
+            char c = chars.charAt(k);
+            if (c != '0' && c != '.') {
+                break;
+            }
+            if (c == '0') {
+                leadingZeros++;
+            }
+        }
+        return integerDigits + scale - leadingZeros <= 15 ? scale : -1;
+    }
+
+    /**
+     * Restore the text of a number with the given {@link #decimalScale(CharSequence, int, int)
+     * decimal scale} from its {@code double} value. Since the number has at most 15
+     * significant digits, scaling its value by 10<sup>{@code scale}</sup> yields its
+     * digits with an error well below one half.
+     * @param value
+     * @param scale
+     * @return  the text of the number
+     */
+    static String toDecimalString(double value, int scale) {
+        String digits = Long.toString(Math.round(Math.abs(value) * POWERS_OF_TEN[scale]));
+        StringBuilder text = new StringBuilder(digits.length() + scale + 3);
+        if (Double.doubleToRawLongBits(value) < 0) {
+            text.append('-');
+        }
+        int integerDigits = digits.length() - scale;
+        if (integerDigits > 0) {
+            text.append(digits, 0, integerDigits).append('.').append(digits, integerDigits, digits.length());
+        }
+        else {
+            text.append("0.");
+            for (int k = integerDigits; k < 0; k++) {
+                text.append('0');
+            }
+            text.append(digits);
+        }
+        return text.toString();
+    }
+
+    //------------------------------------------< private >---
+
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+
+
+    private static NumberFormatException numberFormatException(CharSequence chars, int start, int end) {
+        return new NumberFormatException("For input string: \"" + chars.subSequence(start, end) + '"');
+    }
+
+}
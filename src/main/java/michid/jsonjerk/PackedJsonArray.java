@@ -0,0 +1,363 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package michid.jsonjerk;
+
+import michid.jsonjerk.JsonValue.JsonArray;
+import michid.jsonjerk.JsonValue.JsonAtom;
+import michid.jsonjerk.JsonValue.JsonNumber;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.RandomAccess;
+
+/**
+ * Compact {@code JsonArray} for arrays consisting of numbers only. Integral
+ * numbers are packed into a {@code long[]}. Once the first fractional number
+ * is added, all values are moved into a {@code double[]} together with a bit
+ * set marking which of them are integral.
+ * <p/>
+ * A number is only packed if its text can be restored from the packed value:
+ * integral numbers must be in their canonical form and fractional numbers must
+ * either be in the form {@link Double#toString(double)} produces or be plain
+ * decimals with at most 15 significant digits like {@code 0.0001} or {@code 1.50}.
+ * For the latter the number of fraction digits is kept in a {@code byte[]} from
+ * which their text is restored. Serializing and comparing a packed array thus
+ * gives the same results as for an array backed by a list of atoms. Numbers
+ * with exponent are only packed in the form of {@code Double.toString}.
+ * <p/>
+ * The array falls back to an {@code ArrayList} when a value is added which
+ * cannot be packed or when it is mutated in a way other than appending. The
+ * array then behaves exactly like a {@code JsonArray} backed by an
+ * {@code ArrayList}.
+ * <p/>
+ * {@link #get(int)} and the elements of {@link #value()} return new
+ * {@code JsonNumber} instances for packed values. Use {@link #getLong(int)}
+ * and {@link #getDouble(int)} to access the values without allocation.
+ */
+final class PackedJsonArray extends JsonArray {
+
+    /** Integral numbers beyond this magnitude cannot be packed into a {@code double} */
+    static final long MAX_EXACT_DOUBLE = 1L << 53;
+
+    private static final long[] NO_LONGS = new long[0];
+
+    private long[] longs = NO_LONGS;
+
+    /** Packed values once a fractional number was added, {@code null} otherwise */
+    private double[] doubles;
+
+    /** Marks the integral values in {@link #doubles} */
+    private BitSet integral;
+
+    /**
+     * Number of fraction digits of the values in {@link #doubles} which are plain
+     * decimals or {@code 0} for values in the form of {@code Double.toString}.
+     * {@code null} until the first plain decimal is added.
+     */
+    private byte[] scales;
+
+    private int size;
+
+    /** Fall back representation, {@code null} while this array is packed */
+    private List<JsonValue> list;
+
+    private List<JsonValue> view;
+
+    PackedJsonArray() {
+        super(null);
+    }
+
+    @Override
+    public void add(JsonValue value) {
+        if (list != null || !pack(value)) {
+            toList().add(value);
+        }
+    }
+
+    @Override
+    public boolean remove(JsonValue value) {
+        int k = value().indexOf(value);
+        if (k < 0) {
+            return false;
+        }
+        toList().remove(k);
+        return true;
+    }
+
+    @Override
+    public JsonValue get(int index) {
+        if (list != null) {
+            return list.get(index);
+        }
+        checkIndex(index);
+        if (doubles == null) {
+            return JsonAtom.number(longs[index]);
+        }
+        else if (integral.get(index)) {
+            return JsonAtom.number((long) doubles[index]);
+        }
+        else if (scales != null && scales[index] != 0) {
+            double value = doubles[index];
+            return JsonNumber.valueOf(Numbers.toDecimalString(value, scales[index]), value);
+        }
+        else {
+            return JsonAtom.number(doubles[index]);
+        }
+    }
+
+    @Override
+    public long getLong(int index) {
+        if (list == null && doubles == null) {
+            checkIndex(index);
+            return longs[index];
+        }
+        return super.getLong(index);
+    }
+
+    @Override
+    public double getDouble(int index) {
+        if (list == null) {
+            checkIndex(index);
+            return doubles == null
+                ? longs[index]
+                : doubles[index];
+        }
+        return super.getDouble(index);
+    }
+
+    @Override
+    public int size() {
+        return list == null ? size : list.size();
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    @Override
+    public List<JsonValue> value() {
+        if (view == null) {
+            view = new View();
+        }
+        return view;
+    }
+
+    @Override
+    public String toString() {
+        return value().toString();
+    }
+
+    //------------------------------------------< package private >---
+
+    /**
+     * @return  {@code true} iff the values of this array are packed
+     */
+    boolean isPacked() {
+        return list == null;
+    }
+
+    /**
+     * Release excess capacity of the packed values
+     */
+    void trim() {
+        if (list == null) {
+            if (doubles == null) {
+                if (longs.length > size) {
+                    long[] newLongs = new long[size];
+                    System.arraycopy(longs, 0, newLongs, 0, size);
+                    longs = newLongs;
+                }
+            }
+            else if (doubles.length > size) {
+                double[] newDoubles = new double[size];
+                System.arraycopy(doubles, 0, newDoubles, 0, size);
+                doubles = newDoubles;
+                if (scales != null) {
+                    byte[] newScales = new byte[size];
+                    System.arraycopy(scales, 0, newScales, 0, size);
+                    scales = newScales;
+                }
+            }
+        }
+    }
+
+    //------------------------------------------< private >---
+
+    private void checkIndex(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+        }
+    }
+
+    /**
+     * Append {@code value} to the packed values
+     * @return  {@code false} if {@code value} cannot be packed
+     */
+    private boolean pack(JsonValue value) {
+        if (!(value instanceof JsonNumber)) {
+            return false;
+        }
+
+        JsonNumber number = (JsonNumber) value;
+        try {
+            if (number.isCanonicalLong()) {
+                long v = number.asLong();
+                if (doubles == null) {
+                    appendLong(v);
+                    return true;
+                }
+                else if (-MAX_EXACT_DOUBLE <= v && v <= MAX_EXACT_DOUBLE) {
+                    integral.set(size);
+                    appendDouble(v);
+                    return true;
+                }
+                else {
+                    return false;
+                }
+            }
+            else if (number.isCanonicalDouble()) {
+                if (toDoubles()) {
+                    appendDouble(number.asDouble());
+                    return true;
+                }
+                return false;
+            }
+            else {
+                int scale = number.decimalScale();
+                if (scale > 0 && toDoubles()) {
+                    appendDouble(number.asDouble());
+                    if (scales == null) {
+                        scales = new byte[doubles.length];
+                    }
+                    scales[size - 1] = (byte) scale;
+                    return true;
+                }
+                return false;
+            }
+        }
+        catch (NumberFormatException e) {
+            return false;
+        }
+    }
+
+    private void appendLong(long value) {
+        if (size == longs.length) {
+            long[] newLongs = new long[Math.max(8, 2 * size)];
+            System.arraycopy(longs, 0, newLongs, 0, size);
+            longs = newLongs;
+        }
+        longs[size++] = value;
+    }
+
+    private void appendDouble(double value) {
+        if (size == doubles.length) {
+            double[] newDoubles = new double[Math.max(8, 2 * size)];
+            System.arraycopy(doubles, 0, newDoubles, 0, size);
+            doubles = newDoubles;
+            if (scales != null) {
+                byte[] newScales = new byte[newDoubles.length];
+                System.arraycopy(scales, 0, newScales, 0, size);
+                scales = newScales;
+            }
+        }
+        doubles[size++] = value;
+    }
+
+    /**
+     * Move the packed values into {@link #doubles} unless already done
+     * @return  {@code false} if the packed values cannot be represented as {@code double}
+     */
+    private boolean toDoubles() {
+        if (doubles == null) {
+            for (int k = 0; k < size; k++) {
+                if (longs[k] < -MAX_EXACT_DOUBLE || longs[k] > MAX_EXACT_DOUBLE) {
+                    return false;
+                }
+            }
+            double[] newDoubles = new double[Math.max(8, longs.length)];
+            for (int k = 0; k < size; k++) {
+                newDoubles[k] = longs[k];
+            }
+            integral = new BitSet(size);
+            integral.set(0, size);
+            doubles = newDoubles;
+            longs = NO_LONGS;
+        }
+        return true;
+    }
+
+    private List<JsonValue> toList() {
+        if (list == null) {
+            List<JsonValue> list = new ArrayList<JsonValue>(size + 1);
+            for (int k = 0; k < size; k++) {
+                list.add(get(k));
+            }
+            this.list = list;
+            longs = NO_LONGS;
+            doubles = null;
+            integral = null;
+            scales = null;
+            size = 0;
+        }
+        return list;
+    }
+
+    /**
+     * Live list view of this array. Appending through the view keeps the array
+     * packed where possible, all other mutations make it fall back to a list.
+     */
+    private class View extends AbstractList<JsonValue> implements RandomAccess {
+        @Override
+        public JsonValue get(int index) {
+            return PackedJsonArray.this.get(index);
+        }
+
+        @Override
+        public int size() {
+            return PackedJsonArray.this.size();
+        }
+
+        @Override
+        public JsonValue set(int index, JsonValue value) {
+            return toList().set(index, value);
+        }
+
+        @Override
+        public void add(int index, JsonValue value) {
+            if (index == size()) {
+                PackedJsonArray.this.add(value);
+            }
+            else {
+                toList().add(index, value);
+            }
+            modCount++;
+        }
+
+        @Override
+        public JsonValue remove(int index) {
+            JsonValue value = toList().remove(index);
+            modCount++;
+            return value;
+        }
+    }
+}
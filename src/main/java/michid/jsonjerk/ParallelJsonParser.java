@@ -0,0 +1,183 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package michid.jsonjerk;
+
+import michid.jsonjerk.JsonValue.JsonArray;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Parser for large JSON arrays which parses the elements of the array concurrently.
+ * A first, sequential pass determines the start positions of all elements by skipping
+ * over them through {@link JsonTokenizer#skipValue()}. The elements are then split
+ * into ranges of about {@code chunkSize} characters (or bytes, depending on the
+ * tokenizer) which are parsed in parallel on a {@link ForkJoinPool}. Each range is
+ * parsed from its own {@link JsonTokenizer#copy() copy} of the tokenizer positioned
+ * through {@link JsonTokenizer#setPosition(long)}.
+ * <p/>
+ * The tokenizer must thus support {@code copy} and {@code setPosition} and its copies
+ * must be safe for concurrent use. This is the case for {@link DefaultJsonTokenizer},
+ * {@link UnescapingJsonTokenizer}, {@link IndexedJsonTokenizer}, {@link Utf8JsonTokenizer}
+ * and {@link MappedJsonTokenizer}.
+ */
+public final class ParallelJsonParser {
+    public static final int DEFAULT_CHUNK_SIZE = 1 << 20;
+
+    private final ForkJoinPool pool;
+    private final int chunkSize;
+
+    /**
+     * Create a parser which parses chunks of {@code chunkSize} characters on {@code pool}.
+     * @param pool
+     * @param chunkSize
+     */
+    public ParallelJsonParser(ForkJoinPool pool, int chunkSize) {
+        this.pool = pool;
+        this.chunkSize = chunkSize;
+    }
+
+    /**
+     * Create a parser which parses chunks of {@link #DEFAULT_CHUNK_SIZE} characters on {@code pool}.
+     * @param pool
+     */
+    public ParallelJsonParser(ForkJoinPool pool) {
+        this(pool, DEFAULT_CHUNK_SIZE);
+    }
+
+    /**
+     * Create a parser which parses chunks of {@link #DEFAULT_CHUNK_SIZE} characters on a
+     * shared pool with a thread per available processor.
+     */
+    public ParallelJsonParser() {
+        this(DefaultPool.INSTANCE);
+    }
+
+    /**
+     * Handler for the elements of an array parsed by a {@code ParallelJsonParser}.
+     * Its method is called concurrently from the threads of the pool.
+     */
+    public abstract static class ElementHandler {
+
+        /**
+         * Called for each element of the array. The element is the value at the current
+         * position of {@code tokenizer}. The handler may parse or skip it but must not
+         * retain the tokenizer.
+         * @param index  the index of the element in the array
+         * @param tokenizer
+         */
+        public abstract void element(int index, JsonTokenizer tokenizer);
+    }
+
+    /**
+     * Parse the array at the current position of {@code tokenizer} into a {@code JsonArray}
+     * @param tokenizer
+     * @return  a {@code JsonArray} with the elements in document order
+     * @throws ParseException
+     */
+    public JsonArray parseArray(JsonTokenizer tokenizer) {
+        JsonTokenizer start = tokenizer.copy();
+        long[] positions = LevelOrderJsonParser.getElementPositions(tokenizer);
+        final JsonValue[] values = new JsonValue[positions.length];
+        parse(start, positions, tokenizer.position(), new ElementHandler() {
+            @Override
+            public void element(int index, JsonTokenizer tokenizer) {
+                values[index] = FullJsonParser.parseValue(tokenizer);
+            }
+        });
+        return new JsonArray(new ArrayList<JsonValue>(Arrays.asList(values)));
+    }
+
+    /**
+     * Parse the array at the current position of {@code tokenizer} passing its
+     * elements to {@code handler}. On return {@code tokenizer} is positioned after the array.
+     * @param tokenizer
+     * @param handler
+     * @throws ParseException
+     */
+    public void parseArray(JsonTokenizer tokenizer, ElementHandler handler) {
+        JsonTokenizer start = tokenizer.copy();
+        long[] positions = LevelOrderJsonParser.getElementPositions(tokenizer);
+        parse(start, positions, tokenizer.position(), handler);
+    }
+
+    //------------------------------------------< private >---
+
+    private static class DefaultPool {
+        static final ForkJoinPool INSTANCE = new ForkJoinPool();
+    }
+
+    private void parse(JsonTokenizer tokenizer, long[] positions, long end, ElementHandler handler) {
+        if (positions.length > 0) {
+            pool.invoke(new ParseTask(tokenizer, handler, positions, end, 0, positions.length));
+        }
+    }
+
+    /**
+     * Parses the elements {@code from} (inclusive) to {@code to} (exclusive). Ranges
+     * spanning more than {@code chunkSize} are split at their middle position.
+     */
+    private class ParseTask extends RecursiveAction {
+        private final JsonTokenizer tokenizer;
+        private final ElementHandler handler;
+        private final long[] positions;
+        private final long end;
+        private final int from;
+        private final int to;
+
+        ParseTask(JsonTokenizer tokenizer, ElementHandler handler, long[] positions, long end, int from, int to) {
+            this.tokenizer = tokenizer;
+            this.handler = handler;
+            this.positions = positions;
+            this.end = end;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            long size = position(to) - positions[from];
+            if (to - from > 1 && size > chunkSize) {
+                int mid = Arrays.binarySearch(positions, from, to, positions[from] + size / 2);
+                if (mid < 0) {
+                    mid = -mid - 1;
+                }
+                mid = Math.max(from + 1, Math.min(to - 1, mid));
+                invokeAll(
+                    new ParseTask(tokenizer, handler, positions, end, from, mid),
+                    new ParseTask(tokenizer, handler, positions, end, mid, to));
+            }
+            else {
+                JsonTokenizer tokenizer = this.tokenizer.copy();
+                for (int k = from; k < to; k++) {
+                    tokenizer.setPosition(positions[k]);
+                    handler.element(k, tokenizer);
+                }
+            }
+        }
+
+        private long position(int index) {
+            return index < positions.length ? positions[index] : end;
+        }
+    }
+
+}
@@ -31,4 +31,12 @@ public class ParseException extends RuntimeException {
     public ParseException(int pos, String message, Throwable cause) {
         super(pos + ": " + message, cause);
     }
+
+    public ParseException(long pos, String message) {
+        super(pos + ": " + message);
+    }
+
+    public ParseException(long pos, String message, Throwable cause) {
+        super(pos + ": " + message, cause);
+    }
 }
@@ -0,0 +1,72 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package michid.jsonjerk;
+
+/**
+ * Handler for semantic actions of a {@link PushJsonParser}. This is the push
+ * counterpart of {@link JsonHandler}: since a push parser cannot delegate parsing
+ * of nested objects and arrays back to the handler, it reports their beginning
+ * and end instead.
+ * <p/>
+ * Override this class to add semantic actions as needed.
+ */
+public class PushJsonHandler {
+
+    /**
+     * Default instance which ignores all actions
+     */
+    public static final PushJsonHandler INSTANCE = new PushJsonHandler();
+
+    /**
+     * A primitive JSON value (ATOM) has been parsed.
+     * @param key  the key or {@code null} for array elements
+     * @param value
+     */
+    public void atom(Token key, Token value) { }
+
+    /**
+     * A COMMA has been parsed
+     * @param token
+     */
+    public void comma(Token token) { }
+
+    /**
+     * The beginning of an OBJECT has been parsed.
+     * @param key  the key or {@code null} for array elements and top level objects
+     */
+    public void beginObject(Token key) { }
+
+    /**
+     * The end of an OBJECT has been parsed.
+     */
+    public void endObject() { }
+
+    /**
+     * The beginning of an ARRAY has been parsed.
+     * @param key  the key or {@code null} for array elements and top level arrays
+     */
+    public void beginArray(Token key) { }
+
+    /**
+     * The end of an ARRAY has been parsed.
+     */
+    public void endArray() { }
+
+}
@@ -0,0 +1,284 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package michid.jsonjerk;
+
+import michid.jsonjerk.Token.Type;
+
+import java.nio.ByteBuffer;
+
+/**
+ * A non blocking parser for the JSON format. Input is {@link #feed(ByteBuffer) fed}
+ * in chunks of arbitrary size as it becomes available. Each call parses as far as
+ * the input fed so far allows and reports the results to a {@link PushJsonHandler}.
+ * Parsing may suspend anywhere: in the middle of a token or at any level of nesting.
+ * Instead of recursive descent as in {@link JsonParser} the parser keeps an explicit
+ * stack of the objects and arrays entered.
+ * <p/>
+ * The input is a sequence of zero or more JSON objects or arrays:
+ * <pre>
+ * INPUT ::= (OBJECT | ARRAY)*
+ * </pre>
+ * See {@link JsonParser} for the remaining grammar.
+ * <p/>
+ * Instances of this class are not thread safe.
+ *
+ * @see PushJsonTokenizer
+ */
+public class PushJsonParser {
+
+    // Parser states
+    private static final byte DOCUMENT = 0;        // expect top level object or array
+    private static final byte OBJECT_START = 1;    // after '{': expect key or '}'
+    private static final byte OBJECT_KEY = 2;      // after ',': expect key
+    private static final byte OBJECT_COLON = 3;    // after key: expect ':'
+    private static final byte OBJECT_VALUE = 4;    // after ':': expect value
+    private static final byte OBJECT_NEXT = 5;     // after value: expect ',' or '}'
+    private static final byte ARRAY_START = 6;     // after '[': expect value or ']'
+    private static final byte ARRAY_VALUE = 7;     // after ',': expect value
+    private static final byte ARRAY_NEXT = 8;      // after value: expect ',' or ']'
+
+    private final PushJsonTokenizer tokenizer;
+    private final PushJsonHandler handler;
+
+    /** States of the enclosing objects and arrays. {@code stack[0]} is the document. */
+    private byte[] stack = new byte[16];
+    private int depth;
+
+    /** Key of the pair currently being parsed */
+    private Token key;
+
+    /**
+     * Create a new parser reporting to {@code handler}
+     * @param handler
+     */
+    public PushJsonParser(PushJsonHandler handler) {
+        this(new PushJsonTokenizer(), handler);
+    }
+
+    /**
+     * Create a new parser reading from {@code tokenizer} and reporting to {@code handler}
+     * @param tokenizer
+     * @param handler
+     */
+    public PushJsonParser(PushJsonTokenizer tokenizer, PushJsonHandler handler) {
+        this.tokenizer = tokenizer;
+        this.handler = handler;
+        stack[0] = DOCUMENT;
+    }
+
+    /**
+     * Feed the remaining bytes of {@code input} to this parser and parse all
+     * tokens which are complete.
+     * @param input
+     * @throws ParseException
+     * @throws IllegalStateException  if {@link #end()} has been called already
+     */
+    public void feed(ByteBuffer input) {
+        tokenizer.feed(input);
+        parse();
+    }
+
+    /**
+     * Signal the end of the input and parse the remaining tokens.
+     * @throws ParseException  if the input ends within an object or an array.
+     */
+    public void end() {
+        tokenizer.end();
+        parse();
+    }
+
+    /**
+     * @return  {@code true} iff the parser is at top level, that is not within an
+     * object or an array.
+     */
+    public boolean isComplete() {
+        return depth == 0;
+    }
+
+    /**
+     * @return  the number of objects and arrays the parser is currently within
+     */
+    public int depth() {
+        return depth;
+    }
+
+    //------------------------------------------< private >---
+
+    private void parse() {
+        for (Token token = tokenizer.next(); token != null; token = tokenizer.next()) {
+            if (token.type() == Type.EOF) {
+                if (depth > 0) {
+                    throw new ParseException(token.position(), "Unexpected end of input");
+                }
+                return;
+            }
+            parse(token);
+        }
+    }
+
+    private void parse(Token token) {
+        switch (stack[depth]) {
+            case DOCUMENT:
+                switch (token.type()) {
+                    case BEGIN_OBJECT: beginObject(null); break;
+                    case BEGIN_ARRAY: beginArray(null); break;
+                    default: throw expected("object or array", token);
+                }
+                break;
+
+            case OBJECT_START:
+                if (token.type() == Type.END_OBJECT) {
+                    endObject();
+                }
+                else {
+                    key(token);
+                }
+                break;
+
+            case OBJECT_KEY:
+                key(token);
+                break;
+
+            case OBJECT_COLON:
+                if (token.type() != Type.COLON) {
+                    throw expected("token type " + Type.COLON, token);
+                }
+                stack[depth] = OBJECT_VALUE;
+                break;
+
+            case OBJECT_VALUE:
+                stack[depth] = OBJECT_NEXT;
+                value(key, token);
+                key = null;
+                break;
+
+            case OBJECT_NEXT:
+                switch (token.type()) {
+                    case COMMA:
+                        stack[depth] = OBJECT_KEY;
+                        handler.comma(token);
+                        break;
+                    case END_OBJECT:
+                        endObject();
+                        break;
+                    default:
+                        throw expected("token type " + Type.END_OBJECT, token);
+                }
+                break;
+
+            case ARRAY_START:
+                if (token.type() == Type.END_ARRAY) {
+                    endArray();
+                }
+                else {
+                    arrayValue(token);
+                }
+                break;
+
+            case ARRAY_VALUE:
+                arrayValue(token);
+                break;
+
+            case ARRAY_NEXT:
+                switch (token.type()) {
+                    case COMMA:
+                        stack[depth] = ARRAY_VALUE;
+                        handler.comma(token);
+                        break;
+                    case END_ARRAY:
+                        endArray();
+                        break;
+                    default:
+                        throw expected("token type " + Type.END_ARRAY, token);
+                }
+                break;
+
+            default:
+                throw new IllegalStateException("Invalid parser state " + stack[depth]);
+        }
+    }
+
+    private void key(Token token) {
+        if (token.type() != Type.STRING) {
+            throw expected("pair", token);
+        }
+        key = token;
+        stack[depth] = OBJECT_COLON;
+    }
+
+    private void arrayValue(Token token) {
+        stack[depth] = ARRAY_NEXT;
+        value(null, token);
+    }
+
+    private void value(Token key, Token token) {
+        switch (token.type()) {
+            case BEGIN_OBJECT:
+                beginObject(key);
+                break;
+            case BEGIN_ARRAY:
+                beginArray(key);
+                break;
+            case STRING:
+            case NUMBER:
+            case TRUE:
+            case FALSE:
+            case NULL:
+                handler.atom(key, token);
+                break;
+            default:
+                throw expected("value", token);
+        }
+    }
+
+    private void beginObject(Token key) {
+        push(OBJECT_START);
+        handler.beginObject(key);
+    }
+
+    private void endObject() {
+        depth--;
+        handler.endObject();
+    }
+
+    private void beginArray(Token key) {
+        push(ARRAY_START);
+        handler.beginArray(key);
+    }
+
+    private void endArray() {
+        depth--;
+        handler.endArray();
+    }
+
+    private void push(byte state) {
+        if (++depth == stack.length) {
+            byte[] newStack = new byte[2 * stack.length];
+            System.arraycopy(stack, 0, newStack, 0, stack.length);
+            stack = newStack;
+        }
+        stack[depth] = state;
+    }
+
+    private static ParseException expected(String what, Token token) {
+        return new ParseException(token.position(), "Expected " + what + ", found: " + token);
+    }
+
+}
@@ -0,0 +1,280 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package michid.jsonjerk;
+
+import michid.jsonjerk.Token.Type;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+
+/**
+ * This JSON tokenizer is fed with chunks of UTF-8 encoded input as they become
+ * available. It never blocks: {@link #next()} returns {@code null} when the input
+ * fed so far does not contain another complete token. Only the bytes of an
+ * incomplete token are retained between calls to {@link #feed(ByteBuffer)}.
+ * Strings are scanned incrementally such that a long string arriving in many
+ * chunks is not rescanned.
+ * <p/>
+ * Since a number can only be terminated by a subsequent character, a number at
+ * the very end of the input is only returned after {@link #end()} has been called.
+ * Positions are byte offsets from the beginning of the input.
+ * Like {@link DefaultJsonTokenizer} this tokenizer <em>does not</em> unescape
+ * JSON string values.
+ *
+ * @see PushJsonParser
+ */
+public class PushJsonTokenizer {
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+
+    private static final int INITIAL_CAPACITY = 256;
+
+    private byte[] buffer = new byte[INITIAL_CAPACITY];
+
+    /** Position of {@code buffer[0]} in the input */
+    private long offset;
+
+    /** Start of the current (possibly incomplete) token in {@code buffer} */
+    private int pos;
+
+    /** End of the valid bytes in {@code buffer} */
+    private int limit;
+
+    /** Index into {@code buffer} up to which the current string has been scanned */
+    private int scan = -1;
+
+    /** Whether the characters scanned so far end with an even number of backslashes */
+    private boolean even = true;
+
+    private boolean ended;
+
+    /**
+     * Append the remaining bytes of {@code input} to the input of this tokenizer.
+     * All bytes of {@code input} are consumed.
+     * @param input
+     * @throws IllegalStateException  if {@link #end()} has been called already
+     */
+    public void feed(ByteBuffer input) {
+        if (ended) {
+            throw new IllegalStateException("Input has ended");
+        }
+
+        compact(input.remaining());
+        int len = input.remaining();
+        input.get(buffer, limit, len);
+        limit += len;
+    }
+
+    /**
+     * Signal the end of the input
+     */
+    public void end() {
+        ended = true;
+    }
+
+    /**
+     * @return  {@code true} iff {@link #end()} has been called
+     */
+    public boolean isEnded() {
+        return ended;
+    }
+
+    /**
+     * Read the next token
+     * @return  the next token, a token of type {@link Type#EOF} if the input has
+     * {@link #end() ended} and all tokens have been read or {@code null} if more
+     * input is required to complete the next token.
+     * @throws ParseException  if a literal does not match or a string is not terminated
+     * at the end of the input.
+     */
+    public Token next() {
+        while (pos < limit && Chars.isWhiteSpace(buffer[pos])) {
+            pos++;
+        }
+        if (pos == limit) {
+            return ended
+                ? new Token(Type.EOF, "", position())
+                : null;
+        }
+
+        switch (buffer[pos]) {
+            case '{': return token(Type.BEGIN_OBJECT, "{", 1);
+            case '}': return token(Type.END_OBJECT, "}", 1);
+            case '[': return token(Type.BEGIN_ARRAY, "[", 1);
+            case ']': return token(Type.END_ARRAY, "]", 1);
+            case ':': return token(Type.COLON, ":", 1);
+            case ',': return token(Type.COMMA, ",", 1);
+            case 't': return readLiteral(Type.TRUE, "true");
+            case 'f': return readLiteral(Type.FALSE, "false");
+            case 'n': return readLiteral(Type.NULL, "null");
+            case '"': return readString();
+            default: return readNumber();
+        }
+    }
+
+    /**
+     * @return  the position of the next token
+     */
+    public long position() {
+        return offset + pos;
+    }
+
+    @Override
+    public String toString() {
+        return "PushJsonTokenizer[" + position() + ", " + (limit - pos) + " bytes pending" +
+                (ended ? ", ended]" : "]");
+    }
+
+    //------------------------------------------< package private >---
+
+    /**
+     * @return  the capacity of the buffer holding the pending input
+     */
+    int capacity() {
+        return buffer.length;
+    }
+
+    //------------------------------------------< private >---
+
+    private Token token(Type type, String text, int len) {
+        Token token = new Token(type, text, position());
+        pos += len;
+        return token;
+    }
+
+    private Token readLiteral(Type type, String text) {
+        int len = Math.min(text.length(), limit - pos);
+        for (int k = 0; k < len; k++) {
+            if (buffer[pos + k] != text.charAt(k)) {
+                throw new ParseException(position(), "Expected '" + text + ",' found: " + excerpt());
+            }
+        }
+
+        if (len < text.length()) {
+            if (ended) {
+                throw new ParseException(position(), "Expected '" + text + ",' found: " + excerpt());
+            }
+            return null;
+        }
+        else {
+            return token(type, text, len);
+        }
+    }
+
+    private Token readString() {
+        // resume scanning for the first quote character which is preceded by an
+        // even number of backslash characters where the last call left off
+        int i = scan < 0 ? pos + 1 : scan;
+        while (i < limit && !(buffer[i] == '"' && even)) {
+            even = buffer[i] != '\\' || !even;
+            i++;
+        }
+
+        if (i == limit) {
+            if (ended) {
+                throw new ParseException(position(), "Expected string, found. " + excerpt());
+            }
+            scan = i;
+            return null;
+        }
+
+        scan = -1;
+        even = true;
+        Token token = new Token(Type.STRING, new String(buffer, pos + 1, i - pos - 1, UTF8), position());
+        pos = i + 1;
+        return token;
+    }
+
+    /**
+     * Read a number or if there is no number at the current position a token of
+     * type {@link Type#UNKNOWN}.
+     */
+    private Token readNumber() {
+        int end = -1;
+        int state = Chars.NUMBER_START;
+        int i = pos;
+        while (i < limit && state != Chars.NUMBER_REJECT) {
+            state = Chars.nextNumberState(state, buffer[i++]);
+            if (state != Chars.NUMBER_REJECT && Chars.isNumberAccepting(state)) {
+                end = i;
+            }
+        }
+
+        if (state != Chars.NUMBER_REJECT && !ended) {
+            // more input might extend the number
+            return null;
+        }
+
+        Type type = Type.NUMBER;
+        if (end < 0) {
+            type = Type.UNKNOWN;
+            end = pos + 1;
+            while (end < limit && !Chars.isTokenStart(buffer[end])) {
+                end++;
+            }
+            if (end == limit && !ended) {
+                return null;
+            }
+        }
+
+        Token token = new Token(type, new String(buffer, pos, end - pos, UTF8), position());
+        pos = end;
+        return token;
+    }
+
+    /**
+     * Discard consumed bytes and make room for {@code len} more bytes. The buffer
+     * grows to hold large chunks and shrinks again once it is mostly unused such
+     * that a single large chunk does not retain its memory.
+     */
+    private void compact(int len) {
+        int pending = limit - pos;
+        int capacity = buffer.length;
+        if (pending + len > capacity) {
+            capacity = Math.max(pending + len, 2 * capacity);
+        }
+        else if (capacity > INITIAL_CAPACITY && pending + len <= capacity / 4) {
+            capacity = Math.max(INITIAL_CAPACITY, 2 * (pending + len));
+        }
+
+        if (capacity != buffer.length) {
+            byte[] newBuffer = new byte[capacity];
+            System.arraycopy(buffer, pos, newBuffer, 0, pending);
+            buffer = newBuffer;
+        }
+        else if (limit + len > buffer.length) {
+            System.arraycopy(buffer, pos, buffer, 0, pending);
+        }
+        else {
+            return;
+        }
+
+        if (scan >= 0) {
+            scan -= pos;
+        }
+        offset += pos;
+        limit = pending;
+        pos = 0;
+    }
+
+    private String excerpt() {
+        return new String(buffer, pos, Math.min(limit - pos, 40), UTF8) + "...";
+    }
+
+}
@@ -0,0 +1,481 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package michid.jsonjerk;
+
+import michid.jsonjerk.Token.Type;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.Charset;
+
+/**
+ * This JSON tokenizer operates on a {@link Reader} as its input. Instead of
+ * holding the whole document in memory, it reads the input through a fixed
+ * size buffer which is refilled as tokens are consumed. The buffer only grows
+ * when a single token does not fit into it and shrinks back to its initial size
+ * once that token is consumed.
+ * <p/>
+ * The {@link #position() position} of this tokenizer is the offset into the input.
+ * {@link #setPosition(long)} works for all positions within the retained window:
+ * the current token and up to half a buffer of characters before it. Setting
+ * the position past the end of the buffered input skips forward in the input.
+ * <p/>
+ * Like {@link DefaultJsonTokenizer} this tokenizer <em>does not</em> unescape
+ * JSON string values.
+ * <p/>
+ * Since the underlying reader can only be read once, this tokenizer cannot be
+ * {@link #copy() copied}. It is therefore not suitable for {@link LevelOrderJsonParser}.
+ * Closing the reader is the responsibility of the caller.
+ */
+public class ReaderJsonTokenizer extends JsonTokenizer {
+    public static final int DEFAULT_BUFFER_SIZE = 8192;
+
+    private static final int EOF = -1;
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+
+    private final int bufferSize;
+
+    private Reader reader;
+
+    private char[] buffer;
+
+    /** Position of the first character in {@code buffer} */
+    private long offset;
+
+    /** Number of valid characters in {@code buffer} */
+    private int limit;
+
+    /** Start position of the token being read */
+    private long start;
+
+    private long pos;
+    private boolean eof;
+
+    /**
+     * Create a tokenizer for the given reader with a buffer of
+     * {@code bufferSize} characters.
+     * @param reader
+     * @param bufferSize
+     */
+    public ReaderJsonTokenizer(Reader reader, int bufferSize) {
+        if (bufferSize < 2) {
+            throw new IllegalArgumentException("Buffer size must be at least 2: " + bufferSize);
+        }
+        this.bufferSize = bufferSize;
+        this.reader = reader;
+        buffer = new char[bufferSize];
+    }
+
+    /**
+     * Create a tokenizer for the given reader with a buffer of
+     * {@link #DEFAULT_BUFFER_SIZE} characters.
+     * @param reader
+     */
+    public ReaderJsonTokenizer(Reader reader) {
+        this(reader, DEFAULT_BUFFER_SIZE);
+    }
+
+    /**
+     * Create a tokenizer for the given input stream using the given {@code charset}
+     * @param in
+     * @param charset
+     */
+    public ReaderJsonTokenizer(InputStream in, Charset charset) {
+        this(new InputStreamReader(in, charset));
+    }
+
+    /**
+     * Create a tokenizer for the given UTF-8 encoded input stream
+     * @param in
+     */
+    public ReaderJsonTokenizer(InputStream in) {
+        this(in, UTF8);
+    }
+
+    /**
+     * Reset this tokenizer to the start of a new reader. The buffer of this
+     * tokenizer is retained for reading from {@code reader} unless it has grown
+     * beyond its initial size.
+     * @param reader
+     */
+    public void reset(Reader reader) {
+        clearCurrentToken();
+        this.reader = reader;
+        if (buffer.length > bufferSize) {
+            buffer = new char[bufferSize];
+        }
+        offset = 0;
+        limit = 0;
+        start = 0;
+        pos = 0;
+        eof = false;
+    }
+
+    @Override
+    protected Token nextToken() {
+        skipWhiteSpace();
+        start = pos;
+        int c = charAt(pos);
+        if (c == EOF) {
+            return createToken(Type.EOF, "", pos);
+        }
+
+        switch (c) {
+            case '{': return createToken(Type.BEGIN_OBJECT, "{", pos++);
+            case '}': return createToken(Type.END_OBJECT, "}", pos++);
+            case '[': return createToken(Type.BEGIN_ARRAY, "[", pos++);
+            case ']': return createToken(Type.END_ARRAY, "]", pos++);
+            case ':': return createToken(Type.COLON, ":", pos++);
+            case ',': return createToken(Type.COMMA, ",", pos++);
+            case 't': return readLiteral(Type.TRUE, "true");
+            case 'f': return readLiteral(Type.FALSE, "false");
+            case 'n': return readLiteral(Type.NULL, "null");
+            case '"': return readString();
+            default:  return isNumber() ? readNumber() : readUnknown();
+        }
+    }
+
+    @Override
+    public int pos() {
+        return peek().pos();
+    }
+
+    @Override
+    public void setPos(int pos) {
+        setPosition(pos);
+    }
+
+    @Override
+    public long position() {
+        return peek().position();
+    }
+
+    /**
+     * @throws IllegalArgumentException  if {@code position} lies before the retained window
+     */
+    @Override
+    public void setPosition(long position) {
+        if (position < offset) {
+            throw new IllegalArgumentException("Position " + position + " is not retained. " +
+                    "Oldest retained position is " + offset);
+        }
+        clearCurrentToken();
+        pos = position;
+        start = position;
+    }
+
+    /**
+     * @throws UnsupportedOperationException  always
+     */
+    @Override
+    public JsonTokenizer copy() {
+        throw new UnsupportedOperationException("Cannot copy a tokenizer which reads from a stream");
+    }
+
+    @Override
+    public String toString() {
+        return (currentToken == null ? "" : currentToken) + " " + excerpt(pos, 40);
+    }
+
+    //------------------------------------------< protected >---
+
+    /**
+     * Advance {@link #pos()} until the current character is not a
+     * whitespace character.
+     */
+    protected void skipWhiteSpace() {
+        start = pos;
+        int c = charAt(pos);
+        while (Chars.isWhiteSpace(c)) {
+            start = ++pos;
+            c = charAt(pos);
+        }
+    }
+
+    /**
+     * Factory method for creating {@link Token}s
+     * @param type
+     * @param text
+     * @param pos
+     * @return a new token
+     */
+    protected Token createToken(Type type, String text, long pos) {
+        return new Token(type, text, pos);
+    }
+
+    /**
+     * Read the literal {@code text} and create a token of the given {@code type}
+     * @param type
+     * @param text
+     * @return a new token
+     * @throws ParseException  if {@code text} cannot be read at the current position
+     */
+    protected Token readLiteral(Type type, String text) {
+        for (int k = 0; k < text.length(); k++) {
+            if (charAt(pos + k) != text.charAt(k)) {
+                throw new ParseException(pos, "Expected '" + text + ",' found: " + excerpt(pos, 40));
+            }
+        }
+
+        Token token = createToken(type, text, pos);
+        pos += text.length();
+        return token;
+    }
+
+    /**
+     * Read a JSON string and create a {@link Token.Type#STRING} token.
+     * @return a new token
+     * @throws ParseException  if no string can be read at the current position
+     */
+    protected Token readString() {
+        long i = pos + 1;
+        boolean even = true;
+
+        // starting at pos + 1, find index i of the first quote character which
+        // is preceded by an even number of backslash characters
+        int c = charAt(i);
+        while (c != EOF && !(c == '"' && even)) {
+            even = c != '\\' || !even;
+            c = charAt(++i);
+        }
+
+        if (c == EOF) {
+            throw new ParseException(pos, "Expected string, found. " + excerpt(pos, 40));
+        }
+
+        SymbolTable symbolTable = symbolTable();
+        String text = symbolTable != null && isKey(i + 1)
+            ? symbolTable.intern(buffer, (int) (pos + 1 - offset), (int) (i - offset))
+            : text(pos + 1, i);
+        Token token = createToken(Type.STRING, text, pos);
+        pos = i + 1;
+        return token;
+    }
+
+    /**
+     * Read a JSON number and create a {@link Token.Type#NUMBER} token.
+     * @return a new token
+     * @throws ParseException  if no number can be read at the current position
+     */
+    protected Token readNumber() {
+        long end = -1;
+        int state = Chars.NUMBER_START;
+        for (long i = pos; state != Chars.NUMBER_REJECT; i++) {
+            state = Chars.nextNumberState(state, charAt(i));
+            if (state != Chars.NUMBER_REJECT && Chars.isNumberAccepting(state)) {
+                end = i + 1;
+            }
+        }
+
+        if (end < 0) {
+            throw new ParseException(pos, "Expected number, found. " + excerpt(pos, 40));
+        }
+
+        Token token = createToken(Type.NUMBER, text(pos, end), pos);
+        pos = end;
+        return token;
+    }
+
+    /**
+     * Read from the current position until a new token starts and create a
+     * {@link Token.Type#UNKNOWN} token.
+     * @return a new token
+     */
+    protected Token readUnknown() {
+        long i = pos + 1;
+        int c = charAt(i);
+        while (c != EOF && !Chars.isTokenStart(c)) {
+            c = charAt(++i);
+        }
+
+        Token token = createToken(Type.UNKNOWN, text(pos, i), pos);
+        pos = i;
+        return token;
+    }
+
+    /**
+     * Skips by scanning the input for strings and structural characters. Characters
+     * skipped over are not retained.
+     */
+    @Override
+    protected void skipContainer(Type type) {
+        Skipper skipper = new Skipper(type);
+        boolean inValue = false;
+        boolean inString = false;
+        boolean even = true;
+        long stringStart = 0;
+        for (long i = pos; ; i++) {
+            int c = charAt(i);
+            start = i;
+            if (c == EOF) {
+                if (inString) {
+                    throw new ParseException(stringStart, "Expected string, found end of input");
+                }
+                throw new ParseException(i, "Unexpected end of input");
+            }
+
+            if (inString) {
+                inString = c != '"' || !even;
+                even = c != '\\' || !even;
+                continue;
+            }
+
+            switch (c) {
+                case '"':
+                    skipper.value(true, i);
+                    inString = true;
+                    even = true;
+                    stringStart = i;
+                    inValue = false;
+                    break;
+                case '{': case '}': case '[': case ']': case ':': case ',':
+                    if (skipper.structural(c, i)) {
+                        pos = i + 1;
+                        start = pos;
+                        return;
+                    }
+                    inValue = false;
+                    break;
+                default:
+                    if (Chars.isWhiteSpace(c)) {
+                        inValue = false;
+                    }
+                    else if (!inValue) {
+                        skipper.value(false, i);
+                        inValue = true;
+                    }
+            }
+        }
+    }
+
+    //------------------------------------------< package private >---
+
+    /**
+     * @return  the capacity of the buffer holding the input
+     */
+    int capacity() {
+        return buffer.length;
+    }
+
+    //------------------------------------------< private >---
+
+    private boolean isNumber() {
+        // true if first character is a digit or a sign and second character is a digit
+        int state = Chars.nextNumberState(Chars.NUMBER_START, charAt(pos));
+        if (state != Chars.NUMBER_REJECT && !Chars.isNumberAccepting(state)) {
+            state = Chars.nextNumberState(state, charAt(pos + 1));
+        }
+        return state != Chars.NUMBER_REJECT && Chars.isNumberAccepting(state);
+    }
+
+    /**
+     * @return the character at position {@code p} or {@link #EOF} if
+     * the input ends before {@code p}.
+     */
+    private int charAt(long p) {
+        if (p - offset >= limit && !fill(p)) {
+            return EOF;
+        }
+        return buffer[(int) (p - offset)];
+    }
+
+    /**
+     * @return  {@code true} iff the first character at or after {@code p}
+     * which is not white space is a colon
+     */
+    private boolean isKey(long p) {
+        int c = charAt(p);
+        while (Chars.isWhiteSpace(c)) {
+            c = charAt(++p);
+        }
+        return c == ':';
+    }
+
+    private String text(long from, long to) {
+        return new String(buffer, (int) (from - offset), (int) (to - from));
+    }
+
+    /**
+     * Read from the input until position {@code p} is in the buffer
+     * @return  {@code false} if the input ends before {@code p}
+     */
+    private boolean fill(long p) {
+        while (p - offset >= limit) {
+            if (eof) {
+                return false;
+            }
+            if (limit == buffer.length) {
+                compact();
+            }
+
+            try {
+                int n = reader.read(buffer, limit, buffer.length - limit);
+                if (n < 0) {
+                    eof = true;
+                }
+                else {
+                    limit += n;
+                }
+            }
+            catch (IOException e) {
+                throw new ParseException(p, "Error reading input", e);
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Discard characters before the retained window from the buffer. Grow the
+     * buffer if nothing can be discarded. Halve a grown buffer while the current
+     * token takes up little of it such that a single large token does not retain
+     * its memory.
+     */
+    private void compact() {
+        int capacity = buffer.length;
+        if (capacity > bufferSize && offset + limit - start <= capacity / 8) {
+            capacity = Math.max(bufferSize, capacity / 2);
+        }
+
+        int discard = (int) Math.min(limit, start - capacity / 2 - offset);
+        if (discard > 0) {
+            char[] newBuffer = capacity == buffer.length ? buffer : new char[capacity];
+            System.arraycopy(buffer, discard, newBuffer, 0, limit - discard);
+            buffer = newBuffer;
+            offset += discard;
+            limit -= discard;
+        }
+        else {
+            char[] newBuffer = new char[2 * buffer.length];
+            System.arraycopy(buffer, 0, newBuffer, 0, limit);
+            buffer = newBuffer;
+        }
+    }
+
+    private String excerpt(long p, int len) {
+        StringBuilder sb = new StringBuilder();
+        for (int c = charAt(p); c != EOF && sb.length() < len; c = charAt(++p)) {
+            sb.append((char) c);
+        }
+        return sb.append("...").toString();
+    }
+
+}
@@ -0,0 +1,199 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package michid.jsonjerk;
+
+import michid.jsonjerk.Token.Type;
+
+/**
+ * State machine for skipping over an object or an array without creating tokens.
+ * Tokenizers scan their raw input and report structural characters, strings and
+ * the first character of all other values. The skipper tracks the nesting of
+ * objects and arrays and verifies the placement of keys, values and separators.
+ * The contents of strings, numbers and literals are not validated.
+ *
+ * @see JsonTokenizer#skipValue()
+ */
+final class Skipper {
+    // States
+    private static final int KEY_OR_END = 0;      // after '{'
+    private static final int KEY = 1;             // after ',' in an object
+    private static final int COLON = 2;           // after a key
+    private static final int VALUE = 3;           // after ':' or after ',' in an array
+    private static final int VALUE_OR_END = 4;    // after '['
+    private static final int SEPARATOR = 5;       // after a value
+
+    /** Bit stack: bit {@code d} is set iff nesting level {@code d} is an object */
+    private long objects;
+
+    /** Continuation of {@link #objects} for nesting levels beyond 64, created on demand */
+    private long[] deepObjects;
+
+    private int depth;
+    private int state;
+
+    /**
+     * Create a skipper for the object or array whose opening bracket has just been read
+     * @param type  {@link Type#BEGIN_OBJECT} or {@link Type#BEGIN_ARRAY}
+     */
+    Skipper(Type type) {
+        open(type == Type.BEGIN_OBJECT);
+    }
+
+    /**
+     * A string or the first character of a number or literal has been found
+     * @param string  {@code true} for strings
+     * @param pos  position for error reporting
+     * @throws ParseException  if no value or key is expected
+     */
+    void value(boolean string, long pos) {
+        switch (state) {
+            case KEY_OR_END:
+            case KEY:
+                if (!string) {
+                    throw unexpected("value", pos);
+                }
+                state = COLON;
+                break;
+            case VALUE:
+            case VALUE_OR_END:
+                state = SEPARATOR;
+                break;
+            default:
+                throw unexpected(string ? "string" : "value", pos);
+        }
+    }
+
+    /**
+     * One of the structural characters <code>{ } [ ] : ,</code> has been found
+     * @param c
+     * @param pos  position for error reporting
+     * @return  {@code true} iff {@code c} closes the object or array being skipped
+     * @throws ParseException  if {@code c} is not expected
+     */
+    boolean structural(int c, long pos) {
+        switch (c) {
+            case '{':
+            case '[':
+                if (state != VALUE && state != VALUE_OR_END) {
+                    throw unexpected(c, pos);
+                }
+                open(c == '{');
+                return false;
+            case '}':
+                if (!isObject() || state != KEY_OR_END && state != SEPARATOR) {
+                    throw unexpected(c, pos);
+                }
+                return close();
+            case ']':
+                if (isObject() || state != VALUE_OR_END && state != SEPARATOR) {
+                    throw unexpected(c, pos);
+                }
+                return close();
+            case ':':
+                if (state != COLON) {
+                    throw unexpected(c, pos);
+                }
+                state = VALUE;
+                return false;
+            case ',':
+                if (state != SEPARATOR) {
+                    throw unexpected(c, pos);
+                }
+                state = isObject() ? KEY : VALUE;
+                return false;
+            default:
+                throw new IllegalArgumentException("Not a structural character: " + (char) c);
+        }
+    }
+
+    /**
+     * Same as {@link #structural(int, long)} for tokens
+     * @param type
+     * @param pos
+     * @return  {@code true} iff {@code type} closes the object or array being skipped
+     */
+    boolean structural(Type type, long pos) {
+        switch (type) {
+            case BEGIN_OBJECT: return structural('{', pos);
+            case END_OBJECT: return structural('}', pos);
+            case BEGIN_ARRAY: return structural('[', pos);
+            case END_ARRAY: return structural(']', pos);
+            case COLON: return structural(':', pos);
+            case COMMA: return structural(',', pos);
+            default: throw new IllegalArgumentException("Not a structural token: " + type);
+        }
+    }
+
+    //------------------------------------------< private >---
+
+    private void open(boolean object) {
+        int d = depth++;
+        if (d < 64) {
+            objects = object
+                ? objects | 1L << d
+                : objects & ~(1L << d);
+        }
+        else {
+            int k = (d >> 6) - 1;
+            if (deepObjects == null) {
+                deepObjects = new long[4];
+            }
+            else if (k == deepObjects.length) {
+                long[] newDeepObjects = new long[2 * k];
+                System.arraycopy(deepObjects, 0, newDeepObjects, 0, k);
+                deepObjects = newDeepObjects;
+            }
+            deepObjects[k] = object
+                ? deepObjects[k] | 1L << d
+                : deepObjects[k] & ~(1L << d);
+        }
+        state = object ? KEY_OR_END : VALUE_OR_END;
+    }
+
+    private boolean close() {
+        state = SEPARATOR;
+        return --depth == 0;
+    }
+
+    private boolean isObject() {
+        int d = depth - 1;
+        return d < 64
+            ? (objects >>> d & 1) != 0
+            : (deepObjects[(d >> 6) - 1] >>> d & 1) != 0;
+    }
+
+    private ParseException unexpected(int c, long pos) {
+        return unexpected("'" + (char) c + "'", pos);
+    }
+
+    private ParseException unexpected(String found, long pos) {
+        String expected;
+        switch (state) {
+            case KEY_OR_END: expected = "pair or '}'"; break;
+            case KEY: expected = "pair"; break;
+            case COLON: expected = "':'"; break;
+            case VALUE: expected = "value"; break;
+            case VALUE_OR_END: expected = "value or ']'"; break;
+            default: expected = isObject() ? "',' or '}'" : "',' or ']'";
+        }
+        return new ParseException(pos, "Expected " + expected + ", found: " + found);
+    }
+
+}
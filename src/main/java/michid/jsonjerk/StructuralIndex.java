@@ -0,0 +1,246 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package michid.jsonjerk;
+
+/**
+ * A structural index records the positions of all tokens of a JSON document:
+ * the structural characters <code>{ } [ ] : ,</code> outside of strings, the
+ * opening and closing quote of every string and the first character of every
+ * other value (numbers, literals). It is built in a single pass over the input
+ * which processes 64 characters at a time: each block is first classified into
+ * 64 bit masks, from which escaped characters, the extent of strings and the
+ * token starts are derived with bit parallel operations on {@code long} words.
+ * <p/>
+ * Consecutive entries of a string's quotes are always paired: the entry of an
+ * opening quote is followed by the entry of its closing quote. If the document
+ * ends within a string, the last entry is an unmatched opening quote.
+ * <p/>
+ * Instances are immutable and can be shared between threads and tokenizers.
+ *
+ * @see IndexedJsonTokenizer
+ */
+public final class StructuralIndex {
+    private static final long EVEN_BITS = 0x5555555555555555L;
+
+    // Character classes
+    private static final byte OTHER = 0;
+    private static final byte QUOTE = 1;
+    private static final byte BACKSLASH = 2;
+    private static final byte OPERATOR = 3;
+    private static final byte WHITE_SPACE = 4;
+
+    private static final byte[] CLASSES = new byte[128];
+
+    static {
+        CLASSES['"'] = QUOTE;
+        CLASSES['\\'] = BACKSLASH;
+        for (char c : "{}[]:,".toCharArray()) {
+            CLASSES[c] = OPERATOR;
+        }
+        for (char c : " \t\n\r".toCharArray()) {
+            CLASSES[c] = WHITE_SPACE;
+        }
+    }
+
+    private final int length;
+    private final int[] positions;
+    private final int size;
+
+    /**
+     * Build the structural index for {@code json}
+     * @param json
+     */
+    public StructuralIndex(CharSequence json) {
+        length = json.length();
+        Builder builder = new Builder(length);
+        builder.index(json);
+        positions = builder.positions;
+        size = builder.size;
+    }
+
+    /**
+     * @return  the number of entries
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @param k
+     * @return  the position of the {@code k}-th entry
+     * @throws IndexOutOfBoundsException  if {@code k} is not in the range {@code [0, size())}
+     */
+    public int get(int k) {
+        if (k < 0 || k >= size) {
+            throw new IndexOutOfBoundsException("Index: " + k + ", Size: " + size);
+        }
+        return positions[k];
+    }
+
+    /**
+     * Find the first entry at or after position {@code pos}
+     * @param pos
+     * @return  the index of the entry or {@link #size()} if there is none
+     */
+    public int find(int pos) {
+        int lo = 0;
+        int hi = size;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (positions[mid] < pos) {
+                lo = mid + 1;
+            }
+            else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+
+    /**
+     * @return  the length of the indexed document
+     */
+    public int length() {
+        return length;
+    }
+
+    @Override
+    public String toString() {
+        return "StructuralIndex[" + size + " entries, " + length + " characters]";
+    }
+
+    //------------------------------------------< private >---
+
+    /**
+     * Mask for the characters of a string between an opening quote (inclusive) and a closing
+     * quote (exclusive) given the mask of unescaped {@code quotes}: the prefix sum over
+     * GF(2) of {@code quotes}.
+     */
+    private static long prefixXor(long quotes) {
+        long mask = quotes;
+        mask ^= mask << 1;
+        mask ^= mask << 2;
+        mask ^= mask << 4;
+        mask ^= mask << 8;
+        mask ^= mask << 16;
+        mask ^= mask << 32;
+        return mask;
+    }
+
+    /**
+     * Unsigned comparison {@code a < b}
+     */
+    private static boolean lessThanUnsigned(long a, long b) {
+        return (a ^ Long.MIN_VALUE) < (b ^ Long.MIN_VALUE);
+    }
+
+    private static class Builder {
+        private final char[] block = new char[64];
+        private final long[] masks = new long[5];
+
+        private int[] positions;
+        private int size;
+
+        // Carries from the previous block
+        private long prevEscaped;
+        private long prevInString;
+        private long prevScalar;
+
+        Builder(int length) {
+            positions = new int[Math.max(16, length / 8)];
+        }
+
+        void index(CharSequence json) {
+            String string = json instanceof String ? (String) json : null;
+            int length = json.length();
+            for (int base = 0; base < length; base += 64) {
+                int n = Math.min(64, length - base);
+                if (string == null) {
+                    for (int j = 0; j < n; j++) {
+                        block[j] = json.charAt(base + j);
+                    }
+                }
+                else {
+                    string.getChars(base, base + n, block, 0);
+                }
+                indexBlock(base, n);
+            }
+        }
+
+        private void indexBlock(int base, int n) {
+            // Stage 1: classify characters into bit masks. Bit j corresponds to
+            // the character at base + j.
+            long[] masks = this.masks;
+            masks[QUOTE] = 0;
+            masks[BACKSLASH] = 0;
+            masks[OPERATOR] = 0;
+            masks[WHITE_SPACE] = 0;
+            for (int j = 0; j < n; j++) {
+                char c = block[j];
+                if (c < 128 && CLASSES[c] != OTHER) {
+                    masks[CLASSES[c]] |= 1L << j;
+                }
+            }
+            long quotes = masks[QUOTE];
+            long backslashes = masks[BACKSLASH];
+            long operators = masks[OPERATOR];
+            long whiteSpace = masks[WHITE_SPACE];
+            long valid = n == 64 ? -1L : (1L << n) - 1;
+
+            // Stage 2: characters escaped by an odd number of preceding backslashes.
+            // Runs of backslashes starting on an odd bit are shifted to start on an even bit
+            // by the carry of an addition, after which every other bit is an escaped character.
+            long backslash = backslashes & ~prevEscaped;
+            long followsEscape = backslash << 1 | prevEscaped;
+            long oddSequenceStarts = backslash & ~EVEN_BITS & ~followsEscape;
+            long sequencesStartingOnEvenBits = oddSequenceStarts + backslash;
+            prevEscaped = lessThanUnsigned(sequencesStartingOnEvenBits, backslash) ? 1 : 0;
+            long invertMask = sequencesStartingOnEvenBits << 1;
+            long escaped = (EVEN_BITS ^ invertMask) & followsEscape;
+
+            // Stage 3: strings and tokens
+            quotes &= ~escaped;
+            long inString = prefixXor(quotes) ^ prevInString;
+            prevInString = inString >> 63;
+
+            operators &= ~inString;
+            long scalar = ~(operators | whiteSpace | quotes | inString) & valid;
+            long scalarStart = scalar & ~(scalar << 1 | prevScalar);
+            prevScalar = scalar >>> 63;
+
+            // Stage 4: extract positions of set bits
+            long tokens = operators | quotes | scalarStart;
+            ensureCapacity(Long.bitCount(tokens));
+            while (tokens != 0) {
+                positions[size++] = base + Long.numberOfTrailingZeros(tokens);
+                tokens &= tokens - 1;
+            }
+        }
+
+        private void ensureCapacity(int count) {
+            if (size + count > positions.length) {
+                int[] newPositions = new int[Math.max(size + count, positions.length * 2)];
+                System.arraycopy(positions, 0, newPositions, 0, size);
+                positions = newPositions;
+            }
+        }
+    }
+
+}
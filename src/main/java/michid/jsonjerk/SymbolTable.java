@@ -0,0 +1,247 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package michid.jsonjerk;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Bounded, thread safe table of canonical strings for interning the keys of
+ * JSON objects. Tokenizers consult the table when they create the text of a
+ * key such that all occurrences of the same key share a single {@code String}
+ * instance. See {@link JsonTokenizer#setSymbolTable(SymbolTable)}.
+ * <p/>
+ * Tokenizers hash the key directly over their input and compare it against
+ * the entries in the table. No string is created if the key is found. The table
+ * is two way set associative: the hash of a key determines a set of two slots.
+ * A key found in the second slot of its set moves to the first one and a new
+ * key is put into the first slot, moving the previous key to the second slot
+ * and evicting the key there. The size of the table thus stays fixed regardless
+ * of the number of distinct keys. Two frequently used keys sharing a set do not
+ * evict each other and a frequently used key survives a stream of high
+ * cardinality keys as long as it is used again before two other keys of its set
+ * are. Keys longer than {@link #MAX_KEY_LENGTH} are not interned.
+ * <p/>
+ * A symbol table can be used for a single tokenizer, shared between
+ * tokenizers or shared process wide through {@link #shared()}.
+ */
+public final class SymbolTable {
+    public static final int DEFAULT_CAPACITY = 1024;
+    public static final int MAX_KEY_LENGTH = 64;
+
+    /** Number of slots per set */
+    static final int WAYS = 2;
+
+    private final AtomicReferenceArray<String> symbols;
+    private final int ways;
+    private final int mask;
+
+    /**
+     * Create a new symbol table with room for {@code capacity} keys.
+     * {@code capacity} is rounded up to the next power of two.
+     * @param capacity
+     * @throws IllegalArgumentException  if {@code capacity} is not within 1 and 2<sup>30</sup>
+     */
+    public SymbolTable(int capacity) {
+        if (capacity < 1 || capacity > 1 << 30) {
+            throw new IllegalArgumentException("Capacity out of range: " + capacity);
+        }
+        int size = Integer.highestOneBit(capacity);
+        if (size < capacity) {
+            size <<= 1;
+        }
+        symbols = new AtomicReferenceArray<String>(size);
+        ways = Math.min(WAYS, size);
+        mask = size / ways - 1;
+    }
+
+    /**
+     * Create a new symbol table with room for {@link #DEFAULT_CAPACITY} keys
+     */
+    public SymbolTable() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * @return  the process wide symbol table
+     */
+    public static SymbolTable shared() {
+        return Shared.INSTANCE;
+    }
+
+    /**
+     * @return  the number of keys this table can hold
+     */
+    public int capacity() {
+        return symbols.length();
+    }
+
+    /**
+     * @param key
+     * @return  the canonical instance of {@code key}
+     */
+    public String intern(String key) {
+        return intern(CHAR_SEQUENCE_KEY, key, 0, key.length(), key.hashCode());
+    }
+
+    /**
+     * @param chars
+     * @param start
+     * @param end
+     * @return  the canonical instance of the string consisting of the characters
+     * between {@code start} and {@code end}.
+     */
+    public String intern(CharSequence chars, int start, int end) {
+        int hash = 0;
+        for (int k = start; k < end; k++) {
+            hash = 31 * hash + chars.charAt(k);
+        }
+        return intern(CHAR_SEQUENCE_KEY, chars, start, end, hash);
+    }
+
+    /**
+     * @param chars
+     * @param start
+     * @param end
+     * @return  the canonical instance of the string consisting of the characters
+     * between {@code start} and {@code end}.
+     */
+    public String intern(char[] chars, int start, int end) {
+        int hash = 0;
+        for (int k = start; k < end; k++) {
+            hash = 31 * hash + chars[k];
+        }
+        return intern(CHAR_ARRAY_KEY, chars, start, end, hash);
+    }
+
+    //------------------------------------------< package private >---
+
+    /**
+     * Access to the characters of keys in the input of a tokenizer. Implementations
+     * compare the characters directly on their input such that no string is created
+     * if the key is already in the table.
+     * @param <T>  type of the input
+     */
+    abstract static class Key<T> {
+
+        /**
+         * @param input
+         * @param start
+         * @param symbol  a string of the same length as the key
+         * @return  {@code true} iff the characters of {@code input} starting at
+         * {@code start} equal those of {@code symbol}
+         */
+        abstract boolean matches(T input, long start, String symbol);
+
+        /**
+         * @param input
+         * @param start
+         * @param end
+         * @return  a new string consisting of the characters of {@code input}
+         * between {@code start} and {@code end}
+         */
+        abstract String create(T input, long start, long end);
+    }
+
+    /**
+     * Look up the key between {@code start} and {@code end} of {@code input} in the
+     * set for its hash. A key found in the second slot of the set moves to the first
+     * one. A key not found is created and put into the first slot, moving the key
+     * there to the second slot and evicting the key in the second slot.
+     * @param key
+     * @param input
+     * @param start
+     * @param end
+     * @param hash  the hash of the key as computed by {@link String#hashCode()}
+     * @return  the canonical instance of the key
+     */
+    <T> String intern(Key<T> key, T input, long start, long end, int hash) {
+        long length = end - start;
+        if (length > MAX_KEY_LENGTH) {
+            return key.create(input, start, end);
+        }
+
+        int slot = slot(hash);
+        for (int way = 0; way < ways; way++) {
+            String symbol = symbols.get(slot + way);
+            if (symbol != null && symbol.length() == length && key.matches(input, start, symbol)) {
+                if (way > 0) {
+                    // racy but benign: concurrent updates may only lose or duplicate entries
+                    symbols.lazySet(slot + way, symbols.get(slot));
+                    symbols.lazySet(slot, symbol);
+                }
+                return symbol;
+            }
+        }
+
+        String symbol = key.create(input, start, end);
+        for (int way = ways - 1; way > 0; way--) {
+            symbols.lazySet(slot + way, symbols.get(slot + way - 1));
+        }
+        symbols.lazySet(slot, symbol);
+        return symbol;
+    }
+
+    //------------------------------------------< private >---
+
+    private int slot(int hash) {
+        return ((hash ^ hash >>> 16) & mask) * ways;
+    }
+
+    private static final class Shared {
+        static final SymbolTable INSTANCE = new SymbolTable(4 * DEFAULT_CAPACITY);
+    }
+
+    private static final Key<CharSequence> CHAR_SEQUENCE_KEY = new Key<CharSequence>() {
+        @Override
+        boolean matches(CharSequence chars, long start, String symbol) {
+            int offset = (int) start;
+            for (int k = 0; k < symbol.length(); k++) {
+                if (symbol.charAt(k) != chars.charAt(offset + k)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        @Override
+        String create(CharSequence chars, long start, long end) {
+            return chars.subSequence((int) start, (int) end).toString();
+        }
+    };
+
+    private static final Key<char[]> CHAR_ARRAY_KEY = new Key<char[]>() {
+        @Override
+        boolean matches(char[] chars, long start, String symbol) {
+            int offset = (int) start;
+            for (int k = 0; k < symbol.length(); k++) {
+                if (symbol.charAt(k) != chars[offset + k]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        @Override
+        String create(char[] chars, long start, long end) {
+            return new String(chars, (int) start, (int) (end - start));
+        }
+    };
+
+}
@@ -0,0 +1,552 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package michid.jsonjerk;
+
+import michid.jsonjerk.JsonValue.JsonArray;
+import michid.jsonjerk.JsonValue.JsonAtom;
+import michid.jsonjerk.JsonValue.JsonObject;
+
+import java.util.AbstractList;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.ListIterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * Utility class for parsing JSON objects and arrays into a <em>tape</em>. In contrast
+ * to {@link FullJsonParser} this implementation does not build a tree of objects but
+ * records the structure of the document in a single {@code long[]}. The returned
+ * {@link JsonObject}s and {@link JsonArray}s are read only views on the tape, which
+ * read keys and atoms from the input of the tokenizer on demand.
+ * <p/>
+ * Each entry on the tape is a single {@code long} with a tag in its upper 4 bits.
+ * Keys and atoms store their position in the input. Objects and arrays store the
+ * number of their members together with the index of the entry following their last
+ * member, such that skipping over a nested object or array takes constant time.
+ * <p/>
+ * The tokenizer passed to the parser must support {@link JsonTokenizer#copy()} and
+ * {@link JsonTokenizer#setPosition(long)} and its input must stay available for as
+ * long as the returned values are used. All values of a tape share a single copy of
+ * the tokenizer for reading keys and atoms. Like the values returned by
+ * {@link FullJsonParser} they are thus not thread safe.
+ *
+ * @see FullJsonParser
+ * @see LevelOrderJsonParser
+ */
+public final class TapeJsonParser {
+    private TapeJsonParser() { }
+
+    /**
+     * Parse a JSON object from {@code tokenizer}
+     * @param tokenizer
+     * @return a {@code JsonObject}
+     * @throws ParseException
+     */
+    public static JsonObject parseObject(JsonTokenizer tokenizer) {
+        TapeHandler handler = new TapeHandler(tokenizer);
+        handler.object(new CursorJsonParser(handler), null, tokenizer);
+        return new TapeObject(handler.getTape(), 0);
+    }
+
+    /**
+     * Parse a JSON array from {@code tokenizer}
+     * @param tokenizer
+     * @return a {@code JsonArray}
+     * @throws ParseException
+     */
+    public static JsonArray parseArray(JsonTokenizer tokenizer) {
+        TapeHandler handler = new TapeHandler(tokenizer);
+        handler.array(new CursorJsonParser(handler), null, tokenizer);
+        return new TapeArray(handler.getTape(), 0);
+    }
+
+    //------------------------------------------< private >---
+
+    private static final int OBJECT = 1;
+    private static final int ARRAY = 2;
+    private static final int KEY = 3;
+    private static final int ATOM = 4;
+
+    private static final int TAG_SHIFT = 60;
+    private static final long PAYLOAD_MASK = (1L << TAG_SHIFT) - 1;
+    private static final int COUNT_SHIFT = 32;
+    private static final int MAX_COUNT = (1 << (TAG_SHIFT - COUNT_SHIFT)) - 1;
+
+    /**
+     * Records the tape while parsing. Containers are recorded with a place holder
+     * which is patched with the member count and the skip pointer once the container
+     * has been parsed.
+     */
+    private static class TapeHandler extends CursorHandler {
+        private final JsonTokenizer tokenizer;
+        private long[] entries = new long[64];
+        private int size;
+        private int count;
+
+        TapeHandler(JsonTokenizer tokenizer) {
+            this.tokenizer = tokenizer.copy();
+        }
+
+        @Override
+        public void atom(TokenCursor key, TokenCursor value) {
+            key(key);
+            append(ATOM, value.start());
+            count++;
+        }
+
+        @Override
+        public void object(CursorJsonParser parser, TokenCursor key, JsonTokenizer tokenizer) {
+            key(key);
+            int index = append(OBJECT, 0);
+            int outer = count;
+            count = 0;
+            parser.parseObject(tokenizer);
+            patch(index);
+            count = outer + 1;
+        }
+
+        @Override
+        public void array(CursorJsonParser parser, TokenCursor key, JsonTokenizer tokenizer) {
+            key(key);
+            int index = append(ARRAY, 0);
+            int outer = count;
+            count = 0;
+            parser.parseArray(tokenizer);
+            patch(index);
+            count = outer + 1;
+        }
+
+        Tape getTape() {
+            return new Tape(Arrays.copyOf(entries, size), tokenizer);
+        }
+
+        private void key(TokenCursor key) {
+            if (key != null) {
+                append(KEY, key.start());
+            }
+        }
+
+        private int append(int tag, long payload) {
+            if (size == entries.length) {
+                if (size == Integer.MAX_VALUE) {
+                    throw new IllegalStateException("Document too large");
+                }
+                entries = Arrays.copyOf(entries, (int) Math.min(2L * size, Integer.MAX_VALUE));
+            }
+            entries[size] = (long) tag << TAG_SHIFT | payload;
+            return size++;
+        }
+
+        private void patch(int index) {
+            entries[index] |= (long) Math.min(count, MAX_COUNT) << COUNT_SHIFT | size;
+        }
+    }
+
+    private static final class Tape {
+        private final long[] entries;
+        private final JsonTokenizer tokenizer;
+        private JsonTokenizer reader;
+
+        Tape(long[] entries, JsonTokenizer tokenizer) {
+            this.entries = entries;
+            this.tokenizer = tokenizer;
+        }
+
+        int tag(int index) {
+            return (int) (entries[index] >>> TAG_SHIFT);
+        }
+
+        /**
+         * @return  the index of the entry following the value at {@code index}
+         */
+        int next(int index) {
+            int tag = tag(index);
+            return tag == OBJECT || tag == ARRAY
+                ? (int) entries[index]
+                : index + 1;
+        }
+
+        /**
+         * @return  the number of members of the object or array at {@code index}
+         */
+        int count(int index) {
+            int count = (int) ((entries[index] & PAYLOAD_MASK) >>> COUNT_SHIFT);
+            if (count == MAX_COUNT) {
+                count = 0;
+                int end = next(index);
+                for (int k = index + 1; k < end; k = next(k)) {
+                    if (tag(k) != KEY) {
+                        count++;
+                    }
+                }
+            }
+            return count;
+        }
+
+        /**
+         * @return  the value at {@code index}
+         */
+        JsonValue value(int index) {
+            switch (tag(index)) {
+                case OBJECT: return new TapeObject(this, index);
+                case ARRAY: return new TapeArray(this, index);
+                default: return atom(cursor(index));
+            }
+        }
+
+        String key(int index) {
+            return cursor(index).text();
+        }
+
+        private static JsonAtom atom(TokenCursor cursor) {
+            return cursor.type() == Token.Type.NUMBER
+                ? cursor.numberValue()
+                : new JsonAtom(cursor.toToken());
+        }
+
+        /**
+         * Position the reader at the entry at {@code index}. Callers extract what
+         * they need from the returned cursor before accessing the next entry.
+         */
+        private TokenCursor cursor(int index) {
+            if (reader == null) {
+                reader = tokenizer.copy();
+            }
+            reader.setPosition(entries[index] & PAYLOAD_MASK);
+            return reader.cursor();
+        }
+    }
+
+    /**
+     * Read only view on an object on the tape. Like {@link FullJsonParser} the last
+     * occurrence of a duplicate key determines its value while the first occurrence
+     * determines its position in the iteration order. To this end the view reads its
+     * keys once into a table of members on first access.
+     */
+    private static class TapeObject extends JsonObject {
+        private final Tape tape;
+        private final int index;
+        private Members members;
+
+        TapeObject(Tape tape, int index) {
+            super(null);
+            this.tape = tape;
+            this.index = index;
+        }
+
+        @Override
+        public void put(String key, JsonValue value) {
+            throw new IllegalStateException("Cannot add value");
+        }
+
+        @Override
+        public JsonValue get(String key) {
+            Members members = members();
+            Integer slot = members.slots.get(key);
+            return slot == null ? null : tape.value(members.values[slot]);
+        }
+
+        @Override
+        public JsonValue remove(String key) {
+            throw new IllegalStateException("Cannot remove value");
+        }
+
+        @Override
+        public boolean isEmpty() {
+            return tape.next(index) == index + 1;
+        }
+
+        @Override
+        public Map<String, JsonValue> value() {
+            return new AbstractMap<String, JsonValue>() {
+                @Override
+                public JsonValue get(Object key) {
+                    return key instanceof String ? TapeObject.this.get((String) key) : null;
+                }
+
+                @Override
+                public boolean containsKey(Object key) {
+                    return get(key) != null;
+                }
+
+                @Override
+                public Set<Entry<String, JsonValue>> entrySet() {
+                    return new AbstractSet<Entry<String, JsonValue>>() {
+                        @Override
+                        public Iterator<Entry<String, JsonValue>> iterator() {
+                            return new MemberIterator(members());
+                        }
+
+                        @Override
+                        public int size() {
+                            return members().keys.length;
+                        }
+                    };
+                }
+            };
+        }
+
+        /**
+         * Reads the keys of this object once and resolves duplicate keys.
+         */
+        private Members members() {
+            if (members == null) {
+                int count = tape.count(index);
+                String[] keys = new String[count];
+                int[] values = new int[count];
+                Map<String, Integer> slots = new HashMap<String, Integer>(2 * count);
+                int size = 0;
+                int end = tape.next(index);
+                for (int k = index + 1; k < end; k = tape.next(k + 1)) {
+                    String key = tape.key(k);
+                    Integer slot = slots.get(key);
+                    if (slot == null) {
+                        slots.put(key, size);
+                        keys[size] = key;
+                        values[size++] = k + 1;
+                    }
+                    else {
+                        values[slot] = k + 1;
+                    }
+                }
+                if (size < count) {
+                    keys = Arrays.copyOf(keys, size);
+                    values = Arrays.copyOf(values, size);
+                }
+                members = new Members(keys, values, slots);
+            }
+            return members;
+        }
+
+        @Override
+        public String toString() {
+            return value().toString();
+        }
+
+        /**
+         * The distinct keys of an object together with the indices of their values
+         * and a map from keys to their slot in these arrays
+         */
+        private static final class Members {
+            final String[] keys;
+            final int[] values;
+            final Map<String, Integer> slots;
+
+            Members(String[] keys, int[] values, Map<String, Integer> slots) {
+                this.keys = keys;
+                this.values = values;
+                this.slots = slots;
+            }
+        }
+
+        private final class MemberIterator implements Iterator<Map.Entry<String, JsonValue>> {
+            private final Members members;
+            private int k;
+
+            MemberIterator(Members members) {
+                this.members = members;
+            }
+
+            @Override
+            public boolean hasNext() {
+                return k < members.keys.length;
+            }
+
+            @Override
+            public Map.Entry<String, JsonValue> next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                Map.Entry<String, JsonValue> entry = new AbstractMap.SimpleImmutableEntry<String, JsonValue>(
+                        members.keys[k], tape.value(members.values[k]));
+                k++;
+                return entry;
+            }
+
+            @Override
+            public void remove() {
+                throw new UnsupportedOperationException();
+            }
+        }
+    }
+
+    /**
+     * Read only view on an array on the tape. The view records the indices of its
+     * elements on first access such that indexed access takes constant time.
+     */
+    private static class TapeArray extends JsonArray {
+        private final Tape tape;
+        private final int index;
+        private int[] elements;
+
+        TapeArray(Tape tape, int index) {
+            super(null);
+            this.tape = tape;
+            this.index = index;
+        }
+
+        @Override
+        public void add(JsonValue value) {
+            throw new IllegalStateException("Cannot add value");
+        }
+
+        @Override
+        public boolean remove(JsonValue value) {
+            throw new IllegalStateException("Cannot remove value");
+        }
+
+        @Override
+        public JsonValue get(int index) {
+            int[] elements = elements();
+            if (index < 0 || index >= elements.length) {
+                throw new IndexOutOfBoundsException(String.valueOf(index));
+            }
+            return tape.value(elements[index]);
+        }
+
+        @Override
+        public int size() {
+            return elements == null
+                ? tape.count(index)
+                : elements.length;
+        }
+
+        @Override
+        public boolean isEmpty() {
+            return tape.next(index) == index + 1;
+        }
+
+        @Override
+        public List<JsonValue> value() {
+            return new AbstractList<JsonValue>() {
+                @Override
+                public JsonValue get(int index) {
+                    return TapeArray.this.get(index);
+                }
+
+                @Override
+                public int size() {
+                    return TapeArray.this.size();
+                }
+
+                @Override
+                public Iterator<JsonValue> iterator() {
+                    return listIterator(0);
+                }
+
+                @Override
+                public ListIterator<JsonValue> listIterator(int index) {
+                    if (index < 0 || index > size()) {
+                        throw new IndexOutOfBoundsException(String.valueOf(index));
+                    }
+                    return new ElementIterator(index);
+                }
+            };
+        }
+
+        @Override
+        public String toString() {
+            return value().toString();
+        }
+
+        private int[] elements() {
+            if (elements == null) {
+                int[] elements = new int[tape.count(index)];
+                int end = tape.next(index);
+                int i = 0;
+                for (int k = index + 1; k < end; k = tape.next(k)) {
+                    elements[i++] = k;
+                }
+                this.elements = elements;
+            }
+            return elements;
+        }
+
+        /**
+         * Read only iterator over the elements of this array
+         */
+        private final class ElementIterator implements ListIterator<JsonValue> {
+            private final int[] elements = elements();
+            private int k;
+
+            ElementIterator(int k) {
+                this.k = k;
+            }
+
+            @Override
+            public boolean hasNext() {
+                return k < elements.length;
+            }
+
+            @Override
+            public JsonValue next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                return tape.value(elements[k++]);
+            }
+
+            @Override
+            public boolean hasPrevious() {
+                return k > 0;
+            }
+
+            @Override
+            public JsonValue previous() {
+                if (!hasPrevious()) {
+                    throw new NoSuchElementException();
+                }
+                return tape.value(elements[--k]);
+            }
+
+            @Override
+            public int nextIndex() {
+                return k;
+            }
+
+            @Override
+            public int previousIndex() {
+                return k - 1;
+            }
+
+            @Override
+            public void remove() {
+                throw new UnsupportedOperationException();
+            }
+
+            @Override
+            public void set(JsonValue value) {
+                throw new UnsupportedOperationException();
+            }
+
+            @Override
+            public void add(JsonValue value) {
+                throw new UnsupportedOperationException();
+            }
+        }
+    }
+
+}
@@ -25,16 +25,23 @@ package michid.jsonjerk;
  * {@link #pos() position} which refers to its place in the originating
  * JSON document. Note that the position is <em>not</em> taken into account
  * for equality.
+ * <p/>
+ * Subclasses may override {@link #text()} to compute the text of the token
+ * lazily from the underlying input.
  */
-public final class Token {
+public class Token {
     private final Type type;
     private final String text;
-    private final int pos;
+    private final long pos;
 
     public enum Type {BEGIN_OBJECT, END_OBJECT, BEGIN_ARRAY, END_ARRAY, COLON, COMMA, EOF, TRUE,
         FALSE, NULL, STRING, NUMBER, UNKNOWN}
 
     public Token(Type type, String text, int pos) {
+        this(type, text, (long) pos);
+    }
+
+    public Token(Type type, String text, long pos) {
         this.type = type;
         this.text = text;
         this.pos = pos;
@@ -48,13 +55,36 @@ public final class Token {
         return text;
     }
 
+    /**
+     * @return  the characters of the text of this token. Subclasses may override
+     * this to return a view on their input without creating the text.
+     */
+    CharSequence chars() {
+        return text();
+    }
+
+    /**
+     * @return  the position of this token
+     * @throws IllegalStateException  if the position does not fit into an {@code int}.
+     * Use {@link #position()} for inputs larger than 2 GB.
+     */
     public int pos() {
+        if (pos > Integer.MAX_VALUE) {
+            throw new IllegalStateException("Position exceeds int range: " + pos);
+        }
+        return (int) pos;
+    }
+
+    /**
+     * @return  the position of this token as 64 bit offset
+     */
+    public long position() {
         return pos;
     }
 
     @Override
     public String toString() {
-        return "Token[" + type + ", " + text + ", " + pos + ']';
+        return "Token[" + type + ", " + text() + ", " + pos + ']';
     }
 
     @Override
@@ -70,7 +100,7 @@ public final class Token {
     public boolean equals(Object other) {
         if (other instanceof Token) {
             Token that = (Token) other;
-            return that.type == type && that.text.equals(text);
+            return that.type == type && that.text().equals(text());
         }
         else {
             return false;
@@ -0,0 +1,213 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package michid.jsonjerk;
+
+import michid.jsonjerk.JsonValue.JsonNumber;
+import michid.jsonjerk.Token.Type;
+
+/**
+ * A token cursor is a mutable view on a token of a JSON document. In contrast to
+ * {@link Token} a cursor is reused for all tokens read by a {@link JsonTokenizer}.
+ * It exposes the {@link Type type} of the token together with its {@link #start() start}
+ * and {@link #end() end} position in the input. The text and numeric value of the
+ * token are only extracted from the input on demand.
+ * <p/>
+ * A cursor is only valid until the tokenizer it belongs to advances to the next token.
+ * Use {@link #toToken()} to retain a token.
+ *
+ * @see JsonTokenizer#cursor()
+ */
+public final class TokenCursor {
+    private final JsonTokenizer tokenizer;
+
+    private Type type;
+    private long start;
+    private long end;
+    private Token token;
+    private boolean consumed = true;
+
+    TokenCursor(JsonTokenizer tokenizer) {
+        this.tokenizer = tokenizer;
+    }
+
+    /**
+     * @return  the type of the token
+     */
+    public Type type() {
+        return type;
+    }
+
+    /**
+     * @return  the position of the token
+     * @see Token#position()
+     */
+    public long start() {
+        return start;
+    }
+
+    /**
+     * @return  the position right after the token or {@code -1} if the
+     * tokenizer does not provide the end position.
+     */
+    public long end() {
+        return end;
+    }
+
+    /**
+     * @return  the text of the token
+     * @see Token#text()
+     */
+    public String text() {
+        return token == null
+            ? tokenizer.text(this)
+            : token.text();
+    }
+
+    /**
+     * Compare the text of the token with {@code text}. Tokenizers implement this
+     * without extracting the text from the input where possible.
+     * @param text
+     * @return  {@code true} iff {@code text} equals the text of the token.
+     */
+    public boolean textEquals(String text) {
+        return token == null
+            ? tokenizer.textEquals(this, text)
+            : token.text().equals(text);
+    }
+
+    /**
+     * @return  the value of a {@link Type#NUMBER} token as {@code long}
+     * @throws NumberFormatException  if the token is not an integral number in
+     * the range of {@code long}
+     */
+    public long longValue() {
+        if (token == null) {
+            return tokenizer.longValue(this);
+        }
+        else {
+            String text = token.text();
+            return Numbers.parseLong(text, 0, text.length());
+        }
+    }
+
+    /**
+     * @return  the value of a {@link Type#NUMBER} token as {@code double}
+     * @throws NumberFormatException  if the token is not a number
+     */
+    public double doubleValue() {
+        if (token == null) {
+            return tokenizer.doubleValue(this);
+        }
+        else {
+            String text = token.text();
+            return Numbers.parseDouble(text, 0, text.length());
+        }
+    }
+
+    /**
+     * Create a {@link JsonNumber} for a {@link Type#NUMBER} token. Tokenizers decode
+     * integral numbers directly from the input without extracting the text where possible.
+     * @return  the value of a {@link Type#NUMBER} token as {@code JsonNumber}
+     */
+    public JsonNumber numberValue() {
+        if (token == null) {
+            return tokenizer.numberValue(this);
+        }
+        else {
+            String text = token.text();
+            return JsonNumber.valueOf(text, 0, text.length());
+        }
+    }
+
+    /**
+     * @return  a {@code Token} for the token at this cursor
+     */
+    public Token toToken() {
+        return token == null
+            ? tokenizer.createToken(this)
+            : token;
+    }
+
+    /**
+     * Set the state of this cursor. For use by {@link JsonTokenizer} implementations.
+     * @param type
+     * @param start
+     * @param end
+     */
+    public void set(Type type, long start, long end) {
+        this.type = type;
+        this.start = start;
+        this.end = end;
+        token = null;
+        consumed = false;
+    }
+
+    /**
+     * Set the state of this cursor from {@code token}. For use by {@link JsonTokenizer}
+     * implementations which cannot provide the token state without creating a
+     * {@code Token} instance.
+     * @param token
+     */
+    public void set(Token token) {
+        type = token.type();
+        start = token.position();
+        end = -1;
+        this.token = token;
+        consumed = false;
+    }
+
+    /**
+     * Set the state of this cursor from {@code cursor}.
+     * @param cursor
+     */
+    public void set(TokenCursor cursor) {
+        type = cursor.type;
+        start = cursor.start;
+        end = cursor.end;
+        token = cursor.token;
+        consumed = cursor.consumed;
+    }
+
+    @Override
+    public String toString() {
+        return "TokenCursor[" + type + ", " + (type == null ? "" : text()) + ", " + start + ']';
+    }
+
+    //------------------------------------------< package private >---
+
+    Token token() {
+        return token;
+    }
+
+    boolean isConsumed() {
+        return consumed;
+    }
+
+    void consume() {
+        consumed = true;
+    }
+
+    void clear() {
+        type = null;
+        token = null;
+        consumed = true;
+    }
+
+}
@@ -24,6 +24,14 @@ import michid.jsonjerk.Token.Type;
 /**
  * This JSON tokenizer operates on a string as its input. In contrast to
  * {@link DefaultJsonTokenizer} it <em>does</em> unescape JSON string values.
+ * <p/>
+ * Unescaping is lazy: the text of a string token is only unescaped when it
+ * is actually read through {@link Token#text()} or {@link TokenCursor#text()}.
+ * Strings without escape sequences are returned as is, without copying.
+ * {@link TokenCursor#textEquals(String)} compares keys against the escaped
+ * form in the input without unescaping. Since unescaping is deferred, invalid
+ * escape sequences are reported by the call reading the text rather than by
+ * the call reading the token.
  */
 public class UnescapingJsonTokenizer extends DefaultJsonTokenizer {
     public UnescapingJsonTokenizer(String json) {
@@ -46,22 +54,54 @@ public class UnescapingJsonTokenizer extends DefaultJsonTokenizer {
 
     @Override
     protected Token createToken(Type type, String text, int pos) {
-        return super.createToken(type, type == Type.STRING ? unescape(text) : text, pos);
+        return type == Type.STRING && isEscaped(pos)
+            ? new EscapedToken(text, pos)
+            : super.createToken(type, text, pos);
+    }
+
+    @Override
+    protected String text(TokenCursor cursor) {
+        String text = super.text(cursor);
+        return cursor.type() == Type.STRING ? unescape(text, cursor.start()) : text;
+    }
+
+    @Override
+    protected boolean textEquals(TokenCursor cursor, String text) {
+        return unescapedTextEquals(cursor, text);
     }
 
     //------------------------------------------< private >---
     
-    private String unescape(String text) {
+    private static String unescape(String text, long pos) {
         try {
             return JsonValue.unescape(text);
         }
         catch (IndexOutOfBoundsException e) {
-            throw new ParseException(pos(), "Invalid character escaping in string", e);
+            throw new ParseException(pos, "Invalid character escaping in string", e);
         }
         catch (NumberFormatException e) {
-            throw new ParseException(pos(), "Invalid character escaping in string", e);
+            throw new ParseException(pos, "Invalid character escaping in string", e);
         }
     }
 
+    /**
+     * String token containing escape sequences. The text is unescaped on
+     * first access.
+     */
+    private static final class EscapedToken extends Token {
+        private String text;
+
+        EscapedToken(String escaped, long pos) {
+            super(Type.STRING, escaped, pos);
+        }
+
+        @Override
+        public String text() {
+            if (text == null) {
+                text = unescape(super.text(), position());
+            }
+            return text;
+        }
+    }
 
 }
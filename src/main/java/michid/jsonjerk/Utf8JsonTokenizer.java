@@ -0,0 +1,678 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package michid.jsonjerk;
+
+import michid.jsonjerk.JsonValue.JsonNumber;
+import michid.jsonjerk.Token.Type;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+
+/**
+ * This JSON tokenizer operates on UTF-8 encoded bytes as its input. It scans
+ * the bytes directly without decoding them into a string first. The text of
+ * {@link Type#STRING}, {@link Type#NUMBER} and {@link Type#UNKNOWN} tokens is
+ * only decoded when {@link Token#text()} is called. Like {@link DefaultJsonTokenizer}
+ * this tokenizer <em>does not</em> unescape JSON string values.
+ * <p/>
+ * Positions are byte offsets relative to the position the input buffer had
+ * when this tokenizer was created. The tokenizer does not modify the position
+ * nor the limit of the buffer. Since the text of tokens is decoded lazily, the
+ * content of the buffer must not change while its tokens are in use.
+ * <p/>
+ * Subclasses may provide inputs larger than 2 GB as a sequence of segments. Use
+ * {@link #position()} and {@link #setPosition(long)} for such inputs.
+ *
+ * @see MappedJsonTokenizer
+ */
+public class Utf8JsonTokenizer extends JsonTokenizer {
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+
+    /** All segments, {@code null} if the input consists of a single segment only */
+    private ByteBuffer[] segments;
+
+    /** The input if it consists of a single segment, {@code null} otherwise */
+    private ByteBuffer json;
+
+    private int segmentShift;
+    private long segmentMask;
+    private long length;
+
+    private long pos;
+
+    /** View on numbers in cursor mode, created on demand */
+    private AsciiSequence ascii;
+
+    /**
+     * Create a tokenizer for the given UTF-8 encoded bytes
+     * @param json
+     */
+    public Utf8JsonTokenizer(byte[] json) {
+        this(ByteBuffer.wrap(json));
+    }
+
+    /**
+     * Create a tokenizer for the UTF-8 encoded bytes between the position
+     * and the limit of the given buffer.
+     * @param json
+     */
+    public Utf8JsonTokenizer(ByteBuffer json) {
+        init(json);
+    }
+
+    /**
+     * Create a tokenizer for the UTF-8 encoded bytes in {@code segments}. Each
+     * segment but the last must contain exactly {@code 1 << segmentShift} bytes
+     * between its position and its limit.
+     * @param segments
+     * @param segmentShift
+     */
+    protected Utf8JsonTokenizer(ByteBuffer[] segments, int segmentShift) {
+        if (segmentShift < 1 || segmentShift > 30) {
+            throw new IllegalArgumentException("Segment shift out of range: " + segmentShift);
+        }
+
+        this.segments = new ByteBuffer[segments.length];
+        this.segmentShift = segmentShift;
+        segmentMask = (1L << segmentShift) - 1;
+
+        long length = 0;
+        for (int k = 0; k < segments.length; k++) {
+            this.segments[k] = segments[k].slice();
+            if (k < segments.length - 1 && this.segments[k].limit() != 1 << segmentShift) {
+                throw new IllegalArgumentException("Invalid size of segment " + k + ": " +
+                        this.segments[k].limit());
+            }
+            length += this.segments[k].limit();
+        }
+
+        this.length = length;
+        json = null;
+    }
+
+    /**
+     * @see JsonTokenizer#JsonTokenizer(JsonTokenizer)
+     */
+    protected Utf8JsonTokenizer(Utf8JsonTokenizer tokenizer) {
+        super(tokenizer);
+        segments = tokenizer.segments;
+        json = tokenizer.json;
+        segmentShift = tokenizer.segmentShift;
+        segmentMask = tokenizer.segmentMask;
+        length = tokenizer.length;
+        pos = tokenizer.pos;
+    }
+
+    /**
+     * Reset this tokenizer to the start of new UTF-8 encoded input. This allows
+     * reusing a tokenizer instance across inputs.
+     * @param json
+     */
+    public void reset(byte[] json) {
+        reset(ByteBuffer.wrap(json));
+    }
+
+    /**
+     * Reset this tokenizer to the start of the UTF-8 encoded bytes between the
+     * position and the limit of the given buffer. This allows reusing a tokenizer
+     * instance across inputs.
+     * @param json
+     */
+    public void reset(ByteBuffer json) {
+        clearCurrentToken();
+        init(json);
+        pos = 0;
+    }
+
+    @Override
+    protected Token nextToken() {
+        skipWhiteSpace();
+        if (pos >= length) {
+            return createToken(Type.EOF, "", pos);
+        }
+
+        switch (byteAt(pos)) {
+            case '{': return createToken(Type.BEGIN_OBJECT, "{", pos++);
+            case '}': return createToken(Type.END_OBJECT, "}", pos++);
+            case '[': return createToken(Type.BEGIN_ARRAY, "[", pos++);
+            case ']': return createToken(Type.END_ARRAY, "]", pos++);
+            case ':': return createToken(Type.COLON, ":", pos++);
+            case ',': return createToken(Type.COMMA, ",", pos++);
+            case 't': return readLiteral(Type.TRUE, "true");
+            case 'f': return readLiteral(Type.FALSE, "false");
+            case 'n': return readLiteral(Type.NULL, "null");
+            case '"': return readString();
+            default:  return isNumber() ? readNumber() : readUnknown();
+        }
+    }
+
+    @Override
+    protected void nextToken(TokenCursor cursor) {
+        skipWhiteSpace();
+        long start = pos;
+        if (pos >= length) {
+            cursor.set(Type.EOF, start, start);
+            return;
+        }
+
+        Type type;
+        switch (byteAt(pos)) {
+            case '{': type = Type.BEGIN_OBJECT; pos++; break;
+            case '}': type = Type.END_OBJECT; pos++; break;
+            case '[': type = Type.BEGIN_ARRAY; pos++; break;
+            case ']': type = Type.END_ARRAY; pos++; break;
+            case ':': type = Type.COLON; pos++; break;
+            case ',': type = Type.COMMA; pos++; break;
+            case 't': type = Type.TRUE; pos = scanLiteral("true"); break;
+            case 'f': type = Type.FALSE; pos = scanLiteral("false"); break;
+            case 'n': type = Type.NULL; pos = scanLiteral("null"); break;
+            case '"': type = Type.STRING; pos = scanString(pos) + 1; break;
+            default:
+                if (isNumber()) {
+                    type = Type.NUMBER;
+                    pos = scanNumber();
+                }
+                else {
+                    type = Type.UNKNOWN;
+                    pos = scanUnknown();
+                }
+        }
+        cursor.set(type, start, pos);
+    }
+
+    @Override
+    protected Token createToken(TokenCursor cursor) {
+        return createToken(cursor.type(), textStart(cursor), textEnd(cursor), cursor.start());
+    }
+
+    @Override
+    protected String text(TokenCursor cursor) {
+        SymbolTable symbolTable = symbolTable();
+        return symbolTable != null && cursor.type() == Type.STRING && isKey(cursor.end())
+            ? intern(symbolTable, textStart(cursor), textEnd(cursor))
+            : decode(textStart(cursor), textEnd(cursor));
+    }
+
+    @Override
+    protected boolean textEquals(TokenCursor cursor, String text) {
+        long i = textStart(cursor);
+        long end = textEnd(cursor);
+        for (int k = 0; k < text.length(); k++) {
+            char c = text.charAt(k);
+            if (c >= 0x80) {
+                return text(cursor).equals(text);
+            }
+            if (i >= end || byteAt(i++) != c) {
+                return false;
+            }
+        }
+        return i == end;
+    }
+
+    @Override
+    protected long longValue(TokenCursor cursor) {
+        CharSequence chars = ascii(cursor);
+        return Numbers.parseLong(chars, 0, chars.length());
+    }
+
+    @Override
+    protected double doubleValue(TokenCursor cursor) {
+        CharSequence chars = ascii(cursor);
+        return Numbers.parseDouble(chars, 0, chars.length());
+    }
+
+    @Override
+    protected JsonNumber numberValue(TokenCursor cursor) {
+        CharSequence chars = ascii(cursor);
+        return JsonNumber.valueOf(chars, 0, chars.length());
+    }
+
+    @Override
+    public int pos() {
+        return peek().pos();
+    }
+
+    @Override
+    public void setPos(int pos) {
+        setPosition(pos);
+    }
+
+    @Override
+    public long position() {
+        return peek().position();
+    }
+
+    @Override
+    public void setPosition(long position) {
+        clearCurrentToken();
+        pos = position;
+    }
+
+    /**
+     * @return  the number of bytes of the input
+     */
+    public long length() {
+        return length;
+    }
+
+    @Override
+    public String toString() {
+        return (currentToken == null ? "" : currentToken) + " " + excerpt(pos, 1000);
+    }
+
+    @Override
+    public Utf8JsonTokenizer copy() {
+        return new Utf8JsonTokenizer(this);
+    }
+
+    //------------------------------------------< protected >---
+
+    /**
+     * Advance {@link #pos()} until the current byte is not a
+     * whitespace character.
+     */
+    protected void skipWhiteSpace() {
+        while (pos < length && Chars.isWhiteSpace(byteAt(pos))) {
+            pos++;
+        }
+    }
+
+    /**
+     * Factory method for creating {@link Token}s with a given text
+     * @param type
+     * @param text
+     * @param pos
+     * @return a new token
+     */
+    protected Token createToken(Type type, String text, long pos) {
+        return new Token(type, text, pos);
+    }
+
+    /**
+     * Factory method for creating {@link Token}s whose text is decoded
+     * on demand from the bytes between {@code start} and {@code end}.
+     * @param type
+     * @param start
+     * @param end
+     * @param pos
+     * @return a new token
+     */
+    protected Token createToken(Type type, long start, long end, long pos) {
+        return new Utf8Token(type, start, end, pos);
+    }
+
+    /**
+     * Read the literal {@code text} and create a token of the given {@code type}
+     * @param type
+     * @param text
+     * @return a new token
+     * @throws ParseException  if {@code text} cannot be read at the current position
+     */
+    protected Token readLiteral(Type type, String text) {
+        long end = scanLiteral(text);
+        Token token = createToken(type, text, pos);
+        pos = end;
+        return token;
+    }
+
+    /**
+     * Read a JSON string and create a {@link Token.Type#STRING} token.
+     * @return a new token
+     * @throws ParseException  if no string can be read at the current position
+     */
+    protected Token readString() {
+        long i = scanString(pos);
+        SymbolTable symbolTable = symbolTable();
+        Token token = symbolTable != null && isKey(i + 1)
+            ? createToken(Type.STRING, intern(symbolTable, pos + 1, i), pos)
+            : createToken(Type.STRING, pos + 1, i, pos);
+        pos = i + 1;
+        return token;
+    }
+
+    /**
+     * Read a JSON number and create a {@link Token.Type#NUMBER} token.
+     * @return a new token
+     * @throws ParseException  if no number can be read at the current position
+     */
+    protected Token readNumber() {
+        long i = scanNumber();
+        Token token = createToken(Type.NUMBER, pos, i, pos);
+        pos = i;
+        return token;
+    }
+
+    /**
+     * Read from the current position until a new token starts and create a
+     * {@link Token.Type#UNKNOWN} token.
+     * @return a new token
+     */
+    protected Token readUnknown() {
+        long start = pos;
+        pos = scanUnknown();
+        return createToken(Type.UNKNOWN, start, pos, start);
+    }
+
+    /**
+     * Skips by scanning the input for strings and structural characters
+     */
+    @Override
+    protected void skipContainer(Type type) {
+        Skipper skipper = new Skipper(type);
+        boolean inValue = false;
+        for (long i = pos; i < length; i++) {
+            byte b = byteAt(i);
+            switch (b) {
+                case '"':
+                    skipper.value(true, i);
+                    i = scanString(i);
+                    inValue = false;
+                    break;
+                case '{': case '}': case '[': case ']': case ':': case ',':
+                    if (skipper.structural(b, i)) {
+                        pos = i + 1;
+                        return;
+                    }
+                    inValue = false;
+                    break;
+                default:
+                    if (Chars.isWhiteSpace(b)) {
+                        inValue = false;
+                    }
+                    else if (!inValue) {
+                        skipper.value(false, i);
+                        inValue = true;
+                    }
+            }
+        }
+        throw new ParseException(length, "Unexpected end of input");
+    }
+
+    /**
+     * Decode the UTF-8 encoded bytes between {@code start} and {@code end}
+     * @param start
+     * @param end
+     * @return  the decoded string
+     */
+    protected String decode(long start, long end) {
+        int len = (int) (end - start);
+        if (json != null && json.hasArray()) {
+            return new String(json.array(), json.arrayOffset() + (int) start, len, UTF8);
+        }
+        else {
+            byte[] bytes = new byte[len];
+            for (int k = 0; k < len; ) {
+                ByteBuffer segment = segment(start + k).duplicate();
+                segment.position(index(start + k));
+                int n = Math.min(len - k, segment.remaining());
+                segment.get(bytes, k, n);
+                k += n;
+            }
+            return new String(bytes, UTF8);
+        }
+    }
+
+    //------------------------------------------< private >---
+
+    private void init(ByteBuffer json) {
+        segments = null;
+        this.json = json.slice();
+        segmentShift = 31;
+        segmentMask = Integer.MAX_VALUE;
+        length = this.json.limit();
+    }
+
+    /**
+     * @return  the end position of the literal {@code text} at the current position
+     * @throws ParseException  if {@code text} cannot be read at the current position
+     */
+    private long scanLiteral(String text) {
+        int len = text.length();
+        if (pos + len > length) {
+            throw new ParseException(pos, "Expected '" + text + ",' found: " + excerpt(pos, 40));
+        }
+        for (int k = 0; k < len; k++) {
+            if (byteAt(pos + k) != text.charAt(k)) {
+                throw new ParseException(pos, "Expected '" + text + ",' found: " + excerpt(pos, 40));
+            }
+        }
+        return pos + len;
+    }
+
+    /**
+     * @return  the position of the quote terminating the string at {@code start}
+     * @throws ParseException  if no string can be read at {@code start}
+     */
+    private long scanString(long start) {
+        long i;
+        boolean found = false;
+        boolean even = true;
+
+        // starting at start + 1, find index i of the first quote character which is
+        // preceded by an even number of backslash characters. This is safe on UTF-8
+        // since bytes of multi byte sequences are never in the ASCII range.
+        for (i = start + 1; i < length && !(found = byteAt(i) == '"' && even); i++) {
+            even = byteAt(i) != '\\' || !even;
+        }
+
+        if (found) {
+            return i;
+        }
+        else {
+            throw new ParseException(start, "Expected string, found. " + excerpt(start, 40));
+        }
+    }
+
+    /**
+     * @return  the end position of the longest number at the current position
+     * @throws ParseException  if no number can be read at the current position
+     */
+    private long scanNumber() {
+        long end = -1;
+        int state = Chars.NUMBER_START;
+        for (long i = pos; i < length; i++) {
+            state = Chars.nextNumberState(state, byteAt(i));
+            if (state == Chars.NUMBER_REJECT) {
+                break;
+            }
+            if (Chars.isNumberAccepting(state)) {
+                end = i + 1;
+            }
+        }
+
+        if (end < 0) {
+            throw new ParseException(pos, "Expected number, found. " + excerpt(pos, 40));
+        }
+        return end;
+    }
+
+    /**
+     * @return  the position where the next token after the current position starts
+     */
+    private long scanUnknown() {
+        long i = pos + 1;
+        while (i < length && !Chars.isTokenStart(byteAt(i)))  {
+            i++;
+        }
+        return i;
+    }
+
+    /**
+     * @return  {@code true} iff the first byte at or after {@code pos}
+     * which is not white space is a colon
+     */
+    private boolean isKey(long pos) {
+        while (pos < length && Chars.isWhiteSpace(byteAt(pos))) {
+            pos++;
+        }
+        return pos < length && byteAt(pos) == ':';
+    }
+
+    /**
+     * Intern the text between {@code start} and {@code end} through {@code symbolTable}.
+     * ASCII text is hashed and compared directly on the input bytes such that
+     * no string is created if it is already in the table.
+     */
+    private String intern(SymbolTable symbolTable, long start, long end) {
+        int length = (int) (end - start);
+        if (length > SymbolTable.MAX_KEY_LENGTH) {
+            return decode(start, end);
+        }
+
+        int hash = 0;
+        for (long p = start; p < end; p++) {
+            byte b = byteAt(p);
+            if (b < 0) {
+                return symbolTable.intern(decode(start, end));
+            }
+            hash = 31 * hash + b;
+        }
+        return symbolTable.intern(ASCII_KEY, this, start, end, hash);
+    }
+
+    private static long textStart(TokenCursor cursor) {
+        return cursor.type() == Type.STRING ? cursor.start() + 1 : cursor.start();
+    }
+
+    private static long textEnd(TokenCursor cursor) {
+        return cursor.type() == Type.STRING ? cursor.end() - 1 : cursor.end();
+    }
+
+    private CharSequence ascii(TokenCursor cursor) {
+        if (ascii == null) {
+            ascii = new AsciiSequence();
+        }
+        ascii.start = cursor.start();
+        ascii.length = (int) (cursor.end() - cursor.start());
+        return ascii;
+    }
+
+    private byte byteAt(long pos) {
+        return json == null
+            ? segments[(int) (pos >>> segmentShift)].get((int) (pos & segmentMask))
+            : json.get((int) pos);
+    }
+
+    private ByteBuffer segment(long pos) {
+        return json == null
+            ? segments[(int) (pos >>> segmentShift)]
+            : json;
+    }
+
+    private int index(long pos) {
+        return (int) (pos & segmentMask);
+    }
+
+    private boolean isNumber() {
+        // true if first byte is a digit or a sign and second byte is a digit
+        int state = Chars.nextNumberState(Chars.NUMBER_START, byteAt(pos));
+        if (state != Chars.NUMBER_REJECT && !Chars.isNumberAccepting(state) && pos + 1 < length) {
+            state = Chars.nextNumberState(state, byteAt(pos + 1));
+        }
+        return state != Chars.NUMBER_REJECT && Chars.isNumberAccepting(state);
+    }
+
+    private String excerpt(long pos, int len) {
+        return decode(pos, Math.min(length, pos + len)) + "...";
+    }
+
+    /**
+     * Character sequence view on ASCII encoded bytes of the input
+     */
+    private class AsciiSequence implements CharSequence {
+        private long start;
+        private int length;
+
+        @Override
+        public int length() {
+            return length;
+        }
+
+        @Override
+        public char charAt(int index) {
+            return (char) byteAt(start + index);
+        }
+
+        @Override
+        public CharSequence subSequence(int start, int end) {
+            return decode(this.start + start, this.start + end);
+        }
+
+        @Override
+        public String toString() {
+            return decode(start, start + length);
+        }
+    }
+
+    /**
+     * Keys consisting of ASCII encoded bytes of the input
+     */
+    private static final SymbolTable.Key<Utf8JsonTokenizer> ASCII_KEY = new SymbolTable.Key<Utf8JsonTokenizer>() {
+        @Override
+        boolean matches(Utf8JsonTokenizer tokenizer, long start, String symbol) {
+            for (int k = 0; k < symbol.length(); k++) {
+                if (symbol.charAt(k) != tokenizer.byteAt(start + k)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        @Override
+        String create(Utf8JsonTokenizer tokenizer, long start, long end) {
+            return tokenizer.decode(start, end);
+        }
+    };
+
+    /**
+     * Token whose text is decoded from the input on first access.
+     */
+    private class Utf8Token extends Token {
+        private final long start;
+        private final long end;
+        private String text;
+
+        public Utf8Token(Type type, long start, long end, long pos) {
+            super(type, null, pos);
+            this.start = start;
+            this.end = end;
+        }
+
+        @Override
+        public String text() {
+            if (text == null) {
+                text = decode(start, end);
+            }
+            return text;
+        }
+
+        @Override
+        CharSequence chars() {
+            if (text == null && type() == Type.NUMBER) {
+                // numbers are ASCII
+                AsciiSequence chars = new AsciiSequence();
+                chars.start = start;
+                chars.length = (int) (end - start);
+                return chars;
+            }
+            return text();
+        }
+    }
+}
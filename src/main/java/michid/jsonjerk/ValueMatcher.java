@@ -0,0 +1,169 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package michid.jsonjerk;
+
+import michid.jsonjerk.Token.Type;
+
+/**
+ * Single pass matching of the values of a JSON document against a state machine
+ * of type {@code S}. Subclasses define the transitions for keys and indices and
+ * receive the matching values. Only branches with a state are parsed, all other
+ * branches are skipped. Matching stops once a subclass calls {@link #stop()}.
+ *
+ * @see JsonPath
+ * @see JsonProjection
+ */
+abstract class ValueMatcher<S> {
+
+    /**
+     * Match the document at the current position of {@code tokenizer} starting
+     * from the state {@code root}
+     * @param root
+     * @param tokenizer
+     * @throws ParseException
+     */
+    final void match(S root, JsonTokenizer tokenizer) {
+        Token token = tokenizer.peek();
+        if (token.type() != Type.BEGIN_OBJECT && token.type() != Type.BEGIN_ARRAY) {
+            throw new ParseException(token.position(), "Expected object or array, found: " + token);
+        }
+
+        try {
+            value(root, token.type(), tokenizer);
+        }
+        catch (StopException ignore) {
+            // no more matches possible
+        }
+    }
+
+    /**
+     * @return  the state after entering the member with {@code key} or at {@code index}
+     * from {@code state} or {@code null} if no match is possible within that member.
+     */
+    abstract S transition(S state, Token key, int index);
+
+    /**
+     * @return  {@code true} iff the value at {@code state} is a match
+     */
+    abstract boolean isMatch(S state);
+
+    /**
+     * @return  {@code true} iff the value at {@code state} may contain matches
+     */
+    abstract boolean isPrefix(S state);
+
+    /**
+     * Receive the atom {@code value} at {@code state}
+     * @param state
+     * @param value
+     */
+    abstract void atom(S state, Token value);
+
+    /**
+     * Receive the object or array {@code value} at {@code state}, which is a
+     * {@link #isMatch(Object) match}
+     * @param state
+     * @param value
+     */
+    abstract void value(S state, JsonValue value);
+
+    /**
+     * Stop matching
+     */
+    static void stop() {
+        throw StopException.STOP;
+    }
+
+    //------------------------------------------< private >---
+
+    private void value(S state, Type type, JsonTokenizer tokenizer) {
+        boolean match = isMatch(state);
+        boolean descend = isPrefix(state);
+        if (match) {
+            // parse from a copy if the value needs to be searched for further matches
+            JsonTokenizer source = descend ? tokenizer.copy() : tokenizer;
+            value(state, type == Type.BEGIN_OBJECT
+                ? LevelOrderJsonParser.parseObject(source)
+                : LevelOrderJsonParser.parseArray(source));
+        }
+
+        if (descend) {
+            JsonParser parser = new JsonParser(new MemberHandler(state));
+            if (type == Type.BEGIN_OBJECT) {
+                parser.parseObject(tokenizer);
+            }
+            else {
+                parser.parseArray(tokenizer);
+            }
+        }
+        else if (!match) {
+            tokenizer.skipValue();
+        }
+    }
+
+    private static class StopException extends RuntimeException {
+        private static final StopException STOP = new StopException();
+    }
+
+    /**
+     * Handler for the members of a single object or array
+     */
+    private class MemberHandler extends JsonHandler {
+        private final S state;
+        private int index;
+
+        MemberHandler(S state) {
+            this.state = state;
+        }
+
+        @Override
+        public void atom(Token key, Token value) {
+            S next = transition(state, key, index(key));
+            if (next != null) {
+                ValueMatcher.this.atom(next, value);
+            }
+        }
+
+        @Override
+        public void object(JsonParser parser, Token key, JsonTokenizer tokenizer) {
+            member(key, Type.BEGIN_OBJECT, tokenizer);
+        }
+
+        @Override
+        public void array(JsonParser parser, Token key, JsonTokenizer tokenizer) {
+            member(key, Type.BEGIN_ARRAY, tokenizer);
+        }
+
+        private void member(Token key, Type type, JsonTokenizer tokenizer) {
+            S next = transition(state, key, index(key));
+            if (next == null) {
+                tokenizer.skipValue();
+            }
+            else {
+                value(next, type, tokenizer);
+            }
+        }
+
+        private int index(Token key) {
+            return key == null ? index++ : -1;
+        }
+    }
+
+}
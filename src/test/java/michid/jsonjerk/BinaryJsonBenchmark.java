@@ -0,0 +1,189 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package michid.jsonjerk;
+
+import michid.jsonjerk.JsonValue.JsonArray;
+
+import java.nio.charset.Charset;
+import java.util.Arrays;
+
+/**
+ * Compares decoding documents in the {@link BinaryJson binary encoding} with
+ * parsing their JSON text: into {@code JsonValue}s, through a {@link JsonHandler}
+ * receiving all atoms and through a {@link CursorHandler} summing up a field.
+ * Run with the number of records as optional argument.
+ */
+public class BinaryJsonBenchmark {
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+    private static final int ITERATIONS = 10;
+
+    public static void main(String[] args) {
+        int count = args.length > 0 ? Integer.parseInt(args[0]) : 100000;
+        String json = records(count);
+        byte[] text = json.getBytes(UTF8);
+
+        JsonArray value = FullJsonParser.parseArray(new DefaultJsonTokenizer(json));
+        BinaryJson binaryJson = new BinaryJson();
+        byte[] binary = binaryJson.encode(value);
+        BinaryJson dictionaryJson = new BinaryJson(Arrays.asList("id", "name", "price", "tags", "owner", "active"));
+        byte[] dictionaryBinary = dictionaryJson.encode(value);
+
+        System.out.println(count + " records");
+        System.out.println(String.format("  %-34s %10d bytes", "JSON text (UTF-8)", text.length));
+        System.out.println(String.format("  %-34s %10d bytes", "binary", binary.length));
+        System.out.println(String.format("  %-34s %10d bytes", "binary with dictionary", dictionaryBinary.length));
+
+        for (int run = 0; run < 2; run++) {
+            System.out.println(run == 0 ? "warm up" : "measure");
+            report("JsonValue from DefaultJsonTokenizer", parseValue(json));
+            report("JsonValue from Utf8JsonTokenizer", parseValue(text));
+            report("JsonValue from binary", decode(binaryJson, binary));
+            report("JsonHandler on DefaultJsonTokenizer", parseHandler(json));
+            report("JsonHandler on Utf8JsonTokenizer", parseHandler(text));
+            report("JsonHandler on binary", parseHandler(binaryJson, binary));
+            report("CursorHandler on Utf8JsonTokenizer", parseCursor(new Utf8JsonTokenizer(text)));
+            report("CursorHandler on binary", parseCursor(binaryJson.tokenizer(binary)));
+            report("encode binary", encode(binaryJson, value));
+        }
+    }
+
+    private static long parseValue(String json) {
+        long t0 = System.nanoTime();
+        for (int k = 0; k < ITERATIONS; k++) {
+            FullJsonParser.parseArray(new DefaultJsonTokenizer(json));
+        }
+        return System.nanoTime() - t0;
+    }
+
+    private static long parseValue(byte[] text) {
+        long t0 = System.nanoTime();
+        for (int k = 0; k < ITERATIONS; k++) {
+            FullJsonParser.parseArray(new Utf8JsonTokenizer(text));
+        }
+        return System.nanoTime() - t0;
+    }
+
+    private static long decode(BinaryJson binaryJson, byte[] binary) {
+        long t0 = System.nanoTime();
+        for (int k = 0; k < ITERATIONS; k++) {
+            binaryJson.decode(binary);
+        }
+        return System.nanoTime() - t0;
+    }
+
+    private static long parseHandler(String json) {
+        CountingHandler handler = new CountingHandler();
+        long t0 = System.nanoTime();
+        for (int k = 0; k < ITERATIONS; k++) {
+            new JsonParser(handler).parseArray(new DefaultJsonTokenizer(json));
+        }
+        return handler.check(System.nanoTime() - t0);
+    }
+
+    private static long parseHandler(byte[] text) {
+        CountingHandler handler = new CountingHandler();
+        long t0 = System.nanoTime();
+        for (int k = 0; k < ITERATIONS; k++) {
+            new JsonParser(handler).parseArray(new Utf8JsonTokenizer(text));
+        }
+        return handler.check(System.nanoTime() - t0);
+    }
+
+    private static long parseHandler(BinaryJson binaryJson, byte[] binary) {
+        CountingHandler handler = new CountingHandler();
+        long t0 = System.nanoTime();
+        for (int k = 0; k < ITERATIONS; k++) {
+            binaryJson.parse(binary, handler);
+        }
+        return handler.check(System.nanoTime() - t0);
+    }
+
+    private static long parseCursor(JsonTokenizer tokenizer) {
+        CountingCursorHandler handler = new CountingCursorHandler();
+        long t0 = System.nanoTime();
+        for (int k = 0; k < ITERATIONS; k++) {
+            new CursorJsonParser(handler).parseArray(tokenizer.copy());
+        }
+        return handler.check(System.nanoTime() - t0);
+    }
+
+    private static long encode(BinaryJson binaryJson, JsonValue value) {
+        long t0 = System.nanoTime();
+        for (int k = 0; k < ITERATIONS; k++) {
+            binaryJson.encode(value);
+        }
+        return System.nanoTime() - t0;
+    }
+
+    private static String records(int count) {
+        StringBuilder json = new StringBuilder(count * 200);
+        json.append('[');
+        for (int k = 0; k < count; k++) {
+            if (k > 0) {
+                json.append(",\n");
+            }
+            json.append("{\"id\":").append(k).append(",\"name\":\"record ").append(k).append("\",")
+                .append("\"price\":").append(k % 1000).append(".5,\"tags\":[\"a\",\"b\"],")
+                .append("\"owner\":{\"name\":\"owner ").append(k % 100).append("\",\"active\":")
+                .append(k % 2 == 0).append("}}");
+        }
+        return json.append(']').toString();
+    }
+
+    private static void report(String name, long nanos) {
+        System.out.println(String.format("  %-34s %10.2f ms/op", name, nanos / 1e6 / ITERATIONS));
+    }
+
+    private static class CountingCursorHandler extends CursorHandler {
+        private long count;
+
+        @Override
+        public void atom(TokenCursor key, TokenCursor value) {
+            if (key != null && key.textEquals("id")) {
+                count += value.longValue();
+            }
+        }
+
+        long check(long nanos) {
+            if (count == 0) {
+                throw new AssertionError();
+            }
+            return nanos;
+        }
+    }
+
+    private static class CountingHandler extends JsonHandler {
+        private long count;
+
+        @Override
+        public void atom(Token key, Token value) {
+            if (value.text() != null) {
+                count++;
+            }
+        }
+
+        long check(long nanos) {
+            if (count == 0) {
+                throw new AssertionError();
+            }
+            return nanos;
+        }
+    }
+}
@@ -0,0 +1,326 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package michid.jsonjerk;
+
+import michid.jsonjerk.JsonValue.JsonArray;
+import michid.jsonjerk.JsonValue.JsonAtom;
+import michid.jsonjerk.JsonValue.JsonObject;
+import michid.jsonjerk.Token.Type;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class BinaryJsonTest {
+    private static final BinaryJson BINARY_JSON = new BinaryJson();
+
+    @Test
+    public void testRoundTrip() {
+        for (String file : new String[] {"/test1.json", "/test2.json"}) {
+            JsonValue value = FullJsonParser.parseValue(new DefaultJsonTokenizer(JsonParserTest.readFile(file)));
+            byte[] data = BINARY_JSON.encode(value);
+
+            JsonValue decoded = BINARY_JSON.decode(data);
+            assertEquals(file, value.toJson(), decoded.toJson());
+            assertEquals(file, value, decoded);
+        }
+    }
+
+    @Test
+    public void testAtoms() {
+        String[] jsons = {
+            "null", "true", "false", "\"\"", "\"a\\\"b\\\\c\\n\"", "\"\\u00e9\\u20ac\\ud83d\\ude00\"",
+            "\"0123456789012345678901234567890123456789\"",
+            "0", "-1", "30", "31", "-31", "-32", "127", "128", "-129", "9223372036854775807",
+            "-9223372036854775808", "1.5", "-0.25", "1.0E20", "4.9E-324", "1e3", "0.10", "-0",
+            "12345678901234567890", "1.5E+3", "-0.0", "0.000001", "123.456", "-99.990",
+            "12345678.1234567890", "123456789.1234567890"
+        };
+
+        for (String json : jsons) {
+            JsonValue value = FullJsonParser.parseValue(new UnescapingJsonTokenizer(json));
+            JsonValue decoded = BINARY_JSON.decode(BINARY_JSON.encode(value));
+            assertEquals(json, value.toJson(), decoded.toJson());
+            assertEquals(json, value, decoded);
+        }
+    }
+
+    @Test
+    public void testUnpairedSurrogates() {
+        String[] strings = {
+            "a\ud83db", "\ude00", "\ud83d\ud83d\ude00", "x\ude00\ud83d", "\ud800\udbff\udc00\udfff"
+        };
+
+        for (String string : strings) {
+            JsonValue value = JsonAtom.string(string);
+            JsonValue decoded = BINARY_JSON.decode(BINARY_JSON.encode(value));
+            assertEquals(string, decoded.asAtom().value());
+        }
+
+        JsonValue object = new JsonObject(Collections.<String, JsonValue>singletonMap("k\udc00", JsonAtom.string("v")));
+        assertEquals(object, BINARY_JSON.decode(BINARY_JSON.encode(object)));
+    }
+
+    @Test
+    public void testMalformedUtf8() {
+        byte[] data = BINARY_JSON.encode(JsonAtom.string("\u00e9\u20ac\ud83d\ude00"));
+        int start = data.length - 9;
+        assertEquals((byte) 0xc3, data[start]);
+
+        for (byte[] bytes : new byte[][] {
+                {(byte) 0x80}, {(byte) 0xc3, (byte) 0x41}, {(byte) 0xc1, (byte) 0xbf}, {(byte) 0xe0, (byte) 0x80, (byte) 0x80},
+                {(byte) 0xf4, (byte) 0x90, (byte) 0x80, (byte) 0x80}, {(byte) 0xff}}) {
+            byte[] malformed = data.clone();
+            System.arraycopy(bytes, 0, malformed, start, bytes.length);
+            assertMalformed(malformed);
+        }
+    }
+
+    @Test
+    public void testContainers() {
+        String[] jsons = {
+            "{}", "[]", "[[],{}]", "{\"a\":{\"b\":{\"c\":[1,2,{\"d\":null}]}}}", "[1,2.5,-3]",
+            "[1,\"a\",true]", "{\"a\":1,\"b\":\"x\",\"a2\":[1],\"b\":2}", longArray(1000),
+            "{\"" + string(200) + "\":\"" + string(300) + "\"}"
+        };
+
+        for (String json : jsons) {
+            JsonValue value = FullJsonParser.parseValue(new DefaultJsonTokenizer(json));
+            JsonValue decoded = BINARY_JSON.decode(BINARY_JSON.encode(value));
+            assertEquals(json, value.toJson(), decoded.toJson());
+        }
+    }
+
+    @Test
+    public void testParsers() {
+        String json = JsonParserTest.readFile("/test2.json");
+        JsonObject expected = FullJsonParser.parseObject(new DefaultJsonTokenizer(json));
+        byte[] data = BINARY_JSON.encode(expected);
+
+        assertEquals(expected, FullJsonParser.parseObject(BINARY_JSON.tokenizer(data)));
+        assertEquals(expected, LevelOrderJsonParser.parseObject(BINARY_JSON.tokenizer(data)));
+        assertEquals(expected, TapeJsonParser.parseObject(BINARY_JSON.tokenizer(data)));
+    }
+
+    @Test
+    public void testTokens() {
+        String json = "{\"a\":[1,\"x\",null],\"b\":{},\"c\":-2.5}";
+        JsonTokenizer expected = new DefaultJsonTokenizer(json);
+        JsonTokenizer actual = BINARY_JSON.tokenizer(
+                BINARY_JSON.encode(FullJsonParser.parseObject(new DefaultJsonTokenizer(json))));
+
+        Token token;
+        do {
+            token = expected.read();
+            assertEquals(token, actual.read());
+        } while (token.type() != Type.EOF);
+    }
+
+    @Test
+    public void testCursor() {
+        String json = JsonParserTest.readFile("/test1.json");
+        JsonTokenizer expected = new DefaultJsonTokenizer(json);
+        JsonTokenizer actual = BINARY_JSON.tokenizer(
+                BINARY_JSON.encode(FullJsonParser.parseValue(new DefaultJsonTokenizer(json))));
+
+        TokenCursor cursor;
+        do {
+            Token token = expected.read();
+            cursor = actual.advance();
+            assertEquals(token.type(), cursor.type());
+            assertEquals(token.text(), cursor.text());
+            assertTrue(cursor.textEquals(token.text()));
+            assertEquals(token, cursor.toToken());
+            if (token.type() == Type.NUMBER) {
+                assertEquals(JsonAtom.atom(token), cursor.numberValue());
+            }
+        } while (cursor.type() != Type.EOF);
+    }
+
+    @Test
+    public void testHandler() {
+        String json = "{\"a\":[1,2],\"b\":{\"c\":true},\"d\":\"e\"}";
+        final List<String> atoms = new ArrayList<String>();
+        JsonHandler handler = new JsonHandler() {
+            @Override
+            public void atom(Token key, Token value) {
+                atoms.add((key == null ? "" : key.text() + '=') + value.text());
+            }
+        };
+
+        BINARY_JSON.parse(BINARY_JSON.encode(FullJsonParser.parseObject(new DefaultJsonTokenizer(json))), handler);
+        assertEquals(Arrays.asList("1", "2", "c=true", "d=e"), atoms);
+    }
+
+    @Test
+    public void testSkip() {
+        JsonValue value = FullJsonParser.parseValue(new DefaultJsonTokenizer(
+                "{\"a\":" + longArray(10000) + ",\"b\":{\"c\":" + longArray(100) + "},\"d\":7}"));
+        JsonTokenizer tokenizer = BINARY_JSON.tokenizer(BINARY_JSON.encode(value));
+
+        tokenizer.read(Type.BEGIN_OBJECT);
+        assertEquals("a", tokenizer.read(Type.STRING).text());
+        tokenizer.read(Type.COLON);
+        tokenizer.skipValue();
+        tokenizer.read(Type.COMMA);
+        assertEquals("b", tokenizer.read(Type.STRING).text());
+        tokenizer.read(Type.COLON);
+        tokenizer.skipValue();
+        tokenizer.read(Type.COMMA);
+        assertEquals("d", tokenizer.read(Type.STRING).text());
+        tokenizer.read(Type.COLON);
+        assertEquals(7, tokenizer.advance(Type.NUMBER).numberValue().asLong());
+        tokenizer.read(Type.END_OBJECT);
+        tokenizer.read(Type.EOF);
+    }
+
+    @Test
+    public void testNestedContainers() throws IOException {
+        // lengths of the nested containers cross the varint boundaries at 128 and 16384 bytes
+        StringBuilder json = new StringBuilder("\"" + string(20) + "\"");
+        for (int k = 0; k < 300; k++) {
+            String first = k == 150 ? '"' + string(16300) + '"' : "1";
+            json.insert(0, k % 2 == 0 ? '[' + first + ',' : "{\"k\":[").append(k % 2 == 0 ? ",2]" : "]}");
+        }
+        JsonValue value = FullJsonParser.parseValue(new DefaultJsonTokenizer(json.toString()));
+        byte[] data = BINARY_JSON.encode(value);
+        assertEquals(value, BINARY_JSON.decode(data));
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        BINARY_JSON.encode(value, out);
+        assertArrayEquals(data, out.toByteArray());
+
+        JsonTokenizer tokenizer = BINARY_JSON.tokenizer(data);
+        tokenizer.skipValue();
+        tokenizer.read(Type.EOF);
+    }
+
+    @Test
+    public void testSetPosition() {
+        JsonValue value = FullJsonParser.parseValue(new DefaultJsonTokenizer("[{\"a\":1},[2,3],\"x\"]"));
+        JsonTokenizer tokenizer = BINARY_JSON.tokenizer(BINARY_JSON.encode(value));
+        List<Long> positions = new ArrayList<Long>();
+        tokenizer.read(Type.BEGIN_ARRAY);
+        for (int k = 0; k < 3; k++) {
+            if (k > 0) {
+                tokenizer.read(Type.COMMA);
+            }
+            positions.add(tokenizer.position());
+            tokenizer.skipValue();
+        }
+
+        tokenizer.setPosition(positions.get(1));
+        assertEquals(value.asArray().get(1), FullJsonParser.parseValue(tokenizer));
+        tokenizer.setPosition(positions.get(0));
+        assertEquals(value.asArray().get(0), FullJsonParser.parseValue(tokenizer.copy()));
+        tokenizer.setPosition(positions.get(2));
+        assertEquals(JsonAtom.string("x"), FullJsonParser.parseValue(tokenizer));
+    }
+
+    @Test
+    public void testDictionary() {
+        JsonValue value = FullJsonParser.parseValue(new DefaultJsonTokenizer(
+                "[{\"name\":\"a\",\"value\":1,\"other\":2},{\"name\":\"b\",\"value\":3}]"));
+        BinaryJson binaryJson = new BinaryJson(Arrays.asList("name", "value"));
+
+        byte[] data = binaryJson.encode(value);
+        assertTrue(data.length < BINARY_JSON.encode(value).length);
+        assertEquals(value, binaryJson.decode(data));
+
+        try {
+            BINARY_JSON.decode(data);
+            fail();
+        }
+        catch (ParseException expected) { }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testDuplicateDictionaryKeys() {
+        new BinaryJson(Arrays.asList("a", "b", "a"));
+    }
+
+    @Test
+    public void testEncodeToStream() throws IOException {
+        JsonValue value = FullJsonParser.parseValue(new DefaultJsonTokenizer(JsonParserTest.readFile("/test1.json")));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        BINARY_JSON.encode(value, out);
+        assertArrayEquals(BINARY_JSON.encode(value), out.toByteArray());
+    }
+
+    @Test
+    public void testOffset() {
+        JsonValue value = FullJsonParser.parseValue(new DefaultJsonTokenizer("{\"a\":[1,2]}"));
+        byte[] data = BINARY_JSON.encode(value);
+        byte[] padded = new byte[data.length + 6];
+        System.arraycopy(data, 0, padded, 3, data.length);
+        assertEquals(value, BINARY_JSON.decode(padded, 3, data.length));
+    }
+
+    @Test
+    public void testMalformed() {
+        byte[] data = BINARY_JSON.encode(FullJsonParser.parseValue(new DefaultJsonTokenizer(
+                "{\"a\":[1,2,\"" + string(100) + "\"],\"b\":{\"c\":1.5}}")));
+
+        assertMalformed(new byte[0]);
+        assertMalformed(new byte[] {'{', '}'});
+        assertMalformed(Arrays.copyOf(data, data.length + 1));
+        for (int length = 0; length < data.length; length++) {
+            assertMalformed(Arrays.copyOf(data, length));
+        }
+    }
+
+    //------------------------------------------< private >---
+
+    private static void assertMalformed(byte[] data) {
+        try {
+            BINARY_JSON.decode(data);
+            fail(Arrays.toString(data));
+        }
+        catch (ParseException expected) { }
+    }
+
+    private static String longArray(int count) {
+        StringBuilder json = new StringBuilder("[");
+        for (int k = 0; k < count; k++) {
+            if (k > 0) {
+                json.append(',');
+            }
+            json.append(k % 3 == 0 ? "\"s" + k + '"' : String.valueOf(k * 1000));
+        }
+        return json.append(']').toString();
+    }
+
+    private static String string(int length) {
+        StringBuilder s = new StringBuilder(length);
+        for (int k = 0; k < length; k++) {
+            s.append((char) ('a' + k % 26));
+        }
+        return s.toString();
+    }
+}
@@ -0,0 +1,128 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package michid.jsonjerk;
+
+import michid.jsonjerk.JsonValue.JsonArray;
+import michid.jsonjerk.JsonValue.JsonObject;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map.Entry;
+
+/**
+ * Compares the memory footprint of a record heavy document parsed into
+ * {@link CompactJsonObject}s with the same document held in {@code JsonObject}s
+ * backed by {@code LinkedHashMap}s. Keys are interned in both cases such that
+ * only the overhead of the object representation is measured. Run with the
+ * number of records as optional argument.
+ */
+public class CompactJsonObjectBenchmark {
+
+    public static void main(String[] args) throws InterruptedException {
+        int count = args.length > 0 ? Integer.parseInt(args[0]) : 200000;
+        String json = records(count);
+        System.out.println(count + " records, " + json.length() + " chars");
+
+        for (int run = 0; run < 2; run++) {
+            System.out.println(run == 0 ? "warm up" : "measure");
+
+            long before = usedMemory();
+            JsonArray compact = parse(json);
+            long compactBytes = usedMemory() - before;
+
+            before = usedMemory();
+            JsonArray linked = toLinked(parse(json));
+            long linkedBytes = usedMemory() - before;
+
+            report("LinkedHashMap", linkedBytes, count);
+            report("CompactJsonObject", compactBytes, count);
+
+            // keep both alive until here
+            if (compact.size() != linked.size()) {
+                throw new AssertionError();
+            }
+        }
+    }
+
+    private static JsonArray parse(String json) {
+        DefaultJsonTokenizer tokenizer = new DefaultJsonTokenizer(json);
+        tokenizer.setSymbolTable(new SymbolTable());
+        return FullJsonParser.parseArray(tokenizer);
+    }
+
+    /**
+     * Deep copy {@code array} replacing all objects with objects backed by a {@code LinkedHashMap}
+     */
+    private static JsonArray toLinked(JsonArray array) {
+        List<JsonValue> values = new ArrayList<JsonValue>(array.size());
+        for (JsonValue value : array.value()) {
+            values.add(toLinked(value));
+        }
+        return new JsonArray(values);
+    }
+
+    private static JsonValue toLinked(JsonValue value) {
+        if (value.isObject()) {
+            LinkedHashMap<String, JsonValue> map = new LinkedHashMap<String, JsonValue>();
+            for (Entry<String, JsonValue> entry : value.asObject().value().entrySet()) {
+                map.put(entry.getKey(), toLinked(entry.getValue()));
+            }
+            return new JsonObject(map);
+        }
+        else if (value.isArray()) {
+            return toLinked(value.asArray());
+        }
+        else {
+            return value;
+        }
+    }
+
+    private static String records(int count) {
+        StringBuilder json = new StringBuilder(count * 200);
+        json.append('[');
+        for (int k = 0; k < count; k++) {
+            if (k > 0) {
+                json.append(",\n");
+            }
+            json.append("{\"id\":").append(k).append(",\"name\":\"record ").append(k).append("\",")
+                .append("\"price\":").append(k % 1000).append(".5,\"tags\":[\"a\",\"b\"],")
+                .append("\"owner\":{\"name\":\"owner ").append(k % 100).append("\",\"active\":")
+                .append(k % 2 == 0).append("}}");
+        }
+        return json.append(']').toString();
+    }
+
+    private static long usedMemory() throws InterruptedException {
+        Runtime runtime = Runtime.getRuntime();
+        long used = Long.MAX_VALUE;
+        for (int k = 0; k < 5; k++) {
+            System.gc();
+            Thread.sleep(50);
+            used = Math.min(used, runtime.totalMemory() - runtime.freeMemory());
+        }
+        return used;
+    }
+
+    private static void report(String name, long bytes, int records) {
+        System.out.println(String.format("  %-34s %10.2f MB %10.2f bytes/record",
+                name, bytes / 1024.0 / 1024.0, (double) bytes / records));
+    }
+}
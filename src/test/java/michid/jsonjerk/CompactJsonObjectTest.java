@@ -0,0 +1,223 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package michid.jsonjerk;
+
+import michid.jsonjerk.JsonValue.JsonArray;
+import michid.jsonjerk.JsonValue.JsonAtom;
+import michid.jsonjerk.JsonValue.JsonObject;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class CompactJsonObjectTest {
+
+    @Test
+    public void testSharedShapes() {
+        JsonArray array = FullJsonParser.parseArray(new DefaultJsonTokenizer(
+                "[{\"a\":1,\"b\":2},{\"a\":3,\"b\":4},{\"b\":5,\"a\":6},{}]"));
+
+        CompactJsonObject o0 = (CompactJsonObject) array.get(0);
+        CompactJsonObject o1 = (CompactJsonObject) array.get(1);
+        CompactJsonObject o2 = (CompactJsonObject) array.get(2);
+        assertNotNull(o0.shape());
+        assertSame(o0.shape(), o1.shape());
+        assertNotSame(o0.shape(), o2.shape());
+        assertSame(CompactJsonObject.Shape.ROOT, ((CompactJsonObject) array.get(3)).shape());
+
+        assertEquals(JsonAtom.number(3), o1.get("a"));
+        assertEquals(JsonAtom.number(6), o2.get("a"));
+        assertNull(o2.get("c"));
+        assertTrue(array.get(3).asObject().isEmpty());
+    }
+
+    @Test
+    public void testContract() {
+        CompactJsonObject object = new CompactJsonObject();
+        Map<String, JsonValue> expected = new LinkedHashMap<String, JsonValue>();
+        for (int k = 0; k < 20; k++) {
+            object.put("k" + k, JsonAtom.number(k));
+            expected.put("k" + k, JsonAtom.number(k));
+        }
+        object.put("k3", JsonAtom.TRUE);
+        expected.put("k3", JsonAtom.TRUE);
+        object.value().put("x", JsonAtom.NULL);
+        expected.put("x", JsonAtom.NULL);
+
+        assertEquals(expected, object.value());
+        assertEquals(new JsonObject(expected), object);
+        assertEquals(new JsonObject(expected).hashCode(), object.hashCode());
+        assertEquals(new ArrayList<String>(expected.keySet()), new ArrayList<String>(object.value().keySet()));
+        assertEquals(new JsonObject(expected).toJson(), object.toJson());
+        assertTrue(object.value().containsKey("k19"));
+        assertFalse(object.value().containsKey("k20"));
+        assertNotNull(object.shape());
+
+        for (Entry<String, JsonValue> entry : object.value().entrySet()) {
+            if (entry.getKey().equals("k5")) {
+                entry.setValue(JsonAtom.FALSE);
+            }
+        }
+        assertEquals(JsonAtom.FALSE, object.get("k5"));
+    }
+
+    @Test
+    public void testFallbackOnRemove() {
+        JsonObject object = FullJsonParser.parseObject(new DefaultJsonTokenizer(
+                "{\"a\":1,\"b\":2,\"c\":3}"));
+        assertNull(object.remove("x"));
+        assertNotNull(((CompactJsonObject) object).shape());
+
+        assertEquals(JsonAtom.number(2), object.remove("b"));
+        assertNull(((CompactJsonObject) object).shape());
+        assertNull(object.get("b"));
+        object.put("d", JsonAtom.number(4));
+
+        List<String> keys = new ArrayList<String>();
+        for (String key : object.value().keySet()) {
+            keys.add(key);
+        }
+        assertEquals("[a, c, d]", keys.toString());
+        assertEquals("{\"a\":1,\"c\":3,\"d\":4}", object.toJson());
+
+        // the shape of other objects is not affected
+        JsonObject other = FullJsonParser.parseObject(new DefaultJsonTokenizer(
+                "{\"a\":1,\"b\":2,\"c\":3}"));
+        assertNotNull(((CompactJsonObject) other).shape());
+        assertEquals(JsonAtom.number(2), other.get("b"));
+    }
+
+    @Test
+    public void testFallbackOnSize() {
+        CompactJsonObject object = new CompactJsonObject();
+        for (int k = 0; k <= CompactJsonObject.MAX_SHAPE_SIZE; k++) {
+            object.put("key" + k, JsonAtom.number(k));
+        }
+        assertNull(object.shape());
+        for (int k = 0; k <= CompactJsonObject.MAX_SHAPE_SIZE; k++) {
+            assertEquals(JsonAtom.number(k), object.get("key" + k));
+        }
+    }
+
+    @Test
+    public void testTransitionEviction() {
+        String prefix = "evict" + System.nanoTime();
+        CompactJsonObject first = new CompactJsonObject();
+        first.put(prefix, JsonAtom.TRUE);
+        for (int k = 0; k < 2 * CompactJsonObject.MAX_TRANSITIONS; k++) {
+            CompactJsonObject object = new CompactJsonObject();
+            object.put(prefix + k, JsonAtom.number(k));
+            assertNotNull(object.shape());
+            assertEquals(JsonAtom.number(k), object.get(prefix + k));
+        }
+        assertNotNull(first.shape());
+        assertEquals(JsonAtom.TRUE, first.get(prefix));
+    }
+
+    @Test
+    public void testDuplicateKeys() {
+        JsonObject object = FullJsonParser.parseObject(new DefaultJsonTokenizer(
+                "{\"a\":1,\"b\":2,\"a\":3}"));
+        assertEquals(2, object.value().size());
+        assertEquals(JsonAtom.number(3), object.get("a"));
+        assertEquals("{\"a\":3,\"b\":2}", object.toJson());
+    }
+
+    @Test
+    public void testIteratorRemove() {
+        JsonObject object = FullJsonParser.parseObject(new DefaultJsonTokenizer(
+                "{\"a\":1,\"b\":2,\"c\":3,\"d\":4}"));
+        Iterator<Entry<String, JsonValue>> entries = object.value().entrySet().iterator();
+        assertEquals("a", entries.next().getKey());
+        assertEquals("b", entries.next().getKey());
+        entries.remove();
+        assertNull(((CompactJsonObject) object).shape());
+        assertEquals("c", entries.next().getKey());
+        entries.next().setValue(JsonAtom.TRUE);
+        assertFalse(entries.hasNext());
+        entries.remove();
+        assertEquals("{\"a\":1,\"c\":3}", object.toJson());
+
+        entries = object.value().entrySet().iterator();
+        try {
+            entries.remove();
+            fail();
+        }
+        catch (IllegalStateException expected) { }
+    }
+
+    @Test(expected = ConcurrentModificationException.class)
+    public void testIteratorRemoveAfterModification() {
+        JsonObject object = FullJsonParser.parseObject(new DefaultJsonTokenizer(
+                "{\"a\":1,\"b\":2}"));
+        Iterator<Entry<String, JsonValue>> entries = object.value().entrySet().iterator();
+        entries.next();
+        object.put("c", JsonAtom.TRUE);
+        entries.remove();
+    }
+
+    @Test
+    public void testViewRemove() {
+        JsonObject object = FullJsonParser.parseObject(new DefaultJsonTokenizer(
+                "{\"a\":1,\"b\":2,\"c\":3}"));
+        assertTrue(object.value().keySet().remove("a"));
+        assertFalse(object.value().keySet().remove("x"));
+        assertEquals("{\"b\":2,\"c\":3}", object.toJson());
+
+        object = FullJsonParser.parseObject(new DefaultJsonTokenizer(
+                "{\"a\":1,\"b\":2,\"c\":3}"));
+        assertTrue(object.value().values().remove(JsonAtom.number(2)));
+        assertEquals("{\"a\":1,\"c\":3}", object.toJson());
+
+        object = FullJsonParser.parseObject(new DefaultJsonTokenizer(
+                "{\"a\":1,\"b\":2,\"c\":3}"));
+        Iterator<String> keys = object.value().keySet().iterator();
+        while (keys.hasNext()) {
+            if (!keys.next().equals("b")) {
+                keys.remove();
+            }
+        }
+        assertEquals("{\"b\":2}", object.toJson());
+    }
+
+    @Test
+    public void testLevelOrder() {
+        String json = JsonParserTest.readFile("/test2.json");
+        JsonObject expected = FullJsonParser.parseObject(new UnescapingJsonTokenizer(json));
+        JsonObject actual = LevelOrderJsonParser.parseObject(new UnescapingJsonTokenizer(json));
+        assertEquals(expected, actual);
+        assertEquals(expected.toJson(), actual.toJson());
+    }
+
+}
@@ -0,0 +1,214 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package michid.jsonjerk;
+
+import michid.jsonjerk.Token.Type;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class CursorJsonParserTest {
+    private static final String JSON =
+        "{\"a\\\"b\":\"c\\u0041d\",\"n\":-1234,\"d\":12.5e-1,\"l\":[true,false,null],\"o\":{}}";
+
+    @Test
+    public void testCursorTokens() {
+        assertCursorTokens(new DefaultJsonTokenizer(JSON), new DefaultJsonTokenizer(JSON));
+        assertCursorTokens(new UnescapingJsonTokenizer(JSON), new UnescapingJsonTokenizer(JSON));
+        assertCursorTokens(new DefaultJsonTokenizer(JSON), new Utf8JsonTokenizer(Utf8JsonTokenizerTest.utf8(JSON)));
+        assertCursorTokens(new DefaultJsonTokenizer(JSON), new ReaderJsonTokenizer(new StringReader(JSON)));
+    }
+
+    @Test
+    public void testTextEquals() {
+        String json = "[\"abc\",\"a\\\"c\",\"\\u00e4\"]";
+        for (JsonTokenizer tokenizer : new JsonTokenizer[] {
+                new DefaultJsonTokenizer(json),
+                new Utf8JsonTokenizer(Utf8JsonTokenizerTest.utf8(json)) }) {
+
+            tokenizer.advance(Type.BEGIN_ARRAY);
+            assertTrue(tokenizer.cursor().textEquals("abc"));
+            assertFalse(tokenizer.cursor().textEquals("ab"));
+            tokenizer.advance();
+            tokenizer.advance(Type.COMMA);
+            assertTrue(tokenizer.cursor().textEquals("a\\\"c"));
+            tokenizer.advance();
+            tokenizer.advance(Type.COMMA);
+            assertTrue(tokenizer.cursor().textEquals("\\u00e4"));
+        }
+
+        JsonTokenizer tokenizer = new UnescapingJsonTokenizer(json);
+        tokenizer.advance(Type.BEGIN_ARRAY);
+        assertTrue(tokenizer.cursor().textEquals("abc"));
+        tokenizer.advance();
+        tokenizer.advance(Type.COMMA);
+        assertTrue(tokenizer.cursor().textEquals("a\"c"));
+        tokenizer.advance();
+        tokenizer.advance(Type.COMMA);
+        assertTrue(tokenizer.cursor().textEquals("\u00e4"));
+    }
+
+    @Test
+    public void testNumbers() {
+        assertEquals(0, number("0").longValue());
+        assertEquals(-1, number("-1").longValue());
+        assertEquals(Long.MAX_VALUE, number("9223372036854775807").longValue());
+        assertEquals(Long.MIN_VALUE, number("-9223372036854775808").longValue());
+        assertEquals(1.5, number("1.5").doubleValue(), 0);
+        assertEquals(-2e3, number("-2e3").doubleValue(), 0);
+        assertEquals(0.1, number("0.1").doubleValue(), 0);
+        assertEquals(1e-300, number("1e-300").doubleValue(), 0);
+        assertEquals(1.2345678901234567890e19, number("12345678901234567890").doubleValue(), 0);
+        try {
+            number("12345678901234567890").longValue();
+            fail("Expected NumberFormatException");
+        }
+        catch (NumberFormatException expected) { }
+        try {
+            number("1.5").longValue();
+            fail("Expected NumberFormatException");
+        }
+        catch (NumberFormatException expected) { }
+    }
+
+    @Test
+    public void testMixedModes() {
+        JsonTokenizer tokenizer = new DefaultJsonTokenizer(JSON);
+        assertEquals(Type.BEGIN_OBJECT, tokenizer.cursor().type());
+        assertEquals(new Token(Type.BEGIN_OBJECT, "{", 0), tokenizer.read());
+        assertEquals(Type.STRING, tokenizer.peek().type());
+        assertEquals("a\\\"b", tokenizer.advance().text());
+        assertEquals(new Token(Type.COLON, ":", 6), tokenizer.read());
+        assertEquals("c\\u0041d", tokenizer.cursor().text());
+        assertEquals(new Token(Type.STRING, "c\\u0041d", 7), tokenizer.peek());
+        assertEquals("c\\u0041d", tokenizer.advance().text());
+        assertEquals(Type.COMMA, tokenizer.read().type());
+    }
+
+    @Test
+    public void testAdvanceUnexpected() {
+        JsonTokenizer tokenizer = new DefaultJsonTokenizer("[1]");
+        try {
+            tokenizer.advance(Type.BEGIN_OBJECT);
+            fail("Expected ParseException");
+        }
+        catch (ParseException expected) { }
+    }
+
+    @Test
+    public void testParse() throws IOException {
+        String json = JsonParserTest.readFile("/test1.json");
+        assertEquals(tokens(new DefaultJsonTokenizer(json)), cursorTokens(new DefaultJsonTokenizer(json)));
+
+        json = JsonParserTest.readFile("/test2.json");
+        assertEquals(tokens(new UnescapingJsonTokenizer(json)), cursorTokens(new UnescapingJsonTokenizer(json)));
+        assertEquals(tokens(new DefaultJsonTokenizer(json)),
+                cursorTokens(new Utf8JsonTokenizer(Utf8JsonTokenizerTest.utf8(json))));
+    }
+
+    @Test
+    public void testInvalid() {
+        String[] invalid = {"{\"key\":}", "{\"key\":[1,]}", "{\"key\":1,}", "{1:2}", "{\"key\" 1}"};
+        for (String json : invalid) {
+            try {
+                CursorJsonParser.SKIP_PARSER.parseObject(new DefaultJsonTokenizer(json));
+                fail("Expected ParseException for " + json);
+            }
+            catch (ParseException expected) { }
+        }
+    }
+
+    //------------------------------------------< private >---
+
+    private static TokenCursor number(String json) {
+        return new Utf8JsonTokenizer(Utf8JsonTokenizerTest.utf8(json)).advance(Type.NUMBER);
+    }
+
+    private static void assertCursorTokens(JsonTokenizer expected, JsonTokenizer actual) {
+        Token token;
+        do {
+            token = expected.read();
+            TokenCursor cursor = actual.advance();
+            assertEquals(token.type(), cursor.type());
+            assertEquals(token.position(), cursor.start());
+            assertEquals(token.text(), cursor.text());
+            assertTrue(cursor.textEquals(token.text()));
+            assertEquals(token, cursor.toToken());
+        } while (token.type() != Type.EOF);
+    }
+
+    private static List<String> tokens(JsonTokenizer tokenizer) {
+        final List<String> tokens = new ArrayList<String>();
+        new JsonParser(new JsonHandler() {
+            @Override
+            public void atom(Token key, Token value) {
+                tokens.add(key == null ? value.text() : key.text() + '=' + value.text());
+            }
+
+            @Override
+            public void object(JsonParser parser, Token key, JsonTokenizer tokenizer) {
+                tokens.add(key == null ? "{" : key.text() + "={");
+                super.object(parser, key, tokenizer);
+                tokens.add("}");
+            }
+
+            @Override
+            public void array(JsonParser parser, Token key, JsonTokenizer tokenizer) {
+                tokens.add(key == null ? "[" : key.text() + "=[");
+                super.array(parser, key, tokenizer);
+                tokens.add("]");
+            }
+        }).parseObject(tokenizer);
+        return tokens;
+    }
+
+    private static List<String> cursorTokens(JsonTokenizer tokenizer) {
+        final List<String> tokens = new ArrayList<String>();
+        new CursorJsonParser(new CursorHandler() {
+            @Override
+            public void atom(TokenCursor key, TokenCursor value) {
+                tokens.add(key == null ? value.text() : key.text() + '=' + value.text());
+            }
+
+            @Override
+            public void object(CursorJsonParser parser, TokenCursor key, JsonTokenizer tokenizer) {
+                tokens.add(key == null ? "{" : key.text() + "={");
+                super.object(parser, key, tokenizer);
+                tokens.add("}");
+            }
+
+            @Override
+            public void array(CursorJsonParser parser, TokenCursor key, JsonTokenizer tokenizer) {
+                tokens.add(key == null ? "[" : key.text() + "=[");
+                super.array(parser, key, tokenizer);
+                tokens.add("]");
+            }
+        }).parseObject(tokenizer);
+        return tokens;
+    }
+}
@@ -48,7 +48,7 @@ public class DefaultJsonTokenizerTest {
         new Token(Type.UNKNOWN, "qwe", 75)
 };
 
-    private static final String TOKEN_STRING = join(TOKENS);
+    static final String TOKEN_STRING = join(TOKENS);
 
     private static final Token EOF_TOKEN = new Token(Type.EOF, "", TOKEN_STRING.length());
 
@@ -101,6 +101,52 @@ public class DefaultJsonTokenizerTest {
         assertEquals(EOF_TOKEN, tokenizer.peek());
     }
 
+    @Test
+    public void testNumbers() {
+        String[][] numbers = {
+            {"0", "0"}, {"-1", "-1"}, {"+1", "+1"}, {"12.5", "12.5"}, {"1e5", "1e5"},
+            {"1E+5", "1E+5"}, {"-1.5e-5", "-1.5e-5"}, {"1.", "1"}, {"1.e5", "1"},
+            {"1e", "1"}, {"1e+", "1"}, {"1.5e", "1.5"}, {"12,", "12"}, {"1-2", "1"}
+        };
+
+        for (String[] number : numbers) {
+            JsonTokenizer tokenizer = new DefaultJsonTokenizer(number[0]);
+            assertEquals(new Token(Type.NUMBER, number[1], 0), tokenizer.read());
+        }
+
+        assertEquals(Type.UNKNOWN, new DefaultJsonTokenizer("-").read().type());
+        assertEquals(Type.UNKNOWN, new DefaultJsonTokenizer("-a").read().type());
+        assertEquals(Type.UNKNOWN, new DefaultJsonTokenizer(".5").read().type());
+    }
+
+    @Test(timeout = 60000)
+    public void testLargeDocument() {
+        // Fails by time out if scanning numbers and literals is not linear in the size of the input.
+        // Not using SKIP_PARSER as it skips values without tokenizing them.
+        String json = document(16 * 1024 * 1024);
+        new JsonParser(new JsonHandler()).parseArray(new DefaultJsonTokenizer(json));
+    }
+
+    /**
+     * Create a document of approximately {@code size} characters consisting
+     * mainly of numbers and literals
+     * @param size
+     * @return  a JSON array
+     */
+    static String document(int size) {
+        StringBuilder json = new StringBuilder(size + 64);
+        json.append('[');
+        for (int k = 0; json.length() < size; k++) {
+            if (k > 0) {
+                json.append(',');
+            }
+            json.append("{\"id\":").append(k)
+                .append(",\"value\":").append(k * 0.25)
+                .append(",\"flags\":[true,false,null]}");
+        }
+        return json.append(']').toString();
+    }
+
     //------------------------------------------< private >---
 
     private static String join(Token[] tokens) {
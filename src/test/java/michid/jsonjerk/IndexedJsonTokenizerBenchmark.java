@@ -0,0 +1,88 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package michid.jsonjerk;
+
+/**
+ * Compares tokenizing a log like document with {@link DefaultJsonTokenizer} and
+ * {@link IndexedJsonTokenizer}. The time for building the {@link StructuralIndex}
+ * is reported separately. Run with the document size in MB and an iteration
+ * count as optional arguments.
+ */
+public class IndexedJsonTokenizerBenchmark {
+
+    public static void main(String[] args) {
+        int size = (args.length > 0 ? Integer.parseInt(args[0]) : 16) * 1024 * 1024;
+        int iterations = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+        String json = logDocument(size);
+
+        for (int run = 0; run < 2; run++) {
+            String label = run == 0 ? "warm up" : "measure";
+            System.out.println(label + ": " + json.length() + " chars, " + iterations + " iterations");
+
+            long t0 = System.nanoTime();
+            for (int k = 0; k < iterations; k++) {
+                CursorJsonParser.SKIP_PARSER.parseArray(new DefaultJsonTokenizer(json));
+            }
+            report("DefaultJsonTokenizer", System.nanoTime() - t0, json.length(), iterations);
+
+            StructuralIndex index = null;
+            t0 = System.nanoTime();
+            for (int k = 0; k < iterations; k++) {
+                index = new StructuralIndex(json);
+            }
+            report("StructuralIndex (build)", System.nanoTime() - t0, json.length(), iterations);
+
+            t0 = System.nanoTime();
+            for (int k = 0; k < iterations; k++) {
+                CursorJsonParser.SKIP_PARSER.parseArray(new IndexedJsonTokenizer(json, index));
+            }
+            report("IndexedJsonTokenizer (walk)", System.nanoTime() - t0, json.length(), iterations);
+
+            t0 = System.nanoTime();
+            for (int k = 0; k < iterations; k++) {
+                CursorJsonParser.SKIP_PARSER.parseArray(new IndexedJsonTokenizer(json));
+            }
+            report("IndexedJsonTokenizer (total)", System.nanoTime() - t0, json.length(), iterations);
+        }
+    }
+
+    private static String logDocument(int size) {
+        StringBuilder json = new StringBuilder(size + 256);
+        json.append('[');
+        for (int k = 0; json.length() < size; k++) {
+            if (k > 0) {
+                json.append(",\n");
+            }
+            json.append("  {\"timestamp\": \"2012-03-0").append(k % 10).append("T12:34:56.789Z\", ")
+                .append("\"level\": \"").append(k % 7 == 0 ? "WARN" : "INFO").append("\", ")
+                .append("\"thread\": \"worker-").append(k % 16).append("\", ")
+                .append("\"message\": \"Request ").append(k)
+                .append(" for \\\"/content/path\\\" completed in ").append(k % 1000).append(" ms\", ")
+                .append("\"status\": ").append(200 + k % 3).append('}');
+        }
+        return json.append("\n]").toString();
+    }
+
+    private static void report(String name, long nanos, int chars, int iterations) {
+        double ms = nanos / 1e6 / iterations;
+        double mbs = chars / 1024.0 / 1024.0 / (ms / 1000);
+        System.out.println(String.format("  %-34s %10.2f ms/op %10.2f MB/s", name, ms, mbs));
+    }
+}
@@ -0,0 +1,171 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package michid.jsonjerk;
+
+import michid.jsonjerk.Token.Type;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+public class IndexedJsonTokenizerTest {
+
+    @Test
+    public void testIndex() {
+        StructuralIndex index = new StructuralIndex("{\"a\\\"\" : [1, true,\"x\"]}");
+        int[] expected = {0, 1, 5, 7, 9, 10, 11, 13, 17, 18, 20, 21, 22};
+        assertEquals(expected.length, index.size());
+        for (int k = 0; k < expected.length; k++) {
+            assertEquals(expected[k], index.get(k));
+        }
+        assertEquals(3, index.find(6));
+        assertEquals(3, index.find(7));
+        assertEquals(expected.length, index.find(23));
+    }
+
+    @Test
+    public void testIndexRandom() {
+        // Random inputs rich in backslashes and quotes spanning several 64 character blocks
+        Random random = new Random(42);
+        String alphabet = "\"\\\\\\{},a 1";
+        for (int run = 0; run < 2000; run++) {
+            StringBuilder json = new StringBuilder();
+            int len = random.nextInt(300);
+            for (int k = 0; k < len; k++) {
+                json.append(alphabet.charAt(random.nextInt(alphabet.length())));
+            }
+
+            List<Integer> expected = index(json.toString());
+            StructuralIndex index = new StructuralIndex(json);
+            assertEquals(json.toString(), expected.size(), index.size());
+            for (int k = 0; k < expected.size(); k++) {
+                assertEquals(json.toString(), (int) expected.get(k), index.get(k));
+            }
+        }
+    }
+
+    @Test
+    public void testTokens() {
+        assertTokens(DefaultJsonTokenizerTest.TOKEN_STRING);
+        assertTokens(JsonParserTest.readFile("/test1.json"));
+        assertTokens(JsonParserTest.readFile("/test2.json"));
+        assertTokens("[true1,1true,abc1,-a,1.e5,\"a\\\\\",nullx]  ");
+    }
+
+    @Test
+    public void testCursor() {
+        String json = JsonParserTest.readFile("/test2.json");
+        JsonTokenizer expected = new DefaultJsonTokenizer(json);
+        JsonTokenizer actual = new IndexedJsonTokenizer(json);
+        Token token;
+        do {
+            token = expected.read();
+            TokenCursor cursor = actual.advance();
+            assertEquals(token.type(), cursor.type());
+            assertEquals(token.position(), cursor.start());
+            assertEquals(token.text(), cursor.text());
+        } while (token.type() != Type.EOF);
+    }
+
+    @Test
+    public void testParse() {
+        String json = JsonParserTest.readFile("/test2.json");
+        StructuralIndex index = new StructuralIndex(json);
+        assertEquals(FullJsonParser.parseObject(new DefaultJsonTokenizer(json)),
+                FullJsonParser.parseObject(new IndexedJsonTokenizer(json, index)));
+        assertEquals(FullJsonParser.parseObject(new DefaultJsonTokenizer(json)),
+                LevelOrderJsonParser.parseObject(new IndexedJsonTokenizer(json, index)));
+    }
+
+    @Test
+    public void testSetPos() {
+        String json = "[1, true ,\"a\"]";
+        JsonTokenizer tokenizer = new IndexedJsonTokenizer(json);
+        tokenizer.setPos(4);
+        assertEquals(new Token(Type.TRUE, "true", 4), tokenizer.read());
+        tokenizer.setPos(3);
+        assertEquals(new Token(Type.TRUE, "true", 4), tokenizer.read());
+        tokenizer.setPos(6);
+        assertEquals(new Token(Type.UNKNOWN, "ue", 6), tokenizer.read());
+        assertEquals(new Token(Type.COMMA, ",", 9), tokenizer.read());
+        assertEquals(new Token(Type.STRING, "a", 10), tokenizer.read());
+    }
+
+    @Test
+    public void testUnterminatedString() {
+        JsonTokenizer tokenizer = new IndexedJsonTokenizer("[\"abc\\\"]");
+        tokenizer.read(Type.BEGIN_ARRAY);
+        try {
+            tokenizer.read();
+            fail("Expected ParseException");
+        }
+        catch (ParseException expected) { }
+    }
+
+    //------------------------------------------< private >---
+
+    private static void assertTokens(String json) {
+        JsonTokenizer expected = new DefaultJsonTokenizer(json);
+        JsonTokenizer actual = new IndexedJsonTokenizer(json);
+        Token token;
+        do {
+            token = expected.read();
+            assertEquals(token, actual.read());
+        } while (token.type() != Type.EOF);
+    }
+
+    /**
+     * Character by character reference implementation of the structural index
+     */
+    private static List<Integer> index(String json) {
+        List<Integer> index = new ArrayList<Integer>();
+        boolean inString = false;
+        boolean escaped = false;
+        boolean prevScalar = false;
+        for (int i = 0; i < json.length(); i++) {
+            char c = json.charAt(i);
+            boolean isEscaped = escaped;
+            escaped = !isEscaped && c == '\\';
+
+            boolean scalar = false;
+            if (c == '"' && !isEscaped) {
+                index.add(i);
+                inString = !inString;
+            }
+            else if (!inString) {
+                if ("{}[]:,".indexOf(c) >= 0) {
+                    index.add(i);
+                }
+                else if (" \t\n\r".indexOf(c) < 0) {
+                    scalar = true;
+                    if (!prevScalar) {
+                        index.add(i);
+                    }
+                }
+            }
+            prevScalar = scalar;
+        }
+        return index;
+    }
+}
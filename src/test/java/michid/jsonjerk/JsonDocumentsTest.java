@@ -0,0 +1,168 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package michid.jsonjerk;
+
+import michid.jsonjerk.JsonValue.JsonArray;
+import michid.jsonjerk.JsonValue.JsonAtom;
+import michid.jsonjerk.JsonValue.JsonObject;
+import michid.jsonjerk.Token.Type;
+import org.junit.Test;
+
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class JsonDocumentsTest {
+    private static final String JSON = "{\"a\":1,\"b\":[true,false]}{\"c\":{}}\n[1,2,{\"d\":null}] \"e\"42{}";
+
+    @Test
+    public void testDocuments() {
+        List<JsonValue> expected = expected();
+        assertEquals(expected, documents(new DefaultJsonTokenizer(JSON)));
+        assertEquals(expected, documents(new IndexedJsonTokenizer(JSON)));
+        assertEquals(expected, documents(new Utf8JsonTokenizer(Utf8JsonTokenizerTest.utf8(JSON))));
+        for (int bufferSize = 2; bufferSize < JSON.length() + 2; bufferSize++) {
+            assertEquals(expected, documents(new ReaderJsonTokenizer(new StringReader(JSON), bufferSize)));
+        }
+    }
+
+    @Test
+    public void testEmpty() {
+        JsonDocuments documents = new JsonDocuments(new DefaultJsonTokenizer(" \n "));
+        assertFalse(documents.hasNext());
+        try {
+            documents.next();
+            fail();
+        }
+        catch (NoSuchElementException expected) { }
+    }
+
+    @Test
+    public void testHandlerAndSkip() {
+        JsonDocuments documents = new JsonDocuments(new DefaultJsonTokenizer(JSON));
+        documents.skip();
+
+        final List<String> keys = new ArrayList<String>();
+        documents.next(new JsonHandler() {
+            @Override
+            public void object(JsonParser parser, Token key, JsonTokenizer tokenizer) {
+                if (key != null) {
+                    keys.add(key.text());
+                }
+                super.object(parser, key, tokenizer);
+            }
+        });
+        assertEquals(1, keys.size());
+        assertEquals("c", keys.get(0));
+
+        documents.skip();
+        documents.skip();
+        assertEquals(JsonAtom.number(42), documents.next());
+        documents.skip();
+        assertFalse(documents.hasNext());
+    }
+
+    @Test
+    public void testInvalidDocument() {
+        JsonDocuments documents = new JsonDocuments(new DefaultJsonTokenizer("{\"a\":1}}"));
+        assertTrue(documents.hasNext());
+        documents.next();
+        assertTrue(documents.hasNext());
+        try {
+            documents.next();
+            fail();
+        }
+        catch (ParseException expected) { }
+    }
+
+    @Test
+    public void testReset() {
+        List<JsonValue> expected = expected();
+
+        DefaultJsonTokenizer defaultTokenizer = new DefaultJsonTokenizer("[0]");
+        defaultTokenizer.read(Type.BEGIN_ARRAY);
+        defaultTokenizer.reset(JSON);
+        assertEquals(expected, documents(defaultTokenizer));
+
+        IndexedJsonTokenizer indexedTokenizer = new IndexedJsonTokenizer("[0]");
+        indexedTokenizer.read(Type.BEGIN_ARRAY);
+        indexedTokenizer.reset(JSON);
+        assertEquals(expected, documents(indexedTokenizer));
+
+        Utf8JsonTokenizer utf8Tokenizer = new Utf8JsonTokenizer(Utf8JsonTokenizerTest.utf8("[0]"));
+        utf8Tokenizer.cursor();
+        utf8Tokenizer.reset(Utf8JsonTokenizerTest.utf8(JSON));
+        assertEquals(expected, documents(utf8Tokenizer));
+
+        ReaderJsonTokenizer readerTokenizer = new ReaderJsonTokenizer(new StringReader("[0, 1, 2]"), 4);
+        readerTokenizer.read(Type.BEGIN_ARRAY);
+        readerTokenizer.read(Type.NUMBER);
+        readerTokenizer.reset(new StringReader(JSON));
+        assertEquals(expected, documents(readerTokenizer));
+    }
+
+    @Test
+    public void testResetReusesIterator() {
+        DefaultJsonTokenizer tokenizer = new DefaultJsonTokenizer("");
+        JsonDocuments documents = new JsonDocuments(tokenizer);
+        for (int k = 0; k < 3; k++) {
+            tokenizer.reset("{\"k\":" + k + "} {}");
+            JsonObject object = documents.next().asObject();
+            assertEquals(JsonAtom.number(k), object.get("k"));
+            assertTrue(documents.next().asObject().isEmpty());
+            assertFalse(documents.hasNext());
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testResetIndexMismatch() {
+        new IndexedJsonTokenizer("{}").reset(JSON, new StructuralIndex("{}"));
+    }
+
+    //------------------------------------------< private >---
+
+    private static List<JsonValue> expected() {
+        List<JsonValue> expected = new ArrayList<JsonValue>();
+        expected.add(FullJsonParser.parseObject(new DefaultJsonTokenizer("{\"a\":1,\"b\":[true,false]}")));
+        expected.add(FullJsonParser.parseObject(new DefaultJsonTokenizer("{\"c\":{}}")));
+        JsonArray array = FullJsonParser.parseArray(new DefaultJsonTokenizer("[1,2,{\"d\":null}]"));
+        expected.add(array);
+        expected.add(JsonAtom.string("e"));
+        expected.add(JsonAtom.number(42));
+        expected.add(FullJsonParser.parseObject(new DefaultJsonTokenizer("{}")));
+        return expected;
+    }
+
+    private static List<JsonValue> documents(JsonTokenizer tokenizer) {
+        List<JsonValue> values = new ArrayList<JsonValue>();
+        JsonDocuments documents = new JsonDocuments(tokenizer);
+        while (documents.hasNext()) {
+            values.add(documents.next());
+        }
+        return values;
+    }
+
+}
@@ -0,0 +1,151 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package michid.jsonjerk;
+
+import michid.jsonjerk.JsonValue.JsonArray;
+import michid.jsonjerk.JsonValue.JsonAtom;
+import michid.jsonjerk.JsonValue.JsonNumber;
+import michid.jsonjerk.Token.Type;
+import org.junit.Test;
+
+import java.io.StringReader;
+import java.math.BigDecimal;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class JsonNumberTest {
+
+    @Test
+    public void testIntegral() {
+        JsonNumber number = JsonAtom.atom(new Token(Type.NUMBER, "-42", 0)).asNumber();
+        assertTrue(number.isIntegral());
+        assertEquals(-42, number.asLong());
+        assertEquals(-42.0, number.asDouble(), 0);
+        assertEquals(new BigDecimal(-42), number.asBigDecimal());
+        assertSame(number.asBigDecimal(), number.asBigDecimal());
+        assertEquals("-42", number.value());
+    }
+
+    @Test
+    public void testFractional() {
+        for (String text : new String[] {"1.5", "1e3", "1.0", "12345678901234567890"}) {
+            JsonNumber number = JsonAtom.atom(new Token(Type.NUMBER, text, 0)).asNumber();
+            assertFalse(text, number.isIntegral());
+            assertEquals(text, Double.parseDouble(text), number.asDouble(), 0);
+            assertEquals(text, new BigDecimal(text), number.asBigDecimal());
+            assertEquals(text, number.value());
+            try {
+                number.asLong();
+                fail(text);
+            }
+            catch (NumberFormatException expected) { }
+        }
+    }
+
+    @Test
+    public void testLongRange() {
+        for (long value : new long[] {Long.MIN_VALUE, Long.MAX_VALUE, 0}) {
+            String text = Long.toString(value);
+            JsonNumber number = JsonAtom.atom(new Token(Type.NUMBER, text, 0)).asNumber();
+            assertTrue(text, number.isIntegral());
+            assertEquals(value, number.asLong());
+            assertEquals((double) value, number.asDouble(), 0);
+        }
+    }
+
+    @Test
+    public void testFactories() {
+        assertEquals("7", JsonAtom.number(7).value());
+        assertTrue(JsonAtom.number(7).isIntegral());
+        assertEquals("1.0", JsonAtom.number(1.0).value());
+        assertFalse(JsonAtom.number(1.0).isIntegral());
+        assertEquals(0.25, JsonAtom.number(0.25).asDouble(), 0);
+        BigDecimal decimal = new BigDecimal("3.14159265358979323846");
+        assertSame(decimal, JsonAtom.number(decimal).asBigDecimal());
+        assertEquals("3.14159265358979323846", JsonAtom.number(decimal).value());
+    }
+
+    @Test
+    public void testEquality() {
+        JsonAtom atom = new JsonAtom("123", JsonValue.Type.NUMBER);
+        JsonNumber number = JsonAtom.number(123);
+        assertEquals(atom, number);
+        assertEquals(number, atom);
+        assertEquals(atom.hashCode(), number.hashCode());
+        assertEquals(123, atom.asNumber().asLong());
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void testAsNumberOnString() {
+        JsonAtom.string("1").asNumber();
+    }
+
+    @Test
+    public void testCursor() {
+        String json = "[0,-17,123456789012345678,1234567890123456789,2.5,-0,1E2]";
+        JsonTokenizer[] tokenizers = {
+            new DefaultJsonTokenizer(json),
+            new Utf8JsonTokenizer(Utf8JsonTokenizerTest.utf8(json)),
+            new ReaderJsonTokenizer(new StringReader(json)),
+        };
+
+        JsonArray expected = FullJsonParser.parseArray(new DefaultJsonTokenizer(json));
+        for (JsonTokenizer tokenizer : tokenizers) {
+            tokenizer.advance(Type.BEGIN_ARRAY);
+            for (int k = 0; k < expected.size(); k++) {
+                if (k > 0) {
+                    tokenizer.advance(Type.COMMA);
+                }
+                JsonNumber number = tokenizer.advance(Type.NUMBER).numberValue();
+                JsonNumber expectedNumber = expected.get(k).asAtom().asNumber();
+                assertEquals(expectedNumber, number);
+                assertEquals(expectedNumber.isIntegral(), number.isIntegral());
+                assertEquals(expectedNumber.asDouble(), number.asDouble(), 0);
+            }
+            tokenizer.advance(Type.END_ARRAY);
+        }
+    }
+
+    @Test
+    public void testAtomAsNumber() {
+        JsonAtom atom = new JsonAtom("2.5", JsonValue.Type.NUMBER);
+        JsonNumber number = atom.asNumber();
+        assertSame(number, atom.asNumber());
+        assertEquals(2.5, number.asDouble(), 0);
+        assertEquals(atom, number);
+    }
+
+    @Test
+    public void testParsers() {
+        String json = "{\"a\":1,\"b\":[2.5,3]}";
+        JsonValue value = FullJsonParser.parseObject(new DefaultJsonTokenizer(json));
+        assertEquals(1, value.asObject().get("a").asAtom().asNumber().asLong());
+        assertEquals(2.5, value.asObject().get("b").asArray().get(0).asAtom().asNumber().asDouble(), 0);
+
+        value = TapeJsonParser.parseObject(new DefaultJsonTokenizer(json));
+        assertEquals(1, value.asObject().get("a").asAtom().asNumber().asLong());
+        assertEquals(3, value.asObject().get("b").asArray().get(1).asAtom().asNumber().asLong());
+    }
+
+}
@@ -29,11 +29,13 @@ import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.io.StringReader;
 import java.util.ArrayList;
 import java.util.LinkedHashMap;
 import java.util.Stack;
 
 import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.fail;
 
 public class JsonParserTest {
     private static final String JSON_IN = readFile("/test1.json");
@@ -168,9 +170,83 @@ public class JsonParserTest {
         assertEquals(object1.toJson(), object2.toJson());
     }
 
+    @Test
+    public void testSkipValue() {
+        String json = readFile("/test2.json") + " [1, \"a\\\"]\"] ";
+        JsonTokenizer[] expected = tokenizers(json);
+        JsonTokenizer[] actual = tokenizers(json);
+        for (int k = 0; k < actual.length; k++) {
+            JsonTokenizer tokenizer = actual[k];
+            new JsonParser(new JsonHandler()).parseObject(expected[k]);
+            JsonParser.SKIP_PARSER.parseObject(tokenizer);
+            assertEquals(Token.Type.BEGIN_ARRAY, tokenizer.peek().type());
+            assertEquals(expected[k].position(), tokenizer.position());
+            tokenizer.skipValue();
+            assertEquals(Token.Type.EOF, tokenizer.read().type());
+        }
+    }
+
+    @Test
+    public void testSkipDeeplyNested() {
+        StringBuilder json = new StringBuilder();
+        for (int k = 0; k < 200; k++) {
+            json.append(k % 3 == 0 ? "{\"k\":" : "[");
+        }
+        json.append("true");
+        for (int k = 199; k >= 0; k--) {
+            json.append(k % 3 == 0 ? "}" : "]");
+        }
+        json.append(',');
+
+        for (JsonTokenizer tokenizer : tokenizers(json.toString())) {
+            tokenizer.skipValue();
+            assertEquals(Token.Type.COMMA, tokenizer.read().type());
+        }
+
+        json.setCharAt(json.length() - 2, ']');
+        for (JsonTokenizer tokenizer : tokenizers(json.toString())) {
+            try {
+                tokenizer.skipValue();
+                fail("Expected ParseException");
+            }
+            catch (ParseException expected) { }
+        }
+    }
+
+    @Test
+    public void testSkipInvalid() {
+        String[] invalid = {"{\"key\":}", "{\"key\":[1,]}", "{\"key\":1,}", "{1:2}", "{\"key\" 1}",
+                "[1 2]", "[1,,2]", "{\"a\":1:2}", "[1}", "{\"a\":1]", "[\"abc]", "{\"a\":{}", ",", "}"};
+
+        for (String json : invalid) {
+            for (JsonTokenizer tokenizer : tokenizers(json)) {
+                try {
+                    tokenizer.skipValue();
+                    fail("Expected ParseException for " + json + " with " + tokenizer.getClass().getSimpleName());
+                }
+                catch (ParseException expected) { }
+            }
+        }
+    }
+
     //------------------------------------------< private >---
 
-    private static String readFile(String fileName) {
+    /**
+     * Tokenizers of all kinds for {@code json} including one which falls back
+     * to the token based implementation of {@link JsonTokenizer#skipValue()}.
+     */
+    private static JsonTokenizer[] tokenizers(String json) {
+        return new JsonTokenizer[] {
+            new DefaultJsonTokenizer(json),
+            new UnescapingJsonTokenizer(json),
+            new IndexedJsonTokenizer(json),
+            new Utf8JsonTokenizer(Utf8JsonTokenizerTest.utf8(json)),
+            new ReaderJsonTokenizer(new StringReader(json), 16),
+            new TokenJsonTokenizer(new DefaultJsonTokenizer(json))
+        };
+    }
+
+    static String readFile(String fileName) {
         InputStream is = JsonParserTest.class.getResourceAsStream(fileName);
         if (is == null) {
             throw new RuntimeException("Resource not found: " + fileName);
@@ -193,6 +269,38 @@ public class JsonParserTest {
         }
     }
 
+    /**
+     * Tokenizer which only implements {@link JsonTokenizer#nextToken()}
+     */
+    private static class TokenJsonTokenizer extends JsonTokenizer {
+        private final JsonTokenizer tokenizer;
+
+        TokenJsonTokenizer(JsonTokenizer tokenizer) {
+            this.tokenizer = tokenizer;
+        }
+
+        @Override
+        protected Token nextToken() {
+            return tokenizer.read();
+        }
+
+        @Override
+        public int pos() {
+            return peek().pos();
+        }
+
+        @Override
+        public void setPos(int pos) {
+            clearCurrentToken();
+            tokenizer.setPos(pos);
+        }
+
+        @Override
+        public JsonTokenizer copy() {
+            throw new UnsupportedOperationException();
+        }
+    }
+
     private static String createKey(Token key) {
         return key == null ? "" : quoteAndEscape(key.text()) + ':';
     }
@@ -0,0 +1,184 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package michid.jsonjerk;
+
+import michid.jsonjerk.JsonValue.JsonNumber;
+import michid.jsonjerk.JsonValue.JsonObject;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class JsonPathTest {
+    private static final String JSON = JsonParserTest.readFile("/test1.json");
+
+    @Test
+    public void testChild() {
+        assertEquals(list("value: STRING"), select("$.object.string"));
+        assertEquals(list("value: STRING"), select("$['object'][\"string\"]"));
+        assertEquals(list(), select("$.object.missing"));
+        assertEquals(list(), select("$.string.missing"));
+    }
+
+    @Test
+    public void testIndex() {
+        assertEquals(list("bb: STRING"), select("$.array2[1]"));
+        assertEquals(list("1.42: NUMBER"), select("$.object.array2[3].number"));
+        assertEquals(list(), select("$.array2[3]"));
+        assertEquals(list(), select("$.object[0]"));
+    }
+
+    @Test
+    public void testWildcard() {
+        assertEquals(list("1: NUMBER", "2: NUMBER", "3: NUMBER"), select("$.array[*]"));
+        assertEquals(list("1: NUMBER", "2: NUMBER", "3: NUMBER"), select("$.array.*"));
+        assertEquals(list("[]", "1: NUMBER", "aa: STRING"), select("$.*[0]"));
+    }
+
+    @Test
+    public void testRecursiveDescent() {
+        assertEquals(list("1.42: NUMBER", "1.42: NUMBER", "1.42: NUMBER"), select("$..number"));
+        assertEquals(list("[]", "[]", "1: NUMBER", "aa: STRING", "1: NUMBER", "1: NUMBER", "1: NUMBER"),
+                select("$..[0]"));
+        assertEquals(list("1.42: NUMBER"), select("$.object.array2..number"));
+        assertEquals(list("{}"), select("$..array99[3]"));
+
+        String json = "{\"a\":{\"a\":{\"b\":1}},\"b\":2}";
+        List<JsonValue> values = JsonPath.compile("$..a").select(new DefaultJsonTokenizer(json));
+        assertEquals(2, values.size());
+        assertEquals(FullJsonParser.parseObject(new DefaultJsonTokenizer(json)).get("a"), values.get(0));
+        assertEquals(2, JsonPath.compile("$..b").select(new DefaultJsonTokenizer(json)).size());
+    }
+
+    @Test
+    public void testRoot() {
+        List<JsonValue> values = JsonPath.compile("$").select(new DefaultJsonTokenizer(JSON));
+        assertEquals(1, values.size());
+        assertEquals(FullJsonParser.parseObject(new DefaultJsonTokenizer(JSON)), values.get(0));
+        assertEquals(values, JsonPath.compile("").select(new DefaultJsonTokenizer(JSON)));
+    }
+
+    @Test
+    public void testJsonPointer() {
+        assertEquals(list("1.42: NUMBER"), select("/object/array2/3/number"));
+        assertEquals(list("bb: STRING"), select("/array2/1"));
+        // "0" matches both an object member and an array index
+        String json = "{\"a/b\":{\"0\":1},\"c\":[2]}";
+        assertEquals("1", JsonPath.compile("/a~1b/0").selectFirst(new DefaultJsonTokenizer(json)).asAtom().value());
+        assertEquals("2", JsonPath.compile("/c/0").selectFirst(new DefaultJsonTokenizer(json)).asAtom().value());
+    }
+
+    @Test
+    public void testNumberValue() {
+        JsonValue value = JsonPath.compile("$.object.number").selectFirst(new DefaultJsonTokenizer(JSON));
+        assertTrue(value instanceof JsonNumber);
+        assertEquals(1.42, value.asAtom().asNumber().asDouble(), 0);
+        assertTrue(JsonPath.compile("$.array[0]").selectFirst(new DefaultJsonTokenizer(JSON))
+                .asAtom().asNumber().isIntegral());
+    }
+
+    @Test
+    public void testContainerValue() {
+        JsonObject expected = FullJsonParser.parseObject(new DefaultJsonTokenizer(JSON));
+        assertEquals(expected.get("object").asObject().get("array2"),
+                JsonPath.compile("$.object.array2").selectFirst(new DefaultJsonTokenizer(JSON)));
+        assertEquals(expected.get("nestedArray").asArray().get(1),
+                JsonPath.compile("$.nestedArray[1]").selectFirst(new DefaultJsonTokenizer(JSON)));
+    }
+
+    @Test
+    public void testEarlyStop() {
+        // parsing stops before reaching the invalid part of the document
+        String json = "{\"a\":{\"b\":[1,2]},\"c\":tru";
+        DefaultJsonTokenizer tokenizer = new DefaultJsonTokenizer(json);
+        assertEquals("2", JsonPath.compile("$.a.b[1]").selectFirst(tokenizer).asAtom().value());
+        assertTrue(tokenizer.position() < json.length());
+
+        assertEquals("1", JsonPath.compile("$..b[0]").selectFirst(new DefaultJsonTokenizer(json)).asAtom().value());
+
+        try {
+            JsonPath.compile("$..b[0]").select(new DefaultJsonTokenizer(json));
+            fail("Expected ParseException");
+        }
+        catch (ParseException expected) { }
+    }
+
+    @Test
+    public void testMultiplePaths() {
+        final List<String> matches = new ArrayList<String>();
+        JsonPath.select(new DefaultJsonTokenizer(JSON), new JsonPath.Sink() {
+            @Override
+            public boolean match(JsonPath path, JsonValue value) {
+                matches.add(path + "=" + value.toJson());
+                return true;
+            }
+
+            @Override
+            public boolean match(JsonPath path, Token token) {
+                matches.add(path + "=" + token.text());
+                return true;
+            }
+        }, JsonPath.compile("$.object.number"), JsonPath.compile("$.array2[2]"), JsonPath.compile("$.emptyObject"));
+
+        assertEquals(list("$.array2[2]=cc", "$.emptyObject={}", "$.object.number=1.42"), matches);
+    }
+
+    @Test
+    public void testDefinite() {
+        assertTrue(JsonPath.compile("$.a[0]['b']").isDefinite());
+        assertTrue(JsonPath.compile("/a/0").isDefinite());
+        assertFalse(JsonPath.compile("$.a[*]").isDefinite());
+        assertFalse(JsonPath.compile("$..a").isDefinite());
+    }
+
+    @Test
+    public void testInvalidPaths() {
+        for (String path : new String[] {"$.", "$..", "$[", "$[x]", "$[-1]", "$.a[1", "$a", "a/b"}) {
+            try {
+                JsonPath.compile(path);
+                fail("Expected IllegalArgumentException for " + path);
+            }
+            catch (IllegalArgumentException expected) { }
+        }
+    }
+
+    //------------------------------------------< private >---
+
+    private static List<String> select(String path) {
+        List<String> values = new ArrayList<String>();
+        for (JsonValue value : JsonPath.compile(path).select(new DefaultJsonTokenizer(JSON))) {
+            values.add(value.isAtom() ? value.toString() : value.toJson());
+        }
+        return values;
+    }
+
+    private static List<String> list(String... values) {
+        List<String> list = new ArrayList<String>();
+        for (String value : values) {
+            list.add(value);
+        }
+        return list;
+    }
+}
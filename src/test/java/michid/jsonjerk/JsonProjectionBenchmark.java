@@ -0,0 +1,94 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package michid.jsonjerk;
+
+import michid.jsonjerk.JsonPath.Sink;
+
+/**
+ * Compares selecting a number of paths from a document with one {@link JsonPath}
+ * pass per path and with a single {@link JsonProjection} pass. Run with the
+ * number of paths and an iteration count as optional arguments.
+ */
+public class JsonProjectionBenchmark {
+
+    public static void main(String[] args) {
+        int count = args.length > 0 ? Integer.parseInt(args[0]) : 20;
+        int iterations = args.length > 1 ? Integer.parseInt(args[1]) : 1000;
+        String json = document(1000);
+
+        JsonPath[] paths = new JsonPath[count];
+        Sink[] sinks = new Sink[count];
+        Sink sink = new Sink() {
+            @Override
+            public boolean match(JsonPath path, JsonValue value) {
+                return true;
+            }
+        };
+        for (int k = 0; k < count; k++) {
+            // spread the paths over the document
+            paths[k] = JsonPath.compile("$.item" + (k * 997 % 1000) + ".owner.name");
+            sinks[k] = sink;
+        }
+        JsonProjection projection = JsonProjection.create(paths, sinks);
+
+        for (int run = 0; run < 2; run++) {
+            String label = run == 0 ? "warm up" : "measure";
+            System.out.println(label + ": " + json.length() + " chars, " + count + " paths, "
+                    + iterations + " iterations");
+
+            long t0 = System.nanoTime();
+            for (int k = 0; k < iterations; k++) {
+                for (JsonPath path : paths) {
+                    path.selectFirst(new DefaultJsonTokenizer(json));
+                }
+            }
+            report("JsonPath (one pass per path)", System.nanoTime() - t0, iterations);
+
+            t0 = System.nanoTime();
+            for (int k = 0; k < iterations; k++) {
+                JsonPath.select(new DefaultJsonTokenizer(json), sink, paths);
+            }
+            report("JsonPath (single pass)", System.nanoTime() - t0, iterations);
+
+            t0 = System.nanoTime();
+            for (int k = 0; k < iterations; k++) {
+                projection.project(new DefaultJsonTokenizer(json));
+            }
+            report("JsonProjection", System.nanoTime() - t0, iterations);
+        }
+    }
+
+    private static String document(int items) {
+        StringBuilder json = new StringBuilder("{");
+        for (int k = 0; k < items; k++) {
+            if (k > 0) {
+                json.append(',');
+            }
+            json.append("\"item").append(k).append("\":{\"title\":\"Item ").append(k).append("\",")
+                .append("\"tags\":[\"a\",\"b\",\"c\"],\"owner\":{\"name\":\"Owner ").append(k).append("\",")
+                .append("\"address\":{\"street\":\"Main Street ").append(k).append("\",\"city\":\"Basel\"}}}");
+        }
+        return json.append('}').toString();
+    }
+
+    private static void report(String name, long nanos, int iterations) {
+        System.out.println(String.format("  %-34s %10.3f ms/op", name, nanos / 1e6 / iterations));
+    }
+}
@@ -0,0 +1,132 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package michid.jsonjerk;
+
+import michid.jsonjerk.JsonPath.Sink;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class JsonProjectionTest {
+    private static final String JSON = JsonParserTest.readFile("/test1.json");
+
+    private static final String[] PATHS = {
+        "$", "$.string", "$.object.string", "$.object.*", "$.object.array2[3].number", "$.object.array2[*]",
+        "$.object.array2[1]", "$.*[1]", "$.nestedArray[1][*]", "$.*.array99", "/object/array1/3",
+        "$.missing", "$.array2[7]", "$.emptyObject", "$[0]"
+    };
+
+    @Test
+    public void testSameAsJsonPath() {
+        Map<JsonPath, CollectingSink> sinks = new LinkedHashMap<JsonPath, CollectingSink>();
+        for (String path : PATHS) {
+            sinks.put(JsonPath.compile(path), new CollectingSink());
+        }
+        JsonProjection.create(sinks).project(new DefaultJsonTokenizer(JSON));
+
+        for (Map.Entry<JsonPath, CollectingSink> entry : sinks.entrySet()) {
+            List<JsonValue> expected = entry.getKey().select(new DefaultJsonTokenizer(JSON));
+            assertEquals(entry.getKey().toString(), expected, entry.getValue().values);
+        }
+    }
+
+    @Test
+    public void testReuse() {
+        JsonPath[] paths = {JsonPath.compile("$.a"), JsonPath.compile("$.b[*]")};
+        CollectingSink a = new CollectingSink();
+        CollectingSink b = new CollectingSink();
+        JsonProjection projection = JsonProjection.create(paths, new Sink[] {a, b});
+
+        projection.project(new DefaultJsonTokenizer("{\"a\":1,\"b\":[2,3]}"));
+        projection.project(new DefaultJsonTokenizer("{\"b\":[4],\"a\":5}"));
+        assertEquals("[1: NUMBER, 5: NUMBER]", a.values.toString());
+        assertEquals("[2: NUMBER, 3: NUMBER, 4: NUMBER]", b.values.toString());
+    }
+
+    @Test
+    public void testEarlyStop() {
+        // parsing stops before reaching the invalid part of the document
+        String json = "{\"a\":{\"b\":[1,2]},\"c\":[3,4],\"d\":tru";
+        CollectingSink b = new CollectingSink();
+        final CollectingSink c = new CollectingSink();
+        Sink first = new Sink() {
+            @Override
+            public boolean match(JsonPath path, JsonValue value) {
+                c.values.add(value);
+                return false;
+            }
+        };
+        JsonProjection.create(new JsonPath[] {JsonPath.compile("$.a.b[1]"), JsonPath.compile("$.c[*]")},
+                new Sink[] {b, first}).project(new DefaultJsonTokenizer(json));
+        assertEquals("[2: NUMBER]", b.values.toString());
+        assertEquals("[3: NUMBER]", c.values.toString());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testRecursiveDescent() {
+        JsonProjection.create(new JsonPath[] {JsonPath.compile("$..a")}, new Sink[] {new CollectingSink()});
+    }
+
+    @Test
+    public void testManyPaths() {
+        StringBuilder json = new StringBuilder("{");
+        List<JsonPath> paths = new ArrayList<JsonPath>();
+        for (int k = 0; k < 100; k++) {
+            if (k > 0) {
+                json.append(',');
+            }
+            json.append("\"k").append(k).append("\":{\"v\":").append(k).append('}');
+            paths.add(JsonPath.compile("$.k" + k + ".v"));
+        }
+        json.append('}');
+
+        CollectingSink sink = new CollectingSink();
+        Sink[] sinks = new Sink[paths.size()];
+        for (int k = 0; k < sinks.length; k++) {
+            sinks[k] = sink;
+        }
+        JsonProjection.create(paths.toArray(new JsonPath[paths.size()]), sinks)
+                .project(new DefaultJsonTokenizer(json.toString()));
+
+        assertEquals(100, sink.values.size());
+        for (int k = 0; k < 100; k++) {
+            assertTrue(sink.values.get(k).isAtom());
+            assertEquals(String.valueOf(k), sink.values.get(k).asAtom().value());
+        }
+    }
+
+    //------------------------------------------< private >---
+
+    private static class CollectingSink extends Sink {
+        final List<JsonValue> values = new ArrayList<JsonValue>();
+
+        @Override
+        public boolean match(JsonPath path, JsonValue value) {
+            values.add(value);
+            return true;
+        }
+    }
+}
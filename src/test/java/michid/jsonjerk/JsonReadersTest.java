@@ -0,0 +1,120 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package michid.jsonjerk;
+
+import michid.jsonjerk.JsonReaders.BigDecimalReader;
+import michid.jsonjerk.JsonReaders.DoubleReader;
+import michid.jsonjerk.JsonReaders.IntReader;
+import michid.jsonjerk.JsonReaders.LongReader;
+import michid.jsonjerk.JsonReaders.ValueReader;
+import michid.jsonjerk.Token.Type;
+import org.junit.Test;
+
+import java.io.UnsupportedEncodingException;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+public class JsonReadersTest {
+
+    @Test
+    public void testIntReader() {
+        final List<Integer> values = new ArrayList<Integer>();
+        IntReader reader = new IntReader() {
+            @Override
+            public void set(Integer value) {
+                values.add(value);
+            }
+        };
+        read(reader, "5", "+5", "-5", "2147483647", "2147483648", "5.0", "1e2", "x");
+        assertEquals(Arrays.asList(5, 5, -5, Integer.MAX_VALUE), values);
+    }
+
+    @Test
+    public void testLongReader() {
+        final List<Long> values = new ArrayList<Long>();
+        LongReader reader = new LongReader() {
+            @Override
+            public void set(Long value) {
+                values.add(value);
+            }
+        };
+        read(reader, "5", "+5", "-9223372036854775808", "9223372036854775808", "5.0");
+        assertEquals(Arrays.asList(5L, 5L, Long.MIN_VALUE), values);
+    }
+
+    @Test
+    public void testDoubleReader() {
+        final List<Double> values = new ArrayList<Double>();
+        DoubleReader reader = new DoubleReader() {
+            @Override
+            public void set(Double value) {
+                values.add(value);
+            }
+        };
+        read(reader, "5", "+5", "-0.5", "1e2", "x");
+        assertEquals(Arrays.asList(5.0, 5.0, -0.5, 100.0), values);
+    }
+
+    @Test
+    public void testBigDecimalReader() {
+        final List<BigDecimal> values = new ArrayList<BigDecimal>();
+        BigDecimalReader reader = new BigDecimalReader() {
+            @Override
+            public void set(BigDecimal value) {
+                values.add(value);
+            }
+        };
+        read(reader, "+5", "0.10", "x");
+        assertEquals(Arrays.asList(new BigDecimal("5"), new BigDecimal("0.10")), values);
+    }
+
+    @Test
+    public void testTokenizerTokens() throws UnsupportedEncodingException {
+        final List<Long> longs = new ArrayList<Long>();
+        new JsonParser(new LongReader() {
+            @Override
+            public void set(Long value) {
+                longs.add(value);
+            }
+        }).parseArray(new Utf8JsonTokenizer("[5, -12, 1.5, \"7\", 9223372036854775808]".getBytes("UTF-8")));
+        assertEquals(Arrays.asList(5L, -12L), longs);
+
+        final List<Double> doubles = new ArrayList<Double>();
+        new JsonParser(new DoubleReader() {
+            @Override
+            public void set(Double value) {
+                doubles.add(value);
+            }
+        }).parseArray(new Utf8JsonTokenizer("[5, -0.25, 1e2]".getBytes("UTF-8")));
+        assertEquals(Arrays.asList(5.0, -0.25, 100.0), doubles);
+    }
+
+    //------------------------------------------< private >---
+
+    private static void read(ValueReader<?> reader, String... numbers) {
+        for (String number : numbers) {
+            reader.atom(null, new Token(Type.NUMBER, number, 0));
+        }
+    }
+}
@@ -0,0 +1,221 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package michid.jsonjerk;
+
+import michid.jsonjerk.JsonValue.JsonAtom;
+import michid.jsonjerk.JsonValue.JsonObject;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.StringWriter;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class JsonWriterTest {
+    private static final String JSON = JsonParserTest.readFile("/test2.json");
+
+    @Test
+    public void testWriter() throws IOException {
+        StringWriter out = new StringWriter();
+        JsonWriter writer = new JsonWriter(out);
+        writer.beginObject()
+            .name("a").value(1)
+            .name("b").beginArray().value(true).value(false).nullValue().value((String) null).endArray()
+            .name("c").value("x\"y\\z\n")
+            .name("d\"").value(-1.5)
+            .name("e").beginObject().endObject()
+            .name("f").beginArray().endArray()
+            .name("g").number("1e10")
+            .endObject();
+        writer.close();
+
+        assertEquals("{\"a\":1,\"b\":[true,false,null,null],\"c\":\"x\\\"y\\\\z\\n\"," +
+                "\"d\\\"\":-1.5,\"e\":{},\"f\":[],\"g\":1e10}", out.toString());
+    }
+
+    @Test
+    public void testToJson() throws IOException {
+        JsonObject object = FullJsonParser.parseObject(new UnescapingJsonTokenizer(JSON));
+        String expected = object.toJson();
+        assertEquals(object, FullJsonParser.parseObject(new UnescapingJsonTokenizer(expected)));
+
+        StringWriter out = new StringWriter();
+        JsonWriter writer = new JsonWriter(out, 16);
+        object.toJson(writer);
+        writer.flush();
+        assertEquals(expected, out.toString());
+
+        StringBuilder builder = new StringBuilder("x");
+        writer = new JsonWriter(builder);
+        object.toJson(writer);
+        writer.value(1);
+        assertEquals('x' + expected + "\n1", builder.toString());
+    }
+
+    @Test
+    public void testUtf8() throws IOException {
+        JsonObject object = FullJsonParser.parseObject(new UnescapingJsonTokenizer(JSON));
+        object.put("\u00e4\u00f6\u00fc", JsonAtom.string("\u4e2d\u6587 \ud83d\ude00 \u00e9"));
+        byte[] expected = object.toJson().getBytes("UTF-8");
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        JsonWriter writer = new JsonWriter(out, 16);
+        writer.value(object);
+        writer.flush();
+        assertArrayEquals(expected, out.toByteArray());
+
+        for (int capacity : new int[] {16, 17, 100, 10000}) {
+            ByteBuffer slice = ByteBuffer.allocate(capacity + 7);
+            slice.position(7);
+            for (ByteBuffer buffer : new ByteBuffer[] {ByteBuffer.allocate(capacity),
+                    ByteBuffer.allocateDirect(capacity), slice.slice()}) {
+                out = new ByteArrayOutputStream();
+                writer = new JsonWriter(Channels.newChannel(out), buffer);
+                writer.value(object);
+                writer.close();
+                assertArrayEquals(expected, out.toByteArray());
+            }
+        }
+    }
+
+    @Test
+    public void testUnpairedSurrogate() throws IOException {
+        String text = "a\ud83db\ude00";
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        JsonWriter writer = new JsonWriter(out);
+        writer.value(text);
+        writer.flush();
+        assertArrayEquals(('"' + text + '"').getBytes("UTF-8"), out.toByteArray());
+    }
+
+    @Test
+    public void testFlushThreshold() throws IOException {
+        final int[] max = new int[1];
+        OutputStream out = new OutputStream() {
+            @Override
+            public void write(int b) {
+                max[0] = Math.max(max[0], 1);
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) {
+                max[0] = Math.max(max[0], len);
+            }
+        };
+
+        JsonWriter writer = new JsonWriter(out, 64);
+        writer.value(FullJsonParser.parseObject(new UnescapingJsonTokenizer(JSON)));
+        writer.close();
+        assertTrue(max[0] > 0);
+        assertTrue(max[0] <= 64);
+    }
+
+    @Test
+    public void testDocuments() throws IOException {
+        StringWriter out = new StringWriter();
+        JsonWriter writer = new JsonWriter(out);
+        writer.value(1).value("a").beginObject().endObject().beginArray().value(2).endArray();
+        writer.close();
+        assertEquals("1\n\"a\"\n{}\n[2]", out.toString());
+
+        JsonDocuments documents = new JsonDocuments(new DefaultJsonTokenizer(out.toString()));
+        assertEquals(JsonAtom.number(1), documents.next());
+        assertEquals(JsonAtom.string("a"), documents.next());
+        assertTrue(documents.next().asObject().isEmpty());
+        assertEquals(1, documents.next().asArray().size());
+        assertFalse(documents.hasNext());
+    }
+
+    @Test
+    public void testEscape() throws IOException {
+        String plain = "someKey_123 \u00e4\u4e2d";
+        assertSame(plain, JsonValue.escape(plain));
+        assertEquals("a\\\"b\\\\c\\b\\f\\n\\r\\t\\u0000\\u001F\\u007F\\u0085\\u2028d",
+                JsonValue.escape("a\"b\\c\b\f\n\r\t\u0000\u001f\u007f\u0085\u2028d"));
+
+        StringBuilder all = new StringBuilder();
+        for (char c = 0; c < 0x2200; c++) {
+            all.append(c).append('x');
+        }
+        String text = all.toString();
+        String escaped = JsonValue.escape(text);
+
+        StringBuilder sb = new StringBuilder("prefix");
+        JsonValue.escape(text, sb);
+        assertEquals("prefix" + escaped, sb.toString());
+
+        StringWriter out = new StringWriter();
+        JsonWriter writer = new JsonWriter(out, 16);
+        writer.beginObject().name(text).value(text).endObject();
+        writer.flush();
+        String expected = "{\"" + escaped + "\":\"" + escaped + "\"}";
+        assertEquals(expected, out.toString());
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        writer = new JsonWriter(bytes, 16);
+        writer.beginObject().name(text).value(text).endObject();
+        writer.flush();
+        assertArrayEquals(expected.getBytes("UTF-8"), bytes.toByteArray());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testValueWithoutName() throws IOException {
+        new JsonWriter(new StringWriter()).beginObject().value(1);
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testNameInArray() throws IOException {
+        new JsonWriter(new StringWriter()).beginArray().name("a");
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testDanglingName() throws IOException {
+        new JsonWriter(new StringWriter()).beginObject().name("a").endObject();
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testMismatchedEnd() throws IOException {
+        new JsonWriter(new StringWriter()).beginArray().endObject();
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testCloseIncomplete() throws IOException {
+        new JsonWriter(new StringWriter()).beginArray().close();
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testNonFinite() throws IOException {
+        new JsonWriter(new StringWriter()).value(Double.NaN);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testFlushThresholdTooSmall() {
+        new JsonWriter(new StringWriter(), 8);
+    }
+
+}
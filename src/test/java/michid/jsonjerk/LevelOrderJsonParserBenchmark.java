@@ -0,0 +1,149 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package michid.jsonjerk;
+
+import michid.jsonjerk.JsonValue.JsonArray;
+import michid.jsonjerk.JsonValue.JsonObject;
+
+/**
+ * Compares {@link LevelOrderJsonParser} on documents with and without ":size" hints
+ * with {@link FullJsonParser} on the same documents. For the level order parser
+ * the time for parsing the top level only and the time for additionally accessing
+ * every nested value are reported. Run with the document size in MB and an
+ * iteration count as optional arguments.
+ */
+public class LevelOrderJsonParserBenchmark {
+
+    public static void main(String[] args) {
+        int size = (args.length > 0 ? Integer.parseInt(args[0]) : 16) * 1024 * 1024;
+        int iterations = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+        String unhinted = document(size, false);
+        String hinted = document(size, true);
+
+        for (int run = 0; run < 2; run++) {
+            String label = run == 0 ? "warm up" : "measure";
+            System.out.println(label + ": " + unhinted.length() + " chars (" + hinted.length()
+                    + " with hints), " + iterations + " iterations");
+
+            long t0 = System.nanoTime();
+            for (int k = 0; k < iterations; k++) {
+                FullJsonParser.parseObject(new DefaultJsonTokenizer(unhinted));
+            }
+            report("FullJsonParser", System.nanoTime() - t0, unhinted.length(), iterations);
+
+            t0 = System.nanoTime();
+            for (int k = 0; k < iterations; k++) {
+                FullJsonParser.parseObject(new DefaultJsonTokenizer(hinted));
+            }
+            report("FullJsonParser (hinted)", System.nanoTime() - t0, hinted.length(), iterations);
+
+            t0 = System.nanoTime();
+            for (int k = 0; k < iterations; k++) {
+                LevelOrderJsonParser.parseObject(new DefaultJsonTokenizer(unhinted));
+            }
+            report("LevelOrder top level (unhinted)", System.nanoTime() - t0, unhinted.length(), iterations);
+
+            t0 = System.nanoTime();
+            for (int k = 0; k < iterations; k++) {
+                LevelOrderJsonParser.parseObject(new DefaultJsonTokenizer(hinted));
+            }
+            report("LevelOrder top level (hinted)", System.nanoTime() - t0, hinted.length(), iterations);
+
+            t0 = System.nanoTime();
+            for (int k = 0; k < iterations; k++) {
+                touch(LevelOrderJsonParser.parseObject(new DefaultJsonTokenizer(unhinted)));
+            }
+            report("LevelOrder all (unhinted)", System.nanoTime() - t0, unhinted.length(), iterations);
+
+            t0 = System.nanoTime();
+            for (int k = 0; k < iterations; k++) {
+                touch(LevelOrderJsonParser.parseObject(new DefaultJsonTokenizer(hinted)));
+            }
+            report("LevelOrder all (hinted)", System.nanoTime() - t0, hinted.length(), iterations);
+        }
+    }
+
+    /**
+     * A document of nested records, optionally with a ":size" hint as first pair of
+     * each object.
+     */
+    private static String document(int size, boolean hinted) {
+        StringBuilder json = new StringBuilder(size + 1024);
+        json.append('{');
+        for (int k = 0; json.length() < size; k++) {
+            if (k > 0) {
+                json.append(',');
+            }
+            StringBuilder item = new StringBuilder();
+            item.append("\"title\":\"Item ").append(k).append("\",\"price\":").append(k % 100).append(".99,")
+                .append("\"tags\":[\"a\",\"b\",\"c\"],\"available\":").append(k % 3 != 0).append(',')
+                .append("\"owner\":").append(object("\"name\":\"Owner " + k + "\",\"address\":"
+                    + object("\"street\":\"Main Street " + k + "\",\"city\":\"Basel\"", hinted), hinted)).append(',')
+                .append("\"history\":[");
+            for (int j = 0; j < 5; j++) {
+                if (j > 0) {
+                    item.append(',');
+                }
+                item.append(object("\"rev\":" + j + ",\"comment\":\"revision " + j + " of item " + k + '"', hinted));
+            }
+            item.append(']');
+            json.append("\"item").append(k).append("\":").append(object(item.toString(), hinted));
+        }
+        return json.append('}').toString();
+    }
+
+    private static String object(String pairs, boolean hinted) {
+        if (!hinted) {
+            return '{' + pairs + '}';
+        }
+
+        // the hint is the length of the object text including the hint itself
+        int size = pairs.length() + 2;
+        String object = "{\":size\":" + size + ',' + pairs + '}';
+        while (object.length() != size) {
+            size = object.length();
+            object = "{\":size\":" + size + ',' + pairs + '}';
+        }
+        return object;
+    }
+
+    private static int touch(JsonValue value) {
+        int count = 1;
+        if (value.isObject()) {
+            JsonObject object = value.asObject();
+            for (JsonValue child : object.value().values()) {
+                count += touch(child);
+            }
+        }
+        else if (value.isArray()) {
+            JsonArray array = value.asArray();
+            for (int k = 0; k < array.size(); k++) {
+                count += touch(array.get(k));
+            }
+        }
+        return count;
+    }
+
+    private static void report(String name, long nanos, int chars, int iterations) {
+        double ms = nanos / 1e6 / iterations;
+        double mbs = chars / 1024.0 / 1024.0 / (ms / 1000);
+        System.out.println(String.format("  %-34s %10.2f ms/op %10.2f MB/s", name, ms, mbs));
+    }
+}
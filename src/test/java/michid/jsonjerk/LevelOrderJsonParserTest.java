@@ -0,0 +1,197 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package michid.jsonjerk;
+
+import michid.jsonjerk.JsonValue.JsonArray;
+import michid.jsonjerk.JsonValue.JsonObject;
+import michid.jsonjerk.LevelOrderJsonParser.Retention;
+import org.junit.Test;
+
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class LevelOrderJsonParserTest {
+    private static final String JSON = "{\"a\":{\"x\":{\"y\":1}},\"b\":{\"x\":2},\"c\":[{\"x\":3}]}";
+
+    @Test
+    public void testMemoized() {
+        CountingTokenizer tokenizer = new CountingTokenizer(JSON);
+        JsonObject object = LevelOrderJsonParser.parseObject(tokenizer);
+        int copies = tokenizer.copies.get();
+
+        JsonObject a = object.get("a").asObject();
+        Map<String, JsonValue> values = a.value();
+        assertEquals(copies + materializationCopies(), tokenizer.copies.get());
+
+        for (int k = 0; k < 10; k++) {
+            assertSame(values, a.value());
+            assertSame(values.get("x"), a.get("x"));
+        }
+        assertEquals(copies + materializationCopies(), tokenizer.copies.get());
+        assertEquals(FullJsonParser.parseObject(new DefaultJsonTokenizer(JSON)), object);
+    }
+
+    @Test
+    public void testConcurrentMaterialization() throws Exception {
+        final CountingTokenizer tokenizer = new CountingTokenizer(JSON);
+        final JsonObject object = LevelOrderJsonParser.parseObject(tokenizer);
+        final JsonObject a = object.get("a").asObject();
+        int copies = tokenizer.copies.get();
+
+        int threads = 8;
+        final CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            Future<?>[] results = new Future<?>[threads];
+            for (int k = 0; k < threads; k++) {
+                results[k] = executor.submit(new Callable<Map<String, JsonValue>>() {
+                    @Override
+                    public Map<String, JsonValue> call() throws InterruptedException {
+                        start.await();
+                        return a.value();
+                    }
+                });
+            }
+            start.countDown();
+            for (Future<?> result : results) {
+                assertSame(a.value(), result.get());
+            }
+        }
+        finally {
+            executor.shutdown();
+        }
+        assertEquals(copies + materializationCopies(), tokenizer.copies.get());
+    }
+
+    @Test
+    public void testBoundedRetention() {
+        JsonObject object = LevelOrderJsonParser.parseObject(new DefaultJsonTokenizer(JSON), Retention.bounded(1));
+        JsonObject a = object.get("a").asObject();
+        JsonObject b = object.get("b").asObject();
+
+        Map<String, JsonValue> aValues = a.value();
+        assertSame(aValues, a.value());
+
+        // materializing b evicts a
+        Map<String, JsonValue> bValues = b.value();
+        Map<String, JsonValue> aValues2 = a.value();
+        assertNotSame(aValues, aValues2);
+        assertEquals(aValues, aValues2);
+
+        // materializing a again evicted b
+        assertNotSame(bValues, b.value());
+        assertEquals(bValues, b.value());
+    }
+
+    @Test
+    public void testSoftRetention() {
+        JsonObject object = LevelOrderJsonParser.parseObject(new DefaultJsonTokenizer(JSON), Retention.SOFT);
+        assertEquals(FullJsonParser.parseObject(new DefaultJsonTokenizer(JSON)), object);
+
+        JsonObject a = object.get("a").asObject();
+        Map<String, JsonValue> values = a.value();
+        assertSame(values, a.value());
+        assertFalse(a.isEmpty());
+    }
+
+    @Test
+    public void testDeferredArray() {
+        StringBuilder json = new StringBuilder("{\"records\":[");
+        for (int k = 0; k < 1000; k++) {
+            if (k > 0) {
+                json.append(',');
+            }
+            json.append(k % 2 == 0 ? "{\"id\":" + k + '}' : "[" + k + ", [], \"s\"]");
+        }
+        json.append("],\"empty\":[ ],\"n\":[1 , 2]}");
+
+        CountingTokenizer tokenizer = new CountingTokenizer(json.toString());
+        JsonObject object = LevelOrderJsonParser.parseObject(tokenizer);
+        JsonArray records = object.get("records").asArray();
+        assertEquals(1000, records.size());
+        assertTrue(object.get("empty").asArray().isEmpty());
+        assertEquals(2, object.get("n").asArray().size());
+
+        // only the accessed element is parsed
+        int copies = tokenizer.copies.get();
+        assertEquals("500", records.get(500).asObject().get("id").asAtom().value());
+        assertEquals(3, records.get(501).asArray().size());
+        assertEquals("501", records.get(501).asArray().get(0).asAtom().value());
+        assertSame(records.get(500), records.get(500));
+        assertTrue(tokenizer.copies.get() - copies < 10);
+
+        assertEquals(FullJsonParser.parseObject(new DefaultJsonTokenizer(json.toString())), object);
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void testDeferredArrayOutOfBounds() {
+        JsonObject object = LevelOrderJsonParser.parseObject(new DefaultJsonTokenizer("{\"a\":[1, 2]}"));
+        object.get("a").asArray().get(2);
+    }
+
+    @Test(expected = ParseException.class)
+    public void testDeferredArrayInvalid() {
+        LevelOrderJsonParser.parseObject(new DefaultJsonTokenizer("{\"a\":[1, 2,]}"));
+    }
+
+    //------------------------------------------< private >---
+
+    /**
+     * @return  the number of tokenizer copies made by materializing "a" once
+     */
+    private static int materializationCopies() {
+        CountingTokenizer tokenizer = new CountingTokenizer(JSON);
+        JsonObject a = LevelOrderJsonParser.parseObject(tokenizer).get("a").asObject();
+        int copies = tokenizer.copies.get();
+        a.value();
+        return tokenizer.copies.get() - copies;
+    }
+
+    private static class CountingTokenizer extends DefaultJsonTokenizer {
+        private final AtomicInteger copies;
+
+        CountingTokenizer(String json) {
+            super(json);
+            copies = new AtomicInteger();
+        }
+
+        private CountingTokenizer(CountingTokenizer tokenizer) {
+            super(tokenizer);
+            copies = tokenizer.copies;
+            copies.incrementAndGet();
+        }
+
+        @Override
+        public DefaultJsonTokenizer copy() {
+            return new CountingTokenizer(this);
+        }
+    }
+}
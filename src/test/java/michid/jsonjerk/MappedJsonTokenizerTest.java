@@ -0,0 +1,110 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package michid.jsonjerk;
+
+import michid.jsonjerk.JsonValue.JsonObject;
+import michid.jsonjerk.Token.Type;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+
+import static org.junit.Assert.assertEquals;
+
+public class MappedJsonTokenizerTest {
+    private File file;
+
+    @Before
+    public void setup() throws IOException {
+        file = File.createTempFile("json-jerk", ".json");
+    }
+
+    @After
+    public void tearDown() {
+        file.delete();
+    }
+
+    @Test
+    public void testSegments() throws IOException {
+        byte[] json = Utf8JsonTokenizerTest.utf8(JsonParserTest.readFile("/test2.json"));
+        write(json);
+
+        JsonObject expected = FullJsonParser.parseObject(new Utf8JsonTokenizer(json));
+        for (int shift : new int[] {12, 30}) {
+            assertEquals(expected, FullJsonParser.parseObject(new MappedJsonTokenizer(file, shift)));
+            assertEquals(expected, LevelOrderJsonParser.parseObject(new MappedJsonTokenizer(file, shift)));
+        }
+    }
+
+    @Test
+    public void testTokenSpanningSegments() throws IOException {
+        write(Utf8JsonTokenizerTest.utf8("[\"abcdefghijklmnopqrstuvwxyz\",12345678901234567890]"));
+
+        JsonTokenizer tokenizer = new MappedJsonTokenizer(file, 3);
+        tokenizer.read(Type.BEGIN_ARRAY);
+        assertEquals(new Token(Type.STRING, "abcdefghijklmnopqrstuvwxyz", 1), tokenizer.read());
+        tokenizer.read(Type.COMMA);
+        assertEquals(new Token(Type.NUMBER, "12345678901234567890", 30), tokenizer.read());
+        tokenizer.read(Type.END_ARRAY);
+        assertEquals(Type.EOF, tokenizer.read().type());
+    }
+
+    @Test
+    public void testSegmentBoundaries() throws IOException {
+        byte[] json = Utf8JsonTokenizerTest.utf8("{\"a\":1}");
+        int shift = 4;
+
+        // JSON object starting before, at and after the start of the fourth segment
+        for (int offset = (3 << shift) - json.length; offset <= 3 << shift; offset++) {
+            byte[] padded = new byte[offset + json.length];
+            System.arraycopy(json, 0, padded, offset, json.length);
+            write(padded);
+
+            MappedJsonTokenizer tokenizer = new MappedJsonTokenizer(file, shift);
+            assertEquals(offset + 7, tokenizer.length());
+
+            tokenizer.setPosition(offset);
+            assertEquals(offset, tokenizer.position());
+            Token token = tokenizer.read();
+            assertEquals(Type.BEGIN_OBJECT, token.type());
+            assertEquals(offset, token.position());
+
+            tokenizer.setPosition(offset);
+            JsonObject object = FullJsonParser.parseObject(tokenizer);
+            assertEquals("1", object.get("a").asAtom().value());
+            assertEquals(offset + 7, tokenizer.position());
+        }
+    }
+
+    //------------------------------------------< private >---
+
+    private void write(byte[] json) throws IOException {
+        FileOutputStream out = new FileOutputStream(file);
+        try {
+            out.write(json);
+        }
+        finally {
+            out.close();
+        }
+    }
+}
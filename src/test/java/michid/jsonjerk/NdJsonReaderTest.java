@@ -0,0 +1,283 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package michid.jsonjerk;
+
+import michid.jsonjerk.JsonValue.JsonObject;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class NdJsonReaderTest {
+    private static final int RECORDS = 5000;
+
+    private ExecutorService executor;
+
+    @Before
+    public void setup() {
+        executor = Executors.newFixedThreadPool(4);
+    }
+
+    @After
+    public void tearDown() {
+        executor.shutdown();
+    }
+
+    @Test
+    public void testOrdered() throws IOException {
+        final List<Long> lines = new ArrayList<Long>();
+        final List<JsonValue> values = new ArrayList<JsonValue>();
+        new NdJsonReader(input(), executor, 256, 3).read(new NdJsonReader.RecordHandler() {
+            @Override
+            public void record(long line, JsonValue value) {
+                lines.add(line);
+                values.add(value);
+            }
+        }, true);
+
+        assertEquals(RECORDS, values.size());
+        for (int k = 0; k < RECORDS; k++) {
+            assertEquals(expectedLine(k), (long) lines.get(k));
+            assertEquals(expected(k), values.get(k));
+        }
+    }
+
+    @Test
+    public void testUnordered() throws IOException {
+        final ConcurrentHashMap<Long, JsonValue> values = new ConcurrentHashMap<Long, JsonValue>();
+        new NdJsonReader(input(), executor, 256, 3).read(new NdJsonReader.RecordHandler() {
+            @Override
+            public void record(long line, JsonValue value) {
+                values.put(line, value);
+            }
+        }, false);
+
+        assertEquals(RECORDS, values.size());
+        for (int k = 0; k < RECORDS; k++) {
+            assertEquals(expected(k), values.get(expectedLine(k)));
+        }
+    }
+
+    @Test
+    public void testJsonHandler() throws IOException {
+        final AtomicInteger objects = new AtomicInteger();
+        final AtomicInteger atoms = new AtomicInteger();
+        new NdJsonReader(input(), executor, 1024, 2).read(new JsonHandler() {
+            @Override
+            public void object(JsonParser parser, Token key, JsonTokenizer tokenizer) {
+                if (key == null) {
+                    objects.incrementAndGet();
+                }
+                super.object(parser, key, tokenizer);
+            }
+
+            @Override
+            public void atom(Token key, Token value) {
+                atoms.incrementAndGet();
+            }
+        });
+
+        assertEquals(RECORDS, objects.get());
+        assertEquals(4 * RECORDS, atoms.get());
+    }
+
+    @Test
+    public void testLongLines() throws IOException {
+        StringBuilder json = new StringBuilder();
+        for (int k = 0; k < 10; k++) {
+            json.append("{\"k\":\"");
+            for (int j = 0; j < 1000 * k; j++) {
+                json.append('\u00e4');
+            }
+            json.append("\"}\n");
+        }
+        json.append("[1,2]");     // no trailing newline
+
+        final List<JsonValue> values = new ArrayList<JsonValue>();
+        new NdJsonReader(new ByteArrayInputStream(Utf8JsonTokenizerTest.utf8(json.toString())), executor, 16, 2)
+                .read(new NdJsonReader.RecordHandler() {
+                    @Override
+                    public void record(long line, JsonValue value) {
+                        values.add(value);
+                    }
+                }, true);
+
+        assertEquals(11, values.size());
+        assertEquals(2000, values.get(2).asObject().get("k").asAtom().value().length());
+        assertEquals(2, values.get(10).asArray().size());
+    }
+
+    @Test
+    public void testBoundedInFlight() throws IOException {
+        final AtomicInteger inFlight = new AtomicInteger();
+        final AtomicInteger maxInFlight = new AtomicInteger();
+        final ExecutorService executor = Executors.newSingleThreadExecutor();
+        Executor counting = new Executor() {
+            @Override
+            public void execute(final Runnable command) {
+                int n = inFlight.incrementAndGet();
+                while (n > maxInFlight.get()) {
+                    maxInFlight.set(n);
+                }
+                executor.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        try {
+                            command.run();
+                        }
+                        finally {
+                            inFlight.decrementAndGet();
+                        }
+                    }
+                });
+            }
+        };
+
+        final AtomicInteger count = new AtomicInteger();
+        NdJsonReader.RecordHandler handler = new NdJsonReader.RecordHandler() {
+            @Override
+            public void record(long line, JsonValue value) {
+                count.incrementAndGet();
+            }
+        };
+        try {
+            new NdJsonReader(input(), counting, 128, 2).read(handler, false);
+            new NdJsonReader(input(), counting, 128, 2).read(handler, true);
+        }
+        finally {
+            executor.shutdown();
+        }
+
+        // the counter is decremented only after a batch has been handed back to the
+        // reader, which may already have submitted the next batch at that point
+        assertEquals(2 * RECORDS, count.get());
+        assertTrue(String.valueOf(maxInFlight.get()), maxInFlight.get() <= 2 + 1);
+    }
+
+    @Test
+    public void testParseError() throws IOException {
+        String json = "{\"a\":1}\n{\"a\":2}\n\n{\"a\":}\n{\"a\":4}\n";
+        for (boolean ordered : new boolean[] {true, false}) {
+            try {
+                new NdJsonReader(new ByteArrayInputStream(Utf8JsonTokenizerTest.utf8(json)), executor, 8, 2)
+                        .read(new NdJsonReader.RecordHandler() {
+                            @Override
+                            public void record(long line, JsonValue value) { }
+                        }, ordered);
+                fail("Expected ParseException");
+            }
+            catch (ParseException e) {
+                assertTrue(e.getMessage(), e.getMessage().contains("line 3"));
+            }
+        }
+    }
+
+    @Test(timeout = 10000)
+    public void testRejectedExecution() throws IOException, InterruptedException {
+        final AtomicInteger submitted = new AtomicInteger();
+        Executor rejecting = new Executor() {
+            @Override
+            public void execute(final Runnable command) {
+                if (submitted.incrementAndGet() > 3) {
+                    throw new RejectedExecutionException();
+                }
+                executor.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        try {
+                            Thread.sleep(50);
+                        }
+                        catch (InterruptedException e) {
+                            Thread.currentThread().interrupt();
+                        }
+                        command.run();
+                    }
+                });
+            }
+        };
+
+        for (boolean ordered : new boolean[] {true, false}) {
+            submitted.set(0);
+            final AtomicInteger records = new AtomicInteger();
+            try {
+                new NdJsonReader(input(), rejecting, 256, 2).read(new NdJsonReader.RecordHandler() {
+                    @Override
+                    public void record(long line, JsonValue value) {
+                        records.incrementAndGet();
+                    }
+                }, ordered);
+                fail("Expected RejectedExecutionException");
+            }
+            catch (RejectedExecutionException expected) { }
+
+            // no batches are still being parsed once read failed
+            int count = records.get();
+            Thread.sleep(200);
+            assertEquals(count, records.get());
+        }
+    }
+
+    @Test(expected = ParseException.class)
+    public void testTrailingGarbage() throws IOException {
+        new NdJsonReader(new ByteArrayInputStream(Utf8JsonTokenizerTest.utf8("{} {}\n")), executor)
+                .read(JsonHandler.INSTANCE);
+    }
+
+    //------------------------------------------< private >---
+
+    /**
+     * Record k with a blank line after every 100th record and a CRLF line end
+     * after every 7th record
+     */
+    private static InputStream input() {
+        StringBuilder json = new StringBuilder();
+        for (int k = 0; k < RECORDS; k++) {
+            json.append(expected(k).toJson()).append(k % 7 == 0 ? "\r\n" : "\n");
+            if (k % 100 == 99) {
+                json.append("  \n");
+            }
+        }
+        return new ByteArrayInputStream(Utf8JsonTokenizerTest.utf8(json.toString()));
+    }
+
+    private static long expectedLine(int k) {
+        return k + k / 100;
+    }
+
+    private static JsonValue expected(int k) {
+        return FullJsonParser.parseObject(new DefaultJsonTokenizer(
+                "{\"id\":" + k + ",\"name\":\"r\u00e9cord " + k + "\",\"tags\":[\"a\",\"b\"]}"));
+    }
+}
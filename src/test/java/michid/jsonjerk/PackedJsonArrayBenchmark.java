@@ -0,0 +1,154 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package michid.jsonjerk;
+
+import michid.jsonjerk.JsonValue.JsonArray;
+import michid.jsonjerk.JsonValue.JsonAtom;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+
+/**
+ * Compares memory footprint and iteration speed of numeric arrays parsed into
+ * {@link PackedJsonArray}s with the same arrays held as lists of atoms. Run with
+ * the number of elements as optional argument.
+ */
+public class PackedJsonArrayBenchmark {
+    private static final int ROUNDS = 10;
+
+    public static void main(String[] args) throws InterruptedException {
+        int count = args.length > 0 ? Integer.parseInt(args[0]) : 1000000;
+        run("time series (long)", timeSeries(count), count);
+        run("embedding (double)", embedding(count), count);
+        run("embedding (6 decimals)", decimals(count, "%.6f", 1), count);
+        run("prices (2 decimals)", decimals(count, "%.2f", 1000), count);
+    }
+
+    private static void run(String name, String json, int count) throws InterruptedException {
+        System.out.println(name + ", " + count + " elements, " + json.length() + " chars");
+
+        for (int run = 0; run < 2; run++) {
+            System.out.println(run == 0 ? "warm up" : "measure");
+
+            long before = usedMemory();
+            JsonArray packed = FullJsonParser.parseArray(new DefaultJsonTokenizer(json));
+            long packedBytes = usedMemory() - before;
+
+            before = usedMemory();
+            JsonArray atoms = toAtoms(FullJsonParser.parseArray(new DefaultJsonTokenizer(json)));
+            long atomBytes = usedMemory() - before;
+
+            report("List of JsonAtom", atomBytes, count, iterate(atoms));
+            report("PackedJsonArray", packedBytes, count, iterate(packed));
+
+            // keep both alive until here
+            if (packed.size() != atoms.size()) {
+                throw new AssertionError();
+            }
+        }
+    }
+
+    /**
+     * Copy {@code array} into a list of atoms holding the text of each number
+     */
+    private static JsonArray toAtoms(JsonArray array) {
+        List<JsonValue> values = new ArrayList<JsonValue>(array.size());
+        for (JsonValue value : array.value()) {
+            values.add(new JsonAtom(value.asAtom().value(), JsonValue.Type.NUMBER));
+        }
+        return new JsonArray(values);
+    }
+
+    private static long iterate(JsonArray array) {
+        double sum = 0;
+        long t0 = System.nanoTime();
+        for (int round = 0; round < ROUNDS; round++) {
+            for (int k = 0, n = array.size(); k < n; k++) {
+                sum += array.getDouble(k);
+            }
+        }
+        long t = (System.nanoTime() - t0) / ROUNDS;
+        if (sum == 42) {
+            System.out.println();
+        }
+        return t;
+    }
+
+    private static String timeSeries(int count) {
+        StringBuilder json = new StringBuilder(count * 15);
+        json.append('[');
+        long t = 1700000000000L;
+        for (int k = 0; k < count; k++) {
+            if (k > 0) {
+                json.append(',');
+            }
+            json.append(t += 1000 + k % 7);
+        }
+        return json.append(']').toString();
+    }
+
+    private static String embedding(int count) {
+        Random random = new Random(42);
+        StringBuilder json = new StringBuilder(count * 22);
+        json.append('[');
+        for (int k = 0; k < count; k++) {
+            if (k > 0) {
+                json.append(',');
+            }
+            json.append(random.nextGaussian());
+        }
+        return json.append(']').toString();
+    }
+
+    /**
+     * Gaussian values with the given standard deviation formatted as fixed point
+     * decimals, which includes trailing zeros and small values like 0.000012
+     */
+    private static String decimals(int count, String format, double deviation) {
+        Random random = new Random(42);
+        StringBuilder json = new StringBuilder(count * 12);
+        json.append('[');
+        for (int k = 0; k < count; k++) {
+            if (k > 0) {
+                json.append(',');
+            }
+            json.append(String.format(Locale.ROOT, format, random.nextGaussian() * deviation));
+        }
+        return json.append(']').toString();
+    }
+
+    private static long usedMemory() throws InterruptedException {
+        Runtime runtime = Runtime.getRuntime();
+        long used = Long.MAX_VALUE;
+        for (int k = 0; k < 5; k++) {
+            System.gc();
+            Thread.sleep(50);
+            used = Math.min(used, runtime.totalMemory() - runtime.freeMemory());
+        }
+        return used;
+    }
+
+    private static void report(String name, long bytes, int count, long nanos) {
+        System.out.println(String.format("  %-20s %10.2f MB %8.2f bytes/element %8.2f ms/iteration",
+                name, bytes / 1024.0 / 1024.0, (double) bytes / count, nanos / 1e6));
+    }
+}
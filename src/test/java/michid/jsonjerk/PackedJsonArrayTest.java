@@ -0,0 +1,206 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package michid.jsonjerk;
+
+import michid.jsonjerk.JsonValue.JsonArray;
+import michid.jsonjerk.JsonValue.JsonAtom;
+import org.junit.Test;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class PackedJsonArrayTest {
+
+    @Test
+    public void testLongs() {
+        String json = "[1,-2,0,9223372036854775807,-9223372036854775808]";
+        PackedJsonArray array = parse(json);
+        assertTrue(array.isPacked());
+        assertEquals(5, array.size());
+        assertEquals(-2, array.getLong(1));
+        assertEquals(Long.MIN_VALUE, array.getLong(4));
+        assertEquals(1.0, array.getDouble(0), 0);
+        assertEquals(JsonAtom.number(1), array.get(0));
+        assertTrue(array.get(3).asAtom().asNumber().isIntegral());
+        assertEquals(json, array.toJson());
+        assertEquals(reference(json), array);
+        assertEquals(reference(json).hashCode(), array.hashCode());
+    }
+
+    @Test
+    public void testDoubles() {
+        String json = "[1,2.5,-3,1.0E20,-0.0,4.9E-324]";
+        PackedJsonArray array = parse(json);
+        assertTrue(array.isPacked());
+        assertEquals(6, array.size());
+        assertEquals(2.5, array.getDouble(1), 0);
+        assertEquals(-3, array.getLong(2));
+        assertEquals(Double.MIN_VALUE, array.getDouble(5), 0);
+        assertTrue(array.get(0).asAtom().asNumber().isIntegral());
+        assertFalse(array.get(1).asAtom().asNumber().isIntegral());
+        assertEquals(json, array.toJson());
+        assertEquals(reference(json), array);
+
+        try {
+            array.getLong(1);
+            fail();
+        }
+        catch (NumberFormatException expected) { }
+    }
+
+    @Test
+    public void testDecimals() {
+        String[] jsons = {
+            "[0.5,0.25,0.0001,0.75]", "[0.5,1.50,0.75]", "[0.5,12345678.5,0.75]",
+            "[0.10,-0.00,100.000,-0.000000123456789012345]", "[1,2.00,3,99999999999999.9]"
+        };
+
+        for (String json : jsons) {
+            PackedJsonArray array = parse(json);
+            assertTrue(json, array.isPacked());
+            assertEquals(json, json, array.toJson());
+            assertEquals(json, reference(json), array);
+        }
+
+        PackedJsonArray array = parse("[0.5,0.0001,1.50]");
+        assertEquals(0.0001, array.getDouble(1), 0);
+        assertEquals("1.50", array.get(2).asAtom().value());
+        assertEquals(1.5, array.get(2).asAtom().asNumber().asDouble(), 0);
+    }
+
+    @Test
+    public void testRandomDecimals() {
+        Random random = new Random(42);
+        StringBuilder json = new StringBuilder("[");
+        for (int k = 0; k < 10000; k++) {
+            if (k > 0) {
+                json.append(',');
+            }
+            int scale = 1 + random.nextInt(8);
+            long digits = (long) (random.nextDouble() * 1e15) / (long) Math.pow(10, random.nextInt(15));
+            json.append(new BigDecimal(BigInteger.valueOf(random.nextBoolean() ? digits : -digits), scale)
+                    .toPlainString());
+        }
+        String text = json.append(']').toString();
+        PackedJsonArray array = parse(text);
+        assertTrue(array.isPacked());
+        assertEquals(text, array.toJson());
+    }
+
+    @Test
+    public void testFallback() {
+        String[] jsons = {
+            "[1e3]", "[0.5,1.5e3]", "[1.2345678901234560]", "[01.5]", "[-0]", "[1,\"a\"]", "[1,null]", "[[1,2],[]]", "[2.5,{}]",
+            "[9007199254740993,0.5]", "[0.5,9007199254740993]", "[1,12345678901234567890]"
+        };
+
+        for (String json : jsons) {
+            PackedJsonArray array = parse(json);
+            assertFalse(json, array.isPacked());
+            assertEquals(json, json, array.toJson());
+            assertEquals(json, reference(json), array);
+        }
+    }
+
+    @Test
+    public void testNested() {
+        JsonArray array = FullJsonParser.parseArray(new DefaultJsonTokenizer("[[1,2],[0.5],[]]"));
+        assertTrue(((PackedJsonArray) array.get(0)).isPacked());
+        assertTrue(((PackedJsonArray) array.get(1)).isPacked());
+        assertTrue(array.get(2).asArray().isEmpty());
+        assertEquals(2, array.get(0).asArray().getLong(1));
+    }
+
+    @Test
+    public void testIndexOutOfBounds() {
+        PackedJsonArray array = parse("[1,2]");
+        for (int index : new int[] {-1, 2, 8}) {
+            try {
+                array.get(index);
+                fail();
+            }
+            catch (IndexOutOfBoundsException expected) { }
+            try {
+                array.getLong(index);
+                fail();
+            }
+            catch (IndexOutOfBoundsException expected) { }
+        }
+    }
+
+    @Test
+    public void testMutation() {
+        PackedJsonArray array = parse("[1,2]");
+        array.add(JsonAtom.number(0.5));
+        array.value().add(JsonAtom.number(3));
+        assertTrue(array.isPacked());
+        assertEquals("[1,2,0.5,3]", array.toJson());
+
+        List<JsonValue> values = array.value();
+        values.set(0, JsonAtom.string("a"));
+        assertFalse(array.isPacked());
+        assertEquals("[\"a\",2,0.5,3]", array.toJson());
+
+        assertTrue(array.remove(JsonAtom.number(0.5)));
+        assertFalse(array.remove(JsonAtom.number(0.5)));
+        values.remove(0);
+        assertEquals("[2,3]", array.toJson());
+        assertEquals(3, array.getLong(1));
+    }
+
+    @Test
+    public void testRemoveKeepsValues() {
+        PackedJsonArray array = parse("[1,2.5,3]");
+        assertTrue(array.remove(JsonAtom.number(2.5)));
+        assertFalse(array.isPacked());
+        assertEquals("[1,3]", array.toJson());
+    }
+
+    @Test
+    public void testIterator() {
+        PackedJsonArray array = parse("[1,2,3]");
+        Iterator<JsonValue> values = array.value().iterator();
+        for (long k = 1; k <= 3; k++) {
+            assertTrue(values.hasNext());
+            assertEquals(JsonAtom.number(k), values.next());
+        }
+        assertFalse(values.hasNext());
+    }
+
+    //------------------------------------------< private >---
+
+    private static PackedJsonArray parse(String json) {
+        return (PackedJsonArray) FullJsonParser.parseArray(new DefaultJsonTokenizer(json));
+    }
+
+    private static JsonArray reference(String json) {
+        JsonArray array = LevelOrderJsonParser.parseArray(new DefaultJsonTokenizer(json));
+        assertFalse(array instanceof PackedJsonArray);
+        return array;
+    }
+}
@@ -0,0 +1,86 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package michid.jsonjerk;
+
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Compares parsing a large array of records with {@link FullJsonParser} and with
+ * {@link ParallelJsonParser} for an increasing number of threads. Run with the
+ * document size in MB and an iteration count as optional arguments.
+ */
+public class ParallelJsonParserBenchmark {
+
+    public static void main(String[] args) {
+        int size = (args.length > 0 ? Integer.parseInt(args[0]) : 64) * 1024 * 1024;
+        int iterations = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+        String json = records(size);
+        int processors = Runtime.getRuntime().availableProcessors();
+
+        for (int run = 0; run < 2; run++) {
+            String label = run == 0 ? "warm up" : "measure";
+            System.out.println(label + ": " + json.length() + " chars, " + processors + " processors, "
+                    + iterations + " iterations");
+
+            long t0 = System.nanoTime();
+            for (int k = 0; k < iterations; k++) {
+                FullJsonParser.parseArray(new DefaultJsonTokenizer(json));
+            }
+            report("FullJsonParser", System.nanoTime() - t0, json.length(), iterations);
+
+            for (int threads = 1; threads <= processors; threads *= 2) {
+                ForkJoinPool pool = new ForkJoinPool(threads);
+                try {
+                    ParallelJsonParser parser = new ParallelJsonParser(pool);
+                    t0 = System.nanoTime();
+                    for (int k = 0; k < iterations; k++) {
+                        parser.parseArray(new DefaultJsonTokenizer(json));
+                    }
+                    report("ParallelJsonParser (" + threads + " threads)", System.nanoTime() - t0,
+                            json.length(), iterations);
+                }
+                finally {
+                    pool.shutdown();
+                }
+            }
+        }
+    }
+
+    private static String records(int size) {
+        StringBuilder json = new StringBuilder(size + 256);
+        json.append('[');
+        for (int k = 0; json.length() < size; k++) {
+            if (k > 0) {
+                json.append(",\n");
+            }
+            json.append("{\"id\":").append(k).append(",\"name\":\"record ").append(k).append("\",")
+                .append("\"price\":").append(k % 1000).append(".5,\"tags\":[\"a\",\"b\"],")
+                .append("\"owner\":{\"name\":\"owner ").append(k % 100).append("\",\"active\":")
+                .append(k % 2 == 0).append("}}");
+        }
+        return json.append(']').toString();
+    }
+
+    private static void report(String name, long nanos, int chars, int iterations) {
+        double ms = nanos / 1e6 / iterations;
+        double mbs = chars / 1024.0 / 1024.0 / (ms / 1000);
+        System.out.println(String.format("  %-34s %10.2f ms/op %10.2f MB/s", name, ms, mbs));
+    }
+}
@@ -0,0 +1,119 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package michid.jsonjerk;
+
+import michid.jsonjerk.JsonValue.JsonArray;
+import michid.jsonjerk.Token.Type;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+public class ParallelJsonParserTest {
+    private static ForkJoinPool pool;
+
+    @BeforeClass
+    public static void setup() {
+        pool = new ForkJoinPool(4);
+    }
+
+    @AfterClass
+    public static void tearDown() {
+        pool.shutdown();
+    }
+
+    @Test
+    public void testParseArray() {
+        String json = records(2000);
+        JsonArray expected = FullJsonParser.parseArray(new DefaultJsonTokenizer(json));
+        ParallelJsonParser parser = new ParallelJsonParser(pool, 1024);
+
+        assertEquals(expected, parser.parseArray(new DefaultJsonTokenizer(json)));
+        assertEquals(expected, parser.parseArray(new IndexedJsonTokenizer(json)));
+        assertEquals(expected, parser.parseArray(new Utf8JsonTokenizer(Utf8JsonTokenizerTest.utf8(json))));
+        assertEquals(expected, new ParallelJsonParser(pool).parseArray(new DefaultJsonTokenizer(json)));
+    }
+
+    @Test
+    public void testEmptyAndSmall() {
+        ParallelJsonParser parser = new ParallelJsonParser(pool, 1);
+        assertEquals(0, parser.parseArray(new DefaultJsonTokenizer("[ ]")).size());
+
+        String json = "[1,\"a\",[true,null],{\"b\":[]}]";
+        assertEquals(FullJsonParser.parseArray(new DefaultJsonTokenizer(json)),
+                parser.parseArray(new DefaultJsonTokenizer(json)));
+    }
+
+    @Test
+    public void testElementHandler() {
+        String json = records(500) + " 42";
+        final AtomicIntegerArray seen = new AtomicIntegerArray(500);
+        DefaultJsonTokenizer tokenizer = new DefaultJsonTokenizer(json);
+        new ParallelJsonParser(pool, 512).parseArray(tokenizer, new ParallelJsonParser.ElementHandler() {
+            @Override
+            public void element(int index, JsonTokenizer tokenizer) {
+                JsonValue id = FullJsonParser.parseObject(tokenizer).get("id");
+                assertEquals(String.valueOf(index), id.asAtom().value());
+                seen.incrementAndGet(index);
+            }
+        });
+
+        for (int k = 0; k < seen.length(); k++) {
+            assertEquals(1, seen.get(k));
+        }
+        assertEquals(new Token(Type.NUMBER, "42", json.length() - 2), tokenizer.read());
+    }
+
+    @Test
+    public void testParseException() {
+        // invalid numbers inside objects pass the boundary pass but fail in the parallel pass
+        String json = records(100).replace("\"id\":50,", "\"id\":-,");
+        try {
+            new ParallelJsonParser(pool, 256).parseArray(new DefaultJsonTokenizer(json));
+            fail("Expected ParseException");
+        }
+        catch (ParseException expected) { }
+    }
+
+    @Test(expected = ParseException.class)
+    public void testInvalidArray() {
+        new ParallelJsonParser(pool).parseArray(new DefaultJsonTokenizer("[{},{}"));
+    }
+
+    //------------------------------------------< private >---
+
+    private static String records(int count) {
+        StringBuilder json = new StringBuilder("[");
+        for (int k = 0; k < count; k++) {
+            if (k > 0) {
+                json.append(",\n");
+            }
+            json.append("{\"id\":").append(k).append(",\"name\":\"record \\\"").append(k).append("\\\"\",")
+                .append("\"values\":[").append(k % 7).append(',').append(k * 0.5).append(",null],")
+                .append("\"nested\":{\"flag\":").append(k % 2 == 0).append("}}");
+        }
+        return json.append(']').toString();
+    }
+}
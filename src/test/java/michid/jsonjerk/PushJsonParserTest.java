@@ -0,0 +1,242 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package michid.jsonjerk;
+
+import michid.jsonjerk.Token.Type;
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class PushJsonParserTest {
+
+    @Test
+    public void testChunks() {
+        String json = JsonParserTest.readFile("/test2.json");
+        List<String> expected = parse(json);
+        byte[] bytes = Utf8JsonTokenizerTest.utf8(json);
+
+        for (int chunkSize : new int[] {1, 2, 3, 7, 64, 4096, bytes.length}) {
+            assertEquals("chunk size " + chunkSize, expected, push(bytes, chunkSize));
+        }
+    }
+
+    @Test
+    public void testSuspend() {
+        Recorder recorder = new Recorder();
+        PushJsonParser parser = new PushJsonParser(recorder);
+
+        parser.feed(buffer("{\"a\":[12"));
+        assertEquals(list("{", "a=["), recorder.events);
+        assertEquals(2, parser.depth());
+
+        parser.feed(buffer("34,tr"));
+        assertEquals(list("{", "a=[", "1234", ","), recorder.events);
+
+        parser.feed(buffer("ue,\"x\\\\\\"));
+        assertEquals(list("{", "a=[", "1234", ",", "true", ","), recorder.events);
+
+        parser.feed(buffer("\"y\"]}"));
+        assertEquals(list("{", "a=[", "1234", ",", "true", ",", "x\\\\\\\"y", "]", "}"), recorder.events);
+        assertTrue(parser.isComplete());
+        parser.end();
+    }
+
+    @Test
+    public void testMultiByteCharacterSplit() {
+        byte[] bytes = Utf8JsonTokenizerTest.utf8("[\"\u00e4\u20ac\ud834\udd1e\"]");
+        for (int k = 1; k < bytes.length; k++) {
+            Recorder recorder = new Recorder();
+            PushJsonParser parser = new PushJsonParser(recorder);
+            parser.feed(ByteBuffer.wrap(bytes, 0, k));
+            parser.feed(ByteBuffer.wrap(bytes, k, bytes.length - k));
+            parser.end();
+            assertEquals(list("[", "\u00e4\u20ac\ud834\udd1e", "]"), recorder.events);
+        }
+    }
+
+    @Test
+    public void testNumberAtEnd() {
+        PushJsonTokenizer tokenizer = new PushJsonTokenizer();
+        tokenizer.feed(buffer(" -12.5e3"));
+        assertNull(tokenizer.next());
+        tokenizer.end();
+        assertEquals(new Token(Type.NUMBER, "-12.5e3", 1), tokenizer.next());
+        assertEquals(Type.EOF, tokenizer.next().type());
+    }
+
+    @Test
+    public void testBufferShrinks() {
+        PushJsonTokenizer tokenizer = new PushJsonTokenizer();
+        StringBuilder large = new StringBuilder("[\"");
+        for (int k = 0; k < 100000; k++) {
+            large.append('x');
+        }
+        tokenizer.feed(buffer(large.append("\",").toString()));
+        assertEquals(Type.BEGIN_ARRAY, tokenizer.next().type());
+        assertEquals(100000, tokenizer.next().text().length());
+        assertEquals(Type.COMMA, tokenizer.next().type());
+        assertTrue(tokenizer.capacity() > 100000);
+
+        tokenizer.feed(buffer("1, 2"));
+        assertTrue(tokenizer.capacity() <= 256);
+        assertEquals(100004, tokenizer.next().position());
+        assertEquals(Type.COMMA, tokenizer.next().type());
+        tokenizer.end();
+        Token token = tokenizer.next();
+        assertEquals(new Token(Type.NUMBER, "2", 0), token);
+        assertEquals(100007, token.position());
+    }
+
+    @Test
+    public void testSequence() {
+        Recorder recorder = new Recorder();
+        PushJsonParser parser = new PushJsonParser(recorder);
+        parser.feed(buffer("{\"a\":1}\n[2]\n{}"));
+        parser.end();
+        assertEquals(list("{", "a=1", "}", "[", "2", "]", "{", "}"), recorder.events);
+    }
+
+    @Test
+    public void testIncomplete() {
+        PushJsonParser parser = new PushJsonParser(PushJsonHandler.INSTANCE);
+        parser.feed(buffer("{\"a\":[1,2"));
+        assertFalse(parser.isComplete());
+        try {
+            parser.end();
+            fail("Expected ParseException");
+        }
+        catch (ParseException expected) { }
+    }
+
+    @Test
+    public void testInvalid() {
+        String[] invalid = {"{\"key\":}", "{\"key\":[1,]}", "{\"key\":1,}", "{1:2}", "{\"key\" 1}",
+                "[1 2]", "1", "[tru]", "[\"abc]", "[1}"};
+
+        for (String json : invalid) {
+            byte[] bytes = Utf8JsonTokenizerTest.utf8(json);
+            for (int chunkSize : new int[] {1, bytes.length}) {
+                try {
+                    push(bytes, chunkSize);
+                    fail("Expected ParseException for " + json);
+                }
+                catch (ParseException expected) { }
+            }
+        }
+    }
+
+    //------------------------------------------< private >---
+
+    private static ByteBuffer buffer(String json) {
+        return ByteBuffer.wrap(Utf8JsonTokenizerTest.utf8(json));
+    }
+
+    private static List<String> list(String... events) {
+        List<String> list = new ArrayList<String>();
+        for (String event : events) {
+            list.add(event);
+        }
+        return list;
+    }
+
+    private static List<String> push(byte[] bytes, int chunkSize) {
+        Recorder recorder = new Recorder();
+        PushJsonParser parser = new PushJsonParser(recorder);
+        for (int k = 0; k < bytes.length; k += chunkSize) {
+            parser.feed(ByteBuffer.wrap(bytes, k, Math.min(chunkSize, bytes.length - k)));
+        }
+        parser.end();
+        return recorder.events;
+    }
+
+    private static List<String> parse(String json) {
+        final List<String> events = new ArrayList<String>();
+        events.add("{");
+        new JsonParser(new JsonHandler() {
+            @Override
+            public void atom(Token key, Token value) {
+                events.add(key == null ? value.text() : key.text() + '=' + value.text());
+            }
+
+            @Override
+            public void comma(Token token) {
+                events.add(",");
+            }
+
+            @Override
+            public void object(JsonParser parser, Token key, JsonTokenizer tokenizer) {
+                events.add(key == null ? "{" : key.text() + "={");
+                super.object(parser, key, tokenizer);
+                events.add("}");
+            }
+
+            @Override
+            public void array(JsonParser parser, Token key, JsonTokenizer tokenizer) {
+                events.add(key == null ? "[" : key.text() + "=[");
+                super.array(parser, key, tokenizer);
+                events.add("]");
+            }
+        }).parseObject(new DefaultJsonTokenizer(json));
+        events.add("}");
+        return events;
+    }
+
+    private static class Recorder extends PushJsonHandler {
+        final List<String> events = new ArrayList<String>();
+
+        @Override
+        public void atom(Token key, Token value) {
+            events.add(key == null ? value.text() : key.text() + '=' + value.text());
+        }
+
+        @Override
+        public void comma(Token token) {
+            events.add(",");
+        }
+
+        @Override
+        public void beginObject(Token key) {
+            events.add(key == null ? "{" : key.text() + "={");
+        }
+
+        @Override
+        public void endObject() {
+            events.add("}");
+        }
+
+        @Override
+        public void beginArray(Token key) {
+            events.add(key == null ? "[" : key.text() + "=[");
+        }
+
+        @Override
+        public void endArray() {
+            events.add("]");
+        }
+    }
+}
@@ -0,0 +1,143 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package michid.jsonjerk;
+
+import michid.jsonjerk.JsonValue.JsonObject;
+import michid.jsonjerk.Token.Type;
+import org.junit.Test;
+
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.StringReader;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class ReaderJsonTokenizerTest {
+    private static final String JSON = "{\"a\":1,\"b\":[true,false,null],\"c\":\"some \\\"long\\\" string\"," +
+            "\"d\":-12.34e-56,\"e\":{\"f\":{}}}";
+
+    @Test
+    public void testTokens() {
+        for (int bufferSize = 2; bufferSize < JSON.length() + 2; bufferSize++) {
+            JsonTokenizer expected = new DefaultJsonTokenizer(JSON);
+            JsonTokenizer actual = new ReaderJsonTokenizer(new StringReader(JSON), bufferSize);
+
+            Token token;
+            do {
+                token = expected.read();
+                Token t = actual.read();
+                assertEquals(token, t);
+                assertEquals(token.pos(), t.pos());
+            } while (token.type() != Type.EOF);
+        }
+    }
+
+    @Test
+    public void testSetPos() {
+        JsonTokenizer tokenizer = new ReaderJsonTokenizer(new StringReader(JSON), 16);
+        tokenizer.read(Type.BEGIN_OBJECT);
+        int pos = tokenizer.pos();
+        assertEquals(new Token(Type.STRING, "a", pos), tokenizer.read());
+        tokenizer.setPos(pos);
+        assertEquals(new Token(Type.STRING, "a", pos), tokenizer.read());
+
+        // skip forward past the buffered input
+        int d = JSON.indexOf("\"d\"");
+        tokenizer.setPos(d);
+        assertEquals(new Token(Type.STRING, "d", d), tokenizer.read());
+        tokenizer.read(Type.COLON);
+        assertEquals(new Token(Type.NUMBER, "-12.34e-56", d + 4), tokenizer.read());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testSetPosOutsideWindow() {
+        JsonTokenizer tokenizer = new ReaderJsonTokenizer(new StringReader(JSON), 4);
+        while (!tokenizer.peek(Type.EOF)) {
+            tokenizer.read();
+        }
+        tokenizer.setPos(0);
+    }
+
+    @Test(expected = ParseException.class)
+    public void testUnterminatedString() {
+        new ReaderJsonTokenizer(new StringReader("\"abc")).read();
+    }
+
+    @Test
+    public void testParse() {
+        String json = JsonParserTest.readFile("/test1.json");
+        JsonObject expected = FullJsonParser.parseObject(new DefaultJsonTokenizer(json));
+
+        InputStream in = ReaderJsonTokenizerTest.class.getResourceAsStream("/test1.json");
+        JsonObject actual = FullJsonParser.parseObject(new ReaderJsonTokenizer(in));
+        assertEquals(expected, actual);
+    }
+
+    @Test
+    public void testSkipLargeInput() {
+        InputStream in = ReaderJsonTokenizerTest.class.getResourceAsStream("/test2.json");
+        JsonTokenizer tokenizer = new ReaderJsonTokenizer(new InputStreamReader(in), 64);
+        JsonParser.SKIP_PARSER.parseObject(tokenizer);
+        assertEquals(Type.EOF, tokenizer.read().type());
+
+        // tokenize all values instead of skipping them
+        in = ReaderJsonTokenizerTest.class.getResourceAsStream("/test2.json");
+        tokenizer = new ReaderJsonTokenizer(new InputStreamReader(in), 64);
+        new JsonParser(new JsonHandler()).parseObject(tokenizer);
+        assertEquals(Type.EOF, tokenizer.read().type());
+    }
+
+    @Test
+    public void testBufferShrinks() {
+        StringBuilder large = new StringBuilder();
+        for (int k = 0; k < 1000; k++) {
+            large.append("abcdefghij");
+        }
+        StringBuilder json = new StringBuilder("[\"").append(large).append('"');
+        for (int k = 0; k < 10000; k++) {
+            json.append(",").append(k);
+        }
+        json.append(']');
+
+        ReaderJsonTokenizer tokenizer = new ReaderJsonTokenizer(new StringReader(json.toString()), 16);
+        tokenizer.read(Type.BEGIN_ARRAY);
+        assertEquals(new Token(Type.STRING, large.toString(), 1), tokenizer.read());
+        assertTrue(tokenizer.capacity() >= large.length());
+
+        // the buffer shrinks once the large string is consumed
+        for (int k = 0; k < 10000; k++) {
+            tokenizer.read(Type.COMMA);
+            assertEquals(new Token(Type.NUMBER, Integer.toString(k), 0), tokenizer.read());
+        }
+        tokenizer.read(Type.END_ARRAY);
+        assertEquals(Type.EOF, tokenizer.read().type());
+        assertEquals(16, tokenizer.capacity());
+
+        // the buffer shrinks when resetting
+        tokenizer.reset(new StringReader(json.toString()));
+        tokenizer.read(Type.BEGIN_ARRAY);
+        tokenizer.read(Type.STRING);
+        assertTrue(tokenizer.capacity() >= large.length());
+        tokenizer.reset(new StringReader(JSON));
+        assertEquals(16, tokenizer.capacity());
+        assertEquals(FullJsonParser.parseObject(new DefaultJsonTokenizer(JSON)), FullJsonParser.parseObject(tokenizer));
+    }
+}
@@ -0,0 +1,64 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package michid.jsonjerk;
+
+/**
+ * Measures parse time of documents from 1 KB up to a maximal size (100 MB
+ * by default). Time per byte should stay roughly constant as the documents
+ * grow. Run with the maximal size in MB as optional argument and sufficient
+ * heap (e.g. -Xmx2g).
+ */
+public class ScalingBenchmark {
+    // not JsonParser.SKIP_PARSER, which skips values without tokenizing them
+    private static final JsonParser PARSER = new JsonParser(new JsonHandler());
+
+    public static void main(String[] args) {
+        long maxSize = (args.length > 0 ? Integer.parseInt(args[0]) : 100) * 1024L * 1024L;
+
+        // warm up
+        for (int k = 0; k < 20; k++) {
+            parse(DefaultJsonTokenizerTest.document(64 * 1024));
+        }
+
+        for (long size = 1024; size <= maxSize; size *= 4) {
+            String json = DefaultJsonTokenizerTest.document((int) size);
+            int iterations = (int) Math.max(1, 64 * 1024 * 1024 / size);
+            long nanos = 0;
+            for (int k = 0; k < iterations; k++) {
+                nanos += parse(json);
+            }
+            report(json.length(), nanos / iterations);
+        }
+
+        String json = DefaultJsonTokenizerTest.document((int) maxSize);
+        report(json.length(), parse(json));
+    }
+
+    private static long parse(String json) {
+        long t0 = System.nanoTime();
+        PARSER.parseArray(new DefaultJsonTokenizer(json));
+        return System.nanoTime() - t0;
+    }
+
+    private static void report(int size, long nanos) {
+        System.out.println(String.format("  %12d chars %12.3f ms %8.2f ns/char",
+                size, nanos / 1e6, (double) nanos / size));
+    }
+}
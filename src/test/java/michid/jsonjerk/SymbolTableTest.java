@@ -0,0 +1,246 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package michid.jsonjerk;
+
+import michid.jsonjerk.Token.Type;
+import org.junit.Test;
+
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Callable;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class SymbolTableTest {
+    private static final String JSON = "[{\"name\":1,\"id\":\"name\"},{\"name\" :2, \"id\"\n: \"\\u00e4\"}," +
+            "{\"\\u00e4\\u00f6\":3,\"name\":4}]";
+
+    @Test
+    public void testIntern() {
+        SymbolTable symbolTable = new SymbolTable();
+        String key = symbolTable.intern(new String("key"));
+        assertSame(key, symbolTable.intern(new String("key")));
+        assertSame(key, symbolTable.intern("a key b", 2, 5));
+        assertSame(key, symbolTable.intern("a key b".toCharArray(), 2, 5));
+        assertSame(key, symbolTable.intern(new StringBuilder("key"), 0, 3));
+        assertEquals("ke", symbolTable.intern("key", 0, 2));
+    }
+
+    @Test
+    public void testCapacity() {
+        assertEquals(1, new SymbolTable(1).capacity());
+        assertEquals(1024, new SymbolTable(1000).capacity());
+        assertEquals(1024, new SymbolTable(1024).capacity());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidCapacity() {
+        new SymbolTable(0);
+    }
+
+    @Test
+    public void testEviction() {
+        SymbolTable symbolTable = new SymbolTable(1);
+        String a = symbolTable.intern(new String("a"));
+        assertSame(a, symbolTable.intern(new String("a")));
+        String b = symbolTable.intern(new String("b"));
+        assertSame(b, symbolTable.intern(new String("b")));
+        assertNotSame(a, symbolTable.intern(new String("a")));
+    }
+
+    @Test
+    public void testCollision() {
+        // "Aa" and "BB" have the same hash code and thus share a set in every table
+        assertEquals("Aa".hashCode(), "BB".hashCode());
+        SymbolTable symbolTable = new SymbolTable(2);
+        String aa = symbolTable.intern(new String("Aa"));
+        String bb = symbolTable.intern(new String("BB"));
+        for (int k = 0; k < 3; k++) {
+            assertSame(aa, symbolTable.intern(new String("Aa")));
+            assertSame(bb, symbolTable.intern("BB", 0, 2));
+            assertSame(aa, symbolTable.intern("Aa".toCharArray(), 0, 2));
+            assertSame(bb, symbolTable.intern(new StringBuilder("BB"), 0, 2));
+        }
+
+        for (JsonTokenizer tokenizer : tokenizers("[{\"Aa\":1,\"BB\":2},{\"Aa\":3,\"BB\":4}]")) {
+            tokenizer.setSymbolTable(symbolTable);
+            List<String> keys = new ArrayList<String>();
+            new JsonParser(new Collector(keys, new ArrayList<String>())).parseArray(tokenizer);
+            assertEquals(Arrays.asList(aa, bb, aa, bb), keys);
+            for (int k = 0; k < keys.size(); k++) {
+                assertSame(k % 2 == 0 ? aa : bb, keys.get(k));
+            }
+        }
+    }
+
+    @Test
+    public void testHighCardinality() {
+        // all keys share the single set of the table
+        SymbolTable symbolTable = new SymbolTable(2);
+        String name = symbolTable.intern(new String("name"));
+        for (int k = 0; k < 100; k++) {
+            symbolTable.intern("id" + k);
+            assertSame(name, symbolTable.intern(new String("name")));
+        }
+    }
+
+    @Test
+    public void testLongKeys() {
+        SymbolTable symbolTable = new SymbolTable();
+        StringBuilder sb = new StringBuilder();
+        for (int k = 0; k <= SymbolTable.MAX_KEY_LENGTH; k++) {
+            sb.append('x');
+        }
+        String key = sb.append('y').toString();
+        int end = SymbolTable.MAX_KEY_LENGTH + 1;
+        assertNotSame(symbolTable.intern(key, 0, end), symbolTable.intern(key, 0, end));
+    }
+
+    @Test
+    public void testTokenizers() {
+        for (JsonTokenizer tokenizer : tokenizers(JSON)) {
+            tokenizer.setSymbolTable(new SymbolTable());
+            List<String> keys = new ArrayList<String>();
+            List<String> values = new ArrayList<String>();
+            new JsonParser(new Collector(keys, values)).parseArray(tokenizer);
+
+            assertEquals(6, keys.size());
+            assertEquals("name", keys.get(0));
+            assertEquals("id", keys.get(1));
+            assertSame(keys.get(0), keys.get(2));
+            assertSame(keys.get(0), keys.get(5));
+            assertSame(keys.get(1), keys.get(3));
+
+            // values are not interned
+            assertEquals("name", values.get(1));
+            assertNotSame(keys.get(0), values.get(1));
+        }
+    }
+
+    @Test
+    public void testCursor() {
+        for (JsonTokenizer tokenizer : tokenizers("{\"key\": 1, \"key\": \"key\"}")) {
+            SymbolTable symbolTable = new SymbolTable();
+            tokenizer.setSymbolTable(symbolTable);
+            tokenizer.advance(Type.BEGIN_OBJECT);
+            String key = tokenizer.advance(Type.STRING).text();
+            tokenizer.advance(Type.COLON);
+            tokenizer.advance(Type.NUMBER);
+            tokenizer.advance(Type.COMMA);
+            assertSame(key, tokenizer.advance(Type.STRING).text());
+            tokenizer.advance(Type.COLON);
+            assertNotSame(key, tokenizer.advance(Type.STRING).text());
+            assertSame(key, symbolTable.intern(new String("key")));
+        }
+    }
+
+    @Test
+    public void testDocuments() {
+        DefaultJsonTokenizer tokenizer = new DefaultJsonTokenizer("{\"a\":1}{\"a\":2}");
+        tokenizer.setSymbolTable(new SymbolTable());
+        List<String> keys = new ArrayList<String>();
+        Collector collector = new Collector(keys, new ArrayList<String>());
+        JsonDocuments documents = new JsonDocuments(tokenizer);
+        documents.next(collector);
+        documents.next(collector);
+        tokenizer.reset("{\"a\":3}");
+        documents.next(collector);
+
+        assertEquals(3, keys.size());
+        assertSame(keys.get(0), keys.get(1));
+        assertSame(keys.get(0), keys.get(2));
+    }
+
+    @Test
+    public void testCopy() {
+        JsonTokenizer tokenizer = new DefaultJsonTokenizer(JSON);
+        SymbolTable symbolTable = new SymbolTable();
+        tokenizer.setSymbolTable(symbolTable);
+        assertSame(symbolTable, tokenizer.copy().symbolTable());
+    }
+
+    @Test
+    public void testConcurrent() throws Exception {
+        final SymbolTable symbolTable = new SymbolTable(16);
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<Boolean>> results = new ArrayList<Future<Boolean>>();
+            for (int t = 0; t < 4; t++) {
+                results.add(executor.submit(new Callable<Boolean>() {
+                    @Override
+                    public Boolean call() {
+                        for (int k = 0; k < 100000; k++) {
+                            String key = "key" + k % 100;
+                            if (!key.equals(symbolTable.intern(key, 0, key.length()))) {
+                                return false;
+                            }
+                        }
+                        return true;
+                    }
+                }));
+            }
+            for (Future<Boolean> result : results) {
+                assertTrue(result.get());
+            }
+        }
+        finally {
+            executor.shutdown();
+        }
+    }
+
+    //------------------------------------------< private >---
+
+    private static List<JsonTokenizer> tokenizers(String json) {
+        List<JsonTokenizer> tokenizers = new ArrayList<JsonTokenizer>();
+        tokenizers.add(new DefaultJsonTokenizer(json));
+        tokenizers.add(new UnescapingJsonTokenizer(json));
+        tokenizers.add(new IndexedJsonTokenizer(json));
+        tokenizers.add(new Utf8JsonTokenizer(Utf8JsonTokenizerTest.utf8(json)));
+        tokenizers.add(new ReaderJsonTokenizer(new StringReader(json), 4));
+        return tokenizers;
+    }
+
+    private static class Collector extends JsonHandler {
+        private final List<String> keys;
+        private final List<String> values;
+
+        Collector(List<String> keys, List<String> values) {
+            this.keys = keys;
+            this.values = values;
+        }
+
+        @Override
+        public void atom(Token key, Token value) {
+            if (key != null) {
+                keys.add(key.text());
+            }
+            values.add(value.text());
+        }
+    }
+
+}
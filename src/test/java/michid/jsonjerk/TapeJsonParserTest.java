@@ -0,0 +1,147 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package michid.jsonjerk;
+
+import michid.jsonjerk.JsonValue.JsonArray;
+import michid.jsonjerk.JsonValue.JsonObject;
+import org.junit.Test;
+
+import java.util.ListIterator;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class TapeJsonParserTest {
+
+    @Test
+    public void testDocuments() {
+        for (String name : new String[] {"/test1.json", "/test2.json"}) {
+            String json = JsonParserTest.readFile(name);
+            byte[] utf8 = Utf8JsonTokenizerTest.utf8(json);
+
+            JsonObject expected = FullJsonParser.parseObject(new DefaultJsonTokenizer(json));
+            JsonObject actual = TapeJsonParser.parseObject(new DefaultJsonTokenizer(json));
+            assertEquals(expected, actual);
+            assertEquals(actual, expected);
+            assertEquals(expected.hashCode(), actual.hashCode());
+            assertEquals(expected.toJson(), actual.toJson());
+
+            assertEquals(FullJsonParser.parseObject(new UnescapingJsonTokenizer(json)),
+                    TapeJsonParser.parseObject(new UnescapingJsonTokenizer(json)));
+            assertEquals(FullJsonParser.parseObject(new Utf8JsonTokenizer(utf8)),
+                    TapeJsonParser.parseObject(new Utf8JsonTokenizer(utf8)));
+            assertEquals(expected, TapeJsonParser.parseObject(new IndexedJsonTokenizer(json)));
+        }
+    }
+
+    @Test
+    public void testAccess() {
+        String json = "{\"a\":{\"b\":[1,{\"c\":true},[],[null,\"x\"]],\"d\":{}},\"e\":\"f\",\"g\":[]}";
+        JsonObject object = TapeJsonParser.parseObject(new DefaultJsonTokenizer(json));
+
+        assertEquals("f", object.get("e").asAtom().value());
+        assertNull(object.get("x"));
+        assertTrue(object.get("g").asArray().isEmpty());
+        assertEquals(3, object.value().size());
+
+        JsonObject a = object.get("a").asObject();
+        assertTrue(a.get("d").asObject().isEmpty());
+        JsonArray b = a.get("b").asArray();
+        assertEquals(4, b.size());
+        assertEquals("1", b.get(0).asAtom().value());
+        assertTrue(b.get(1).asObject().get("c").isTrue());
+        assertEquals(0, b.get(2).asArray().size());
+        assertTrue(b.get(3).asArray().get(0).isNull());
+        assertEquals("x", b.get(3).asArray().get(1).asAtom().value());
+
+        assertEquals(json, object.toJson());
+    }
+
+    @Test
+    public void testDuplicateKeys() {
+        String json = "{\"a\":1,\"b\":{\"c\":2,\"c\":3},\"a\":4}";
+        JsonObject expected = FullJsonParser.parseObject(new DefaultJsonTokenizer(json));
+        JsonObject actual = TapeJsonParser.parseObject(new DefaultJsonTokenizer(json));
+
+        assertEquals("4", actual.get("a").asAtom().value());
+        assertEquals("3", actual.get("b").asObject().get("c").asAtom().value());
+        assertEquals(2, actual.value().size());
+        assertEquals(1, actual.get("b").asObject().value().size());
+        assertEquals(expected, actual);
+        assertEquals(actual, expected);
+        assertEquals(expected.hashCode(), actual.hashCode());
+        assertEquals(expected.toJson(), actual.toJson());
+    }
+
+    @Test
+    public void testArray() {
+        String json = "[1,\"a\",{\"b\":[2,3]},[4]]";
+        JsonArray array = TapeJsonParser.parseArray(new DefaultJsonTokenizer(json));
+        assertEquals(FullJsonParser.parseArray(new DefaultJsonTokenizer(json)), array);
+        assertEquals(json, array.toJson());
+    }
+
+    @Test
+    public void testListIterator() {
+        JsonArray array = TapeJsonParser.parseArray(new DefaultJsonTokenizer("[1,[2],{\"a\":3},4]"));
+        ListIterator<JsonValue> values = array.value().listIterator(4);
+        assertFalse(values.hasNext());
+        assertEquals("4", values.previous().asAtom().value());
+        assertEquals(3, values.previous().asObject().get("a").asAtom().asNumber().asLong());
+        assertEquals(2, values.nextIndex());
+        assertEquals(2, array.get(1).asArray().getLong(0));
+        assertEquals(4, array.value().size());
+    }
+
+    @Test(timeout = 30000)
+    public void testLargeArray() {
+        // Fails by time out if indexed access is not constant time
+        StringBuilder json = new StringBuilder("[0");
+        for (int k = 1; k < 200000; k++) {
+            json.append(',').append(k);
+        }
+        String text = json.append(']').toString();
+        JsonArray expected = TapeJsonParser.parseArray(new DefaultJsonTokenizer(text));
+        JsonArray actual = TapeJsonParser.parseArray(new DefaultJsonTokenizer(text));
+        assertEquals(expected.value(), actual.value());
+        long sum = 0;
+        for (int k = 0; k < actual.size(); k++) {
+            sum += actual.getLong(k);
+        }
+        assertEquals(199999L * 200000 / 2, sum);
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void testIndexOutOfBounds() {
+        TapeJsonParser.parseArray(new DefaultJsonTokenizer("[1,[2,3]]")).get(2);
+    }
+
+    @Test(expected = ParseException.class)
+    public void testParseException() {
+        TapeJsonParser.parseObject(new DefaultJsonTokenizer("{\"a\":[1,2,]}"));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testReadOnly() {
+        TapeJsonParser.parseObject(new DefaultJsonTokenizer("{}")).put("a", JsonValue.JsonAtom.NULL);
+    }
+}
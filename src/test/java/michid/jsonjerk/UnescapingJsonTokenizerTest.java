@@ -23,14 +23,18 @@ import michid.jsonjerk.Token.Type;
 import org.junit.Test;
 
 import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertFalse;
+import static junit.framework.Assert.assertSame;
+import static junit.framework.Assert.assertTrue;
+import static junit.framework.Assert.fail;
 
 public class UnescapingJsonTokenizerTest {
 
     private static final Token[] TOKENS = new Token[] {
         new Token(Type.STRING, "foobar", 0),
         new Token(Type.STRING, "foo\\bar", 9),
-        new Token(Type.STRING, "foobar", 20),
-        new Token(Type.STRING, "foobar", 33),
+        new Token(Type.STRING, "foobbar", 20),
+        new Token(Type.STRING, "foobbar", 33),
         new Token(Type.STRING, "foo\bbar", 48),
         new Token(Type.STRING, "foo\tbar", 59),
         new Token(Type.STRING, "foo\nbar", 70),
@@ -56,4 +60,82 @@ public class UnescapingJsonTokenizerTest {
         assertEquals(EOF_TOKEN, t);
         assertEquals(EOF_TOKEN.pos(), t.pos());
     }
+
+    @Test
+    public void testLazyUnescaping() {
+        JsonTokenizer tokenizer = new UnescapingJsonTokenizer("[\"a\\u00\", \"b\"]");
+        tokenizer.read(Type.BEGIN_ARRAY);
+        Token invalid = tokenizer.read(Type.STRING);
+        tokenizer.read(Type.COMMA);
+        assertEquals("b", tokenizer.read(Type.STRING).text());
+        try {
+            invalid.text();
+            fail();
+        }
+        catch (ParseException expected) { }
+    }
+
+    @Test
+    public void testSkipInvalidEscape() {
+        JsonTokenizer tokenizer = new UnescapingJsonTokenizer("{\"a\": \"\\x\", \"b\": 1}");
+        tokenizer.read(Type.BEGIN_OBJECT);
+        tokenizer.read(Type.STRING);
+        tokenizer.read(Type.COLON);
+        tokenizer.skipValue();
+        tokenizer.read(Type.COMMA);
+        assertEquals("b", tokenizer.read(Type.STRING).text());
+    }
+
+    @Test
+    public void testTokensOutOfOrder() {
+        // tokens are created for strings other than the one scanned last
+        JsonTokenizer tokenizer = new UnescapingJsonTokenizer("[\"a\\nb\", \"plain\", \"c\\\\\"]");
+        tokenizer.read(Type.BEGIN_ARRAY);
+        tokenizer.cursor();
+        JsonTokenizer escaped = tokenizer.copy();
+        tokenizer.advance();
+        tokenizer.read(Type.COMMA);
+        tokenizer.cursor();
+        JsonTokenizer plain = tokenizer.copy();
+        tokenizer.advance();
+        tokenizer.read(Type.COMMA);
+        assertEquals("c\\", tokenizer.read(Type.STRING).text());
+
+        assertEquals("plain", plain.cursor().toToken().text());
+        assertEquals("a\nb", escaped.cursor().toToken().text());
+    }
+
+    @Test
+    public void testUnescapeWithoutEscapes() {
+        String text = "no escapes";
+        assertSame(text, JsonValue.unescape(text));
+        assertEquals("a\"b\u00e4c", JsonValue.unescape("a\\\"b\\u00e4c"));
+    }
+
+    @Test
+    public void testTextEquals() {
+        JsonTokenizer tokenizer = new UnescapingJsonTokenizer(
+                "\"plain\" \"a\\\"b\" \"\\u00e4\\n\" \"\\u00e4\" \"\\x41\" \"\\u00\" 42");
+
+        assertTrue(tokenizer.advance().textEquals("plain"));
+        TokenCursor cursor = tokenizer.advance();
+        assertTrue(cursor.textEquals("a\"b"));
+        assertFalse(cursor.textEquals("a\\\"b"));
+        cursor = tokenizer.advance();
+        assertTrue(cursor.textEquals("\u00e4\n"));
+        assertFalse(cursor.textEquals("\u00e4"));
+        cursor = tokenizer.advance();
+        assertFalse(cursor.textEquals("\u00e4\n"));
+        assertFalse(cursor.textEquals(""));
+        assertTrue(tokenizer.advance().textEquals("A"));
+
+        cursor = tokenizer.advance();
+        try {
+            cursor.textEquals("x");
+            fail();
+        }
+        catch (ParseException expected) { }
+
+        assertTrue(tokenizer.advance().textEquals("42"));
+    }
 }
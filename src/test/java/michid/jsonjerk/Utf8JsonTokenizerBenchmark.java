@@ -0,0 +1,81 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package michid.jsonjerk;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+
+/**
+ * Compares parsing UTF-8 input with {@link Utf8JsonTokenizer} against decoding
+ * it into a string first and parsing that with {@link DefaultJsonTokenizer}.
+ * Run with an optional iteration count as argument.
+ */
+public class Utf8JsonTokenizerBenchmark {
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+
+    // not JsonParser.SKIP_PARSER, which skips values without tokenizing them
+    private static final JsonParser PARSER = new JsonParser(new JsonHandler());
+
+    public static void main(String[] args) {
+        int iterations = args.length > 0 ? Integer.parseInt(args[0]) : 10;
+        byte[] bytes = Utf8JsonTokenizerTest.utf8(JsonParserTest.readFile("/test2.json"));
+        ByteBuffer direct = ByteBuffer.allocateDirect(bytes.length);
+        direct.put(bytes).flip();
+
+        for (int run = 0; run < 2; run++) {
+            String label = run == 0 ? "warm up" : "measure";
+            System.out.println(label + ": " + bytes.length + " bytes, " + iterations + " iterations");
+            report("decode + DefaultJsonTokenizer", decodeAndParse(bytes, iterations), bytes.length, iterations);
+            report("Utf8JsonTokenizer(byte[])", parse(bytes, iterations), bytes.length, iterations);
+            report("Utf8JsonTokenizer(direct buffer)", parse(direct, iterations), bytes.length, iterations);
+        }
+    }
+
+    private static long decodeAndParse(byte[] bytes, int iterations) {
+        long t0 = System.nanoTime();
+        for (int k = 0; k < iterations; k++) {
+            String json = new String(bytes, UTF8);
+            PARSER.parseObject(new DefaultJsonTokenizer(json));
+        }
+        return System.nanoTime() - t0;
+    }
+
+    private static long parse(byte[] bytes, int iterations) {
+        long t0 = System.nanoTime();
+        for (int k = 0; k < iterations; k++) {
+            PARSER.parseObject(new Utf8JsonTokenizer(bytes));
+        }
+        return System.nanoTime() - t0;
+    }
+
+    private static long parse(ByteBuffer buffer, int iterations) {
+        long t0 = System.nanoTime();
+        for (int k = 0; k < iterations; k++) {
+            PARSER.parseObject(new Utf8JsonTokenizer(buffer));
+        }
+        return System.nanoTime() - t0;
+    }
+
+    private static void report(String name, long nanos, int bytes, int iterations) {
+        double ms = nanos / 1e6 / iterations;
+        double mbs = bytes / 1024.0 / 1024.0 / (ms / 1000);
+        System.out.println(String.format("  %-34s %10.2f ms/op %10.2f MB/s", name, ms, mbs));
+    }
+}
@@ -0,0 +1,106 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package michid.jsonjerk;
+
+import michid.jsonjerk.JsonValue.JsonObject;
+import michid.jsonjerk.Token.Type;
+import org.junit.Test;
+
+import java.io.UnsupportedEncodingException;
+import java.nio.ByteBuffer;
+
+import static org.junit.Assert.assertEquals;
+
+public class Utf8JsonTokenizerTest {
+    private static final String JSON = "{\"a\":1,\"b\":[true,false,null],\"c\":\"some \\\"long\\\" string\"," +
+            "\"d\":-12.34e-56,\"e\":{\"f\":{}},\"g\":qwe}";
+
+    @Test
+    public void testTokens() {
+        JsonTokenizer expected = new DefaultJsonTokenizer(JSON);
+        JsonTokenizer actual = new Utf8JsonTokenizer(utf8(JSON));
+
+        Token token;
+        do {
+            token = expected.read();
+            Token t = actual.read();
+            assertEquals(token, t);
+            assertEquals(token.pos(), t.pos());
+        } while (token.type() != Type.EOF);
+    }
+
+    @Test
+    public void testMultiByte() {
+        JsonTokenizer tokenizer = new Utf8JsonTokenizer(utf8("[\"\u00e4\u00f6\u00fc\",\"\u20ac\",\"\ud83d\ude00\",42]"));
+        assertEquals(new Token(Type.BEGIN_ARRAY, "[", 0), tokenizer.read());
+        assertEquals(new Token(Type.STRING, "\u00e4\u00f6\u00fc", 1), tokenizer.read());
+        tokenizer.read(Type.COMMA);
+        Token euro = tokenizer.read();
+        assertEquals(new Token(Type.STRING, "\u20ac", 10), euro);
+        assertEquals(10, euro.pos());
+        tokenizer.read(Type.COMMA);
+        assertEquals(new Token(Type.STRING, "\ud83d\ude00", 16), tokenizer.read());
+        tokenizer.read(Type.COMMA);
+        Token number = tokenizer.read();
+        assertEquals(new Token(Type.NUMBER, "42", 23), number);
+        assertEquals(23, number.pos());
+    }
+
+    @Test
+    public void testByteBuffer() {
+        byte[] bytes = utf8("xxx[\"abc\",1]yyy");
+        ByteBuffer buffer = ByteBuffer.allocateDirect(bytes.length);
+        buffer.put(bytes).position(3);
+        buffer.limit(bytes.length - 3);
+
+        JsonTokenizer tokenizer = new Utf8JsonTokenizer(buffer);
+        assertEquals(new Token(Type.BEGIN_ARRAY, "[", 0), tokenizer.read());
+        assertEquals(new Token(Type.STRING, "abc", 1), tokenizer.read());
+        assertEquals(new Token(Type.COMMA, ",", 6), tokenizer.read());
+        assertEquals(new Token(Type.NUMBER, "1", 7), tokenizer.read());
+        assertEquals(new Token(Type.END_ARRAY, "]", 8), tokenizer.read());
+        assertEquals(new Token(Type.EOF, "", 9), tokenizer.read());
+        assertEquals(3, buffer.position());
+    }
+
+    @Test
+    public void testParse() {
+        String json = JsonParserTest.readFile("/test2.json");
+        JsonObject expected = FullJsonParser.parseObject(new DefaultJsonTokenizer(json));
+        JsonObject actual = FullJsonParser.parseObject(new Utf8JsonTokenizer(utf8(json)));
+        assertEquals(expected, actual);
+    }
+
+    @Test(expected = ParseException.class)
+    public void testUnterminatedString() {
+        new Utf8JsonTokenizer(utf8("\"abc")).read();
+    }
+
+    //------------------------------------------< private >---
+
+    static byte[] utf8(String json) {
+        try {
+            return json.getBytes("UTF-8");
+        }
+        catch (UnsupportedEncodingException e) {
+            throw new RuntimeException(e);
+        }
+    }
+}